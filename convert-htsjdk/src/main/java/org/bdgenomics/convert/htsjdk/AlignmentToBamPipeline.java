@@ -0,0 +1,240 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.Iterator;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+import org.apache.avro.file.DataFileReader;
+
+import org.apache.avro.specific.SpecificDatumReader;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert an Avro container file of Alignment records to a BAM file.
+ *
+ * <p>
+ * Alignments are read on the calling thread, converted in parallel batches with a converter
+ * created for the specified header, and written in input order.  BGZF blocks are compressed
+ * in parallel, and a BAI index may be written on the fly for coordinate sorted output.  The BAM
+ * file written is byte-identical for any number of threads.  Alignments that fail conversion
+ * when the conversion stringency is lenient or silent are skipped.
+ * </p>
+ */
+public final class AlignmentToBamPipeline {
+
+    /** Default number of records per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /** Factory for Alignment to htsjdk SAMRecord converters. */
+    private final AlignmentToSamRecordFactory alignmentToSamRecordFactory;
+
+    /** Number of converter and compression threads. */
+    private final int threads;
+
+    /** Number of records per batch. */
+    private final int batchSize;
+
+
+    /**
+     * Create a new Alignment to BAM pipeline with the specified number of threads and batch size.
+     *
+     * @param alignmentToSamRecordFactory factory for Alignment to htsjdk SAMRecord converters, must not be null
+     * @param threads number of converter threads and of compression threads, must be at least one
+     * @param batchSize number of records per batch, must be at least one
+     */
+    @Inject
+    public AlignmentToBamPipeline(final AlignmentToSamRecordFactory alignmentToSamRecordFactory,
+                                  @Assisted("threads") final int threads,
+                                  @Assisted("batchSize") final int batchSize) {
+        if (alignmentToSamRecordFactory == null) {
+            throw new NullPointerException("alignmentToSamRecordFactory must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least one, was " + threads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least one, was " + batchSize);
+        }
+        this.alignmentToSamRecordFactory = alignmentToSamRecordFactory;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Convert the specified Avro container file of Alignment records to the specified BAM file.
+     *
+     * @param input input file, must not be null
+     * @param header header, must not be null
+     * @param output output BAM file, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final File input,
+                                      final SAMFileHeader header,
+                                      final File output,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        return convert(input, header, output, null, stringency, logger);
+    }
+
+    /**
+     * Convert the specified Avro container file of Alignment records to the specified BAM file,
+     * writing a BAI index to the specified index file.
+     *
+     * @param input input file, must not be null
+     * @param header header, must not be null and must be coordinate sorted if index is not null
+     * @param output output BAM file, must not be null
+     * @param index output BAI index file, or null to not write an index
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final File input,
+                                      final SAMFileHeader header,
+                                      final File output,
+                                      final File index,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        if (input == null) {
+            throw new NullPointerException("input must not be null");
+        }
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        if (output == null) {
+            throw new NullPointerException("output must not be null");
+        }
+        if (index != null && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+            throw new IllegalArgumentException("header must be coordinate sorted to write an index, was " + header.getSortOrder());
+        }
+        try (DataFileReader<Alignment> reader = new DataFileReader<Alignment>(input, new SpecificDatumReader<Alignment>(Alignment.class));
+             OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(output));
+             OutputStream indexStream = index == null ? null : new BufferedOutputStream(new FileOutputStream(index))) {
+            return convert(reader, header, outputStream, indexStream, stringency, logger);
+        }
+    }
+
+    /**
+     * Convert the specified Alignment records to BAM written to the specified output stream,
+     * optionally writing a BAI index to the specified index output stream.  The output
+     * streams are closed on return.  If conversion fails, neither the BGZF end-of-file
+     * marker nor the index is written, so the output is recognizably incomplete.
+     *
+     * @param alignments alignments to convert, must not be null
+     * @param header header, must not be null and must be coordinate sorted if indexStream is not null
+     * @param outputStream output stream, must not be null
+     * @param indexStream index output stream, or null to not write an index
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final Iterator<Alignment> alignments,
+                                      final SAMFileHeader header,
+                                      final OutputStream outputStream,
+                                      final OutputStream indexStream,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        if (alignments == null) {
+            throw new NullPointerException("alignments must not be null");
+        }
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        if (outputStream == null) {
+            throw new NullPointerException("outputStream must not be null");
+        }
+        if (stringency == null) {
+            throw new NullPointerException("stringency must not be null");
+        }
+        if (logger == null) {
+            throw new NullPointerException("logger must not be null");
+        }
+
+        Converter<Alignment, SAMRecord> converter = alignmentToSamRecordFactory.create(header);
+        ParallelBamWriter writer;
+        try {
+            writer = new ParallelBamWriter(outputStream, indexStream, header, threads, BlockCompressedOutputStream.getDefaultCompressionLevel());
+        }
+        catch (IOException | RuntimeException e) {
+            close(outputStream, e);
+            if (indexStream != null) {
+                close(indexStream, e);
+            }
+            throw e;
+        }
+        PipelineStatistics statistics;
+        try {
+            statistics = new BatchPipeline<Alignment, SAMRecord>("alignment-to-bam", threads, batchSize)
+                .run(alignments, converter, writer::addAlignment, stringency, logger);
+        }
+        catch (IOException | RuntimeException | Error e) {
+            // abort rather than close, so that a failed conversion does not look like a complete BAM file
+            try {
+                writer.abort();
+            }
+            catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        writer.close();
+        return statistics;
+    }
+
+    /**
+     * Close the specified output stream after the specified failure, adding any exception thrown as suppressed.
+     */
+    private static void close(final OutputStream outputStream, final Exception failure) {
+        try {
+            outputStream.close();
+        }
+        catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Factory for creating Alignment to BAM pipelines, which require late binding
+ * for the number of threads and batch size.
+ *
+ * <pre>
+ * AlignmentToBamPipeline pipeline = alignmentToBamPipelineFactory.create(8, AlignmentToBamPipeline.DEFAULT_BATCH_SIZE);
+ * PipelineStatistics statistics = pipeline.convert(new File("sample.alignments.avro"), header, new File("sample.bam"), new File("sample.bai"), stringency, logger);
+ * </pre>
+ */
+public interface AlignmentToBamPipelineFactory {
+
+    /**
+     * Create a new Alignment to BAM pipeline with the specified number of threads and batch size.
+     *
+     * @param threads number of converter threads and of compression threads, must be at least one
+     * @param batchSize number of records per batch, must be at least one
+     * @return a new Alignment to BAM pipeline with the specified number of threads and batch size
+     */
+    AlignmentToBamPipeline create(@Assisted("threads") int threads, @Assisted("batchSize") int batchSize);
+}
@@ -0,0 +1,543 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert Alignment to a SAM text line, without creating an intermediate htsjdk SAMRecord.
+ *
+ * <p>
+ * Fields are written as {@link AlignmentToSamRecord} would set them on a SAMRecord, so that
+ * the mandatory columns match those written by htsjdk SAMTextWriter.  The RG, LB, PU, MD, OQ,
+ * OC, and OP tags are written from their dedicated fields, unless the same tag is present in
+ * the attributes, followed by the attributes copied verbatim, since they are already in SAM
+ * text tag format.  Optional tags are therefore not sorted as SAMTextWriter sorts them, and
+ * attribute values are not normalized, e.g. integer tag types are not rewritten to <code>i</code>.
+ * Lines are written without a line terminator, except by the <code>appendAllTo</code> methods,
+ * which terminate each line with <code>\n</code>.
+ * </p>
+ */
+public final class AlignmentToSamLine extends AbstractConverter<Alignment, String> {
+
+    /** Header. */
+    private final SAMFileHeader header;
+
+    /** Read group tags, by read group id. */
+    private final Map<String, ReadGroupTags> readGroups;
+
+    /** RG tag bit. */
+    private static final int RG = 1;
+
+    /** LB tag bit. */
+    private static final int LB = 1 << 1;
+
+    /** PU tag bit. */
+    private static final int PU = 1 << 2;
+
+    /** MD tag bit. */
+    private static final int MD = 1 << 3;
+
+    /** OQ tag bit. */
+    private static final int OQ = 1 << 4;
+
+    /** OC tag bit. */
+    private static final int OC = 1 << 5;
+
+    /** OP tag bit. */
+    private static final int OP = 1 << 6;
+
+    /** Invalid attribute bit. */
+    private static final int INVALID = 1 << 7;
+
+
+    /**
+     * Create a new Alignment to SAM text line converter with the specified header.
+     *
+     * @param header header, must not be null
+     */
+    @Inject
+    public AlignmentToSamLine(@Assisted final SAMFileHeader header) {
+        super(Alignment.class, String.class);
+
+        checkNotNull(header);
+        this.header = header;
+
+        Map<String, ReadGroupTags> readGroups = new HashMap<String, ReadGroupTags>();
+        for (SAMReadGroupRecord readGroup : header.getReadGroups()) {
+            readGroups.put(readGroup.getId(), new ReadGroupTags(readGroup));
+        }
+        this.readGroups = Collections.unmodifiableMap(readGroups);
+    }
+
+
+    @Override
+    public String convert(final Alignment alignment,
+                          final ConversionStringency stringency,
+                          final Logger logger) throws ConversionException {
+        StringBuilder sb = new StringBuilder(512);
+        return append(alignment, sb, stringency, logger) ? sb.toString() : null;
+    }
+
+    @Override
+    public <C extends Collection<? super String>> C convertAll(final List<? extends Alignment> alignments,
+                                                                final C lines,
+                                                                final ConversionStringency stringency,
+                                                                final Logger logger) throws ConversionException {
+        checkNotNull(alignments, lines, stringency, logger);
+
+        StringBuilder sb = new StringBuilder(512);
+        for (int i = 0, size = alignments.size(); i < size; i++) {
+            sb.setLength(0);
+            lines.add(append(alignments.get(i), sb, stringency, logger) ? sb.toString() : null);
+        }
+        return lines;
+    }
+
+    /**
+     * Append the specified alignment as a SAM text line, without a line terminator, to the
+     * specified string builder.  Nothing is appended for a null alignment when the conversion
+     * stringency is lenient or silent, and other failures are recovered: a mapped alignment
+     * without a reference name is appended with reference <code>*</code>, and invalid
+     * attributes are dropped.
+     *
+     * @param alignment alignment to append
+     * @param sb string builder to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified string builder
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if any of string builder, conversion stringency, or logger are null
+     */
+    public StringBuilder appendTo(final Alignment alignment,
+                                  final StringBuilder sb,
+                                  final ConversionStringency stringency,
+                                  final Logger logger) throws ConversionException {
+        checkNotNull(sb);
+        checkNotNull(stringency, logger);
+        append(alignment, sb, stringency, logger);
+        return sb;
+    }
+
+    /**
+     * Append the specified alignment as a SAM text line, without a line terminator, to the
+     * specified appendable.  Nothing is appended for a null alignment when the conversion
+     * stringency is lenient or silent, and other failures are recovered: a mapped alignment
+     * without a reference name is appended with reference <code>*</code>, and invalid
+     * attributes are dropped.
+     *
+     * @param <A> appendable type
+     * @param alignment alignment to append
+     * @param appendable appendable to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified appendable
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if any of appendable, conversion stringency, or logger are null
+     */
+    public <A extends Appendable> A appendTo(final Alignment alignment,
+                                             final A appendable,
+                                             final ConversionStringency stringency,
+                                             final Logger logger) throws IOException, ConversionException {
+        checkNotNull(appendable);
+        checkNotNull(stringency, logger);
+        if (appendable instanceof StringBuilder) {
+            append(alignment, (StringBuilder) appendable, stringency, logger);
+        }
+        else {
+            StringBuilder sb = new StringBuilder(512);
+            if (append(alignment, sb, stringency, logger)) {
+                appendable.append(sb);
+            }
+        }
+        return appendable;
+    }
+
+    /**
+     * Append the specified list of alignments as SAM text lines, each terminated by
+     * <code>\n</code>, to the specified string builder.  Nothing is appended for null alignments
+     * when the conversion stringency is lenient or silent, and other failures are recovered:
+     * mapped alignments without a reference name are appended with reference <code>*</code>,
+     * and invalid attributes are dropped.
+     *
+     * @param alignments list of alignments to append, must not be null
+     * @param sb string builder to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified string builder
+     * @throws ConversionException if conversion of any alignment fails and the specified
+     *    conversion stringency is strict
+     * @throws NullPointerException if any of alignments, string builder, conversion stringency,
+     *    or logger are null
+     */
+    public StringBuilder appendAllTo(final List<? extends Alignment> alignments,
+                                     final StringBuilder sb,
+                                     final ConversionStringency stringency,
+                                     final Logger logger) throws ConversionException {
+        checkNotNull(alignments);
+        checkNotNull(sb);
+        checkNotNull(stringency, logger);
+        for (int i = 0, size = alignments.size(); i < size; i++) {
+            if (append(alignments.get(i), sb, stringency, logger)) {
+                sb.append('\n');
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Append the specified list of alignments as SAM text lines, each terminated by
+     * <code>\n</code>, to the specified appendable.  Nothing is appended for null alignments
+     * when the conversion stringency is lenient or silent, and other failures are recovered:
+     * mapped alignments without a reference name are appended with reference <code>*</code>,
+     * and invalid attributes are dropped.
+     *
+     * @param <A> appendable type
+     * @param alignments list of alignments to append, must not be null
+     * @param appendable appendable to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified appendable
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion of any alignment fails and the specified
+     *    conversion stringency is strict
+     * @throws NullPointerException if any of alignments, appendable, conversion stringency,
+     *    or logger are null
+     */
+    public <A extends Appendable> A appendAllTo(final List<? extends Alignment> alignments,
+                                                final A appendable,
+                                                final ConversionStringency stringency,
+                                                final Logger logger) throws IOException, ConversionException {
+        checkNotNull(alignments);
+        checkNotNull(appendable);
+        checkNotNull(stringency, logger);
+        StringBuilder sb = appendable instanceof StringBuilder ? (StringBuilder) appendable : new StringBuilder(512);
+        for (int i = 0, size = alignments.size(); i < size; i++) {
+            if (sb != appendable) {
+                sb.setLength(0);
+            }
+            if (append(alignments.get(i), sb, stringency, logger)) {
+                sb.append('\n');
+                if (sb != appendable) {
+                    appendable.append(sb);
+                }
+            }
+        }
+        return appendable;
+    }
+
+    /**
+     * Return the read group tags for the specified read group id, if any.
+     *
+     * @param readGroupId read group id
+     * @return the read group tags for the specified read group id, or null if read group id is null
+     */
+    private ReadGroupTags readGroup(final String readGroupId) {
+        if (readGroupId == null) {
+            return null;
+        }
+        ReadGroupTags readGroup = readGroups.get(readGroupId);
+        if (readGroup == null) {
+            SAMReadGroupRecord readGroupRecord = header.getReadGroup(readGroupId);
+            readGroup = readGroupRecord == null ? new ReadGroupTags(readGroupId) : new ReadGroupTags(readGroupRecord);
+        }
+        return readGroup;
+    }
+
+    /**
+     * Return the end of the tag starting at the specified index in the specified attributes.
+     *
+     * @param attributes attributes
+     * @param start start index
+     * @return the index of the tab following the tag, or the length of the specified attributes
+     */
+    private static int end(final String attributes, final int start) {
+        int end = attributes.indexOf('\t', start);
+        return end < 0 ? attributes.length() : end;
+    }
+
+    /**
+     * Return true if the tag in the specified region of the specified attributes is in
+     * <code>TAG:TYPE:VALUE</code> format.
+     *
+     * @param attributes attributes
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     * @return true if the tag in the specified region is in <code>TAG:TYPE:VALUE</code> format
+     */
+    private static boolean isValid(final String attributes, final int start, final int end) {
+        return end - start >= 5 && attributes.charAt(start + 2) == ':' && attributes.charAt(start + 4) == ':';
+    }
+
+    /**
+     * Return the bit for the specified reserved tag, or zero if the specified tag is not reserved.
+     *
+     * @param a first tag character
+     * @param b second tag character
+     * @return the bit for the specified reserved tag, or zero if the specified tag is not reserved
+     */
+    private static int reserved(final char a, final char b) {
+        switch (a) {
+        case 'R':
+            return b == 'G' ? RG : 0;
+        case 'L':
+            return b == 'B' ? LB : 0;
+        case 'P':
+            return b == 'U' ? PU : 0;
+        case 'M':
+            return b == 'D' ? MD : 0;
+        case 'O':
+            return b == 'Q' ? OQ : b == 'C' ? OC : b == 'P' ? OP : 0;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Scan the specified attributes, returning the bits for the reserved tags present and
+     * whether any tag is invalid.
+     *
+     * @param alignment alignment, for error messages
+     * @param attributes attributes, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the bits for the reserved tags present, and the invalid attribute bit if any tag is invalid
+     * @throws ConversionException if any tag is invalid and the specified conversion stringency is strict
+     */
+    private int scan(final Alignment alignment,
+                     final String attributes,
+                     final ConversionStringency stringency,
+                     final Logger logger) throws ConversionException {
+        int tags = 0;
+        for (int start = 0, length = attributes.length(); start < length; ) {
+            int end = end(attributes, start);
+            if (isValid(attributes, start, end)) {
+                tags |= reserved(attributes.charAt(start), attributes.charAt(start + 1));
+            }
+            else {
+                warnOrThrow(alignment, "invalid attribute", attributes.substring(start, end), null, stringency, logger);
+                tags |= INVALID;
+            }
+            start = end + 1;
+        }
+        return tags;
+    }
+
+    /**
+     * Append the specified tag to the specified string builder.
+     */
+    private static void appendTag(final String tag, final String value, final StringBuilder sb) {
+        sb.append('\t').append(tag).append(value);
+    }
+
+    /**
+     * Append the specified alignment as a SAM text line to the specified string builder.
+     * Alignments are validated before anything is appended, so a null alignment, or any
+     * alignment that fails conversion when the conversion stringency is strict, leaves the
+     * string builder untouched.  When the conversion stringency is lenient or silent, failures
+     * are recovered as {@link AlignmentToSamRecord} recovers them: a mapped alignment without
+     * a reference name is appended with reference <code>*</code>, and invalid attributes are
+     * dropped.
+     *
+     * @param alignment alignment to append
+     * @param sb string builder to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return true if the specified alignment was appended
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    private boolean append(final Alignment alignment,
+                           final StringBuilder sb,
+                           final ConversionStringency stringency,
+                           final Logger logger) throws ConversionException {
+
+        if (alignment == null) {
+            warnOrThrow(alignment, "must not be null", null, stringency, logger);
+            return false;
+        }
+
+        boolean readMapped = Boolean.TRUE.equals(alignment.getReadMapped());
+        if (readMapped && alignment.getReferenceName() == null) {
+            warnOrThrow(alignment, "referenceName must not be null if read aligned", null, stringency, logger);
+        }
+        String attributes = alignment.getAttributes();
+        int tags = attributes == null ? 0 : scan(alignment, attributes, stringency, logger);
+
+        int flags = 0;
+        if (Boolean.TRUE.equals(alignment.getReadPaired())) {
+            flags |= 0x1;
+            if (Boolean.TRUE.equals(alignment.getMateNegativeStrand())) {
+                flags |= 0x20;
+            }
+            if (Boolean.FALSE.equals(alignment.getMateMapped())) {
+                flags |= 0x8;
+            }
+            if (Boolean.TRUE.equals(alignment.getProperPair())) {
+                flags |= 0x2;
+            }
+            Integer readInFragment = alignment.getReadInFragment();
+            if (readInFragment != null) {
+                if (readInFragment.intValue() == 0) {
+                    flags |= 0x40;
+                }
+                else if (readInFragment.intValue() == 1) {
+                    flags |= 0x80;
+                }
+            }
+        }
+        if (Boolean.TRUE.equals(alignment.getDuplicateRead())) {
+            flags |= 0x400;
+        }
+        if (alignment.getReadMapped() != null) {
+            if (!readMapped) {
+                flags |= 0x4;
+            }
+            if (Boolean.TRUE.equals(alignment.getReadNegativeStrand())) {
+                flags |= 0x10;
+            }
+            if (readMapped) {
+                if (Boolean.FALSE.equals(alignment.getPrimaryAlignment())) {
+                    flags |= 0x100;
+                }
+                if (Boolean.TRUE.equals(alignment.getSupplementaryAlignment())) {
+                    flags |= 0x800;
+                }
+            }
+        }
+        if (Boolean.TRUE.equals(alignment.getFailedVendorQualityChecks())) {
+            flags |= 0x200;
+        }
+
+        String referenceName = readMapped ? alignment.getReferenceName() : null;
+        String mateReferenceName = alignment.getMateReferenceName();
+
+        sb.append(alignment.getReadName() == null ? "*" : alignment.getReadName()).append('\t');
+        sb.append(flags).append('\t');
+        sb.append(referenceName == null ? "*" : referenceName).append('\t');
+        sb.append(readMapped && alignment.getStart() != null ? alignment.getStart().longValue() + 1L : 0L).append('\t');
+        sb.append(readMapped && alignment.getMappingQuality() != null ? alignment.getMappingQuality().intValue() : 0).append('\t');
+        sb.append(readMapped && alignment.getCigar() != null ? alignment.getCigar() : "*").append('\t');
+        if (mateReferenceName == null) {
+            sb.append('*');
+        }
+        else if (mateReferenceName.equals(referenceName)) {
+            sb.append('=');
+        }
+        else {
+            sb.append(mateReferenceName);
+        }
+        sb.append('\t');
+        sb.append(alignment.getMateAlignmentStart() != null ? alignment.getMateAlignmentStart().longValue() + 1L : 0L).append('\t');
+        sb.append(alignment.getInsertSize() != null ? alignment.getInsertSize().longValue() : 0L).append('\t');
+        sb.append(alignment.getSequence() == null ? "*" : alignment.getSequence()).append('\t');
+        sb.append(alignment.getQualityScores() == null ? "*" : alignment.getQualityScores());
+
+        ReadGroupTags readGroup = readGroup(alignment.getReadGroupId());
+        if (readGroup != null) {
+            if ((tags & RG) == 0) {
+                appendTag("RG:Z:", readGroup.id, sb);
+            }
+            if (readGroup.library != null && (tags & LB) == 0) {
+                appendTag("LB:Z:", readGroup.library, sb);
+            }
+            if (readGroup.platformUnit != null && (tags & PU) == 0) {
+                appendTag("PU:Z:", readGroup.platformUnit, sb);
+            }
+        }
+        if (alignment.getMismatchingPositions() != null && (tags & MD) == 0) {
+            appendTag("MD:Z:", alignment.getMismatchingPositions(), sb);
+        }
+        if (alignment.getOriginalQualityScores() != null && (tags & OQ) == 0) {
+            appendTag("OQ:Z:", alignment.getOriginalQualityScores(), sb);
+        }
+        if (alignment.getOriginalCigar() != null && (tags & OC) == 0) {
+            appendTag("OC:Z:", alignment.getOriginalCigar(), sb);
+        }
+        if (alignment.getOriginalStart() != null && (tags & OP) == 0) {
+            sb.append("\tOP:i:").append(alignment.getOriginalStart().longValue() + 1L);
+        }
+
+        if (attributes != null && !attributes.isEmpty()) {
+            if ((tags & INVALID) == 0) {
+                sb.append('\t').append(attributes);
+            }
+            else {
+                for (int start = 0, length = attributes.length(); start < length; ) {
+                    int end = end(attributes, start);
+                    if (isValid(attributes, start, end)) {
+                        sb.append('\t').append(attributes, start, end);
+                    }
+                    start = end + 1;
+                }
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * RG, LB, and PU tag values for a read group, shared by every record in the read group.
+     */
+    private static final class ReadGroupTags implements Serializable {
+        /** Read group id, for the RG tag. */
+        final String id;
+
+        /** Library, for the LB tag, if any. */
+        final String library;
+
+        /** Platform unit, for the PU tag, if any. */
+        final String platformUnit;
+
+
+        ReadGroupTags(final String id) {
+            this.id = id;
+            this.library = null;
+            this.platformUnit = null;
+        }
+
+        ReadGroupTags(final SAMReadGroupRecord readGroup) {
+            this.id = readGroup.getId();
+            this.library = readGroup.getLibrary();
+            this.platformUnit = readGroup.getPlatformUnit();
+        }
+    }
+}
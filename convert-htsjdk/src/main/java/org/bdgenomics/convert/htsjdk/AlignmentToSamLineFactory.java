@@ -0,0 +1,51 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import htsjdk.samtools.SAMFileHeader;
+
+/**
+ * Factory for creating Alignment to SAM text line converters, which
+ * require late binding for a SAMFileHeader.
+ *
+ * Thus instead of a converter instance, a converter factory is available via injection:
+ * <pre>
+ * final class MyClass {
+ *   private final AlignmentToSamLineFactory alignmentToSamLineFactory;
+ *
+ *   &#64;Inject
+ *   MyClass(final AlignmentToSamLineFactory alignmentToSamLineFactory) {
+ *     this.alignmentToSamLineFactory = alignmentToSamLineFactory;
+ *   }
+ *
+ *   void doIt() {
+ *     AlignmentToSamLine converter = alignmentToSamLineFactory.create(header);
+ *     converter.appendTo(alignment, writer, stringency, logger);
+ *     // ...
+ * </pre>
+ */
+public interface AlignmentToSamLineFactory {
+
+    /**
+     * Create a new Alignment to SAM text line converter with the specified header.
+     *
+     * @param header header, must not be null
+     * @return a new Alignment to SAM text line converter with the specified header
+     */
+    AlignmentToSamLine create(SAMFileHeader header);
+}
@@ -17,8 +17,13 @@
  */
 package org.bdgenomics.convert.htsjdk;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.Serializable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.google.inject.Inject;
 
@@ -27,6 +32,8 @@ import com.google.inject.assistedinject.Assisted;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
 
 import org.bdgenomics.convert.AbstractConverter;
@@ -39,18 +46,25 @@ import org.slf4j.Logger;
 
 /**
  * Convert Alignment to htsjdk SAMRecord.
+ *
+ * <p>
+ * Read group attributes and reference indices are looked up in tables built once from the
+ * header when this converter is created, so the header should not be modified afterwards.
+ * Read group ids and reference names not present in the header are resolved against the
+ * header on each record.
+ * </p>
  */
 public final class AlignmentToSamRecord extends AbstractConverter<Alignment, SAMRecord> {
 
-    /** Regex to capture attributes. */
-    private static final Pattern ATTRIBUTE = Pattern.compile("([^:]{2,4}):([AifZHB]):(.*)");
-
-    /** Regex to capture array attribute types. */
-    private static final Pattern ARRAY_ATTRIBUTE = Pattern.compile("([cCiIsSf]{1},)(.*)");
-    
     /** Header. */
     private final SAMFileHeader header;
 
+    /** Read group attributes, by read group id. */
+    private final Map<String, ReadGroupAttributes> readGroups;
+
+    /** Reference indices, by reference name. */
+    private final Map<String, Integer> referenceIndices;
+
 
     /**
      * Create a new Alignment to htsjdk SAMRecord converter with the specified header.
@@ -63,6 +77,18 @@ public final class AlignmentToSamRecord extends AbstractConverter<Alignment, SAM
 
         checkNotNull(header);
         this.header = header;
+
+        Map<String, ReadGroupAttributes> readGroups = new HashMap<String, ReadGroupAttributes>();
+        for (SAMReadGroupRecord readGroup : header.getReadGroups()) {
+            readGroups.put(readGroup.getId(), new ReadGroupAttributes(readGroup));
+        }
+        this.readGroups = Collections.unmodifiableMap(readGroups);
+
+        Map<String, Integer> referenceIndices = new HashMap<String, Integer>();
+        for (SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences()) {
+            referenceIndices.put(sequence.getSequenceName(), sequence.getSequenceIndex());
+        }
+        this.referenceIndices = Collections.unmodifiableMap(referenceIndices);
     }
 
 
@@ -75,8 +101,125 @@ public final class AlignmentToSamRecord extends AbstractConverter<Alignment, SAM
             warnOrThrow(alignment, "must not be null", null, stringency, logger);
             return null;
         }
+        return convert(alignment, new SAMRecord(header), readGroup(alignment.getReadGroupId()), stringency, logger);
+    }
+
+    @Override
+    public SAMRecord convertInto(final Alignment alignment,
+                                 final SAMRecord samRecord,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws ConversionException {
+
+        if (alignment == null) {
+            warnOrThrow(alignment, "must not be null", null, stringency, logger);
+            return null;
+        }
+        return convert(alignment, samRecord == null ? new SAMRecord(header) : reset(samRecord), readGroup(alignment.getReadGroupId()), stringency, logger);
+    }
+
+    @Override
+    public <C extends Collection<? super SAMRecord>> C convertAll(final List<? extends Alignment> alignments,
+                                                                   final C samRecords,
+                                                                   final ConversionStringency stringency,
+                                                                   final Logger logger) throws ConversionException {
+        checkNotNull(alignments, samRecords, stringency, logger);
+
+        for (int i = 0, size = alignments.size(); i < size; i++) {
+            Alignment alignment = alignments.get(i);
+            if (alignment == null) {
+                warnOrThrow(alignment, "must not be null", null, stringency, logger);
+                samRecords.add(null);
+                continue;
+            }
+            samRecords.add(convert(alignment, new SAMRecord(header), readGroup(alignment.getReadGroupId()), stringency, logger));
+        }
+        return samRecords;
+    }
+
+    /**
+     * Return the read group attributes for the specified read group id, if any.
+     *
+     * @param readGroupId read group id
+     * @return the read group attributes for the specified read group id, or null if read group id is null
+     */
+    private ReadGroupAttributes readGroup(final String readGroupId) {
+        if (readGroupId == null) {
+            return null;
+        }
+        ReadGroupAttributes readGroup = readGroups.get(readGroupId);
+        if (readGroup == null) {
+            SAMReadGroupRecord readGroupRecord = header.getReadGroup(readGroupId);
+            readGroup = readGroupRecord == null ? new ReadGroupAttributes(readGroupId) : new ReadGroupAttributes(readGroupRecord);
+        }
+        return readGroup;
+    }
+
+    /**
+     * Set the reference of the specified SAM record by reference index, if the specified
+     * reference name is present in the header, or by reference name otherwise.
+     */
+    private void setReference(final SAMRecord builder, final String referenceName) {
+        Integer referenceIndex = referenceIndices.get(referenceName);
+        if (referenceIndex == null) {
+            builder.setReferenceName(referenceName);
+        }
+        else {
+            builder.setReferenceIndex(referenceIndex);
+        }
+    }
+
+    /**
+     * Set the mate reference of the specified SAM record by reference index, if the specified
+     * reference name is present in the header, or by reference name otherwise.
+     */
+    private void setMateReference(final SAMRecord builder, final String mateReferenceName) {
+        Integer referenceIndex = referenceIndices.get(mateReferenceName);
+        if (referenceIndex == null) {
+            builder.setMateReferenceName(mateReferenceName);
+        }
+        else {
+            builder.setMateReferenceIndex(referenceIndex);
+        }
+    }
+
+    /**
+     * Reset the specified SAM record to the state of a new SAM record with this converter's header.
+     *
+     * @param samRecord SAM record to reset
+     * @return the specified SAM record
+     */
+    private SAMRecord reset(final SAMRecord samRecord) {
+        samRecord.setHeader(header);
+        samRecord.setFlags(0);
+        samRecord.setReferenceIndex(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX);
+        samRecord.setAlignmentStart(SAMRecord.NO_ALIGNMENT_START);
+        samRecord.setMappingQuality(SAMRecord.NO_MAPPING_QUALITY);
+        samRecord.setCigarString(SAMRecord.NO_ALIGNMENT_CIGAR);
+        samRecord.setMateReferenceIndex(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX);
+        samRecord.setMateAlignmentStart(SAMRecord.NO_ALIGNMENT_START);
+        samRecord.setInferredInsertSize(0);
+        samRecord.clearAttributes();
+        return samRecord;
+    }
+
+    /**
+     * Convert the specified alignment into the specified SAM record.
+     *
+     * @param alignment alignment to convert, must not be null
+     * @param builder new or reset SAM record to convert into, must not be null
+     * @param readGroup read group attributes for the specified alignment, if any
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified SAM record
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    private SAMRecord convert(final Alignment alignment,
+                              final SAMRecord builder,
+                              final ReadGroupAttributes readGroup,
+                              final ConversionStringency stringency,
+                              final Logger logger) throws ConversionException {
 
-        SAMRecord builder = new SAMRecord(header);
         builder.setReadName(alignment.getReadName());
         builder.setReadString(alignment.getSequence());
 
@@ -87,21 +230,19 @@ public final class AlignmentToSamRecord extends AbstractConverter<Alignment, SAM
             builder.setBaseQualityString(alignment.getQualityScores());
         }
 
-        String readGroupId = alignment.getReadGroupId();
-        if (readGroupId != null) {
-            builder.setAttribute("RG", readGroupId);
+        if (readGroup != null) {
+            builder.setAttribute(SAMTag.RG, readGroup.id);
 
-            SAMReadGroupRecord readGroup = header.getReadGroup(readGroupId);
-            if (readGroup != null && readGroup.getLibrary() != null) {
-                builder.setAttribute("LB", readGroup.getLibrary());
+            if (readGroup.library != null) {
+                builder.setAttribute(SAMTag.LB, readGroup.library);
             }
-            if (readGroup != null && readGroup.getPlatformUnit() != null) {
-                builder.setAttribute("PU", readGroup.getPlatformUnit());
+            if (readGroup.platformUnit != null) {
+                builder.setAttribute(SAMTag.PU, readGroup.platformUnit);
             }
         }
 
         if (alignment.getMateReferenceName() != null) {
-            builder.setMateReferenceName(alignment.getMateReferenceName());
+            setMateReference(builder, alignment.getMateReferenceName());
         }
         if (alignment.getMateAlignmentStart() != null) {
             builder.setMateAlignmentStart(alignment.getMateAlignmentStart().intValue() + 1);
@@ -148,7 +289,7 @@ public final class AlignmentToSamRecord extends AbstractConverter<Alignment, SAM
                     warnOrThrow(alignment, "referenceName must not be null if read aligned", null, stringency, logger);
                 }
                 else {
-                    builder.setReferenceName(alignment.getReferenceName());
+                    setReference(builder, alignment.getReferenceName());
                 }
 
                 if (alignment.getCigar() != null) {
@@ -176,124 +317,60 @@ public final class AlignmentToSamRecord extends AbstractConverter<Alignment, SAM
             builder.setReadFailsVendorQualityCheckFlag(alignment.getFailedVendorQualityChecks());
         }
         if (alignment.getMismatchingPositions() != null) {
-            builder.setAttribute("MD", alignment.getMismatchingPositions());
+            builder.setAttribute(SAMTag.MD, alignment.getMismatchingPositions());
         }
         if (alignment.getOriginalQualityScores() != null) {
             builder.setOriginalBaseQualities(SAMUtils.fastqToPhred(alignment.getOriginalQualityScores()));
         }
         if (alignment.getOriginalCigar() != null) {
-            builder.setAttribute("OC", alignment.getOriginalCigar());
+            builder.setAttribute(SAMTag.OC, alignment.getOriginalCigar());
         }
         if (alignment.getOriginalStart() != null) {
-            builder.setAttribute("OP", alignment.getOriginalStart().intValue() + 1);
+            builder.setAttribute(SAMTag.OP, alignment.getOriginalStart().intValue() + 1);
         }
 
-        if (alignment.getAttributes() != null) {
-            String[] tokens = alignment.getAttributes().split("\t");
-            for (String token : tokens) {
-                Matcher m = ATTRIBUTE.matcher(token);
-                if (m.matches()) {
-                    String tagName = m.group(1);
-                    String tagType = m.group(2);
-                    String value = m.group(3);
-
-                    if ("B".equals(tagType)) {
-                        m = ARRAY_ATTRIBUTE.matcher(value);
-                        if (m.matches()) {
-                            tagType = tagType + ":" + m.group(1);
-                            value = m.group(2);
-                        }
-                    }
-
-                    switch (tagType) {
-                    case "A":
-                        builder.setAttribute(tagName, value.charAt(0));
-                    case "i":
-                        builder.setAttribute(tagName, Integer.valueOf(value));
-                    case "f":
-                        builder.setAttribute(tagName, Float.valueOf(value));
-                    case "Z":
-                        builder.setAttribute(tagName, value);
-                    case "H":
-                        builder.setAttribute(tagName, value.getBytes());
-                    case "B:c,":
-                    case "B:C,":
-                        builder.setAttribute(tagName, splitToByteArray(value));
-                    case "B:i,":
-                    case "B:I,":
-                        builder.setAttribute(tagName, splitToIntegerArray(value));
-                    case "B:s,":
-                    case "B:S,":
-                        builder.setAttribute(tagName, splitToShortArray(value));
-                    case "B:f,":
-                        builder.setAttribute(tagName, splitToFloatArray(value));
-                    default:
-                        warnOrThrow(alignment, "invalid attribute type " + tagType, null, stringency, logger);
-                    }
+        String attributes = alignment.getAttributes();
+        if (attributes != null) {
+            for (int start = 0, length = attributes.length(); start <= length; ) {
+                int end = SamAttributeDecoder.end(attributes, start);
+                try {
+                    SamAttributeDecoder.decode(attributes, start, end, builder);
+                }
+                catch (IllegalArgumentException e) {
+                    warnOrThrow(alignment, "invalid attribute", attributes.substring(start, end), e, stringency, logger);
                 }
+                start = end + 1;
             }
         }
 
         return builder;
     }
 
-    /**
-     * Split the specified value to a byte array.
-     *
-     * @param value value
-     * @return the specified value split to a byte array
-     */
-    static byte[] splitToByteArray(final String value) {
-        String[] tokens = value.split(",");
-        byte[] bytes = new byte[tokens.length];
-        for (int i = 0; i < tokens.length; i++) {
-            bytes[i] = Byte.valueOf(tokens[i]);
-        }
-        return bytes;
-    }
 
     /**
-     * Split the specified value to an integer array.
-     *
-     * @param value value
-     * @return the specified value split to an integer array
+     * RG, LB, and PU attribute values for a read group, shared by every record in the read group.
      */
-    static int[] splitToIntegerArray(final String value) {
-        String[] tokens = value.split(",");
-        int[] ints = new int[tokens.length];
-        for (int i = 0; i < tokens.length; i++) {
-            ints[i] = Integer.valueOf(tokens[i]);
-        }
-        return ints;
-    }
+    private static final class ReadGroupAttributes implements Serializable {
+        /** Read group id, for the RG attribute. */
+        final String id;
 
-    /**
-     * Split the specified value to a short array.
-     *
-     * @param value value
-     * @return the specified value split to a short array
-     */
-    static short[] splitToShortArray(final String value) {
-        String[] tokens = value.split(",");
-        short[] shorts = new short[tokens.length];
-        for (int i = 0; i < tokens.length; i++) {
-            shorts[i] = Short.valueOf(tokens[i]);
+        /** Library, for the LB attribute, if any. */
+        final String library;
+
+        /** Platform unit, for the PU attribute, if any. */
+        final String platformUnit;
+
+
+        ReadGroupAttributes(final String id) {
+            this.id = id;
+            this.library = null;
+            this.platformUnit = null;
         }
-        return shorts;
-    }
 
-    /**
-     * Split the specified value to a float array.
-     *
-     * @param value value
-     * @return the specified value split to a float array
-     */
-    static float[] splitToFloatArray(final String value) {
-        String[] tokens = value.split(",");
-        float[] floats = new float[tokens.length];
-        for (int i = 0; i < tokens.length; i++) {
-            floats[i] = Float.valueOf(tokens[i]);
+        ReadGroupAttributes(final SAMReadGroupRecord readGroup) {
+            this.id = readGroup.getId();
+            this.library = readGroup.getLibrary();
+            this.platformUnit = readGroup.getPlatformUnit();
         }
-        return floats;
     }
 }
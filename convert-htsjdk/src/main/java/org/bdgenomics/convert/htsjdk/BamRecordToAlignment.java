@@ -0,0 +1,667 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import java.util.List;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTag;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert a BAM record in its binary layout to Alignment, without an intermediate htsjdk SAMRecord.
+ *
+ * <p>
+ * The source buffer must be positioned at the <code>block_size</code> field of a BAM record,
+ * for example within a decompressed BGZF block.  On return the buffer is positioned after the
+ * record, if its <code>block_size</code> could be read, so that consecutive records may be
+ * converted in a loop.  The byte order of the buffer is restored on return.
+ * </p>
+ *
+ * <p>
+ * Read bases, base qualities, and tag values are decoded from the record bytes directly into
+ * the Alignment strings.  Fields are set as by {@link SamRecordToAlignment}, except that attributes
+ * are encoded in record order and H tags are encoded as hex strings.
+ * </p>
+ */
+public final class BamRecordToAlignment extends AbstractConverter<ByteBuffer, Alignment> {
+
+    /** Length of the fixed-size fields of a BAM record, following <code>block_size</code>. */
+    private static final int FIXED_LENGTH = 32;
+
+    /** Unknown mapping quality. */
+    private static final int UNKNOWN_MAPPING_QUALITY = 255;
+
+    /** Missing base qualities. */
+    private static final int MISSING_QUALITY = 0xff;
+
+    /** BAM sequence nibble codes. */
+    private static final byte[] BASES = "=ACMGRSVTWYHKDBN".getBytes(ISO_8859_1);
+
+    /** BAM cigar operation codes. */
+    private static final char[] OPERATORS = "MIDNSHP=X".toCharArray();
+
+    /** Cigar operations that consume reference bases, by operation code. */
+    private static final boolean[] CONSUMES_REFERENCE = { true, false, true, true, false, false, false, true, true };
+
+    /** Hard clip cigar operation code. */
+    private static final int HARD_CLIP = 5;
+
+    /** Soft clip cigar operation code. */
+    private static final int SOFT_CLIP = 4;
+
+    /** Skipped region cigar operation code. */
+    private static final int SKIPPED = 3;
+
+    /** Hex digits. */
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** CG binary tag, for cigars too long to store in the record. */
+    private static final short CG = SAMTag.makeBinaryTag("CG");
+
+    /** MD binary tag. */
+    private static final short MD = SAMTag.MD.getBinaryTag();
+
+    /** OC binary tag. */
+    private static final short OC = SAMTag.OC.getBinaryTag();
+
+    /** OP binary tag. */
+    private static final short OP = SAMTag.OP.getBinaryTag();
+
+    /** OQ binary tag. */
+    private static final short OQ = SAMTag.OQ.getBinaryTag();
+
+    /** RG binary tag. */
+    private static final short RG = SAMTag.RG.getBinaryTag();
+
+    /** Per-thread string builder for encoding cigars and attributes. */
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    /** SAM file header. */
+    private final SAMFileHeader header;
+
+    /** Reference names by reference index. */
+    private final String[] referenceNames;
+
+
+    /**
+     * Create a new BAM record to Alignment converter with the specified SAM file header.
+     *
+     * @param header SAM file header, must not be null
+     */
+    @Inject
+    public BamRecordToAlignment(@Assisted final SAMFileHeader header) {
+        super(ByteBuffer.class, Alignment.class);
+        checkNotNull(header);
+        this.header = header;
+
+        List<SAMSequenceRecord> sequences = header.getSequenceDictionary().getSequences();
+        referenceNames = new String[sequences.size()];
+        for (int i = 0, size = sequences.size(); i < size; i++) {
+            referenceNames[sequences.get(i).getSequenceIndex()] = sequences.get(i).getSequenceName();
+        }
+    }
+
+
+    @Override
+    public Alignment convert(final ByteBuffer buffer,
+                             final ConversionStringency stringency,
+                             final Logger logger) throws ConversionException {
+        return convertInto(buffer, null, stringency, logger);
+    }
+
+    @Override
+    public Alignment convertInto(final ByteBuffer buffer,
+                                 final Alignment alignment,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws ConversionException {
+
+        if (buffer == null) {
+            warnOrThrow(buffer, "must not be null", null, stringency, logger);
+            return null;
+        }
+        checkNotNull(stringency, logger);
+
+        int offset = buffer.position();
+        if (buffer.remaining() < 4) {
+            warnOrThrow(buffer, "truncated BAM record", "offset " + offset, null, stringency, logger);
+            return null;
+        }
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int blockSize = buffer.getInt(offset);
+            if (blockSize < FIXED_LENGTH || blockSize > buffer.remaining() - 4) {
+                warnOrThrow(buffer, "truncated or invalid BAM record", "offset " + offset + ", block size " + blockSize, null, stringency, logger);
+                return null;
+            }
+            buffer.position(offset + 4 + blockSize);
+            try {
+                return convert(buffer, offset + 4, offset + 4 + blockSize, alignment == null ? new Alignment() : alignment, BUILDER.get(), stringency, logger);
+            }
+            catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+                warnOrThrow(buffer, "could not decode BAM record", "offset " + offset, e, stringency, logger);
+                return null;
+            }
+        }
+        finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Convert the BAM record between the specified offsets into the specified alignment, setting every field.
+     *
+     * @param buffer little-endian buffer, must not be null
+     * @param start offset of the record, after <code>block_size</code>
+     * @param end offset of the end of the record, exclusive
+     * @param alignment alignment to convert into, must not be null
+     * @param sb string builder for encoding cigars and attributes, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified alignment, or null if conversion fails and the specified conversion
+     *    stringency is lenient or silent
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    private Alignment convert(final ByteBuffer buffer,
+                              final int start,
+                              final int end,
+                              final Alignment alignment,
+                              final StringBuilder sb,
+                              final ConversionStringency stringency,
+                              final Logger logger) throws ConversionException {
+
+        int referenceIndex = buffer.getInt(start);
+        int position = buffer.getInt(start + 4);
+        int readNameLength = buffer.get(start + 8) & 0xff;
+        int mappingQuality = buffer.get(start + 9) & 0xff;
+        int cigarLength = buffer.getShort(start + 12) & 0xffff;
+        int flag = buffer.getShort(start + 14) & 0xffff;
+        int sequenceLength = buffer.getInt(start + 16);
+        int mateReferenceIndex = buffer.getInt(start + 20);
+        int matePosition = buffer.getInt(start + 24);
+        int insertSize = buffer.getInt(start + 28);
+
+        int readNameOffset = start + FIXED_LENGTH;
+        int cigarOffset = readNameOffset + readNameLength;
+        int sequenceOffset = cigarOffset + 4 * cigarLength;
+        int qualityOffset = sequenceOffset + (sequenceLength + 1) / 2;
+        int tagsOffset = qualityOffset + sequenceLength;
+        if (readNameLength < 1 || sequenceLength < 0 || tagsOffset > end) {
+            warnOrThrow(buffer, "invalid BAM record, field lengths exceed block size", "offset " + (start - 4), null, stringency, logger);
+            return null;
+        }
+        if (referenceIndex < -1 || referenceIndex >= referenceNames.length) {
+            warnOrThrow(buffer, "reference index not found in header", referenceIndex, null, stringency, logger);
+            return null;
+        }
+        if (mateReferenceIndex < -1 || mateReferenceIndex >= referenceNames.length) {
+            warnOrThrow(buffer, "mate reference index not found in header", mateReferenceIndex, null, stringency, logger);
+            return null;
+        }
+
+        alignment.setReadName(decodeString(buffer, readNameOffset, readNameLength - 1));
+        alignment.setSequence(sequenceLength == 0 ? "*" : decodeSequence(buffer, sequenceOffset, sequenceLength));
+        alignment.setQualityScores(sequenceLength == 0 || (buffer.get(qualityOffset) & 0xff) == MISSING_QUALITY ? null : decodeQualities(buffer, qualityOffset, sequenceLength));
+
+        // a cigar too long for the record is stored in the CG tag, with a kSmN placeholder
+        int cigarCount = cigarLength;
+        if (cigarLength == 2
+            && (buffer.getInt(cigarOffset) & 0xf) == SOFT_CLIP
+            && (buffer.getInt(cigarOffset) >>> 4) == sequenceLength
+            && (buffer.getInt(cigarOffset + 4) & 0xf) == SKIPPED) {
+
+            int cg = findTag(buffer, tagsOffset, end, CG);
+            if (cg != -1 && buffer.get(cg) == 'B' && (buffer.get(cg + 1) == 'I' || buffer.get(cg + 1) == 'i')) {
+                cigarCount = buffer.getInt(cg + 2);
+                cigarOffset = cg + 6;
+            }
+        }
+
+        int referenceLength = 0;
+        if (cigarCount > 0) {
+            sb.setLength(0);
+            int startTrim = 0;
+            int endTrim = 0;
+            for (int i = 0; i < cigarCount; i++) {
+                int element = buffer.getInt(cigarOffset + 4 * i);
+                int length = element >>> 4;
+                int operator = element & 0xf;
+                if (operator >= OPERATORS.length) {
+                    throw new IllegalArgumentException("invalid cigar operation code " + operator);
+                }
+                sb.append(length).append(OPERATORS[operator]);
+                if (CONSUMES_REFERENCE[operator]) {
+                    referenceLength += length;
+                }
+                else if (operator == HARD_CLIP) {
+                    if (i == 0) {
+                        startTrim = length;
+                    }
+                    if (i == cigarCount - 1) {
+                        endTrim = length;
+                    }
+                }
+            }
+            alignment.setCigar(sb.toString());
+            alignment.setBasesTrimmedFromStart(startTrim);
+            alignment.setBasesTrimmedFromEnd(endTrim);
+        }
+        else {
+            alignment.setCigar(null);
+            alignment.setBasesTrimmedFromStart(0);
+            alignment.setBasesTrimmedFromEnd(0);
+        }
+
+        alignment.setReferenceName(null);
+        alignment.setStart(null);
+        alignment.setEnd(null);
+        alignment.setMappingQuality(null);
+        alignment.setOriginalStart(null);
+        alignment.setOriginalCigar(null);
+        alignment.setOriginalQualityScores(null);
+        alignment.setMismatchingPositions(null);
+        alignment.setReadGroupId(null);
+        alignment.setReadGroupSampleId(null);
+
+        // decode tags, setting dedicated fields and encoding the rest as attributes
+        sb.setLength(0);
+        Integer originalPosition = null;
+        String originalCigar = null;
+        int offset = tagsOffset;
+        while (offset < end) {
+            short tag = buffer.getShort(offset);
+            byte type = buffer.get(offset + 2);
+            int valueOffset = offset + 3;
+            if (type == 'Z' && (tag == MD || tag == OC || tag == OQ || tag == RG)) {
+                int valueEnd = nul(buffer, valueOffset, end);
+                String value = decodeString(buffer, valueOffset, valueEnd - valueOffset);
+                if (tag == MD) {
+                    alignment.setMismatchingPositions(value);
+                }
+                else if (tag == OC) {
+                    originalCigar = value;
+                }
+                else if (tag == OQ) {
+                    alignment.setOriginalQualityScores(value);
+                }
+                else {
+                    SAMReadGroupRecord readGroup = header.getReadGroup(value);
+                    if (readGroup != null) {
+                        alignment.setReadGroupId(readGroup.getReadGroupId());
+                        alignment.setReadGroupSampleId(readGroup.getSample());
+                    }
+                    encodeTag(tag, type, sb);
+                    appendString(buffer, valueOffset, valueEnd, sb);
+                }
+                offset = valueEnd + 1;
+            }
+            else if (tag == OP && isInteger(type)) {
+                originalPosition = (int) integerValue(buffer, valueOffset, type);
+                offset = valueOffset + size(type);
+            }
+            else if (tag == CG && cigarOffset == offset + 8) {
+                // cigar stored in CG tag, already decoded
+                offset = valueOffset + 5 + 4 * buffer.getInt(valueOffset + 1);
+            }
+            else {
+                offset = encodeTag(buffer, tag, type, valueOffset, end, sb);
+            }
+        }
+        alignment.setAttributes(sb.length() == 0 ? null : sb.toString());
+
+        if (referenceIndex != -1) {
+            alignment.setReferenceName(referenceNames[referenceIndex]);
+
+            if (position < 0) {
+                warnOrThrow(buffer, "alignment start must be greater than zero if read aligned", null, stringency, logger);
+            }
+            else {
+                alignment.setStart((long) position);
+                alignment.setEnd((long) position + referenceLength);
+            }
+
+            if (mappingQuality != UNKNOWN_MAPPING_QUALITY) {
+                alignment.setMappingQuality(mappingQuality);
+            }
+
+            if (originalPosition != null) {
+                alignment.setOriginalStart(originalPosition - 1L);
+                alignment.setOriginalCigar(originalCigar);
+            }
+        }
+
+        boolean readPaired = (flag & 0x1) != 0;
+        alignment.setReadMapped((flag & 0x4) == 0);
+        alignment.setReadNegativeStrand((flag & 0x10) != 0);
+        alignment.setPrimaryAlignment((flag & 0x100) == 0);
+        alignment.setSecondaryAlignment(false);
+        alignment.setSupplementaryAlignment((flag & 0x800) != 0);
+
+        alignment.setMateReferenceName(null);
+        alignment.setMateAlignmentStart(null);
+
+        if (mateReferenceIndex != -1) {
+            alignment.setMateReferenceName(referenceNames[mateReferenceIndex]);
+
+            if (matePosition < 0) {
+                warnOrThrow(buffer, "mate start must be greater than zero if mate aligned", null, stringency, logger);
+            }
+            else {
+                alignment.setMateAlignmentStart((long) matePosition);
+            }
+        }
+
+        alignment.setReadPaired(readPaired);
+        alignment.setMateNegativeStrand(readPaired && (flag & 0x20) != 0);
+        alignment.setMateMapped(readPaired && (flag & 0x8) == 0);
+        alignment.setProperPair(readPaired && (flag & 0x2) != 0);
+        alignment.setReadInFragment(readPaired && (flag & 0x80) != 0 ? 1 : 0);
+        alignment.setDuplicateRead((flag & 0x400) != 0);
+        alignment.setFailedVendorQualityChecks((flag & 0x200) != 0);
+        alignment.setInsertSize(insertSize == 0 ? null : Long.valueOf((long) insertSize));
+
+        return alignment;
+    }
+
+    /**
+     * Return the offset of the value type of the specified tag, or -1 if not found.
+     *
+     * @param buffer little-endian buffer
+     * @param offset offset of the first tag
+     * @param end offset of the end of the record, exclusive
+     * @param tag binary tag to find
+     * @return the offset of the value type of the specified tag, or -1 if not found
+     */
+    private static int findTag(final ByteBuffer buffer, int offset, final int end, final short tag) {
+        while (offset < end) {
+            byte type = buffer.get(offset + 2);
+            if (buffer.getShort(offset) == tag) {
+                return offset + 2;
+            }
+            offset = skipValue(buffer, type, offset + 3, end);
+        }
+        return -1;
+    }
+
+    /**
+     * Return the offset following the value of the specified type at the specified offset.
+     *
+     * @param buffer little-endian buffer
+     * @param type value type
+     * @param offset offset of the value
+     * @param end offset of the end of the record, exclusive
+     * @return the offset following the value of the specified type at the specified offset
+     */
+    private static int skipValue(final ByteBuffer buffer, final byte type, final int offset, final int end) {
+        if (type == 'Z' || type == 'H') {
+            return nul(buffer, offset, end) + 1;
+        }
+        if (type == 'B') {
+            return offset + 5 + size(buffer.get(offset)) * buffer.getInt(offset + 1);
+        }
+        return offset + size(type);
+    }
+
+    /**
+     * Return the offset of the NUL terminating the string at the specified offset.
+     *
+     * @param buffer buffer
+     * @param offset offset of the string
+     * @param end offset of the end of the record, exclusive
+     * @return the offset of the NUL terminating the string at the specified offset
+     * @throws IllegalArgumentException if the string is not terminated before the end of the record
+     */
+    private static int nul(final ByteBuffer buffer, final int offset, final int end) {
+        for (int i = offset; i < end; i++) {
+            if (buffer.get(i) == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unterminated string value");
+    }
+
+    /**
+     * Return true if the specified value type is an integer type.
+     *
+     * @param type value type
+     * @return true if the specified value type is an integer type
+     */
+    private static boolean isInteger(final byte type) {
+        return type == 'c' || type == 'C' || type == 's' || type == 'S' || type == 'i' || type == 'I';
+    }
+
+    /**
+     * Return the size in bytes of a value of the specified fixed-size type.
+     *
+     * @param type value type
+     * @return the size in bytes of a value of the specified fixed-size type
+     * @throws IllegalArgumentException if the type is not a fixed-size type
+     */
+    private static int size(final byte type) {
+        switch (type) {
+            case 'A':
+            case 'c':
+            case 'C':
+                return 1;
+            case 's':
+            case 'S':
+                return 2;
+            case 'i':
+            case 'I':
+            case 'f':
+                return 4;
+            default:
+                throw new IllegalArgumentException("invalid tag value type " + (char) type);
+        }
+    }
+
+    /**
+     * Return the integer value of the specified type at the specified offset.
+     *
+     * @param buffer little-endian buffer
+     * @param offset offset of the value
+     * @param type integer value type
+     * @return the integer value of the specified type at the specified offset
+     */
+    private static long integerValue(final ByteBuffer buffer, final int offset, final byte type) {
+        switch (type) {
+            case 'c':
+                return buffer.get(offset);
+            case 'C':
+                return buffer.get(offset) & 0xff;
+            case 's':
+                return buffer.getShort(offset);
+            case 'S':
+                return buffer.getShort(offset) & 0xffff;
+            case 'i':
+                return buffer.getInt(offset);
+            default:
+                return buffer.getInt(offset) & 0xffffffffL;
+        }
+    }
+
+    /**
+     * Encode the specified tag and value type in SAM text format to the specified string builder,
+     * preceded by a tab if the string builder is not empty.
+     *
+     * @param tag binary tag
+     * @param type value type
+     * @param sb string builder to encode to
+     */
+    private static void encodeTag(final short tag, final byte type, final StringBuilder sb) {
+        if (sb.length() > 0) {
+            sb.append('\t');
+        }
+        // binary tags are little-endian, see SAMTag.makeStringTag
+        sb.append((char) (tag & 0xff)).append((char) ((tag >> 8) & 0xff)).append(':');
+        if (isInteger(type)) {
+            sb.append('i');
+        }
+        else {
+            sb.append((char) type);
+        }
+        sb.append(':');
+    }
+
+    /**
+     * Encode the specified tag and its value at the specified offset in SAM text format to the
+     * specified string builder.
+     *
+     * @param buffer little-endian buffer
+     * @param tag binary tag
+     * @param type value type
+     * @param offset offset of the value
+     * @param end offset of the end of the record, exclusive
+     * @param sb string builder to encode to
+     * @return the offset following the value
+     */
+    private static int encodeTag(final ByteBuffer buffer, final short tag, final byte type, final int offset, final int end, final StringBuilder sb) {
+        if (isInteger(type)) {
+            encodeTag(tag, type, sb);
+            sb.append(integerValue(buffer, offset, type));
+            return offset + size(type);
+        }
+        switch (type) {
+            case 'A':
+                encodeTag(tag, type, sb);
+                sb.append((char) (buffer.get(offset) & 0xff));
+                return offset + 1;
+            case 'f':
+                encodeTag(tag, type, sb);
+                sb.append(buffer.getFloat(offset));
+                return offset + 4;
+            case 'Z':
+            case 'H':
+                int valueEnd = nul(buffer, offset, end);
+                encodeTag(tag, type, sb);
+                appendString(buffer, offset, valueEnd, sb);
+                return valueEnd + 1;
+            case 'B':
+                byte subtype = buffer.get(offset);
+                int count = buffer.getInt(offset + 1);
+                int size = size(subtype);
+                if (count < 0 || offset + 5 + (long) size * count > end) {
+                    throw new IllegalArgumentException("array length exceeds block size");
+                }
+                encodeTag(tag, type, sb);
+                sb.append((char) subtype);
+                int elementOffset = offset + 5;
+                for (int i = 0; i < count; i++, elementOffset += size) {
+                    sb.append(',');
+                    if (subtype == 'f') {
+                        sb.append(buffer.getFloat(elementOffset));
+                    }
+                    else {
+                        sb.append(integerValue(buffer, elementOffset, subtype));
+                    }
+                }
+                return elementOffset;
+            default:
+                throw new IllegalArgumentException("invalid tag value type " + (char) type);
+        }
+    }
+
+    /**
+     * Append the bytes between the specified offsets as characters to the specified string builder.
+     *
+     * @param buffer buffer
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @param sb string builder to append to
+     */
+    private static void appendString(final ByteBuffer buffer, final int start, final int end, final StringBuilder sb) {
+        for (int i = start; i < end; i++) {
+            sb.append((char) (buffer.get(i) & 0xff));
+        }
+    }
+
+    /**
+     * Decode the specified number of bytes at the specified offset into a string.
+     *
+     * @param buffer buffer
+     * @param offset offset
+     * @param length number of bytes
+     * @return the specified number of bytes at the specified offset decoded into a string
+     */
+    private static String decodeString(final ByteBuffer buffer, final int offset, final int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, ISO_8859_1);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, ISO_8859_1);
+    }
+
+    /**
+     * Decode the specified number of packed 4-bit bases at the specified offset into a string.
+     *
+     * @param buffer buffer
+     * @param offset offset
+     * @param length number of bases
+     * @return the specified number of packed 4-bit bases at the specified offset decoded into a string
+     */
+    private static String decodeSequence(final ByteBuffer buffer, final int offset, final int length) {
+        byte[] bases = new byte[length];
+        for (int i = 0; i < length; i += 2) {
+            int packed = buffer.get(offset + i / 2) & 0xff;
+            bases[i] = BASES[packed >> 4];
+            if (i + 1 < length) {
+                bases[i + 1] = BASES[packed & 0xf];
+            }
+        }
+        return new String(bases, ISO_8859_1);
+    }
+
+    /**
+     * Decode the specified number of phred base qualities at the specified offset into a FASTQ-encoded string.
+     *
+     * @param buffer buffer
+     * @param offset offset
+     * @param length number of base qualities
+     * @return the specified number of phred base qualities at the specified offset decoded into a FASTQ-encoded string
+     */
+    private static String decodeQualities(final ByteBuffer buffer, final int offset, final int length) {
+        byte[] qualities = new byte[length];
+        for (int i = 0; i < length; i++) {
+            qualities[i] = (byte) (buffer.get(offset + i) + 33);
+        }
+        return new String(qualities, ISO_8859_1);
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.slf4j.Logger;
+
+/**
+ * Ordered parallel batch conversion.
+ *
+ * <p>
+ * Records are read from a source on the calling thread and grouped into batches.
+ * Batches are converted in parallel on a pool of converter threads, and converted
+ * records are written to a sink on a single writer thread in source order.  At most
+ * two batches per converter thread are in flight at once.  Records that fail conversion
+ * when the conversion stringency is lenient or silent are skipped.  When a run fails, the
+ * writer thread is cancelled, and the run does not return until the writer thread has
+ * stopped writing to the sink.
+ * </p>
+ *
+ * @param <S> source type
+ * @param <T> target type
+ */
+final class BatchPipeline<S, T> {
+
+    /**
+     * Sink for converted records.
+     *
+     * @param <T> target type
+     */
+    interface Sink<T> {
+
+        /**
+         * Write the specified record.
+         *
+         * @param record record to write
+         * @throws IOException if an I/O error occurs
+         */
+        void write(T record) throws IOException;
+    }
+
+    /** Thread name prefix. */
+    private final String name;
+
+    /** Number of converter threads. */
+    private final int threads;
+
+    /** Number of records per batch. */
+    private final int batchSize;
+
+
+    /**
+     * Create a new batch pipeline.
+     *
+     * @param name thread name prefix, must not be null
+     * @param threads number of converter threads, must be at least one
+     * @param batchSize number of records per batch, must be at least one
+     */
+    BatchPipeline(final String name, final int threads, final int batchSize) {
+        if (name == null) {
+            throw new NullPointerException("name must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least one, was " + threads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least one, was " + batchSize);
+        }
+        this.name = name;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Convert every record from the specified source with the specified converter and
+     * write the converted records to the specified sink in source order.
+     *
+     * @param source source of records to convert, must not be null
+     * @param converter converter, must not be null
+     * @param sink sink for converted records, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws org.bdgenomics.convert.ConversionException if conversion fails and the specified conversion
+     *    stringency is strict
+     */
+    PipelineStatistics run(final Iterator<? extends S> source,
+                           final Converter<S, T> converter,
+                           final Sink<? super T> sink,
+                           final ConversionStringency stringency,
+                           final Logger logger) throws IOException {
+
+        long startTime = System.nanoTime();
+        long[] counts = threads == 1 ? runSequential(source, converter, sink, stringency, logger) : runParallel(source, converter, sink, stringency, logger);
+        PipelineStatistics statistics = new PipelineStatistics(counts[0], counts[1], counts[0] - counts[1], System.nanoTime() - startTime);
+        logger.info("{}: {}", name, statistics);
+        return statistics;
+    }
+
+    private long[] runSequential(final Iterator<? extends S> source,
+                                 final Converter<S, T> converter,
+                                 final Sink<? super T> sink,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws IOException {
+        long read = 0L;
+        long written = 0L;
+        while (source.hasNext()) {
+            T record = converter.convert(source.next(), stringency, logger);
+            read++;
+            if (record != null) {
+                sink.write(record);
+                written++;
+            }
+        }
+        return new long[] { read, written };
+    }
+
+    private long[] runParallel(final Iterator<? extends S> source,
+                               final Converter<S, T> converter,
+                               final Sink<? super T> sink,
+                               final ConversionStringency stringency,
+                               final Logger logger) throws IOException {
+
+        ExecutorService converters = Executors.newFixedThreadPool(threads, threadFactory(name + "-converter"));
+        ExecutorService writerExecutor = Executors.newSingleThreadExecutor(threadFactory(name + "-writer"));
+        BlockingQueue<Future<List<T>>> queue = new ArrayBlockingQueue<Future<List<T>>>(threads * 2);
+        Future<List<T>> end = CompletableFuture.completedFuture(null);
+
+        try {
+            Future<Long> writer = writerExecutor.submit(() -> {
+                    long written = 0L;
+                    while (true) {
+                        Future<List<T>> future = queue.take();
+                        if (future == end) {
+                            return written;
+                        }
+                        List<T> batch = future.get();
+                        for (int i = 0, size = batch.size(); i < size; i++) {
+                            T record = batch.get(i);
+                            if (record != null) {
+                                sink.write(record);
+                                written++;
+                            }
+                        }
+                    }
+                });
+
+            long read = 0L;
+            List<S> batch = new ArrayList<S>(batchSize);
+            while (source.hasNext()) {
+                batch.add(source.next());
+                read++;
+                if (batch.size() == batchSize) {
+                    put(queue, submit(converters, batch, converter, stringency, logger), writer);
+                    batch = new ArrayList<S>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(queue, submit(converters, batch, converter, stringency, logger), writer);
+            }
+            put(queue, end, writer);
+            return new long[] { read, writer.get() };
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted");
+        }
+        catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+        finally {
+            converters.shutdownNow();
+            writerExecutor.shutdownNow();
+            // the sink may be closed by the caller on return, so wait until the writer is no longer writing
+            awaitTermination(writerExecutor);
+        }
+    }
+
+    private Future<List<T>> submit(final ExecutorService converters,
+                                   final List<S> batch,
+                                   final Converter<S, T> converter,
+                                   final ConversionStringency stringency,
+                                   final Logger logger) {
+        return converters.submit(() -> converter.convertAll(batch, new ArrayList<T>(batch.size()), stringency, logger));
+    }
+
+    /**
+     * Put the specified future on the specified queue, waiting for space, and failing fast
+     * if the writer fails while waiting.
+     */
+    private static <T> void put(final BlockingQueue<Future<List<T>>> queue,
+                                final Future<List<T>> future,
+                                final Future<Long> writer) throws InterruptedException, ExecutionException {
+        while (!queue.offer(future, 100L, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                writer.get();
+                throw new IllegalStateException("writer completed before end of input");
+            }
+        }
+    }
+
+    /**
+     * Wait for the specified executor to terminate, deferring any interrupt until it has terminated.
+     */
+    private static void awaitTermination(final ExecutorService executor) {
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rethrow the cause of the specified execution exception, unwrapping nested execution exceptions.
+     */
+    private static IOException rethrow(final ExecutionException e) throws IOException {
+        Throwable cause = e.getCause();
+        while (cause instanceof ExecutionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IOException(cause);
+    }
+
+    private static ThreadFactory threadFactory(final String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
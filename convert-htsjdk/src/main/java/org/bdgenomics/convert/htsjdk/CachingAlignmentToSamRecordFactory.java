@@ -0,0 +1,49 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+import org.bdgenomics.convert.Converter;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+/**
+ * AlignmentToSamRecordFactory that returns one shared, thread safe
+ * Alignment to htsjdk SAMRecord converter per header instance.
+ *
+ * <p>
+ * Converters are created directly rather than through the injector, and are released
+ * once their header is no longer reachable.  Each converter is created with a copy of its
+ * header, as a converter that referenced its header would keep it reachable, so SAMRecords
+ * created by a cached converter reference an equal copy of the specified header rather than
+ * the specified header instance.  Bind with {@link CachingHtsjdkModule}.
+ * </p>
+ */
+public final class CachingAlignmentToSamRecordFactory implements AlignmentToSamRecordFactory {
+
+    /** Converters, by header. */
+    private final HeaderCache<SAMFileHeader, Converter<Alignment, SAMRecord>> cache = new HeaderCache<SAMFileHeader, Converter<Alignment, SAMRecord>>(header -> new AlignmentToSamRecord(header.clone()));
+
+
+    @Override
+    public Converter<Alignment, SAMRecord> create(final SAMFileHeader header) {
+        return cache.get(header);
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.slf4j.Logger;
+
+/**
+ * Cache the lists of Avro records converted from SAM and VCF headers by header identity.
+ *
+ * <p>
+ * Headers are held by weak keys, compared by identity, so a cached list is released once its
+ * header is no longer reachable, and repeated conversion of the same header instance copies
+ * the cached records without converting the header again.  Each call returns a new unmodifiable
+ * list of deep copies, so records modified by one caller are never seen by another.  Lists are
+ * cached separately per conversion stringency, so that a list converted leniently is never
+ * returned to a strict caller.  Failed conversions are not cached.
+ * </p>
+ *
+ * <p>
+ * Headers must not be modified after they are first converted, as changes are not reflected
+ * in the cached records.
+ * </p>
+ *
+ * @param <S> header type
+ * @param <E> list element type
+ */
+public final class CachingHeaderConverter<S, E extends SpecificRecord> extends AbstractConverter<S, List<E>> {
+
+    /** Header converter to cache. */
+    private final Converter<S, List<E>> converter;
+
+    /** Cached lists, by header, per conversion stringency. */
+    private final transient Cache<S, List<E>>[] caches;
+
+
+    /**
+     * Create a new caching header converter for the specified header converter.
+     *
+     * @param converter header converter to cache, must not be null
+     */
+    @SuppressWarnings("unchecked")
+    public CachingHeaderConverter(final Converter<S, List<E>> converter) {
+        super(converter == null ? Object.class : converter.getSourceClass(), List.class);
+
+        checkNotNull(converter);
+        this.converter = converter;
+        this.caches = (Cache<S, List<E>>[]) new Cache<?, ?>[ConversionStringency.values().length];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = CacheBuilder.newBuilder().weakKeys().build();
+        }
+    }
+
+
+    @Override
+    public List<E> convert(final S header,
+                           final ConversionStringency stringency,
+                           final Logger logger) throws ConversionException {
+
+        if (header == null) {
+            warnOrThrow(header, "must not be null", null, stringency, logger);
+            return null;
+        }
+        checkNotNull(stringency, logger);
+
+        Cache<S, List<E>> cache = caches[stringency.ordinal()];
+        List<E> list = cache.getIfPresent(header);
+        if (list == null) {
+            List<E> converted = converter.convert(header, stringency, logger);
+            if (converted == null) {
+                return null;
+            }
+            // concurrent misses for the same header may both convert, the first list cached wins
+            List<E> previous = cache.asMap().putIfAbsent(header, converted);
+            list = previous == null ? converted : previous;
+        }
+        return copy(list);
+    }
+
+    /**
+     * Return an unmodifiable list of deep copies of the records in the specified list.
+     */
+    private static <E extends SpecificRecord> List<E> copy(final List<E> list) {
+        List<E> copy = new ArrayList<E>(list.size());
+        for (int i = 0, size = list.size(); i < size; i++) {
+            E record = list.get(i);
+            copy.add(record == null ? null : SpecificData.get().deepCopy(record.getSchema(), record));
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    /**
+     * Return the number of cached lists, for testing.
+     *
+     * @return the number of cached lists
+     */
+    long size() {
+        long size = 0L;
+        for (Cache<S, List<E>> cache : caches) {
+            cache.cleanUp();
+            size += cache.size();
+        }
+        return size;
+    }
+
+    /**
+     * Replace this converter with an empty caching converter on deserialization.
+     *
+     * @return an empty caching converter for the same header converter
+     */
+    private Object readResolve() {
+        return new CachingHeaderConverter<S, E>(converter);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.List;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+
+import com.google.inject.util.Modules;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMProgramRecord;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.Converter;
+
+import org.bdgenomics.formats.avro.ProcessingStep;
+import org.bdgenomics.formats.avro.ReadGroup;
+import org.bdgenomics.formats.avro.Reference;
+import org.bdgenomics.formats.avro.Sample;
+
+/**
+ * Guice module for the org.bdgenomics.convert.htsjdk package, binding caching factories
+ * that return one shared converter per header instance, and header converters that cache
+ * converted records per header instance.
+ *
+ * <p>
+ * Install this module instead of {@link HtsjdkModule} where a factory is called once per
+ * partition or per task with the same header, so that each header pays for converter
+ * creation and per-header precomputation only once.  Headers must not be modified after
+ * they are first used, as cached converters and records do not reflect later changes.
+ * </p>
+ */
+public final class CachingHtsjdkModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        install(Modules.override(new HtsjdkModule()).with(new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(AlignmentToSamRecordFactory.class).to(CachingAlignmentToSamRecordFactory.class).in(Singleton.class);
+                    bind(GenotypesToVariantContextFactory.class).to(CachingGenotypesToVariantContextFactory.class).in(Singleton.class);
+                    bind(VariantToVariantContextFactory.class).to(CachingVariantToVariantContextFactory.class).in(Singleton.class);
+                    bind(VariantContextToGenotypesFactory.class).to(CachingVariantContextToGenotypesFactory.class).in(Singleton.class);
+                    bind(VariantContextToVariantsFactory.class).to(CachingVariantContextToVariantsFactory.class).in(Singleton.class);
+                }
+
+                @Provides @Singleton
+                Converter<SAMFileHeader, List<Reference>> createSamHeaderToReferences(final Converter<SAMSequenceRecord, Reference> referenceConverter) {
+                    return new CachingHeaderConverter<SAMFileHeader, Reference>(new SamHeaderToReferences(referenceConverter));
+                }
+
+                @Provides @Singleton
+                Converter<SAMFileHeader, List<ReadGroup>> createSamHeaderToReadGroups(final Converter<SAMReadGroupRecord, ReadGroup> readGroupConverter) {
+                    return new CachingHeaderConverter<SAMFileHeader, ReadGroup>(new SamHeaderToReadGroups(readGroupConverter));
+                }
+
+                @Provides @Singleton
+                Converter<SAMFileHeader, List<ProcessingStep>> createSamHeaderToProcessingSteps(final Converter<SAMProgramRecord, ProcessingStep> processingStepConverter) {
+                    return new CachingHeaderConverter<SAMFileHeader, ProcessingStep>(new SamHeaderToProcessingSteps(processingStepConverter));
+                }
+
+                @Provides @Singleton
+                Converter<VCFHeader, List<Reference>> createVcfHeaderToReferences(final Converter<SAMSequenceRecord, Reference> referenceConverter) {
+                    return new CachingHeaderConverter<VCFHeader, Reference>(new VcfHeaderToReferences(referenceConverter));
+                }
+
+                @Provides @Singleton
+                Converter<VCFHeader, List<Sample>> createVcfHeaderToSamples() {
+                    return new CachingHeaderConverter<VCFHeader, Sample>(new VcfHeaderToSamples());
+                }
+            }));
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.List;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.Converter;
+
+import org.bdgenomics.formats.avro.Variant;
+
+/**
+ * VariantContextToVariantsFactory that returns one shared, thread safe
+ * VariantContext to list of Variants converter per header instance.
+ *
+ * <p>
+ * Converters are created directly rather than through the injector, and are released
+ * once their header is no longer reachable.  Bind with {@link CachingHtsjdkModule}.
+ * </p>
+ */
+public final class CachingVariantContextToVariantsFactory implements VariantContextToVariantsFactory {
+
+    /** Converters, by header. */
+    private final HeaderCache<VCFHeader, Converter<VariantContext, List<Variant>>> cache = new HeaderCache<VCFHeader, Converter<VariantContext, List<Variant>>>(VariantContextToVariants::new);
+
+
+    @Override
+    public Converter<VariantContext, List<Variant>> create(final VCFHeader header) {
+        return cache.get(header);
+    }
+}
@@ -31,21 +31,32 @@ import org.bdgenomics.convert.AbstractConverter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
 
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
 import org.bdgenomics.formats.avro.Genotype;
 
 import org.slf4j.Logger;
 
 /**
- * Convert a list of Genotypes to a VariantContext.
+ * Convert a list of Genotypes to VariantContext.
+ *
+ * <p>
+ * The Genotypes must all be at the same site, and are merged into one VariantContext with one
+ * htsjdk Genotype per sample.  Genotypes split from a multi-allelic site are merged back into
+ * multi-allelic calls.  Genotype likelihoods are converted to PL values only for sites with a
+ * single alternate allele, since likelihoods of genotypes with more than one alternate allele
+ * cannot be recovered from split records.
+ * </p>
  */
 public final class GenotypesToVariantContext extends AbstractConverter<List<Genotype>, VariantContext> {
 
-    /** Header. */
-    private final VCFHeader header;
+    /** Header metadata. */
+    private final SiteBuilder.Metadata metadata;
 
 
     /**
      * Create a new list of Genotypes to VariantContext converter with the specified header.
+     * Transcript effects are not converted to ANN values.
      *
      * @param header header, must not be null
      */
@@ -54,7 +65,23 @@ public final class GenotypesToVariantContext extends AbstractConverter<List<Geno
         super(List.class, VariantContext.class);
 
         checkNotNull(header);
-        this.header = header;
+        this.metadata = new SiteBuilder.Metadata(header, null);
+    }
+
+    /**
+     * Create a new list of Genotypes to VariantContext converter with the specified header
+     * and transcript effect appender for ANN values.
+     *
+     * @param header header, must not be null
+     * @param transcriptEffectAppender transcript effect appender for ANN values, must not be null
+     */
+    public GenotypesToVariantContext(final VCFHeader header,
+                                     final TranscriptEffectAppender transcriptEffectAppender) {
+        super(List.class, VariantContext.class);
+
+        checkNotNull(header);
+        checkNotNull(transcriptEffectAppender);
+        this.metadata = new SiteBuilder.Metadata(header, transcriptEffectAppender);
     }
 
 
@@ -72,6 +99,20 @@ public final class GenotypesToVariantContext extends AbstractConverter<List<Geno
             return null;
         }
 
-        return null;
+        try {
+            SiteBuilder siteBuilder = new SiteBuilder(metadata);
+            for (int i = 0, size = genotypes.size(); i < size; i++) {
+                Genotype genotype = genotypes.get(i);
+                if (genotype == null) {
+                    throw new IllegalArgumentException("genotype must not be null");
+                }
+                siteBuilder.add(genotype);
+            }
+            return siteBuilder.build(stringency, logger);
+        }
+        catch (IllegalArgumentException e) {
+            warnOrThrow(genotypes, "could not build variant context, caught " + e.getMessage(), e, stringency, logger);
+            return null;
+        }
     }
 }
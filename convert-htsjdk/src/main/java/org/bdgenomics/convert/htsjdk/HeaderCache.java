@@ -0,0 +1,79 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.function.Function;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Cache of values created per header, held by weak keys compared by header identity.
+ *
+ * <p>
+ * Values must not reference their header, directly or indirectly, or the header
+ * remains reachable through the cache and the entry is never released.
+ * </p>
+ *
+ * @param <H> header type
+ * @param <V> value type
+ */
+final class HeaderCache<H, V> {
+
+    /** Cached values, by header. */
+    private final LoadingCache<H, V> cache;
+
+
+    /**
+     * Create a new header cache with the specified function to create a value for a header.
+     *
+     * @param create function to create a value for a header, must not be null
+     */
+    HeaderCache(final Function<H, V> create) {
+        if (create == null) {
+            throw new NullPointerException("create must not be null");
+        }
+        this.cache = CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(create::apply));
+    }
+
+
+    /**
+     * Return the value for the specified header, creating it at most once per header instance.
+     *
+     * @param header header, must not be null
+     * @return the value for the specified header
+     * @throws NullPointerException if header is null
+     */
+    V get(final H header) {
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        return cache.getUnchecked(header);
+    }
+
+    /**
+     * Return the number of cached values, for testing.
+     *
+     * @return the number of cached values
+     */
+    long size() {
+        cache.cleanUp();
+        return cache.size();
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.bdgenomics.convert.htsjdk;
 
+import java.nio.ByteBuffer;
+
 import java.util.List;
 
 import htsjdk.samtools.SAMFileHeader;
@@ -59,6 +61,17 @@ public final class HtsjdkModule extends AbstractModule {
             .implement(new TypeLiteral<Converter<Alignment, SAMRecord>>() {}, AlignmentToSamRecord.class)
             .build(AlignmentToSamRecordFactory.class));
 
+        install(new FactoryModuleBuilder()
+            .implement(new TypeLiteral<Converter<ByteBuffer, Alignment>>() {}, BamRecordToAlignment.class)
+            .build(BamRecordToAlignmentFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .implement(new TypeLiteral<Converter<CharSequence, Alignment>>() {}, SamLineToAlignment.class)
+            .build(SamLineToAlignmentFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .build(AlignmentToSamLineFactory.class));
+
         install(new FactoryModuleBuilder()
             .implement(new TypeLiteral<Converter<List<Genotype>, VariantContext>>() {}, GenotypesToVariantContext.class)
             .build(GenotypesToVariantContextFactory.class));
@@ -74,6 +87,22 @@ public final class HtsjdkModule extends AbstractModule {
         install(new FactoryModuleBuilder()
             .implement(new TypeLiteral<Converter<VariantContext, List<Variant>>>() {}, VariantContextToVariants.class)
             .build(VariantContextToVariantsFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .implement(new TypeLiteral<Converter<CharSequence, List<Variant>>>() {}, VcfLineToVariants.class)
+            .build(VcfLineToVariantsFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .build(VariantContextGrouperFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .build(SamToAlignmentPipelineFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .build(AlignmentToBamPipelineFactory.class));
+
+        install(new FactoryModuleBuilder()
+            .build(VcfToVariantPipelineFactory.class));
     }
 
     @Provides @Singleton
@@ -0,0 +1,467 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.BAMFileWriter;
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.Chunk;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileSource;
+import htsjdk.samtools.SAMRecord;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+
+/**
+ * BAM writer that compresses BGZF blocks in parallel and optionally builds a BAI index on the fly.
+ *
+ * <p>
+ * Encoded records are cut into BGZF blocks of a fixed uncompressed size regardless of record
+ * boundaries, and each block is compressed independently, so the bytes written depend only
+ * on the header, the records, and the compression level, and not on the number of threads.
+ * Compressed blocks are written in order as they complete.  Virtual file pointers for the
+ * index are resolved once the compressed addresses of the blocks a record spans are known.
+ * </p>
+ *
+ * <p>
+ * Closing the writer writes the remaining blocks, the BGZF end-of-file marker, and the index.
+ * If writing fails, the writer should be aborted instead, so that the incomplete output is
+ * not mistaken for a complete BAM file with a valid index.
+ * </p>
+ *
+ * <p>
+ * This class is not thread safe; records must be added from a single thread.
+ * </p>
+ */
+final class ParallelBamWriter implements Closeable {
+    /** Uncompressed BGZF block size. */
+    static final int BLOCK_SIZE = BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+
+    /** Compression thread count, for thread names. */
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    /** Output stream. */
+    private final OutputStream outputStream;
+
+    /** Index output stream, if any. */
+    private final OutputStream indexStream;
+
+    /** BAI indexer, if any. */
+    private final BAMIndexer indexer;
+
+    /** BAM record codec, encodes into the current block. */
+    private final BAMRecordCodec codec;
+
+    /** Compression threads, if any. */
+    private final ExecutorService executor;
+
+    /** Compressed blocks in flight, in order. */
+    private final ArrayDeque<Future<byte[]>> blocks;
+
+    /** Maximum number of compressed blocks in flight. */
+    private final int maxBlocks;
+
+    /** Deflaters, one pair per compression thread. */
+    private final BlockingQueue<Deflaters> deflaters;
+
+    /** Records waiting for the compressed addresses of the blocks they span, if indexing. */
+    private final ArrayDeque<PendingRecord> pending = new ArrayDeque<PendingRecord>();
+
+    /** Compressed addresses of blocks, from block <code>firstAddress</code> through the last block written. */
+    private final ArrayDeque<Long> addresses = new ArrayDeque<Long>();
+
+    /** Block index of the first compressed address. */
+    private long firstAddress = 0L;
+
+    /** Current uncompressed block. */
+    private byte[] block = new byte[BLOCK_SIZE];
+
+    /** Number of bytes in the current uncompressed block. */
+    private int length = 0;
+
+    /** Number of uncompressed bytes written, excluding the header. */
+    private long position = 0L;
+
+    /** Number of compressed bytes written, including the header. */
+    private long address;
+
+    /** True if this writer has been closed. */
+    private boolean closed = false;
+
+
+    /**
+     * Create a new parallel BAM writer and write the specified header.
+     *
+     * @param outputStream output stream, must not be null
+     * @param indexStream index output stream, or null to not write an index
+     * @param header header, must not be null and must be coordinate sorted if writing an index
+     * @param threads number of compression threads, must be at least one
+     * @param compressionLevel compression level
+     * @throws IOException if an I/O error occurs
+     */
+    ParallelBamWriter(final OutputStream outputStream,
+                      final OutputStream indexStream,
+                      final SAMFileHeader header,
+                      final int threads,
+                      final int compressionLevel) throws IOException {
+        if (outputStream == null) {
+            throw new NullPointerException("outputStream must not be null");
+        }
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least one, was " + threads);
+        }
+        if (indexStream != null && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+            throw new IllegalArgumentException("header must be coordinate sorted to write an index, was " + header.getSortOrder());
+        }
+        this.outputStream = outputStream;
+
+        // header is written as its own run of blocks, so that the first record starts a new block
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        BAMFileWriter.writeHeader(headerBytes, header);
+        headerBytes.writeTo(outputStream);
+        address = headerBytes.size();
+        addresses.add(address);
+
+        this.indexStream = indexStream;
+        indexer = indexStream == null ? null : new BAMIndexer(indexStream, header);
+        codec = new BAMRecordCodec(header);
+        codec.setOutputStream(new BlockOutputStream());
+
+        maxBlocks = threads * 2;
+        blocks = new ArrayDeque<Future<byte[]>>(maxBlocks);
+        deflaters = new ArrayBlockingQueue<Deflaters>(threads);
+        for (int i = 0; i < threads; i++) {
+            deflaters.add(new Deflaters(compressionLevel));
+        }
+        executor = threads == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "bgzf-compressor-" + THREADS.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+
+    /**
+     * Add the specified record.
+     *
+     * @param record record to add, must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    void addAlignment(final SAMRecord record) throws IOException {
+        if (closed) {
+            throw new IOException("writer is closed");
+        }
+        long start = position;
+        codec.encode(record);
+        if (indexer != null) {
+            pending.add(new PendingRecord(record, start, position));
+            resolve();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (length > 0) {
+                submit();
+            }
+            while (!blocks.isEmpty()) {
+                write(blocks.poll());
+            }
+            outputStream.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            outputStream.flush();
+            if (indexer != null) {
+                resolve();
+                indexer.finish();
+            }
+        }
+        finally {
+            release();
+        }
+    }
+
+    /**
+     * Abort this writer, closing the output streams without writing the remaining blocks, the
+     * BGZF end-of-file marker, or the index.  Does nothing if this writer has been closed or aborted.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<byte[]> future : blocks) {
+            future.cancel(true);
+        }
+        blocks.clear();
+        pending.clear();
+        release();
+    }
+
+    /**
+     * Release compression threads and deflaters and close the output streams.
+     */
+    private void release() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (Deflaters d : deflaters) {
+            d.end();
+        }
+        try {
+            outputStream.close();
+        }
+        finally {
+            if (indexStream != null) {
+                indexStream.close();
+            }
+        }
+    }
+
+    /**
+     * Submit the current block for compression, writing completed blocks and waiting for space if necessary.
+     */
+    private void submit() throws IOException {
+        final byte[] uncompressed = block;
+        final int uncompressedLength = length;
+        block = new byte[BLOCK_SIZE];
+        length = 0;
+
+        if (executor == null) {
+            write(CompletableFuture.completedFuture(deflaters.peek().compress(uncompressed, uncompressedLength)));
+            return;
+        }
+        while (blocks.size() >= maxBlocks || (!blocks.isEmpty() && blocks.peek().isDone())) {
+            write(blocks.poll());
+        }
+        blocks.add(executor.submit(() -> compress(uncompressed, uncompressedLength)));
+    }
+
+    /**
+     * Wait for and write the specified compressed block.
+     */
+    private void write(final Future<byte[]> future) throws IOException {
+        byte[] compressed;
+        try {
+            compressed = future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("could not compress block", e.getCause());
+        }
+        outputStream.write(compressed);
+        address += compressed.length;
+        if (indexer != null) {
+            addresses.add(address);
+            resolve();
+        }
+    }
+
+    /**
+     * Index pending records for which the compressed addresses of every block they span are known.
+     */
+    private void resolve() {
+        long known = firstAddress + addresses.size();
+        while (!pending.isEmpty()) {
+            PendingRecord record = pending.peek();
+            long startBlock = record.start / BLOCK_SIZE;
+            long endBlock = record.end / BLOCK_SIZE;
+            if (endBlock >= known) {
+                break;
+            }
+            while (firstAddress < startBlock) {
+                addresses.poll();
+                firstAddress++;
+            }
+            long startPointer = virtualPointer(record.start, addresses.peek());
+            long endPointer = virtualPointer(record.end, address(endBlock));
+            record.record.setFileSource(new SAMFileSource(null, new BAMFileSpan(new Chunk(startPointer, endPointer))));
+            indexer.processAlignment(record.record);
+            pending.poll();
+        }
+    }
+
+    private long address(final long block) {
+        long i = firstAddress;
+        for (Long a : addresses) {
+            if (i++ == block) {
+                return a;
+            }
+        }
+        throw new IllegalStateException("no address for block " + block);
+    }
+
+    private static long virtualPointer(final long position, final long blockAddress) {
+        return (blockAddress << 16) | (position % BLOCK_SIZE);
+    }
+
+    /**
+     * Compress the specified uncompressed block into a BGZF block.
+     */
+    private byte[] compress(final byte[] uncompressed, final int uncompressedLength) throws InterruptedException {
+        Deflaters d = deflaters.take();
+        try {
+            return d.compress(uncompressed, uncompressedLength);
+        }
+        finally {
+            deflaters.add(d);
+        }
+    }
+
+
+    /**
+     * Output stream that appends to the current uncompressed block.
+     */
+    private final class BlockOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            block[length++] = (byte) b;
+            position++;
+            if (length == BLOCK_SIZE) {
+                submit();
+            }
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int len) throws IOException {
+            int off = offset;
+            int remaining = len;
+            while (remaining > 0) {
+                int n = Math.min(remaining, BLOCK_SIZE - length);
+                System.arraycopy(bytes, off, block, length, n);
+                length += n;
+                position += n;
+                off += n;
+                remaining -= n;
+                if (length == BLOCK_SIZE) {
+                    submit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record waiting to be indexed, with its uncompressed start and end positions.
+     */
+    private static final class PendingRecord {
+        final SAMRecord record;
+        final long start;
+        final long end;
+
+        PendingRecord(final SAMRecord record, final long start, final long end) {
+            this.record = record;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Deflater and fallback no compression deflater, as in htsjdk BlockCompressedOutputStream.
+     */
+    private static final class Deflaters {
+        final Deflater deflater;
+        final Deflater noCompressionDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+        final CRC32 crc32 = new CRC32();
+        final byte[] buffer = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH];
+
+        Deflaters(final int compressionLevel) {
+            deflater = new Deflater(compressionLevel, true);
+        }
+
+        byte[] compress(final byte[] uncompressed, final int uncompressedLength) {
+            deflater.reset();
+            deflater.setInput(uncompressed, 0, uncompressedLength);
+            deflater.finish();
+            int compressedLength = deflater.deflate(buffer, 0, buffer.length);
+            if (!deflater.finished()) {
+                noCompressionDeflater.reset();
+                noCompressionDeflater.setInput(uncompressed, 0, uncompressedLength);
+                noCompressionDeflater.finish();
+                compressedLength = noCompressionDeflater.deflate(buffer, 0, buffer.length);
+                if (!noCompressionDeflater.finished()) {
+                    throw new IllegalStateException("block does not fit uncompressed");
+                }
+            }
+            crc32.reset();
+            crc32.update(uncompressed, 0, uncompressedLength);
+
+            int blockLength = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + compressedLength + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+            byte[] compressed = new byte[blockLength];
+            System.arraycopy(BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE, 0, compressed, 0, BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE.length);
+            int i = BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE.length;
+            i = writeShort(compressed, i, blockLength - 1);
+            System.arraycopy(buffer, 0, compressed, i, compressedLength);
+            i += compressedLength;
+            i = writeInt(compressed, i, (int) crc32.getValue());
+            writeInt(compressed, i, uncompressedLength);
+            return compressed;
+        }
+
+        void end() {
+            deflater.end();
+            noCompressionDeflater.end();
+        }
+
+        private static int writeShort(final byte[] bytes, final int i, final int value) {
+            bytes[i] = (byte) value;
+            bytes[i + 1] = (byte) (value >>> 8);
+            return i + 2;
+        }
+
+        private static int writeInt(final byte[] bytes, final int i, final int value) {
+            bytes[i] = (byte) value;
+            bytes[i + 1] = (byte) (value >>> 8);
+            bytes[i + 2] = (byte) (value >>> 16);
+            bytes[i + 3] = (byte) (value >>> 24);
+            return i + 4;
+        }
+    }
+}
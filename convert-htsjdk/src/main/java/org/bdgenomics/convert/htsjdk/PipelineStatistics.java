@@ -0,0 +1,103 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+/**
+ * Record counts and throughput for a conversion pipeline run.
+ */
+public final class PipelineStatistics {
+    /** Number of records read. */
+    private final long read;
+
+    /** Number of records written. */
+    private final long written;
+
+    /** Number of records skipped because conversion failed. */
+    private final long skipped;
+
+    /** Elapsed time in nanoseconds. */
+    private final long elapsedNanos;
+
+
+    /**
+     * Create new pipeline statistics.
+     *
+     * @param read number of records read
+     * @param written number of records written
+     * @param skipped number of records skipped because conversion failed
+     * @param elapsedNanos elapsed time in nanoseconds
+     */
+    public PipelineStatistics(final long read, final long written, final long skipped, final long elapsedNanos) {
+        this.read = read;
+        this.written = written;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+
+    /**
+     * Return the number of records read.
+     *
+     * @return the number of records read
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * Return the number of records written.
+     *
+     * @return the number of records written
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Return the number of records skipped because conversion failed.
+     *
+     * @return the number of records skipped because conversion failed
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Return the elapsed time in nanoseconds.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Return the throughput in records read per second.
+     *
+     * @return the throughput in records read per second
+     */
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0L ? 0.0d : read * 1.0e9d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read %d, wrote %d, skipped %d records in %.3f s (%.1f records/s)",
+                             read, written, skipped, elapsedNanos / 1.0e9d, getRecordsPerSecond());
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Decode attributes in SAM text format, tab-separated, directly onto an htsjdk SAMRecord.
+ *
+ * <p>
+ * Each attribute is tokenized in a single pass; integer and integer array values are
+ * parsed in place without intermediate Strings or boxing, and each attribute is set once.
+ * </p>
+ */
+final class SamAttributeDecoder {
+
+    /** Attribute delimiter. */
+    private static final char ATTRIBUTE_DELIMITER = '\t';
+
+    /** Array value delimiter. */
+    private static final char ARRAY_DELIMITER = ',';
+
+    /** Maximum value of an unsigned 32-bit integer. */
+    private static final long MAX_UINT = 4294967295L;
+
+
+    /**
+     * Private no-arg constructor.
+     */
+    private SamAttributeDecoder() {
+        // empty
+    }
+
+
+    /**
+     * Return the end of the attribute starting at the specified index, that is the
+     * index of the next attribute delimiter or the length of the specified attributes.
+     *
+     * @param attributes attributes
+     * @param start start of the attribute, inclusive
+     * @return the end of the attribute starting at the specified index
+     */
+    static int end(final CharSequence attributes, final int start) {
+        for (int i = start, length = attributes.length(); i < length; i++) {
+            if (attributes.charAt(i) == ATTRIBUTE_DELIMITER) {
+                return i;
+            }
+        }
+        return attributes.length();
+    }
+
+    /**
+     * Decode the attribute in the specified range of the specified attributes and set it on
+     * the specified SAM record.  Empty ranges are ignored.
+     *
+     * @param attributes attributes
+     * @param start start of the attribute, inclusive
+     * @param end end of the attribute, exclusive
+     * @param samRecord SAM record to set the attribute on
+     * @throws IllegalArgumentException if the attribute is not valid; the message does not
+     *    include the attribute, which callers have as the specified range
+     */
+    static void decode(final CharSequence attributes, final int start, final int end, final SAMRecord samRecord) {
+        if (start == end) {
+            return;
+        }
+        if (end - start < 5 || attributes.charAt(start + 2) != ':' || attributes.charAt(start + 4) != ':') {
+            throw invalid("invalid attribute");
+        }
+        String tag = attributes.subSequence(start, start + 2).toString();
+        char type = attributes.charAt(start + 3);
+        int valueStart = start + 5;
+
+        switch (type) {
+        case 'A':
+            if (end - valueStart != 1) {
+                throw invalid("invalid character attribute");
+            }
+            samRecord.setAttribute(tag, Character.valueOf(attributes.charAt(valueStart)));
+            break;
+        case 'i':
+            long l = parseLong(attributes, valueStart, end);
+            if (l < Integer.MIN_VALUE || l > MAX_UINT) {
+                throw invalid("integer attribute out of range");
+            }
+            samRecord.setAttribute(tag, l > Integer.MAX_VALUE ? (Object) Long.valueOf(l) : (Object) Integer.valueOf((int) l));
+            break;
+        case 'f':
+            samRecord.setAttribute(tag, Float.valueOf(parseFloat(attributes, valueStart, end)));
+            break;
+        case 'Z':
+            samRecord.setAttribute(tag, attributes.subSequence(valueStart, end).toString());
+            break;
+        case 'H':
+            samRecord.setAttribute(tag, parseHex(attributes, valueStart, end));
+            break;
+        case 'B':
+            decodeArray(tag, attributes, start, valueStart, end, samRecord);
+            break;
+        default:
+            throw invalid("invalid attribute type");
+        }
+    }
+
+    /**
+     * Decode the array attribute value in the specified range and set it on the specified SAM record.
+     *
+     * @param tag tag
+     * @param attributes attributes
+     * @param start start of the attribute, inclusive
+     * @param valueStart start of the array attribute value, inclusive
+     * @param end end of the attribute, exclusive
+     * @param samRecord SAM record to set the attribute on
+     * @throws IllegalArgumentException if the attribute is not valid
+     */
+    private static void decodeArray(final String tag,
+                                    final CharSequence attributes,
+                                    final int start,
+                                    final int valueStart,
+                                    final int end,
+                                    final SAMRecord samRecord) {
+        if (valueStart == end) {
+            throw invalid("missing array type");
+        }
+        char arrayType = attributes.charAt(valueStart);
+        int i = valueStart + 1;
+        int length = 0;
+        if (i < end) {
+            if (attributes.charAt(i) != ARRAY_DELIMITER) {
+                throw invalid("invalid array attribute");
+            }
+            length = 1;
+            for (int j = i + 1; j < end; j++) {
+                if (attributes.charAt(j) == ARRAY_DELIMITER) {
+                    length++;
+                }
+            }
+        }
+
+        switch (arrayType) {
+        case 'c':
+        case 'C': {
+            boolean unsigned = arrayType == 'C';
+            byte[] bytes = new byte[length];
+            for (int k = 0; k < length; k++) {
+                int valueEnd = next(attributes, i + 1, end);
+                bytes[k] = (byte) parseInteger(attributes, i + 1, valueEnd, unsigned ? 0 : Byte.MIN_VALUE, unsigned ? 0xff : Byte.MAX_VALUE);
+                i = valueEnd;
+            }
+            set(tag, bytes, unsigned, samRecord);
+            break;
+        }
+        case 's':
+        case 'S': {
+            boolean unsigned = arrayType == 'S';
+            short[] shorts = new short[length];
+            for (int k = 0; k < length; k++) {
+                int valueEnd = next(attributes, i + 1, end);
+                shorts[k] = (short) parseInteger(attributes, i + 1, valueEnd, unsigned ? 0 : Short.MIN_VALUE, unsigned ? 0xffff : Short.MAX_VALUE);
+                i = valueEnd;
+            }
+            set(tag, shorts, unsigned, samRecord);
+            break;
+        }
+        case 'i':
+        case 'I': {
+            boolean unsigned = arrayType == 'I';
+            int[] ints = new int[length];
+            for (int k = 0; k < length; k++) {
+                int valueEnd = next(attributes, i + 1, end);
+                ints[k] = (int) parseInteger(attributes, i + 1, valueEnd, unsigned ? 0L : Integer.MIN_VALUE, unsigned ? MAX_UINT : Integer.MAX_VALUE);
+                i = valueEnd;
+            }
+            set(tag, ints, unsigned, samRecord);
+            break;
+        }
+        case 'f': {
+            float[] floats = new float[length];
+            for (int k = 0; k < length; k++) {
+                int valueEnd = next(attributes, i + 1, end);
+                floats[k] = parseFloat(attributes, i + 1, valueEnd);
+                i = valueEnd;
+            }
+            samRecord.setAttribute(tag, floats);
+            break;
+        }
+        default:
+            throw invalid("invalid array type");
+        }
+    }
+
+    private static void set(final String tag, final Object value, final boolean unsigned, final SAMRecord samRecord) {
+        if (unsigned) {
+            samRecord.setUnsignedArrayAttribute(tag, value);
+        }
+        else {
+            samRecord.setAttribute(tag, value);
+        }
+    }
+
+    private static int next(final CharSequence attributes, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (attributes.charAt(i) == ARRAY_DELIMITER) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static long parseInteger(final CharSequence attributes,
+                                     final int valueStart,
+                                     final int valueEnd,
+                                     final long min,
+                                     final long max) {
+        long l = parseLong(attributes, valueStart, valueEnd);
+        if (l < min || l > max) {
+            throw invalid("array value out of range");
+        }
+        return l;
+    }
+
+    /**
+     * Parse the specified range as a signed decimal long, which must fit in 32 bits unsigned
+     * or signed, without copying it into an intermediate string.
+     *
+     * @param value value
+     * @param start start of the range, inclusive
+     * @param end end of the range, exclusive
+     * @return the specified range parsed as a long
+     * @throws NumberFormatException if the specified range is not a valid integer
+     */
+    static long parseLong(final CharSequence value, final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        // more than ten digits cannot fit in 32 bits
+        if (i == end || end - i > 10) {
+            throw numberFormatException(value, start, end);
+        }
+        long result = 0L;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberFormatException(value, start, end);
+            }
+            result = result * 10L + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private static float parseFloat(final CharSequence value, final int start, final int end) {
+        return Float.parseFloat(value.subSequence(start, end).toString());
+    }
+
+    private static byte[] parseHex(final CharSequence value, final int start, final int end) {
+        if ((end - start) % 2 != 0) {
+            throw numberFormatException(value, start, end);
+        }
+        byte[] bytes = new byte[(end - start) / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(value.charAt(start + 2 * i), 16);
+            int low = Character.digit(value.charAt(start + 2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw numberFormatException(value, start, end);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    private static NumberFormatException numberFormatException(final CharSequence value, final int start, final int end) {
+        return new NumberFormatException("For input string: \"" + value.subSequence(start, end) + "\"");
+    }
+
+    private static IllegalArgumentException invalid(final String message) {
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.lang.reflect.Method;
+
+import java.util.List;
+
+import htsjdk.samtools.SAMBinaryTagAndValue;
+import htsjdk.samtools.SAMFormatException;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTag;
+
+/**
+ * Encode htsjdk SAMRecord attributes in SAM text format, tab-separated, directly into
+ * a string builder.
+ *
+ * <p>
+ * Encoding matches <code>TextTagCodec</code>, without creating intermediate Strings.
+ * The MD, OC, OP, and OQ tags are skipped, as these are stored in dedicated Alignment
+ * fields.
+ * </p>
+ */
+final class SamAttributeEncoder {
+
+    /** Maximum value of an unsigned 32-bit integer. */
+    private static final long MAX_UINT = 4294967295L;
+
+    /** MD binary tag. */
+    private static final short MD = SAMTag.MD.getBinaryTag();
+
+    /** OC binary tag. */
+    private static final short OC = SAMTag.OC.getBinaryTag();
+
+    /** OP binary tag. */
+    private static final short OP = SAMTag.OP.getBinaryTag();
+
+    /** OQ binary tag. */
+    private static final short OQ = SAMTag.OQ.getBinaryTag();
+
+    /** <code>SAMRecord.getBinaryAttributes()</code>, resolved once, or null if not accessible. */
+    private static final Method GET_BINARY_ATTRIBUTES = resolveGetBinaryAttributes();
+
+
+    /**
+     * Private no-arg constructor.
+     */
+    private SamAttributeEncoder() {
+        // empty
+    }
+
+
+    /**
+     * Encode the attributes of the specified SAM record to the specified string builder.
+     *
+     * @param samRecord SAM record
+     * @param sb string builder to encode to
+     * @return the specified string builder
+     * @throws SAMFormatException if an integer attribute value cannot be stored in SAM format
+     */
+    static StringBuilder encode(final SAMRecord samRecord, final StringBuilder sb) {
+        if (GET_BINARY_ATTRIBUTES != null) {
+            try {
+                return encode((SAMBinaryTagAndValue) GET_BINARY_ATTRIBUTES.invoke(samRecord), sb);
+            }
+            catch (ReflectiveOperationException e) {
+                // fall through to public API
+            }
+        }
+        List<SAMRecord.SAMTagAndValue> attributes = samRecord.getAttributes();
+        for (int i = 0, size = attributes.size(); i < size; i++) {
+            SAMRecord.SAMTagAndValue attribute = attributes.get(i);
+            short tag = SAMTag.makeBinaryTag(attribute.tag);
+            if (!skipTag(tag)) {
+                encode(tag, attribute.value, samRecord.isUnsignedArrayAttribute(attribute.tag), sb);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Encode the specified attribute and its child attributes to the specified string builder.
+     *
+     * @param attribute attribute
+     * @param sb string builder to encode to
+     * @return the specified string builder
+     * @throws SAMFormatException if an integer attribute value cannot be stored in SAM format
+     */
+    static StringBuilder encode(SAMBinaryTagAndValue attribute, final StringBuilder sb) {
+        while (attribute != null) {
+            if (!skipTag(attribute.tag)) {
+                encode(attribute.tag, attribute.value, attribute.isUnsignedArray(), sb);
+            }
+            attribute = attribute.getNext();
+        }
+        return sb;
+    }
+
+    /**
+     * Return true if the specified attribute tag should be skipped.
+     *
+     * @param tag attribute tag
+     * @return true if the specified attribute tag should be skipped
+     */
+    static boolean skipTag(final short tag) {
+        return tag == MD || tag == OC || tag == OP || tag == OQ;
+    }
+
+    /**
+     * Encode the specified attribute to the specified string builder, preceded by a tab
+     * if the string builder is not empty.
+     *
+     * @param tag binary tag
+     * @param value value
+     * @param unsigned true if the value is an unsigned array
+     * @param sb string builder to encode to
+     * @return the specified string builder
+     * @throws SAMFormatException if an integer attribute value cannot be stored in SAM format
+     */
+    static StringBuilder encode(final short tag, final Object value, final boolean unsigned, final StringBuilder sb) {
+        if (sb.length() > 0) {
+            sb.append('\t');
+        }
+        // binary tags are little-endian, see SAMTag.makeStringTag
+        sb.append((char) (tag & 0xff)).append((char) ((tag >> 8) & 0xff)).append(':');
+
+        if (value instanceof String) {
+            sb.append("Z:").append((String) value);
+        }
+        else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            long l = ((Number) value).longValue();
+            if (l > MAX_UINT || l < Integer.MIN_VALUE) {
+                throw new SAMFormatException("Value for tag " + SAMTag.makeStringTag(tag) + " cannot be stored in an Integer: " + l);
+            }
+            sb.append("i:").append(l);
+        }
+        else if (value instanceof Character) {
+            sb.append("A:").append(((Character) value).charValue());
+        }
+        else if (value instanceof Float) {
+            sb.append("f:").append(((Float) value).floatValue());
+        }
+        else if (value instanceof byte[]) {
+            byte[] array = (byte[]) value;
+            sb.append("B:").append(unsigned ? 'C' : 'c');
+            for (int i = 0; i < array.length; i++) {
+                sb.append(',');
+                if (unsigned) {
+                    sb.append(array[i] & 0xff);
+                }
+                else {
+                    sb.append(array[i]);
+                }
+            }
+        }
+        else if (value instanceof short[]) {
+            short[] array = (short[]) value;
+            sb.append("B:").append(unsigned ? 'S' : 's');
+            for (int i = 0; i < array.length; i++) {
+                sb.append(',');
+                if (unsigned) {
+                    sb.append(array[i] & 0xffff);
+                }
+                else {
+                    sb.append(array[i]);
+                }
+            }
+        }
+        else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            sb.append("B:").append(unsigned ? 'I' : 'i');
+            for (int i = 0; i < array.length; i++) {
+                sb.append(',');
+                if (unsigned) {
+                    sb.append(array[i] & 0xffffffffL);
+                }
+                else {
+                    sb.append(array[i]);
+                }
+            }
+        }
+        else if (value instanceof float[]) {
+            float[] array = (float[]) value;
+            sb.append("B:f");
+            for (int i = 0; i < array.length; i++) {
+                sb.append(',').append(array[i]);
+            }
+        }
+        else {
+            throw new IllegalArgumentException("attribute value of type " + value.getClass() + " not supported for tag " + SAMTag.makeStringTag(tag));
+        }
+        return sb;
+    }
+
+    /**
+     * Resolve <code>SAMRecord.getBinaryAttributes()</code>, which is protected, once.
+     *
+     * @return <code>SAMRecord.getBinaryAttributes()</code>, or null if not accessible
+     */
+    private static Method resolveGetBinaryAttributes() {
+        try {
+            Method method = SAMRecord.class.getDeclaredMethod("getBinaryAttributes");
+            method.setAccessible(true);
+            return method;
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert a SAM text format alignment line to Alignment, without an intermediate htsjdk SAMRecord.
+ *
+ * <p>
+ * The tab-delimited columns are parsed in a single pass, and optional tag columns are copied
+ * verbatim into the attributes field, except for the MD, OC, OP, and OQ tags, which are stored in
+ * dedicated Alignment fields.  Fields are otherwise set as by {@link SamRecordToAlignment}.
+ * Record validation beyond parsing the columns, such as the consistency checks on flags
+ * performed by htsjdk <code>SAMLineParser</code>, is not performed.
+ * </p>
+ */
+public final class SamLineToAlignment extends AbstractConverter<CharSequence, Alignment> {
+
+    /** Number of mandatory columns. */
+    private static final int MANDATORY_COLUMNS = 11;
+
+    /** Per-thread string builder for attributes. */
+    private static final ThreadLocal<StringBuilder> ATTRIBUTES = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    /** SAM file header. */
+    private final SAMFileHeader header;
+
+
+    /**
+     * Create a new SAM line to Alignment converter with the specified SAM file header.
+     *
+     * @param header SAM file header, must not be null
+     */
+    @Inject
+    public SamLineToAlignment(@Assisted final SAMFileHeader header) {
+        super(CharSequence.class, Alignment.class);
+        checkNotNull(header);
+        this.header = header;
+    }
+
+
+    @Override
+    public Alignment convert(final CharSequence line,
+                             final ConversionStringency stringency,
+                             final Logger logger) throws ConversionException {
+        return convertInto(line, null, stringency, logger);
+    }
+
+    @Override
+    public Alignment convertInto(final CharSequence line,
+                                 final Alignment alignment,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws ConversionException {
+
+        if (line == null) {
+            warnOrThrow(line, "must not be null", null, stringency, logger);
+            return null;
+        }
+        checkNotNull(stringency, logger);
+
+        // find the end offsets of the mandatory columns
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            length--;
+        }
+        int[] ends = new int[MANDATORY_COLUMNS];
+        int column = 0;
+        for (int i = 0; i < length && column < MANDATORY_COLUMNS; i++) {
+            if (line.charAt(i) == '\t') {
+                ends[column++] = i;
+            }
+        }
+        if (column == MANDATORY_COLUMNS - 1) {
+            ends[column++] = length;
+        }
+        if (column < MANDATORY_COLUMNS) {
+            warnOrThrow(line, "expected at least " + MANDATORY_COLUMNS + " tab-delimited columns", null, stringency, logger);
+            return null;
+        }
+        try {
+            return convert(line, length, ends, alignment == null ? new Alignment() : alignment, ATTRIBUTES.get(), stringency, logger);
+        }
+        catch (NumberFormatException e) {
+            warnOrThrow(line, "could not parse number", e, stringency, logger);
+            return null;
+        }
+    }
+
+    /**
+     * Convert the specified SAM line into the specified alignment, setting every field.
+     *
+     * @param line SAM line, must not be null
+     * @param length length of the line, excluding any trailing carriage return
+     * @param ends end offsets of the mandatory columns, exclusive
+     * @param alignment alignment to convert into, must not be null
+     * @param sb string builder for attributes, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified alignment, or null if conversion fails and the specified conversion
+     *    stringency is lenient or silent
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NumberFormatException if a numeric column cannot be parsed
+     */
+    private Alignment convert(final CharSequence line,
+                              final int length,
+                              final int[] ends,
+                              final Alignment alignment,
+                              final StringBuilder sb,
+                              final ConversionStringency stringency,
+                              final Logger logger) throws ConversionException {
+
+        int flag = (int) parseLong(line, ends[0] + 1, ends[1]);
+        String referenceName = referenceName(line, ends[1] + 1, ends[2], null, stringency, logger);
+        long start = parseLong(line, ends[2] + 1, ends[3]);
+        int mappingQuality = (int) parseLong(line, ends[3] + 1, ends[4]);
+        String mateReferenceName = referenceName(line, ends[5] + 1, ends[6], referenceName, stringency, logger);
+        long mateStart = parseLong(line, ends[6] + 1, ends[7]);
+        long insertSize = parseLong(line, ends[7] + 1, ends[8]);
+
+        // walk the cigar once for hard clip trims and reference length
+        int referenceLength = 0;
+        if (isMissing(line, ends[4] + 1, ends[5])) {
+            alignment.setCigar(null);
+            alignment.setBasesTrimmedFromStart(0);
+            alignment.setBasesTrimmedFromEnd(0);
+        }
+        else {
+            int startTrim = 0;
+            int endTrim = 0;
+            int operations = 0;
+            int operationLength = 0;
+            boolean digits = false;
+            for (int i = ends[4] + 1; i < ends[5]; i++) {
+                char c = line.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    operationLength = operationLength * 10 + (c - '0');
+                    digits = true;
+                    continue;
+                }
+                if (!digits) {
+                    warnOrThrow(line, "invalid cigar", line.subSequence(ends[4] + 1, ends[5]), null, stringency, logger);
+                    return null;
+                }
+                switch (c) {
+                    case 'M':
+                    case 'D':
+                    case 'N':
+                    case '=':
+                    case 'X':
+                        referenceLength += operationLength;
+                        break;
+                    case 'H':
+                        if (operations == 0) {
+                            startTrim = operationLength;
+                        }
+                        if (i == ends[5] - 1) {
+                            endTrim = operationLength;
+                        }
+                        break;
+                    case 'I':
+                    case 'S':
+                    case 'P':
+                        break;
+                    default:
+                        warnOrThrow(line, "invalid cigar", line.subSequence(ends[4] + 1, ends[5]), null, stringency, logger);
+                        return null;
+                }
+                operations++;
+                operationLength = 0;
+                digits = false;
+            }
+            if (digits) {
+                warnOrThrow(line, "invalid cigar", line.subSequence(ends[4] + 1, ends[5]), null, stringency, logger);
+                return null;
+            }
+            alignment.setCigar(line.subSequence(ends[4] + 1, ends[5]).toString());
+            alignment.setBasesTrimmedFromStart(startTrim);
+            alignment.setBasesTrimmedFromEnd(endTrim);
+        }
+
+        alignment.setReadName(line.subSequence(0, ends[0]).toString());
+        alignment.setSequence(line.subSequence(ends[8] + 1, ends[9]).toString());
+        alignment.setQualityScores(isMissing(line, ends[9] + 1, ends[10]) ? null : line.subSequence(ends[9] + 1, ends[10]).toString());
+
+        alignment.setReferenceName(null);
+        alignment.setStart(null);
+        alignment.setEnd(null);
+        alignment.setMappingQuality(null);
+        alignment.setOriginalStart(null);
+        alignment.setOriginalCigar(null);
+        alignment.setOriginalQualityScores(null);
+        alignment.setMismatchingPositions(null);
+        alignment.setReadGroupId(null);
+        alignment.setReadGroupSampleId(null);
+
+        // copy optional tag columns verbatim, setting dedicated fields
+        sb.setLength(0);
+        Long originalStart = null;
+        String originalCigar = null;
+        int tagStart = ends[10] + 1;
+        while (tagStart < length) {
+            int tagEnd = tagStart;
+            while (tagEnd < length && line.charAt(tagEnd) != '\t') {
+                tagEnd++;
+            }
+            if (tagEnd - tagStart < 5 || line.charAt(tagStart + 2) != ':' || line.charAt(tagStart + 4) != ':') {
+                warnOrThrow(line, "invalid tag", line.subSequence(tagStart, tagEnd), null, stringency, logger);
+                return null;
+            }
+            char first = line.charAt(tagStart);
+            char second = line.charAt(tagStart + 1);
+            if (first == 'M' && second == 'D') {
+                alignment.setMismatchingPositions(line.subSequence(tagStart + 5, tagEnd).toString());
+            }
+            else if (first == 'O' && second == 'C') {
+                originalCigar = line.subSequence(tagStart + 5, tagEnd).toString();
+            }
+            else if (first == 'O' && second == 'P') {
+                originalStart = parseLong(line, tagStart + 5, tagEnd) - 1L;
+            }
+            else if (first == 'O' && second == 'Q') {
+                alignment.setOriginalQualityScores(line.subSequence(tagStart + 5, tagEnd).toString());
+            }
+            else {
+                if (first == 'R' && second == 'G') {
+                    SAMReadGroupRecord readGroup = header.getReadGroup(line.subSequence(tagStart + 5, tagEnd).toString());
+                    if (readGroup != null) {
+                        alignment.setReadGroupId(readGroup.getReadGroupId());
+                        alignment.setReadGroupSampleId(readGroup.getSample());
+                    }
+                }
+                if (sb.length() > 0) {
+                    sb.append('\t');
+                }
+                sb.append(line, tagStart, tagEnd);
+            }
+            tagStart = tagEnd + 1;
+        }
+        alignment.setAttributes(sb.length() == 0 ? null : sb.toString());
+
+        if (referenceName != null) {
+            alignment.setReferenceName(referenceName);
+
+            if (start < 1L) {
+                warnOrThrow(line, "alignment start must be greater than zero if read aligned", null, stringency, logger);
+            }
+            else {
+                alignment.setStart(start - 1L);
+                alignment.setEnd(start - 1L + referenceLength);
+            }
+
+            if (mappingQuality != SAMRecord.UNKNOWN_MAPPING_QUALITY) {
+                alignment.setMappingQuality(mappingQuality);
+            }
+
+            if (originalStart != null) {
+                alignment.setOriginalStart(originalStart);
+                alignment.setOriginalCigar(originalCigar);
+            }
+        }
+
+        boolean readPaired = (flag & 0x1) != 0;
+        alignment.setReadMapped((flag & 0x4) == 0);
+        alignment.setReadNegativeStrand((flag & 0x10) != 0);
+        alignment.setPrimaryAlignment((flag & 0x100) == 0);
+        alignment.setSecondaryAlignment(false);
+        alignment.setSupplementaryAlignment((flag & 0x800) != 0);
+
+        alignment.setMateReferenceName(null);
+        alignment.setMateAlignmentStart(null);
+
+        if (mateReferenceName != null) {
+            alignment.setMateReferenceName(mateReferenceName);
+
+            if (mateStart < 1L) {
+                warnOrThrow(line, "mate start must be greater than zero if mate aligned", null, stringency, logger);
+            }
+            else {
+                alignment.setMateAlignmentStart(mateStart - 1L);
+            }
+        }
+
+        alignment.setReadPaired(readPaired);
+        alignment.setMateNegativeStrand(readPaired && (flag & 0x20) != 0);
+        alignment.setMateMapped(readPaired && (flag & 0x8) == 0);
+        alignment.setProperPair(readPaired && (flag & 0x2) != 0);
+        alignment.setReadInFragment(readPaired && (flag & 0x80) != 0 ? 1 : 0);
+        alignment.setDuplicateRead((flag & 0x400) != 0);
+        alignment.setFailedVendorQualityChecks((flag & 0x200) != 0);
+        alignment.setInsertSize(insertSize == 0L ? null : insertSize);
+
+        return alignment;
+    }
+
+    /**
+     * Return the header reference name for the reference name column between the specified offsets,
+     * or null if the column is missing or the reference name is not found in the header.
+     *
+     * @param line SAM line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @param sameAs reference name for <code>=</code>, if any
+     * @param stringency conversion stringency
+     * @param logger logger
+     * @return the header reference name for the reference name column between the specified offsets,
+     *    or null if the column is missing or the reference name is not found in the header
+     * @throws ConversionException if the reference name is not found in the header and the specified
+     *    conversion stringency is strict
+     */
+    private String referenceName(final CharSequence line,
+                                 final int start,
+                                 final int end,
+                                 final String sameAs,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws ConversionException {
+        if (isMissing(line, start, end)) {
+            return null;
+        }
+        if (end - start == 1 && line.charAt(start) == '=') {
+            return sameAs;
+        }
+        String name = line.subSequence(start, end).toString();
+        SAMSequenceRecord sequence = header.getSequence(name);
+        if (sequence == null) {
+            warnOrThrow(line, "reference not found in header", name, null, stringency, logger);
+            return null;
+        }
+        return sequence.getSequenceName();
+    }
+
+    /**
+     * Return true if the column between the specified offsets is missing, <code>*</code>.
+     *
+     * @param line SAM line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @return true if the column between the specified offsets is missing
+     */
+    private static boolean isMissing(final CharSequence line, final int start, final int end) {
+        return end - start == 1 && line.charAt(start) == '*';
+    }
+
+    /**
+     * Parse a signed decimal integer between the specified offsets, without creating a String.
+     *
+     * @param line SAM line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @return the signed decimal integer between the specified offsets
+     * @throws NumberFormatException if the column is empty, not a decimal integer, or too long
+     */
+    static long parseLong(final CharSequence line, final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            throw new NumberFormatException("For input string: \"" + line.subSequence(start, end) + "\"");
+        }
+        long value = 0L;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("For input string: \"" + line.subSequence(start, end) + "\"");
+            }
+            value = value * 10L + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+}
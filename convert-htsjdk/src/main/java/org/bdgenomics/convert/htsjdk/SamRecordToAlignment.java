@@ -17,45 +17,173 @@
  */
 package org.bdgenomics.convert.htsjdk;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import htsjdk.samtools.SAMBinaryTagAndValue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
-import htsjdk.samtools.TextTagCodec;
 
 import org.bdgenomics.convert.AbstractConverter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
 
+import org.apache.avro.Schema;
+
+import org.apache.avro.specific.SpecificData;
+
 import org.bdgenomics.formats.avro.Alignment;
 
 import org.slf4j.Logger;
 
 /**
  * Convert htsjdk SAMRecord to Alignment.
+ *
+ * <p>
+ * A converter created with a projection only reads from the SAM record what is needed for
+ * the projected Alignment fields, skipping for example read bases, base qualities, and the
+ * attribute encoding when those fields are not requested.  Fields not in the projection are
+ * set to their default values, as if read from Avro with the projection as the reader schema.
+ * </p>
  */
 public final class SamRecordToAlignment extends AbstractConverter<SAMRecord, Alignment> {
 
-    /** Regex to capture the first cigar operation. */
-    private static final Pattern FIRST_CIGAR_OPERATION = Pattern.compile("^([0-9]*)([A-Z]).*$");
+    /** Per-thread string builder for encoding attributes. */
+    private static final ThreadLocal<StringBuilder> ATTRIBUTES = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    /** True if the read name field is projected. */
+    private final boolean projectReadName;
+
+    /** True if the sequence field is projected. */
+    private final boolean projectSequence;
+
+    /** True if any of the cigar, bases trimmed, or end fields are projected. */
+    private final boolean projectCigar;
+
+    /** True if the quality scores field is projected. */
+    private final boolean projectQualityScores;
 
-    /** Regex to capture the last cigar operation. */
-    private static final Pattern LAST_CIGAR_OPERATION = Pattern.compile("^.*([0-9]*)([A-Z])$");
+    /** True if the original quality scores field is projected. */
+    private final boolean projectOriginalQualityScores;
 
-    /** SAM text tag codec. */
-    private static final TextTagCodec TAG_CODEC = new TextTagCodec();
+    /** True if either of the start or end fields are projected. */
+    private final boolean projectStart;
+
+    /** True if either of the original start or original cigar fields are projected. */
+    private final boolean projectOriginalAlignment;
+
+    /** True if the mate alignment start field is projected. */
+    private final boolean projectMateAlignmentStart;
+
+    /** True if either of the read group id or read group sample id fields are projected. */
+    private final boolean projectReadGroup;
+
+    /** True if the mismatching positions field is projected. */
+    private final boolean projectMismatchingPositions;
+
+    /** True if the attributes field is projected. */
+    private final boolean projectAttributes;
+
+    /** Positions of the Alignment fields not in the projection. */
+    private final int[] unprojectedPositions;
+
+    /** Default values of the Alignment fields not in the projection. */
+    private final Object[] unprojectedDefaults;
 
 
     /**
      * Create a new htsjdk SAMRecord to Alignment converter.
      */
     public SamRecordToAlignment() {
+        this(Alignment.getClassSchema());
+    }
+
+    /**
+     * Create a new htsjdk SAMRecord to Alignment converter with the specified projection.
+     *
+     * @param projection projection, a record schema with a subset of the fields of
+     *    the Alignment schema, must not be null
+     * @throws IllegalArgumentException if projection is not a record schema or contains
+     *    fields not in the Alignment schema
+     */
+    public SamRecordToAlignment(final Schema projection) {
+        this(fieldNames(projection));
+    }
+
+    /**
+     * Create a new htsjdk SAMRecord to Alignment converter projecting the specified
+     * Alignment field names.
+     *
+     * @param fieldNames Alignment field names to project, must not be null
+     * @throws IllegalArgumentException if any of the specified field names are not
+     *    fields in the Alignment schema
+     */
+    public SamRecordToAlignment(final Collection<String> fieldNames) {
         super(SAMRecord.class, Alignment.class);
+        if (fieldNames == null) {
+            throw new NullPointerException("fieldNames must not be null");
+        }
+        Schema schema = Alignment.getClassSchema();
+        Set<String> projected = new HashSet<String>(fieldNames);
+        for (String fieldName : projected) {
+            if (schema.getField(fieldName) == null) {
+                throw new IllegalArgumentException("field " + fieldName + " not found in Alignment schema");
+            }
+        }
+        projectReadName = projected.contains("readName");
+        projectSequence = projected.contains("sequence");
+        projectCigar = projected.contains("cigar") || projected.contains("basesTrimmedFromStart") || projected.contains("basesTrimmedFromEnd") || projected.contains("end");
+        projectQualityScores = projected.contains("qualityScores");
+        projectOriginalQualityScores = projected.contains("originalQualityScores");
+        projectStart = projected.contains("start") || projected.contains("end");
+        projectOriginalAlignment = projected.contains("originalStart") || projected.contains("originalCigar");
+        projectMateAlignmentStart = projected.contains("mateAlignmentStart");
+        projectReadGroup = projected.contains("readGroupId") || projected.contains("readGroupSampleId");
+        projectMismatchingPositions = projected.contains("mismatchingPositions");
+        projectAttributes = projected.contains("attributes");
+
+        List<Schema.Field> unprojected = new ArrayList<Schema.Field>();
+        for (Schema.Field field : schema.getFields()) {
+            if (!projected.contains(field.name())) {
+                unprojected.add(field);
+            }
+        }
+        unprojectedPositions = new int[unprojected.size()];
+        unprojectedDefaults = new Object[unprojected.size()];
+        for (int i = 0, size = unprojected.size(); i < size; i++) {
+            Schema.Field field = unprojected.get(i);
+            unprojectedPositions[i] = field.pos();
+            unprojectedDefaults[i] = SpecificData.get().getDefaultValue(field);
+        }
+    }
+
+
+    /**
+     * Return the field names of the specified projection.
+     *
+     * @param projection projection, must not be null
+     * @return the field names of the specified projection
+     * @throws IllegalArgumentException if projection is not a record schema
+     */
+    private static List<String> fieldNames(final Schema projection) {
+        if (projection == null) {
+            throw new NullPointerException("projection must not be null");
+        }
+        if (projection.getType() != Schema.Type.RECORD) {
+            throw new IllegalArgumentException("projection must be a record schema");
+        }
+        List<String> fieldNames = new ArrayList<String>(projection.getFields().size());
+        for (Schema.Field field : projection.getFields()) {
+            fieldNames.add(field.name());
+        }
+        return fieldNames;
     }
 
 
@@ -68,223 +196,212 @@ public final class SamRecordToAlignment extends AbstractConverter<SAMRecord, Ali
             warnOrThrow(samRecord, "must not be null", null, stringency, logger);
             return null;
         }
+        return convert(samRecord, new Alignment(), projectReadGroup ? samRecord.getReadGroup() : null, ATTRIBUTES.get(), stringency, logger);
+    }
+
+    @Override
+    public Alignment convertInto(final SAMRecord samRecord,
+                                 final Alignment alignment,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws ConversionException {
+
+        if (samRecord == null) {
+            warnOrThrow(samRecord, "must not be null", null, stringency, logger);
+            return null;
+        }
+        return convert(samRecord, alignment == null ? new Alignment() : alignment, projectReadGroup ? samRecord.getReadGroup() : null, ATTRIBUTES.get(), stringency, logger);
+    }
 
-        Alignment.Builder builder = Alignment.newBuilder()
-            .setReadName(samRecord.getReadName())
-            .setSequence(samRecord.getReadString());
+    @Override
+    public <C extends Collection<? super Alignment>> C convertAll(final List<? extends SAMRecord> samRecords,
+                                                                   final C alignments,
+                                                                   final ConversionStringency stringency,
+                                                                   final Logger logger) throws ConversionException {
+        checkNotNull(samRecords, alignments, stringency, logger);
+
+        StringBuilder sb = new StringBuilder(512);
+        SAMFileHeader lastHeader = null;
+        String lastReadGroupId = null;
+        SAMReadGroupRecord lastReadGroup = null;
+
+        for (int i = 0, size = samRecords.size(); i < size; i++) {
+            SAMRecord samRecord = samRecords.get(i);
+            if (samRecord == null) {
+                warnOrThrow(samRecord, "must not be null", null, stringency, logger);
+                alignments.add(null);
+                continue;
+            }
 
-        String cigar = samRecord.getCigarString();
-        if (cigar != null && !"*".equals(cigar)) {
-            builder.setCigar(cigar);
-            builder.setBasesTrimmedFromStart(startTrim(cigar));
-            builder.setBasesTrimmedFromEnd(endTrim(cigar));
+            // records in a batch typically share a header and runs of a read group
+            if (projectReadGroup) {
+                SAMFileHeader header = samRecord.getHeader();
+                String readGroupId = (String) samRecord.getAttribute(SAMTag.RG);
+                if (header != lastHeader || readGroupId == null || !readGroupId.equals(lastReadGroupId)) {
+                    lastHeader = header;
+                    lastReadGroupId = readGroupId;
+                    lastReadGroup = (header == null || readGroupId == null) ? null : header.getReadGroup(readGroupId);
+                }
+            }
+            alignments.add(convert(samRecord, new Alignment(), lastReadGroup, sb, stringency, logger));
         }
+        return alignments;
+    }
 
-        if (samRecord.getBaseQualityString() != "*") {
-            builder.setQualityScores(samRecord.getBaseQualityString());
+    /**
+     * Convert the specified SAM record into the specified alignment, setting every field,
+     * reading from the SAM record only what is needed for projected fields.
+     *
+     * @param samRecord SAM record to convert, must not be null
+     * @param alignment alignment to convert into, must not be null
+     * @param readGroup read group for the specified SAM record, if any
+     * @param sb string builder for encoding attributes, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified alignment
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    private Alignment convert(final SAMRecord samRecord,
+                              final Alignment alignment,
+                              final SAMReadGroupRecord readGroup,
+                              final StringBuilder sb,
+                              final ConversionStringency stringency,
+                              final Logger logger) throws ConversionException {
+
+        alignment.setReadName(projectReadName ? samRecord.getReadName() : null);
+        alignment.setSequence(projectSequence ? samRecord.getReadString() : null);
+
+        // walk the decoded cigar elements once for hard clip trims and reference length
+        int referenceLength = 0;
+        String cigarString = projectCigar ? samRecord.getCigarString() : null;
+        if (cigarString != null && !"*".equals(cigarString)) {
+            List<CigarElement> cigarElements = samRecord.getCigar().getCigarElements();
+            int size = cigarElements.size();
+            int startTrim = 0;
+            int endTrim = 0;
+            for (int i = 0; i < size; i++) {
+                CigarElement cigarElement = cigarElements.get(i);
+                CigarOperator operator = cigarElement.getOperator();
+                if (operator.consumesReferenceBases()) {
+                    referenceLength += cigarElement.getLength();
+                }
+                else if (operator == CigarOperator.HARD_CLIP) {
+                    if (i == 0) {
+                        startTrim = cigarElement.getLength();
+                    }
+                    if (i == size - 1) {
+                        endTrim = cigarElement.getLength();
+                    }
+                }
+            }
+            // htsjdk caches the cigar string, either as read from SAM text or encoded once from BAM
+            alignment.setCigar(cigarString);
+            alignment.setBasesTrimmedFromStart(startTrim);
+            alignment.setBasesTrimmedFromEnd(endTrim);
         }
-        if (samRecord.getOriginalBaseQualities() != null) {
-            builder.setOriginalQualityScores(SAMUtils.phredToFastq(samRecord.getOriginalBaseQualities()));
+        else {
+            alignment.setCigar(null);
+            alignment.setBasesTrimmedFromStart(0);
+            alignment.setBasesTrimmedFromEnd(0);
         }
 
+        alignment.setQualityScores(!projectQualityScores || samRecord.getBaseQualities().length == 0 ? null : samRecord.getBaseQualityString());
+        byte[] originalBaseQualities = projectOriginalQualityScores ? samRecord.getOriginalBaseQualities() : null;
+        alignment.setOriginalQualityScores(originalBaseQualities == null ? null : SAMUtils.phredToFastq(originalBaseQualities));
+
+        alignment.setReferenceName(null);
+        alignment.setStart(null);
+        alignment.setEnd(null);
+        alignment.setMappingQuality(null);
+        alignment.setOriginalStart(null);
+        alignment.setOriginalCigar(null);
+
         int readReference = samRecord.getReferenceIndex();
         if (readReference != SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX) {
-            builder.setReferenceName(samRecord.getReferenceName());
+            alignment.setReferenceName(samRecord.getReferenceName());
 
-            long start = (long) samRecord.getAlignmentStart();
-            if (start < 1L) {
-                warnOrThrow(samRecord, "alignment start must be greater than zero if read aligned", null, stringency, logger);
-            }
-            else {
-                builder.setStart(start - 1L);
+            if (projectStart) {
+                long start = (long) samRecord.getAlignmentStart();
+                if (start < 1L) {
+                    warnOrThrow(samRecord, "alignment start must be greater than zero if read aligned", null, stringency, logger);
+                }
+                else {
+                    alignment.setStart(start - 1L);
 
-                long end = start - 1L + samRecord.getCigar().getReferenceLength();
-                builder.setEnd(end);
+                    alignment.setEnd(start - 1L + referenceLength);
+                }
             }
 
             int mappingQuality = samRecord.getMappingQuality();
             if (mappingQuality != SAMRecord.UNKNOWN_MAPPING_QUALITY) {
-                builder.setMappingQuality(mappingQuality);
+                alignment.setMappingQuality(mappingQuality);
             }
 
-            if (samRecord.getAttribute("OP") != null) {
-                builder.setOriginalStart(samRecord.getIntegerAttribute("OP") - 1L);
-                builder.setOriginalCigar(samRecord.getStringAttribute("OC"));
+            if (projectOriginalAlignment && samRecord.getAttribute(SAMTag.OP) != null) {
+                alignment.setOriginalStart(samRecord.getIntegerAttribute(SAMTag.OP) - 1L);
+                alignment.setOriginalCigar(samRecord.getStringAttribute(SAMTag.OC));
             }
         }
 
-        builder.setReadMapped(!samRecord.getReadUnmappedFlag());
-        builder.setReadNegativeStrand(samRecord.getReadNegativeStrandFlag());
-        builder.setPrimaryAlignment(!samRecord.getNotPrimaryAlignmentFlag());
-        builder.setSupplementaryAlignment(samRecord.getSupplementaryAlignmentFlag());
+        alignment.setReadMapped(!samRecord.getReadUnmappedFlag());
+        alignment.setReadNegativeStrand(samRecord.getReadNegativeStrandFlag());
+        alignment.setPrimaryAlignment(!samRecord.getNotPrimaryAlignmentFlag());
+        alignment.setSecondaryAlignment(false);
+        alignment.setSupplementaryAlignment(samRecord.getSupplementaryAlignmentFlag());
+
+        alignment.setMateReferenceName(null);
+        alignment.setMateAlignmentStart(null);
 
         int mateReferenceIndex = samRecord.getMateReferenceIndex();
         if (mateReferenceIndex != SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX) {
-            builder.setMateReferenceName(samRecord.getMateReferenceName());
-
-            long mateStart = (long) samRecord.getMateAlignmentStart();
-            if (mateStart < 1L) {
-                warnOrThrow(samRecord, "mate start must be greater than zero if mate aligned", null, stringency, logger);
-            }
-            else {
-                builder.setMateAlignmentStart(mateStart - 1L);
-            }
-        }
+            alignment.setMateReferenceName(samRecord.getMateReferenceName());
 
-        if (samRecord.getFlags() != 0) {
-            if (samRecord.getReadPairedFlag()) {
-                builder.setReadPaired(true);
-                if (samRecord.getMateNegativeStrandFlag()) {
-                    builder.setMateNegativeStrand(true);
-                }
-                if (!samRecord.getMateUnmappedFlag()) {
-                    builder.setMateMapped(true);
-                }
-                if (samRecord.getProperPairFlag()) {
-                    builder.setProperPair(true);
+            if (projectMateAlignmentStart) {
+                long mateStart = (long) samRecord.getMateAlignmentStart();
+                if (mateStart < 1L) {
+                    warnOrThrow(samRecord, "mate start must be greater than zero if mate aligned", null, stringency, logger);
                 }
-                if (samRecord.getFirstOfPairFlag()) {
-                    builder.setReadInFragment(0);
-                }
-                if (samRecord.getSecondOfPairFlag()) {
-                    builder.setReadInFragment(1);
+                else {
+                    alignment.setMateAlignmentStart(mateStart - 1L);
                 }
             }
-            if (samRecord.getDuplicateReadFlag()) {
-                builder.setDuplicateRead(true);
-            }
-            if (samRecord.getReadFailsVendorQualityCheckFlag()) {
-                builder.setFailedVendorQualityChecks(true);
-            }
         }
 
+        boolean readPaired = samRecord.getReadPairedFlag();
+        alignment.setReadPaired(readPaired);
+        alignment.setMateNegativeStrand(readPaired && samRecord.getMateNegativeStrandFlag());
+        alignment.setMateMapped(readPaired && !samRecord.getMateUnmappedFlag());
+        alignment.setProperPair(readPaired && samRecord.getProperPairFlag());
+        alignment.setReadInFragment(readPaired && samRecord.getSecondOfPairFlag() ? 1 : 0);
+        alignment.setDuplicateRead(samRecord.getDuplicateReadFlag());
+        alignment.setFailedVendorQualityChecks(samRecord.getReadFailsVendorQualityCheckFlag());
+
         long insertSize = (long) samRecord.getInferredInsertSize();
-        if (insertSize != 0L) {
-            builder.setInsertSize(insertSize);
-        }
+        alignment.setInsertSize(insertSize == 0L ? null : insertSize);
 
-        SAMReadGroupRecord readGroup = samRecord.getReadGroup();
         if (readGroup != null) {
-            builder.setReadGroupId(readGroup.getReadGroupId());
-            builder.setReadGroupSampleId(readGroup.getSample());
-        }
-
-        String md = samRecord.getStringAttribute("MD");
-        if (md != null) {
-            builder.setMismatchingPositions(md);
+            alignment.setReadGroupId(readGroup.getReadGroupId());
+            alignment.setReadGroupSampleId(readGroup.getSample());
         }
-
-        String attributes = encodeAttributes(getBinaryAttributes(samRecord));
-        if (!attributes.isEmpty()) {
-            builder.setAttributes(attributes);
+        else {
+            alignment.setReadGroupId(null);
+            alignment.setReadGroupSampleId(null);
         }
 
-        return builder.build();
-    }
+        alignment.setMismatchingPositions(projectMismatchingPositions ? samRecord.getStringAttribute(SAMTag.MD) : null);
 
-    /**
-     * Calculate the hard clipped trim in bases from the start of the specified cigar string.
-     *
-     * @param cigar cigar string
-     * @return the hard clipped trim in bases from the start of the specified cigar string
-     */
-    static int startTrim(final String cigar) {
-        int startTrim = 0;
-        Matcher m = FIRST_CIGAR_OPERATION.matcher(cigar);
-        if (m.matches()) {
-            String operator = m.group(2);
-            if ("H".equals(operator)) {
-                startTrim = Integer.parseInt(m.group(1));
-            }
+        if (projectAttributes) {
+            sb.setLength(0);
+            SamAttributeEncoder.encode(samRecord, sb);
+            alignment.setAttributes(sb.length() == 0 ? null : sb.toString());
         }
-        return startTrim;
-    }
-
-    /**
-     * Calculate the hard clipped trim in bases from the end of the specified cigar string.
-     *
-     * @param cigar cigar string
-     * @return the hard clipped trim in bases from the end of the specified cigar string
-     */
-    static int endTrim(final String cigar) {
-        int endTrim = 0;
-        Matcher m = LAST_CIGAR_OPERATION.matcher(cigar);
-        if (m.matches()) {
-            String operator = m.group(2);
-            if ("H".equals(operator)) {
-                endTrim = Integer.parseInt(m.group(1));
-            }
-        }
-        return endTrim;
-    }
-
-    /**
-     * Return true if the specified attribute tag should be skipped.
-     *
-     * @param tag attribute tag
-     * @return true if the specified attribute tag should be skipped
-     */
-    static boolean skipTag(final short tag) {
-        return tag == SAMTag.MD.getBinaryTag() || tag == SAMTag.OC.getBinaryTag() || tag == SAMTag.OP.getBinaryTag() || tag == SAMTag.OQ.getBinaryTag();
-    }
-
-    /**
-     * Return <code>SAMRecord.getBinaryAttributes()</code> via reflection.
-     *
-     * @param samRecord SAM record
-     * @return <code>SAMRecord.getBinaryAttributes()</code> via reflection
-     */
-    static SAMBinaryTagAndValue getBinaryAttributes(final SAMRecord samRecord) {
-        try {
-            java.lang.reflect.Field f = samRecord.getClass().getDeclaredField("mAttributes");
-            f.setAccessible(true);
-            return (SAMBinaryTagAndValue) f.get(samRecord);
-        }
-        catch (Exception e) {
-            return null;
-        }
-    }
-
-    /**
-     * Return <code>TextTagCodec.encodeUnsignedArray(String, Object)</code> via reflection.
-     *
-     * @param tag tag
-     * @param value value
-     * @return <code>TextTagCodec.encodeUnsignedArray(String, Object)</code> via reflection
-     */
-    static String encodeUnsignedArray(final String tag, final Object value) {
-        try {
-            java.lang.reflect.Method m = TAG_CODEC.getClass().getDeclaredMethod("encodeUnsignedArray");
-            m.setAccessible(true);
-            return (String) m.invoke(TAG_CODEC, new Object[] { tag, value }, new Class<?>[] { String.class, Object.class });
-        }
-        catch (Exception e) {
-            return null;
+        else {
+            alignment.setAttributes(null);
         }
-    }
 
-    /**
-     * Encode the specified attribute and its child attributes to a string.
-     *
-     * @param attribute attribute
-     * @return the specified attribute and its child attributes to a string
-     */
-    static String encodeAttributes(SAMBinaryTagAndValue attribute) {
-        StringBuilder sb = new StringBuilder();
-        while (attribute != null) {
-            if (!skipTag(attribute.tag)) {
-                final String encodedTag;
-                if (attribute.isUnsignedArray()) {
-                    encodedTag = encodeUnsignedArray(SAMTag.makeStringTag(attribute.tag), attribute.value);
-                }
-                else {
-                    encodedTag = TAG_CODEC.encode(SAMTag.makeStringTag(attribute.tag), attribute.value);
-                }
-                sb.append(encodedTag);
-                sb.append("\t");
-            }
-            attribute = attribute.getNext();
+        for (int i = 0; i < unprojectedPositions.length; i++) {
+            alignment.put(unprojectedPositions[i], unprojectedDefaults[i]);
         }
-        return sb.toString().trim();
+        return alignment;
     }
 }
@@ -0,0 +1,211 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert a SAM, BAM, or CRAM file to an Avro container file of Alignment records.
+ *
+ * <p>
+ * BGZF blocks are decompressed ahead of the reader on a background thread,
+ * records are decoded and converted in parallel batches, and Alignments are written
+ * in input order.  Records that fail conversion when the conversion stringency is
+ * lenient or silent are skipped.
+ * </p>
+ */
+public final class SamToAlignmentPipeline {
+
+    /** Default number of records per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /** Convert htsjdk SAMRecord to Alignment. */
+    private final Converter<SAMRecord, Alignment> converter;
+
+    /** Number of converter threads. */
+    private final int threads;
+
+    /** Number of records per batch. */
+    private final int batchSize;
+
+    /** Convert ConversionStringency to ValidationStringency. */
+    private final ConversionStringencyToValidationStringency validationStringencyConverter = new ConversionStringencyToValidationStringency();
+
+
+    /**
+     * Create a new SAM to Alignment pipeline with the specified number of converter threads and batch size.
+     *
+     * @param converter convert htsjdk SAMRecord to Alignment, must not be null
+     * @param threads number of converter threads, must be at least one
+     * @param batchSize number of records per batch, must be at least one
+     */
+    @Inject
+    public SamToAlignmentPipeline(final Converter<SAMRecord, Alignment> converter,
+                                  @Assisted("threads") final int threads,
+                                  @Assisted("batchSize") final int batchSize) {
+        if (converter == null) {
+            throw new NullPointerException("converter must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least one, was " + threads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least one, was " + batchSize);
+        }
+        this.converter = converter;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Convert the specified SAM, BAM, or CRAM file to the specified uncompressed Avro container file.
+     *
+     * @param input input file, must not be null
+     * @param output output file, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final File input,
+                                      final File output,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        return convert(input, output, CodecFactory.nullCodec(), stringency, logger);
+    }
+
+    /**
+     * Convert the specified SAM, BAM, or CRAM file to the specified Avro container file.
+     *
+     * @param input input file, must not be null
+     * @param output output file, must not be null
+     * @param codec Avro container file codec, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final File input,
+                                      final File output,
+                                      final CodecFactory codec,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        if (input == null) {
+            throw new NullPointerException("input must not be null");
+        }
+        if (output == null) {
+            throw new NullPointerException("output must not be null");
+        }
+        checkNotNull(codec, stringency, logger);
+
+        SamReaderFactory samReaderFactory = SamReaderFactory.makeDefault()
+            .setUseAsyncIo(true)
+            .validationStringency(validationStringencyConverter.convert(stringency, stringency, logger));
+
+        try (SamReader reader = samReaderFactory.open(input);
+             SAMRecordIterator iterator = reader.iterator();
+             DataFileWriter<Alignment> writer = new DataFileWriter<Alignment>(new SpecificDatumWriter<Alignment>(Alignment.class))) {
+
+            writer.setCodec(codec);
+            writer.create(Alignment.getClassSchema(), output);
+            return run(iterator, writer, stringency, logger);
+        }
+    }
+
+    /**
+     * Convert the records from the specified SAM reader to an Avro container file written to
+     * the specified output stream.  The output stream is closed on return.
+     *
+     * @param reader SAM reader, must not be null
+     * @param outputStream output stream, must not be null
+     * @param codec Avro container file codec, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final SamReader reader,
+                                      final OutputStream outputStream,
+                                      final CodecFactory codec,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        if (reader == null) {
+            throw new NullPointerException("reader must not be null");
+        }
+        if (outputStream == null) {
+            throw new NullPointerException("outputStream must not be null");
+        }
+        checkNotNull(codec, stringency, logger);
+
+        try (SAMRecordIterator iterator = reader.iterator();
+             DataFileWriter<Alignment> writer = new DataFileWriter<Alignment>(new SpecificDatumWriter<Alignment>(Alignment.class))) {
+
+            writer.setCodec(codec);
+            writer.create(Alignment.getClassSchema(), outputStream);
+            return run(iterator, writer, stringency, logger);
+        }
+    }
+
+    private PipelineStatistics run(final SAMRecordIterator iterator,
+                                   final DataFileWriter<Alignment> writer,
+                                   final ConversionStringency stringency,
+                                   final Logger logger) throws IOException {
+        return new BatchPipeline<SAMRecord, Alignment>("sam-to-alignment", threads, batchSize)
+            .run(iterator, converter, writer::append, stringency, logger);
+    }
+
+    private static void checkNotNull(final CodecFactory codec, final ConversionStringency stringency, final Logger logger) {
+        if (codec == null) {
+            throw new NullPointerException("codec must not be null");
+        }
+        if (stringency == null) {
+            throw new NullPointerException("stringency must not be null");
+        }
+        if (logger == null) {
+            throw new NullPointerException("logger must not be null");
+        }
+    }
+}
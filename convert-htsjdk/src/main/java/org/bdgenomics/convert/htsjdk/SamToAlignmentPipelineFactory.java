@@ -0,0 +1,41 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Factory for creating SAM to Alignment pipelines, which require late binding
+ * for the number of converter threads and batch size.
+ *
+ * <pre>
+ * SamToAlignmentPipeline pipeline = samToAlignmentPipelineFactory.create(8, SamToAlignmentPipeline.DEFAULT_BATCH_SIZE);
+ * PipelineStatistics statistics = pipeline.convert(new File("sample.bam"), new File("sample.alignments.avro"), stringency, logger);
+ * </pre>
+ */
+public interface SamToAlignmentPipelineFactory {
+
+    /**
+     * Create a new SAM to Alignment pipeline with the specified number of converter threads and batch size.
+     *
+     * @param threads number of converter threads, must be at least one
+     * @param batchSize number of records per batch, must be at least one
+     * @return a new SAM to Alignment pipeline with the specified number of converter threads and batch size
+     */
+    SamToAlignmentPipeline create(@Assisted("threads") int threads, @Assisted("batchSize") int batchSize);
+}
@@ -0,0 +1,798 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLineCount;
+import htsjdk.variant.vcf.VCFInfoHeaderLine;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
+import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.GenotypeAllele;
+import org.bdgenomics.formats.avro.TranscriptEffect;
+import org.bdgenomics.formats.avro.Variant;
+import org.bdgenomics.formats.avro.VariantAnnotation;
+import org.bdgenomics.formats.avro.VariantCallingAnnotations;
+
+import org.slf4j.Logger;
+
+/**
+ * Builds one VariantContext from the Variants and Genotypes of one site, merging records split
+ * from a multi-allelic site back into one multi-allelic VariantContext, or appends the Variants
+ * of one site directly as a sites-only VCF line.
+ *
+ * <p>
+ * A site is identified by reference name, start, and reference allele.  Alternate alleles are
+ * matched by a linear scan over the few alternate alleles of the site, and samples by their
+ * precomputed header index, checking the previous and next sample in header order before
+ * falling back to a map lookup.  The VariantContextBuilder is reused from site to site.
+ * This class is not thread safe.
+ * </p>
+ */
+final class SiteBuilder {
+    /** Header metadata. */
+    private final Metadata metadata;
+
+    /** Reused VariantContext builder. */
+    private final VariantContextBuilder builder = new VariantContextBuilder();
+
+    /** Reference name of the current site. */
+    private String referenceName;
+
+    /** Start of the current site. */
+    private Long start;
+
+    /** Reference allele of the current site. */
+    private String referenceAllele;
+
+    /** End of the current site. */
+    private long end;
+
+    /** Alternate alleles of the current site. */
+    private final List<String> alternates = new ArrayList<String>(4);
+
+    /** Variants of the current site, in alternate allele order, or the reference only variant. */
+    private final List<Variant> variants = new ArrayList<Variant>(4);
+
+    /** Transcript effects of the variants of the current site. */
+    private final List<TranscriptEffect> transcriptEffects = new ArrayList<TranscriptEffect>();
+
+    /** Genotype records per header sample index, allocated on first use. */
+    private SampleRecords[] samples;
+
+    /** Header sample indices with genotype records in the current site, in order added. */
+    private int[] touched;
+
+    /** Number of header sample indices with genotype records in the current site. */
+    private int touchedCount = 0;
+
+    /** Header sample index of the last genotype record added. */
+    private int lastSample = -1;
+
+
+    /**
+     * Create a new site builder with the specified header metadata.
+     *
+     * @param metadata header metadata, must not be null
+     */
+    SiteBuilder(final Metadata metadata) {
+        if (metadata == null) {
+            throw new NullPointerException("metadata must not be null");
+        }
+        this.metadata = metadata;
+    }
+
+
+    /**
+     * Return true if no records have been added to the current site.
+     *
+     * @return true if no records have been added to the current site
+     */
+    boolean isEmpty() {
+        return referenceName == null;
+    }
+
+    /**
+     * Return true if the specified variant is at the current site.
+     *
+     * @param variant variant
+     * @return true if the specified variant is at the current site
+     */
+    boolean isSameSite(final Variant variant) {
+        return referenceName != null
+            && referenceName.equals(variant.getReferenceName())
+            && start.equals(variant.getStart())
+            && referenceAllele.equals(variant.getReferenceAllele());
+    }
+
+    /**
+     * Add the specified variant to the current site.
+     *
+     * @param variant variant to add, must not be null
+     * @return the alternate allele index of the specified variant, or <code>-1</code> if it has no alternate allele
+     * @throws IllegalArgumentException if the specified variant is not valid or is not at the current site
+     */
+    int add(final Variant variant) {
+        if (variant.getReferenceName() == null || variant.getStart() == null || variant.getEnd() == null || variant.getReferenceAllele() == null) {
+            throw new IllegalArgumentException("variant must have reference name, start, end, and reference allele");
+        }
+        if (isEmpty()) {
+            referenceName = variant.getReferenceName();
+            start = variant.getStart();
+            referenceAllele = variant.getReferenceAllele();
+            end = variant.getEnd();
+        }
+        else if (!isSameSite(variant)) {
+            throw new IllegalArgumentException("variant at " + variant.getReferenceName() + ":" + variant.getStart() + " not at site " + referenceName + ":" + start);
+        }
+        end = Math.max(end, variant.getEnd());
+
+        String alternate = variant.getAlternateAllele();
+        if (alternate == null) {
+            if (variants.isEmpty()) {
+                variants.add(variant);
+            }
+            return -1;
+        }
+        for (int i = 0, size = alternates.size(); i < size; i++) {
+            if (alternate.equals(alternates.get(i))) {
+                return i;
+            }
+        }
+        if (alternates.isEmpty()) {
+            // drop a reference only variant once an alternate allele is seen
+            variants.clear();
+        }
+        alternates.add(alternate);
+        variants.add(variant);
+        return alternates.size() - 1;
+    }
+
+    /**
+     * Add the specified genotype and its variant to the current site.
+     *
+     * @param genotype genotype to add, must not be null
+     * @throws IllegalArgumentException if the specified genotype is not valid or is not at the current site
+     */
+    void add(final Genotype genotype) {
+        if (genotype.getVariant() == null) {
+            throw new IllegalArgumentException("genotype must have a variant");
+        }
+        if (genotype.getSampleId() == null) {
+            throw new IllegalArgumentException("genotype must have a sample id");
+        }
+        int sample = sampleIndex(genotype.getSampleId());
+        int alternate = add(genotype.getVariant());
+
+        if (samples == null) {
+            samples = new SampleRecords[metadata.sampleNames.size()];
+            touched = new int[metadata.sampleNames.size()];
+        }
+        SampleRecords records = samples[sample];
+        if (records == null) {
+            records = new SampleRecords();
+            samples[sample] = records;
+        }
+        if (records.size == 0) {
+            touched[touchedCount++] = sample;
+        }
+        records.add(alternate, genotype);
+        lastSample = sample;
+    }
+
+    /**
+     * Build a VariantContext for the current site and reset this site builder.
+     *
+     * @param stringency conversion stringency, passed to the transcript effect appender
+     * @param logger logger, passed to the transcript effect appender
+     * @return a VariantContext for the current site
+     * @throws IllegalStateException if no records have been added to the current site
+     */
+    VariantContext build(final ConversionStringency stringency, final Logger logger) {
+        if (isEmpty()) {
+            throw new IllegalStateException("no records added to site");
+        }
+        try {
+            Allele reference = Allele.create(referenceAllele, true);
+            List<Allele> alleles = new ArrayList<Allele>(alternates.size() + 1);
+            alleles.add(reference);
+            for (int i = 0, size = alternates.size(); i < size; i++) {
+                alleles.add(Allele.create(alternates.get(i), false));
+            }
+
+            Map<String, Object> info = info();
+            if (!transcriptEffects.isEmpty() && metadata.transcriptEffectAppender != null) {
+                info.put("ANN", metadata.transcriptEffectAppender.appendAllTo(transcriptEffects, new StringBuilder(), stringency, logger).toString());
+            }
+
+            Variant first = variants.get(0);
+            builder
+                .loc(referenceName, start + 1L, end)
+                .alleles(alleles)
+                .log10PError(first.getQuality() == null ? VariantContext.NO_LOG10_PERROR : first.getQuality() / -10.0d)
+                .attributes(info);
+
+            if (first.getNames() == null || first.getNames().isEmpty()) {
+                builder.noID();
+            }
+            else {
+                builder.id(String.join(";", first.getNames()));
+            }
+
+            if (!Boolean.TRUE.equals(first.getFiltersApplied())) {
+                builder.unfiltered();
+            }
+            else if (Boolean.TRUE.equals(first.getFiltersPassed()) || first.getFiltersFailed() == null || first.getFiltersFailed().isEmpty()) {
+                builder.passFilters();
+            }
+            else {
+                builder.filters(new LinkedHashSet<String>(first.getFiltersFailed()));
+            }
+
+            if (touchedCount == 0) {
+                builder.noGenotypes();
+            }
+            else {
+                builder.genotypes(genotypes(alleles));
+            }
+            return builder.make();
+        }
+        finally {
+            reset();
+        }
+    }
+
+    /**
+     * Append the CHROM through INFO columns of a sites-only VCF line for the current site to the
+     * specified string builder, without a line terminator, and reset this site builder.  Columns
+     * are formatted as htsjdk VCFEncoder formats the VariantContext built for the same site, with
+     * INFO keys sorted and ANN values appended directly by the transcript effect appender.
+     *
+     * @param sb string builder to append to, must not be null
+     * @param stringency conversion stringency, passed to the transcript effect appender
+     * @param logger logger, passed to the transcript effect appender
+     * @throws IllegalStateException if no records have been added to the current site
+     */
+    void appendTo(final StringBuilder sb, final ConversionStringency stringency, final Logger logger) {
+        if (isEmpty()) {
+            throw new IllegalStateException("no records added to site");
+        }
+        try {
+            Variant first = variants.get(0);
+            sb.append(referenceName).append('\t').append(start.longValue() + 1L).append('\t');
+
+            List<String> names = first.getNames();
+            if (names == null || names.isEmpty()) {
+                sb.append('.');
+            }
+            else {
+                join(names, ';', sb);
+            }
+            sb.append('\t').append(referenceAllele).append('\t');
+
+            if (alternates.isEmpty()) {
+                sb.append('.');
+            }
+            else {
+                join(alternates, ',', sb);
+            }
+            sb.append('\t');
+
+            if (first.getQuality() == null) {
+                sb.append('.');
+            }
+            else {
+                appendQuality(first.getQuality().doubleValue(), sb);
+            }
+            sb.append('\t');
+
+            List<String> filtersFailed = first.getFiltersFailed();
+            if (!Boolean.TRUE.equals(first.getFiltersApplied())) {
+                sb.append('.');
+            }
+            else if (Boolean.TRUE.equals(first.getFiltersPassed()) || filtersFailed == null || filtersFailed.isEmpty()) {
+                sb.append("PASS");
+            }
+            else if (filtersFailed.size() == 1) {
+                sb.append(filtersFailed.get(0));
+            }
+            else {
+                List<String> sorted = new ArrayList<String>(filtersFailed);
+                Collections.sort(sorted);
+                join(sorted, ';', sb);
+            }
+            sb.append('\t');
+
+            Map<String, Object> info = new TreeMap<String, Object>(info());
+            if (!transcriptEffects.isEmpty() && metadata.transcriptEffectAppender != null) {
+                info.put("ANN", transcriptEffects);
+            }
+            if (info.isEmpty()) {
+                sb.append('.');
+                return;
+            }
+            boolean separator = false;
+            for (Map.Entry<String, Object> entry : info.entrySet()) {
+                if (separator) {
+                    sb.append(';');
+                }
+                separator = true;
+                sb.append(entry.getKey());
+
+                Object value = entry.getValue();
+                if (value == transcriptEffects) {
+                    int length = sb.length();
+                    metadata.transcriptEffectAppender.appendAllTo(transcriptEffects, sb.append('='), stringency, logger);
+                    if (sb.length() == length + 1) {
+                        sb.setLength(length);
+                    }
+                }
+                else if (value instanceof List) {
+                    sb.append('=');
+                    List<?> values = (List<?>) value;
+                    for (int i = 0, size = values.size(); i < size; i++) {
+                        if (i > 0) {
+                            sb.append(',');
+                        }
+                        sb.append(values.get(i));
+                    }
+                }
+                else if (!Boolean.TRUE.equals(value)) {
+                    sb.append('=').append(value);
+                }
+            }
+        }
+        finally {
+            reset();
+        }
+    }
+
+    /**
+     * Reset this site builder, clearing only the sample records touched by the current site.
+     */
+    void reset() {
+        referenceName = null;
+        start = null;
+        referenceAllele = null;
+        end = 0L;
+        alternates.clear();
+        variants.clear();
+        transcriptEffects.clear();
+        for (int i = 0; i < touchedCount; i++) {
+            samples[touched[i]].clear();
+        }
+        touchedCount = 0;
+        lastSample = -1;
+    }
+
+    /**
+     * Return the header sample index of the specified sample, checking the last sample
+     * and the next sample in header order before falling back to a map lookup.
+     */
+    private int sampleIndex(final String sampleId) {
+        List<String> sampleNames = metadata.sampleNames;
+        if (lastSample >= 0 && sampleId.equals(sampleNames.get(lastSample))) {
+            return lastSample;
+        }
+        int next = lastSample + 1;
+        if (next < sampleNames.size() && sampleId.equals(sampleNames.get(next))) {
+            return next;
+        }
+        Integer offset = metadata.sampleOffsets.get(sampleId);
+        if (offset == null) {
+            throw new IllegalArgumentException("sample " + sampleId + " not present in header");
+        }
+        return offset;
+    }
+
+    /**
+     * Merge the annotations of the variants of the current site into INFO attributes,
+     * collecting their transcript effects.
+     */
+    private Map<String, Object> info() {
+        int n = alternates.size();
+        Map<String, Object> info = new LinkedHashMap<String, Object>();
+
+        String ancestralAllele = null;
+        Object[] alleleCount = new Object[n];
+        Object[] alleleFrequency = new Object[n];
+        Object[] cigar = new Object[n];
+        Object[] readDepth = new Object[n + 1];
+        Object[] forwardReadDepth = new Object[n + 1];
+        Object[] reverseReadDepth = new Object[n + 1];
+        boolean dbSnp = false;
+        boolean hapMap2 = false;
+        boolean hapMap3 = false;
+        boolean validated = false;
+        boolean thousandGenomes = false;
+        boolean somatic = false;
+        Map<String, Object[]> alleleAttributes = null;
+
+        for (int i = 0, size = variants.size(); i < size; i++) {
+            VariantAnnotation annotation = variants.get(i).getAnnotation();
+            if (annotation == null) {
+                continue;
+            }
+            boolean alternate = i < n;
+            if (ancestralAllele == null) {
+                ancestralAllele = annotation.getAncestralAllele();
+            }
+            if (alternate) {
+                alleleCount[i] = annotation.getAlleleCount();
+                alleleFrequency[i] = annotation.getAlleleFrequency();
+                cigar[i] = annotation.getCigar();
+                readDepth[i + 1] = annotation.getReadDepth();
+                forwardReadDepth[i + 1] = annotation.getForwardReadDepth();
+                reverseReadDepth[i + 1] = annotation.getReverseReadDepth();
+            }
+            readDepth[0] = first(readDepth[0], annotation.getReferenceReadDepth());
+            forwardReadDepth[0] = first(forwardReadDepth[0], annotation.getReferenceForwardReadDepth());
+            reverseReadDepth[0] = first(reverseReadDepth[0], annotation.getReferenceReverseReadDepth());
+            dbSnp |= Boolean.TRUE.equals(annotation.getDbSnp());
+            hapMap2 |= Boolean.TRUE.equals(annotation.getHapMap2());
+            hapMap3 |= Boolean.TRUE.equals(annotation.getHapMap3());
+            validated |= Boolean.TRUE.equals(annotation.getValidated());
+            thousandGenomes |= Boolean.TRUE.equals(annotation.getThousandGenomes());
+            somatic |= Boolean.TRUE.equals(annotation.getSomatic());
+
+            if (annotation.getTranscriptEffects() != null) {
+                transcriptEffects.addAll(annotation.getTranscriptEffects());
+            }
+
+            if (annotation.getAttributes() != null) {
+                for (Map.Entry<String, String> entry : annotation.getAttributes().entrySet()) {
+                    String key = entry.getKey();
+                    VCFHeaderLineCount count = metadata.infoCounts.get(key);
+                    if (count == VCFHeaderLineCount.A || count == VCFHeaderLineCount.R) {
+                        if (alleleAttributes == null) {
+                            alleleAttributes = new LinkedHashMap<String, Object[]>();
+                        }
+                        Object[] values = alleleAttributes.get(key);
+                        if (values == null) {
+                            values = new Object[count == VCFHeaderLineCount.A ? n : n + 1];
+                            alleleAttributes.put(key, values);
+                        }
+                        String value = entry.getValue();
+                        if (count == VCFHeaderLineCount.A) {
+                            if (alternate) {
+                                values[i] = value;
+                            }
+                        }
+                        else {
+                            int comma = value.indexOf(',');
+                            values[0] = first(values[0], comma < 0 ? value : value.substring(0, comma));
+                            if (alternate && comma >= 0) {
+                                values[i + 1] = value.substring(comma + 1);
+                            }
+                        }
+                    }
+                    else if (!info.containsKey(key)) {
+                        info.put(key, entry.getValue());
+                    }
+                }
+            }
+        }
+
+        put(info, "AA", ancestralAllele);
+        putAll(info, "AC", alleleCount);
+        putAll(info, "AD", readDepth);
+        putAll(info, "ADF", forwardReadDepth);
+        putAll(info, "ADR", reverseReadDepth);
+        putAll(info, "AF", alleleFrequency);
+        putAll(info, "CIGAR", cigar);
+        putFlag(info, "DB", dbSnp);
+        putFlag(info, "H2", hapMap2);
+        putFlag(info, "H3", hapMap3);
+        putFlag(info, "VALIDATED", validated);
+        putFlag(info, "1000G", thousandGenomes);
+        putFlag(info, "SOMATIC", somatic);
+        if (alleleAttributes != null) {
+            for (Map.Entry<String, Object[]> entry : alleleAttributes.entrySet()) {
+                putAll(info, entry.getKey(), entry.getValue());
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Merge the genotype records of the current site into htsjdk Genotypes, in header order.
+     */
+    private GenotypesContext genotypes(final List<Allele> alleles) {
+        Arrays.sort(touched, 0, touchedCount);
+        ArrayList<htsjdk.variant.variantcontext.Genotype> genotypes = new ArrayList<htsjdk.variant.variantcontext.Genotype>(touchedCount);
+        for (int i = 0; i < touchedCount; i++) {
+            int sample = touched[i];
+            genotypes.add(samples[sample].genotype(metadata.sampleNames.get(sample), alleles));
+        }
+        if (touchedCount == metadata.sampleNames.size()) {
+            return GenotypesContext.create(genotypes, metadata.sampleOffsets, metadata.sortedSampleNames);
+        }
+        return GenotypesContext.create(genotypes);
+    }
+
+    /**
+     * Append the specified values to the specified string builder, separated by the specified separator.
+     */
+    private static void join(final List<String> values, final char separator, final StringBuilder sb) {
+        for (int i = 0, size = values.size(); i < size; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(values.get(i));
+        }
+    }
+
+    /**
+     * Append the specified phred-scaled quality to the specified string builder as VCFEncoder
+     * formats it, with two decimal places unless the quality is a whole number.
+     */
+    private static void appendQuality(final double quality, final StringBuilder sb) {
+        if (quality == Math.rint(quality) && Math.abs(quality) < 1.0e15d) {
+            sb.append((long) quality);
+        }
+        else {
+            String s = String.format(Locale.ROOT, "%.2f", quality);
+            sb.append(s.endsWith(".00") ? s.substring(0, s.length() - 3) : s);
+        }
+    }
+
+    private static Object first(final Object value, final Object other) {
+        return value == null ? other : value;
+    }
+
+    private static void put(final Map<String, Object> info, final String key, final Object value) {
+        if (value != null) {
+            info.put(key, value);
+        }
+    }
+
+    private static void putFlag(final Map<String, Object> info, final String key, final boolean value) {
+        if (value) {
+            info.put(key, Boolean.TRUE);
+        }
+    }
+
+    private static void putAll(final Map<String, Object> info, final String key, final Object[] values) {
+        boolean any = false;
+        for (Object value : values) {
+            any |= value != null;
+        }
+        if (!any) {
+            return;
+        }
+        List<Object> list = new ArrayList<Object>(values.length);
+        for (Object value : values) {
+            list.add(value == null ? "." : value);
+        }
+        info.put(key, values.length == 1 ? list.get(0) : list);
+    }
+
+
+    /**
+     * Genotype records of one sample at the current site.
+     */
+    private static final class SampleRecords {
+        /** Alternate allele indices of the genotype records. */
+        private int[] alternates = new int[2];
+
+        /** Genotype records. */
+        private Genotype[] genotypes = new Genotype[2];
+
+        /** Number of genotype records. */
+        private int size = 0;
+
+
+        void add(final int alternate, final Genotype genotype) {
+            if (size == genotypes.length) {
+                alternates = Arrays.copyOf(alternates, size * 2);
+                genotypes = Arrays.copyOf(genotypes, size * 2);
+            }
+            alternates[size] = alternate;
+            genotypes[size] = genotype;
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(genotypes, 0, size, null);
+            size = 0;
+        }
+
+        /**
+         * Merge the genotype records of this sample into one htsjdk Genotype.
+         */
+        htsjdk.variant.variantcontext.Genotype genotype(final String sampleName, final List<Allele> alleles) {
+            Genotype first = genotypes[0];
+            int ploidy = first.getAlleles() == null ? 0 : first.getAlleles().size();
+            List<Allele> called = new ArrayList<Allele>(ploidy);
+            boolean phased = false;
+            for (int p = 0; p < ploidy; p++) {
+                Allele allele = Allele.NO_CALL;
+                for (int r = 0; r < size; r++) {
+                    List<GenotypeAllele> genotypeAlleles = genotypes[r].getAlleles();
+                    GenotypeAllele genotypeAllele = p < genotypeAlleles.size() ? genotypeAlleles.get(p) : GenotypeAllele.NO_CALL;
+                    if (genotypeAllele == GenotypeAllele.ALT && alternates[r] >= 0) {
+                        allele = alleles.get(alternates[r] + 1);
+                        break;
+                    }
+                    if (genotypeAllele == GenotypeAllele.REF) {
+                        allele = alleles.get(0);
+                    }
+                }
+                called.add(allele);
+            }
+            for (int r = 0; r < size; r++) {
+                phased |= Boolean.TRUE.equals(genotypes[r].getPhased());
+            }
+
+            GenotypeBuilder genotypeBuilder = new GenotypeBuilder(sampleName, called).phased(phased);
+            if (first.getReadDepth() != null) {
+                genotypeBuilder.DP(first.getReadDepth());
+            }
+            if (first.getGenotypeQuality() != null) {
+                genotypeBuilder.GQ(first.getGenotypeQuality());
+            }
+            int[] ad = readDepths(alleles.size());
+            if (ad != null) {
+                genotypeBuilder.AD(ad);
+            }
+            int[] pl = phredLikelihoods(alleles.size(), ploidy);
+            if (pl != null) {
+                genotypeBuilder.PL(pl);
+            }
+            if (first.getMinReadDepth() != null) {
+                genotypeBuilder.attribute("MIN_DP", first.getMinReadDepth());
+            }
+            if (first.getStrandBiasComponents() != null && !first.getStrandBiasComponents().isEmpty()) {
+                genotypeBuilder.attribute("SB", first.getStrandBiasComponents());
+            }
+            if (first.getPhaseSetId() != null) {
+                genotypeBuilder.attribute("PS", first.getPhaseSetId());
+            }
+            if (first.getPhaseQuality() != null) {
+                genotypeBuilder.attribute("PQ", first.getPhaseQuality());
+            }
+            VariantCallingAnnotations annotations = first.getVariantCallingAnnotations();
+            if (annotations != null) {
+                if (Boolean.TRUE.equals(annotations.getFiltersApplied())) {
+                    if (Boolean.TRUE.equals(annotations.getFiltersPassed()) || annotations.getFiltersFailed() == null || annotations.getFiltersFailed().isEmpty()) {
+                        genotypeBuilder.filter("PASS");
+                    }
+                    else {
+                        genotypeBuilder.filters(annotations.getFiltersFailed());
+                    }
+                }
+                if (annotations.getAttributes() != null) {
+                    for (Map.Entry<String, String> entry : annotations.getAttributes().entrySet()) {
+                        genotypeBuilder.attribute(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            return genotypeBuilder.make();
+        }
+
+        /**
+         * Return allele read depths, if the reference and every alternate allele depth are known.
+         */
+        private int[] readDepths(final int alleleCount) {
+            Integer[] depths = new Integer[alleleCount];
+            for (int r = 0; r < size; r++) {
+                Genotype genotype = genotypes[r];
+                if (depths[0] == null) {
+                    depths[0] = genotype.getReferenceReadDepth();
+                }
+                if (alternates[r] >= 0) {
+                    depths[alternates[r] + 1] = genotype.getAlternateReadDepth();
+                }
+            }
+            int[] ad = new int[alleleCount];
+            for (int i = 0; i < alleleCount; i++) {
+                if (depths[i] == null) {
+                    return null;
+                }
+                ad[i] = depths[i];
+            }
+            return ad;
+        }
+
+        /**
+         * Return phred-scaled likelihoods from the log likelihoods of a biallelic haploid or diploid site.
+         * Likelihoods of genotypes with more than one alternate allele cannot be recovered from split records.
+         */
+        private int[] phredLikelihoods(final int alleleCount, final int ploidy) {
+            List<Double> likelihoods = genotypes[0].getGenotypeLikelihoods();
+            if (alleleCount != 2 || likelihoods == null || likelihoods.size() != ploidy + 1 || ploidy < 1 || ploidy > 2) {
+                return null;
+            }
+            int[] pl = new int[likelihoods.size()];
+            for (int i = 0; i < pl.length; i++) {
+                pl[i] = (int) Math.round(-likelihoods.get(i) * 10.0d / Math.log(10.0d));
+            }
+            return pl;
+        }
+    }
+
+    /**
+     * Header metadata, precomputed once per header and shared by site builders.
+     */
+    static final class Metadata implements Serializable {
+        /** Sample names in header order. */
+        final List<String> sampleNames;
+
+        /** Sample names in alphabetical order, as required by GenotypesContext. */
+        final List<String> sortedSampleNames;
+
+        /** Header sample indices, by sample name. */
+        final Map<String, Integer> sampleOffsets;
+
+        /** INFO header line counts, by INFO key. */
+        final Map<String, VCFHeaderLineCount> infoCounts;
+
+        /** Transcript effect appender for ANN values, if any. */
+        final TranscriptEffectAppender transcriptEffectAppender;
+
+
+        /**
+         * Create new header metadata for the specified header.
+         *
+         * @param header header, must not be null
+         * @param transcriptEffectAppender transcript effect appender for ANN values, may be null
+         */
+        Metadata(final VCFHeader header, final TranscriptEffectAppender transcriptEffectAppender) {
+            if (header == null) {
+                throw new NullPointerException("header must not be null");
+            }
+            sampleNames = Collections.unmodifiableList(new ArrayList<String>(header.getGenotypeSamples()));
+            List<String> sorted = new ArrayList<String>(sampleNames);
+            Collections.sort(sorted);
+            sortedSampleNames = Collections.unmodifiableList(sorted);
+            Map<String, Integer> offsets = new HashMap<String, Integer>();
+            for (int i = 0, size = sampleNames.size(); i < size; i++) {
+                offsets.put(sampleNames.get(i), i);
+            }
+            sampleOffsets = Collections.unmodifiableMap(offsets);
+            Map<String, VCFHeaderLineCount> counts = new HashMap<String, VCFHeaderLineCount>();
+            for (VCFInfoHeaderLine infoHeaderLine : header.getInfoHeaderLines()) {
+                counts.put(infoHeaderLine.getID(), infoHeaderLine.getCountType());
+            }
+            infoCounts = Collections.unmodifiableMap(counts);
+            this.transcriptEffectAppender = transcriptEffectAppender;
+        }
+    }
+}
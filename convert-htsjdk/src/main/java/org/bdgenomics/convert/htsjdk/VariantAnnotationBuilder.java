@@ -0,0 +1,428 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLineCount;
+import htsjdk.variant.vcf.VCFInfoHeaderLine;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+import org.bdgenomics.formats.avro.VariantAnnotation;
+
+import org.slf4j.Logger;
+
+/**
+ * Builder for the VariantAnnotations of the Variants created for one VCF site, from INFO values
+ * split per alternate allele where necessary.
+ *
+ * <p>
+ * INFO values are accepted as decoded by htsjdk, a String for a single value, a List of Strings
+ * for comma-separated values, or a Boolean for flags, so that sites may be converted from either
+ * a VariantContext or a VCF text line.
+ * </p>
+ */
+final class VariantAnnotationBuilder {
+    /** Number of alternate alleles. */
+    private final int n;
+
+    /** Convert String to TranscriptEffect, if any. */
+    private final Converter<String, TranscriptEffect> transcriptEffectConverter;
+
+    private String ancestralAllele;
+    private Integer[] alleleCount;
+    private Integer[] readDepth;
+    private Integer[] forwardReadDepth;
+    private Integer[] reverseReadDepth;
+    private Float[] alleleFrequency;
+    private String[] cigar;
+    private Boolean dbSnp;
+    private Boolean hapMap2;
+    private Boolean hapMap3;
+    private Boolean validated;
+    private Boolean thousandGenomes;
+    private Boolean somatic;
+    private List<List<TranscriptEffect>> transcriptEffects;
+    private Map<String, String> attributes;
+    private Map<String, String> sharedAttributes;
+    private List<InfoKey> alleleKeys;
+    private List<List<?>> alleleValues;
+
+    /**
+     * Create a new variant annotation builder.
+     *
+     * @param n number of alternate alleles
+     * @param transcriptEffectConverter convert String to TranscriptEffect, if any
+     */
+    VariantAnnotationBuilder(final int n, final Converter<String, TranscriptEffect> transcriptEffectConverter) {
+        this.n = n;
+        this.transcriptEffectConverter = transcriptEffectConverter;
+    }
+
+    /**
+     * Add the specified value for the specified INFO key.
+     *
+     * @param infoKey INFO key mapping
+     * @param value value, a String, a List of Strings, or a Boolean for flags
+     * @param alternates alternate alleles, with a single null for sites without alternate alleles
+     * @param stringency conversion stringency for ANN values
+     * @param logger logger for ANN values
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    void add(final InfoKey infoKey,
+             final Object value,
+             final String[] alternates,
+             final ConversionStringency stringency,
+             final Logger logger) {
+
+        switch (infoKey.field) {
+        case ANCESTRAL_ALLELE:
+            ancestralAllele = String.valueOf(value);
+            break;
+        case ALLELE_COUNT:
+            alleleCount = toIntegers(values(infoKey, value));
+            break;
+        case READ_DEPTH:
+            readDepth = toIntegers(values(infoKey, value));
+            break;
+        case FORWARD_READ_DEPTH:
+            forwardReadDepth = toIntegers(values(infoKey, value));
+            break;
+        case REVERSE_READ_DEPTH:
+            reverseReadDepth = toIntegers(values(infoKey, value));
+            break;
+        case ALLELE_FREQUENCY:
+            alleleFrequency = toFloats(values(infoKey, value));
+            break;
+        case CIGAR:
+            cigar = toStrings(values(infoKey, value));
+            break;
+        case DB_SNP:
+            dbSnp = toFlag(value);
+            break;
+        case HAPMAP2:
+            hapMap2 = toFlag(value);
+            break;
+        case HAPMAP3:
+            hapMap3 = toFlag(value);
+            break;
+        case VALIDATED:
+            validated = toFlag(value);
+            break;
+        case THOUSAND_GENOMES:
+            thousandGenomes = toFlag(value);
+            break;
+        case SOMATIC:
+            somatic = toFlag(value);
+            break;
+        case TRANSCRIPT_EFFECTS:
+            transcriptEffects = toTranscriptEffects(value, alternates, stringency, logger);
+            break;
+        default:
+            if (infoKey.count == VCFHeaderLineCount.A || infoKey.count == VCFHeaderLineCount.R) {
+                if (alleleKeys == null) {
+                    alleleKeys = new ArrayList<InfoKey>(4);
+                    alleleValues = new ArrayList<List<?>>(4);
+                }
+                alleleKeys.add(infoKey);
+                alleleValues.add(values(infoKey, value));
+            }
+            else {
+                if (attributes == null) {
+                    attributes = new HashMap<String, String>();
+                }
+                attributes.put(infoKey.name, format(value));
+            }
+        }
+    }
+
+    /**
+     * Build the annotation for the alternate allele at the specified index.
+     *
+     * @param i alternate allele index
+     * @return the annotation for the alternate allele at the specified index
+     */
+    VariantAnnotation build(final int i) {
+        boolean alternate = i < n;
+        int r = i + 1;
+        return VariantAnnotation.newBuilder()
+            .setAncestralAllele(ancestralAllele)
+            .setAlleleCount(alternate && alleleCount != null ? alleleCount[i] : null)
+            .setReadDepth(alternate && readDepth != null ? readDepth[r] : null)
+            .setForwardReadDepth(alternate && forwardReadDepth != null ? forwardReadDepth[r] : null)
+            .setReverseReadDepth(alternate && reverseReadDepth != null ? reverseReadDepth[r] : null)
+            .setReferenceReadDepth(readDepth != null ? readDepth[0] : null)
+            .setReferenceForwardReadDepth(forwardReadDepth != null ? forwardReadDepth[0] : null)
+            .setReferenceReverseReadDepth(reverseReadDepth != null ? reverseReadDepth[0] : null)
+            .setAlleleFrequency(alternate && alleleFrequency != null ? alleleFrequency[i] : null)
+            .setCigar(alternate && cigar != null ? cigar[i] : null)
+            .setDbSnp(dbSnp)
+            .setHapMap2(hapMap2)
+            .setHapMap3(hapMap3)
+            .setValidated(validated)
+            .setThousandGenomes(thousandGenomes)
+            .setSomatic(somatic)
+            .setTranscriptEffects(transcriptEffects == null ? Collections.<TranscriptEffect>emptyList() : transcriptEffects.get(i))
+            .setAttributes(attributes(i, alternate))
+            .build();
+    }
+
+    /**
+     * Return the attributes for the alternate allele at the specified index.  Sites without
+     * Number=A or Number=R attributes share one immutable map across all alleles.
+     */
+    private Map<String, String> attributes(final int i, final boolean alternate) {
+        if (alleleKeys == null) {
+            if (sharedAttributes == null) {
+                sharedAttributes = attributes == null ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(attributes);
+            }
+            return sharedAttributes;
+        }
+        Map<String, String> alleleAttributes = new HashMap<String, String>();
+        if (attributes != null) {
+            alleleAttributes.putAll(attributes);
+        }
+        for (int k = 0, size = alleleKeys.size(); k < size; k++) {
+            InfoKey infoKey = alleleKeys.get(k);
+            List<?> values = alleleValues.get(k);
+            if (infoKey.count == VCFHeaderLineCount.A) {
+                if (alternate) {
+                    alleleAttributes.put(infoKey.name, format(values.get(i)));
+                }
+            }
+            else {
+                alleleAttributes.put(infoKey.name, alternate ? format(values.get(0)) + "," + format(values.get(i + 1)) : format(values.get(0)));
+            }
+        }
+        return alleleAttributes;
+    }
+
+    /**
+     * Return the values for the specified INFO key, checking the number of values against
+     * the number of alternate alleles for Number=A and Number=R keys.
+     */
+    private List<?> values(final InfoKey infoKey, final Object value) {
+        List<?> values = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+        int expected = infoKey.count == VCFHeaderLineCount.A ? n : infoKey.count == VCFHeaderLineCount.R ? n + 1 : values.size();
+        if (values.size() != expected) {
+            throw new IllegalArgumentException("expected " + expected + " values, found " + values.size());
+        }
+        return values;
+    }
+
+    private List<List<TranscriptEffect>> toTranscriptEffects(final Object value,
+                                                             final String[] alternates,
+                                                             final ConversionStringency stringency,
+                                                             final Logger logger) {
+        List<?> values = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+        List<List<TranscriptEffect>> transcriptEffects = new ArrayList<List<TranscriptEffect>>(alternates.length);
+        for (int i = 0; i < alternates.length; i++) {
+            transcriptEffects.add(new ArrayList<TranscriptEffect>(values.size()));
+        }
+        for (Object v : values) {
+            TranscriptEffect transcriptEffect = transcriptEffectConverter.convert(String.valueOf(v), stringency, logger);
+            if (transcriptEffect == null) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                if (alternates[i].equals(transcriptEffect.getAlternateAllele())) {
+                    transcriptEffects.get(i).add(transcriptEffect);
+                    break;
+                }
+            }
+        }
+        return transcriptEffects;
+    }
+
+    /**
+     * Split the specified value on the specified separator.
+     *
+     * @param value value to split
+     * @param separator separator
+     * @return the specified value split on the specified separator
+     */
+    static List<String> split(final String value, final char separator) {
+        List<String> tokens = new ArrayList<String>(2);
+        int start = 0;
+        for (int i = value.indexOf(separator); i >= 0; i = value.indexOf(separator, start)) {
+            tokens.add(value.substring(start, i));
+            start = i + 1;
+        }
+        tokens.add(value.substring(start));
+        return tokens;
+    }
+
+    /**
+     * Precompute INFO key mappings for the specified header.
+     *
+     * @param header header
+     * @param transcriptEffects true if ANN values are converted to transcript effects
+     * @return INFO key mappings for the specified header, by INFO key
+     */
+    static Map<String, InfoKey> infoKeys(final VCFHeader header, final boolean transcriptEffects) {
+        Map<String, InfoKey> infoKeys = new HashMap<String, InfoKey>();
+        for (VCFInfoHeaderLine infoHeaderLine : header.getInfoHeaderLines()) {
+            infoKeys.put(infoHeaderLine.getID(), new InfoKey(infoHeaderLine.getID(), Field.ATTRIBUTE, infoHeaderLine.getCountType()));
+        }
+        put(infoKeys, "AA", Field.ANCESTRAL_ALLELE, VCFHeaderLineCount.INTEGER);
+        put(infoKeys, "AC", Field.ALLELE_COUNT, VCFHeaderLineCount.A);
+        put(infoKeys, "AD", Field.READ_DEPTH, VCFHeaderLineCount.R);
+        put(infoKeys, "ADF", Field.FORWARD_READ_DEPTH, VCFHeaderLineCount.R);
+        put(infoKeys, "ADR", Field.REVERSE_READ_DEPTH, VCFHeaderLineCount.R);
+        put(infoKeys, "AF", Field.ALLELE_FREQUENCY, VCFHeaderLineCount.A);
+        put(infoKeys, "CIGAR", Field.CIGAR, VCFHeaderLineCount.A);
+        put(infoKeys, "DB", Field.DB_SNP, VCFHeaderLineCount.INTEGER);
+        put(infoKeys, "H2", Field.HAPMAP2, VCFHeaderLineCount.INTEGER);
+        put(infoKeys, "H3", Field.HAPMAP3, VCFHeaderLineCount.INTEGER);
+        put(infoKeys, "VALIDATED", Field.VALIDATED, VCFHeaderLineCount.INTEGER);
+        put(infoKeys, "1000G", Field.THOUSAND_GENOMES, VCFHeaderLineCount.INTEGER);
+        put(infoKeys, "SOMATIC", Field.SOMATIC, VCFHeaderLineCount.INTEGER);
+        if (transcriptEffects) {
+            put(infoKeys, "ANN", Field.TRANSCRIPT_EFFECTS, VCFHeaderLineCount.UNBOUNDED);
+        }
+        return Collections.unmodifiableMap(infoKeys);
+    }
+
+    private static void put(final Map<String, InfoKey> infoKeys, final String name, final Field field, final VCFHeaderLineCount count) {
+        infoKeys.put(name, new InfoKey(name, field, count));
+    }
+
+
+    /**
+     * VariantAnnotation field for an INFO key.
+     */
+    enum Field {
+        ANCESTRAL_ALLELE,
+        ALLELE_COUNT,
+        READ_DEPTH,
+        FORWARD_READ_DEPTH,
+        REVERSE_READ_DEPTH,
+        ALLELE_FREQUENCY,
+        CIGAR,
+        DB_SNP,
+        HAPMAP2,
+        HAPMAP3,
+        VALIDATED,
+        THOUSAND_GENOMES,
+        SOMATIC,
+        TRANSCRIPT_EFFECTS,
+        ATTRIBUTE;
+    }
+
+    /**
+     * INFO key mapping.
+     */
+    static final class InfoKey {
+        /** INFO key. */
+        final String name;
+
+        /** VariantAnnotation field. */
+        final Field field;
+
+        /** Number of values. */
+        final VCFHeaderLineCount count;
+
+        InfoKey(final String name, final Field field, final VCFHeaderLineCount count) {
+            this.name = name;
+            this.field = field;
+            this.count = count;
+        }
+
+        /**
+         * Return a new INFO key mapping to an attribute with an unbounded number of values,
+         * for INFO keys not declared in the header.
+         *
+         * @param name INFO key
+         * @return a new INFO key mapping to an attribute with an unbounded number of values
+         */
+        static InfoKey attribute(final String name) {
+            return new InfoKey(name, Field.ATTRIBUTE, VCFHeaderLineCount.UNBOUNDED);
+        }
+    }
+
+    private static Integer[] toIntegers(final List<?> values) {
+        Integer[] integers = new Integer[values.size()];
+        for (int i = 0; i < integers.length; i++) {
+            Object value = values.get(i);
+            if (value instanceof Integer) {
+                integers[i] = (Integer) value;
+            }
+            else if (value instanceof Number) {
+                integers[i] = Integer.valueOf(((Number) value).intValue());
+            }
+            else if (!isMissing(value)) {
+                integers[i] = Integer.valueOf(value.toString().trim());
+            }
+        }
+        return integers;
+    }
+
+    private static Float[] toFloats(final List<?> values) {
+        Float[] floats = new Float[values.size()];
+        for (int i = 0; i < floats.length; i++) {
+            Object value = values.get(i);
+            if (value instanceof Number) {
+                floats[i] = Float.valueOf(((Number) value).floatValue());
+            }
+            else if (!isMissing(value)) {
+                floats[i] = Float.valueOf(value.toString().trim());
+            }
+        }
+        return floats;
+    }
+
+    private static String[] toStrings(final List<?> values) {
+        String[] strings = new String[values.size()];
+        for (int i = 0; i < strings.length; i++) {
+            Object value = values.get(i);
+            strings[i] = isMissing(value) ? null : value.toString();
+        }
+        return strings;
+    }
+
+    private static Boolean toFlag(final Object value) {
+        return value instanceof Boolean ? (Boolean) value : Boolean.TRUE;
+    }
+
+    private static boolean isMissing(final Object value) {
+        return value == null || ".".equals(value);
+    }
+
+    private static String format(final Object value) {
+        if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0, size = values.size(); i < size; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(values.get(i));
+            }
+            return sb.toString();
+        }
+        return String.valueOf(value);
+    }
+}
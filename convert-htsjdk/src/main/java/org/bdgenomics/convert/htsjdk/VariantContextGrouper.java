@@ -0,0 +1,282 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+import org.bdgenomics.convert.FailureAggregator;
+
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
+import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.Variant;
+
+import org.slf4j.Logger;
+
+/**
+ * Group consecutive Variants or Genotypes at the same site into one VariantContext per site.
+ *
+ * <p>
+ * A site is identified by reference name, start, and reference allele, so Variants and Genotypes
+ * split from a multi-allelic site are merged back into one multi-allelic VariantContext, provided
+ * they are consecutive in the source iterator, as they are when read from a sorted source.  One
+ * VariantContextBuilder and the header sample indices are reused for every site of a stream,
+ * and records are matched to alternate alleles and samples without per-record map lookups in the
+ * common case.  Records that fail conversion, and sites that cannot be built, for example because
+ * of an invalid allele, are skipped when the conversion stringency is lenient or silent.
+ * </p>
+ */
+public final class VariantContextGrouper {
+
+    /** Header metadata. */
+    private final SiteBuilder.Metadata metadata;
+
+
+    /**
+     * Create a new VariantContext grouper with the specified header.
+     * Transcript effects are not converted to ANN values.
+     *
+     * @param header header, must not be null
+     */
+    @Inject
+    public VariantContextGrouper(@Assisted final VCFHeader header) {
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        this.metadata = new SiteBuilder.Metadata(header, null);
+    }
+
+    /**
+     * Create a new VariantContext grouper with the specified header
+     * and transcript effect appender for ANN values.
+     *
+     * @param header header, must not be null
+     * @param transcriptEffectAppender transcript effect appender for ANN values, must not be null
+     */
+    public VariantContextGrouper(final VCFHeader header,
+                                 final TranscriptEffectAppender transcriptEffectAppender) {
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        if (transcriptEffectAppender == null) {
+            throw new NullPointerException("transcriptEffectAppender must not be null");
+        }
+        this.metadata = new SiteBuilder.Metadata(header, transcriptEffectAppender);
+    }
+
+
+    /**
+     * Group consecutive Variants at the same site into one VariantContext per site.
+     *
+     * @param variants variants to group, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return an iterator over one VariantContext per site
+     * @throws ConversionException from the returned iterator, if conversion fails and the
+     *    specified conversion stringency is strict
+     * @throws NullPointerException if any of variants, conversion stringency, or logger are null
+     */
+    public Iterator<VariantContext> groupVariants(final Iterator<? extends Variant> variants,
+                                                  final ConversionStringency stringency,
+                                                  final Logger logger) {
+        return new GroupingIterator<Variant>(variants, Variant.class, stringency, logger) {
+            @Override
+            boolean isSameSite(final SiteBuilder siteBuilder, final Variant variant) {
+                return siteBuilder.isSameSite(variant);
+            }
+
+            @Override
+            void add(final SiteBuilder siteBuilder, final Variant variant) {
+                siteBuilder.add(variant);
+            }
+        };
+    }
+
+    /**
+     * Group consecutive Genotypes at the same site into one VariantContext per site.
+     *
+     * @param genotypes genotypes to group, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return an iterator over one VariantContext per site
+     * @throws ConversionException from the returned iterator, if conversion fails and the
+     *    specified conversion stringency is strict
+     * @throws NullPointerException if any of genotypes, conversion stringency, or logger are null
+     */
+    public Iterator<VariantContext> groupGenotypes(final Iterator<? extends Genotype> genotypes,
+                                                   final ConversionStringency stringency,
+                                                   final Logger logger) {
+        return new GroupingIterator<Genotype>(genotypes, Genotype.class, stringency, logger) {
+            @Override
+            boolean isSameSite(final SiteBuilder siteBuilder, final Genotype genotype) {
+                return genotype.getVariant() != null && siteBuilder.isSameSite(genotype.getVariant());
+            }
+
+            @Override
+            void add(final SiteBuilder siteBuilder, final Genotype genotype) {
+                siteBuilder.add(genotype);
+            }
+        };
+    }
+
+
+    /**
+     * Iterator over one VariantContext per site of consecutive source records.
+     *
+     * @param <S> source record type
+     */
+    private abstract class GroupingIterator<S> implements Iterator<VariantContext> {
+        /** Source records. */
+        private final Iterator<? extends S> source;
+
+        /** Source record class. */
+        private final Class<?> sourceClass;
+
+        /** Conversion stringency. */
+        private final ConversionStringency stringency;
+
+        /** Logger. */
+        private final Logger logger;
+
+        /** Site builder, reused for every site. */
+        private final SiteBuilder siteBuilder = new SiteBuilder(metadata);
+
+        /** Next VariantContext, if any. */
+        private VariantContext next;
+
+
+        GroupingIterator(final Iterator<? extends S> source,
+                         final Class<?> sourceClass,
+                         final ConversionStringency stringency,
+                         final Logger logger) {
+            if (source == null) {
+                throw new NullPointerException("source must not be null");
+            }
+            if (stringency == null) {
+                throw new NullPointerException("stringency must not be null");
+            }
+            if (logger == null) {
+                throw new NullPointerException("logger must not be null");
+            }
+            this.source = source;
+            this.sourceClass = sourceClass;
+            this.stringency = stringency;
+            this.logger = logger;
+        }
+
+
+        /**
+         * Return true if the specified record is at the current site of the specified site builder.
+         */
+        abstract boolean isSameSite(SiteBuilder siteBuilder, S record);
+
+        /**
+         * Add the specified record to the current site of the specified site builder.
+         */
+        abstract void add(SiteBuilder siteBuilder, S record);
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (source.hasNext()) {
+                S record = source.next();
+                if (record == null) {
+                    warnOrThrow(record, "must not be null", null);
+                    continue;
+                }
+                VariantContext site = null;
+                if (!siteBuilder.isEmpty() && !isSameSite(siteBuilder, record)) {
+                    site = build();
+                }
+                try {
+                    add(siteBuilder, record);
+                }
+                catch (IllegalArgumentException e) {
+                    warnOrThrow(record, "could not add to site, caught " + e.getMessage(), e);
+                }
+                if (site != null) {
+                    next = site;
+                    return true;
+                }
+            }
+            if (!siteBuilder.isEmpty()) {
+                next = build();
+            }
+            return next != null;
+        }
+
+        /**
+         * Build a VariantContext for the current site, or return null if the site could not
+         * be built and the conversion stringency is lenient or silent.  The site builder is
+         * reset either way.
+         */
+        private VariantContext build() {
+            try {
+                return siteBuilder.build(stringency, logger);
+            }
+            catch (IllegalArgumentException | IllegalStateException e) {
+                warnOrThrow(null, "could not build site, caught " + e.getMessage(), e);
+                return null;
+            }
+        }
+
+        @Override
+        public VariantContext next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            VariantContext site = next;
+            next = null;
+            return site;
+        }
+
+        /**
+         * If the conversion stringency is lenient, log a warning with the specified message
+         * or record it to the failure aggregator open for the logger, if any,
+         * or if the conversion stringency is strict, throw a ConversionException with the specified
+         * message and cause.
+         */
+        private void warnOrThrow(final S record, final String message, final Throwable cause) {
+            if (stringency.isLenient()) {
+                FailureAggregator aggregator = FailureAggregator.forLogger(logger);
+                if (aggregator != null) {
+                    aggregator.record(VariantContextGrouper.class, sourceClass, VariantContext.class, message, record, cause);
+                }
+                else {
+                    logger.warn("could not convert {} to {}, {}", sourceClass.toString(), VariantContext.class.toString(), message, cause);
+                }
+            }
+            else if (stringency.isStrict()) {
+                throw new ConversionException(String.format("could not convert %s to %s, %s", sourceClass.toString(), VariantContext.class.toString(), message), cause, record, sourceClass, VariantContext.class);
+            }
+        }
+    }
+}
@@ -17,12 +17,23 @@
  */
 package org.bdgenomics.convert.htsjdk;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 import com.google.inject.Inject;
 
 import com.google.inject.assistedinject.Assisted;
 
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
 import htsjdk.variant.variantcontext.VariantContext;
 
 import htsjdk.variant.vcf.VCFHeader;
@@ -32,29 +43,117 @@ import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
 
 import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.GenotypeAllele;
+import org.bdgenomics.formats.avro.Variant;
+import org.bdgenomics.formats.avro.VariantCallingAnnotations;
 
 import org.slf4j.Logger;
 
 /**
  * Convert VariantContext to a list of Genotypes.
+ *
+ * <p>
+ * One Genotype is created per sample per alternate allele, ordered by sample and then by
+ * alternate allele, and each refers to the Variant for its alternate allele.  The list returned
+ * is a lazy, unmodifiable view; each Genotype is converted when it is read, so sites whose
+ * Genotypes are never read are never decoded.  When the genotypes of a VariantContext read from
+ * VCF have not yet been decoded by htsjdk, sample columns are parsed directly from the unparsed
+ * genotype data, so only the samples read are decoded and htsjdk Genotypes are never created.
+ * Both paths produce equal Genotypes.  As htsjdk does not retain a genotype filter (FT) of
+ * <code>PASS</code> when decoding, <code>PASS</code> is converted as no genotype filters applied,
+ * and failed genotype filters are sorted by name.
+ * </p>
+ *
+ * <p>
+ * Converters may be restricted to a subset of samples or a contiguous range of samples in
+ * header order, so that the genotypes of one site can be sharded across threads.
+ * </p>
  */
 public final class VariantContextToGenotypes extends AbstractConverter<VariantContext, List<Genotype>> {
 
-    /** Header. */
-    private final VCFHeader header;
+    /** Sample ids to convert, in header order. */
+    private final String[] sampleIds;
+
+    /** Header sample indices of the samples to convert, in ascending order. */
+    private final int[] sampleIndices;
+
+    /** Convert VariantContext to a list of Variants. */
+    private final VariantContextToVariants variantContextToVariants;
+
+    /** Natural log of ten over ten, to convert phred-scaled likelihoods to log likelihoods. */
+    private static final double LN10_10 = Math.log(10.0d) / 10.0d;
 
 
     /**
-     * Create a new VariantContext to list of Genotypes converter with the specified header.
+     * Create a new VariantContext to list of Genotypes converter with the specified header,
+     * converting all samples.
      *
      * @param header header, must not be null
      */
     @Inject
     public VariantContextToGenotypes(@Assisted final VCFHeader header) {
+        this(header, 0, header == null ? 0 : header.getNGenotypeSamples());
+    }
+
+    /**
+     * Create a new VariantContext to list of Genotypes converter with the specified header,
+     * converting only the specified samples.
+     *
+     * @param header header, must not be null
+     * @param samples samples to convert, must not be null and must be present in the header
+     * @throws IllegalArgumentException if any of the specified samples are not present in the header
+     */
+    public VariantContextToGenotypes(final VCFHeader header, final Collection<String> samples) {
+        super(VariantContext.class, List.class);
+
+        checkNotNull(header);
+        checkNotNull(samples);
+
+        Map<String, Integer> offsets = header.getSampleNameToOffset();
+        boolean[] selected = new boolean[header.getNGenotypeSamples()];
+        for (String sample : samples) {
+            Integer offset = offsets.get(sample);
+            if (offset == null) {
+                throw new IllegalArgumentException("sample " + sample + " not present in header");
+            }
+            selected[offset] = true;
+        }
+        int count = 0;
+        for (boolean s : selected) {
+            count += s ? 1 : 0;
+        }
+        sampleIndices = new int[count];
+        for (int i = 0, j = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                sampleIndices[j++] = i;
+            }
+        }
+        sampleIds = sampleIds(header, sampleIndices);
+        variantContextToVariants = new VariantContextToVariants(header);
+    }
+
+    /**
+     * Create a new VariantContext to list of Genotypes converter with the specified header,
+     * converting only the specified contiguous range of samples in header order.
+     *
+     * @param header header, must not be null
+     * @param fromSample index of the first sample to convert, inclusive
+     * @param toSample index of the last sample to convert, exclusive
+     * @throws IllegalArgumentException if the specified range is not within the samples in the header
+     */
+    public VariantContextToGenotypes(final VCFHeader header, final int fromSample, final int toSample) {
         super(VariantContext.class, List.class);
 
         checkNotNull(header);
-        this.header = header;
+        if (fromSample < 0 || toSample > header.getNGenotypeSamples() || fromSample > toSample) {
+            throw new IllegalArgumentException("sample range [" + fromSample + ", " + toSample + ") not within [0, " + header.getNGenotypeSamples() + ")");
+        }
+        sampleIndices = new int[toSample - fromSample];
+        for (int i = 0; i < sampleIndices.length; i++) {
+            sampleIndices[i] = fromSample + i;
+        }
+        sampleIds = sampleIds(header, sampleIndices);
+        variantContextToVariants = new VariantContextToVariants(header);
     }
 
 
@@ -67,7 +166,418 @@ public final class VariantContextToGenotypes extends AbstractConverter<VariantCo
             warnOrThrow(variantContext, "must not be null", null, stringency, logger);
             return null;
         }
+        checkNotNull(stringency, logger);
+        if (!variantContext.hasGenotypes() || sampleIndices.length == 0) {
+            return Collections.<Genotype>emptyList();
+        }
+        return new LazyGenotypes(variantContext, stringency, logger);
+    }
+
+    private static String[] sampleIds(final VCFHeader header, final int[] sampleIndices) {
+        List<String> samples = header.getGenotypeSamples();
+        String[] sampleIds = new String[sampleIndices.length];
+        for (int i = 0; i < sampleIndices.length; i++) {
+            sampleIds[i] = samples.get(sampleIndices[i]);
+        }
+        return sampleIds;
+    }
+
+
+    /**
+     * Lazy list of Genotypes for one VariantContext.
+     */
+    private final class LazyGenotypes extends AbstractList<Genotype> implements RandomAccess {
+        /** VariantContext. */
+        private final VariantContext variantContext;
+
+        /** Conversion stringency. */
+        private final ConversionStringency stringency;
+
+        /** Logger. */
+        private final Logger logger;
+
+        /** Number of Genotypes per sample, one per alternate allele. */
+        private final int alleles;
+
+        /** Variants, one per alternate allele. */
+        private volatile List<Variant> variants;
+
+        /** Unparsed genotype data, if not yet decoded by htsjdk. */
+        private String data;
+
+        /** FORMAT keys of the unparsed genotype data. */
+        private String[] formatKeys;
+
+        /** Start offsets of sample columns in the unparsed genotype data. */
+        private int[] starts;
+
+        /** End offsets of sample columns in the unparsed genotype data. */
+        private int[] ends;
+
+
+        LazyGenotypes(final VariantContext variantContext, final ConversionStringency stringency, final Logger logger) {
+            this.variantContext = variantContext;
+            this.stringency = stringency;
+            this.logger = logger;
+            this.alleles = Math.max(1, variantContext.getNAlleles() - 1);
+        }
+
+
+        @Override
+        public int size() {
+            return sampleIds.length * alleles;
+        }
+
+        @Override
+        public Genotype get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("index " + index + " not within [0, " + size() + ")");
+            }
+            List<Variant> v = initialize();
+            int sample = index / alleles;
+            int alternate = index % alleles;
+            try {
+                SampleData sampleData = data == null ? sampleData(variantContext, sampleIds[sample]) : sampleData(data, formatKeys, starts[sample], ends[sample]);
+                return genotype(sampleIds[sample], sampleData, v.get(alternate), alternate);
+            }
+            catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                warnOrThrow(variantContext, "could not convert genotype", sampleIds[sample] + ", caught " + e.getMessage(), e, stringency, logger);
+                return null;
+            }
+        }
+
+        /**
+         * Convert the Variants for this site and, if the genotype data have not been decoded,
+         * locate the columns of the samples to convert.
+         */
+        private List<Variant> initialize() {
+            List<Variant> v = variants;
+            if (v == null) {
+                synchronized (this) {
+                    v = variants;
+                    if (v == null) {
+                        GenotypesContext genotypesContext = variantContext.getGenotypes();
+                        if (genotypesContext instanceof LazyGenotypesContext
+                            && ((LazyGenotypesContext) genotypesContext).getUnparsedGenotypeData() instanceof String) {
+
+                            locate((String) ((LazyGenotypesContext) genotypesContext).getUnparsedGenotypeData());
+                        }
+                        v = variantContextToVariants.convert(variantContext, stringency, logger);
+                        if (v == null) {
+                            throw new ConversionException("could not convert variants", null, variantContext, VariantContext.class, Variant.class);
+                        }
+                        variants = v;
+                    }
+                }
+            }
+            return v;
+        }
+
+        /**
+         * Locate the columns of the samples to convert in the specified unparsed genotype data,
+         * scanning only as far as the last sample to convert.
+         */
+        private void locate(final String unparsed) {
+            int formatEnd = unparsed.indexOf('\t');
+            if (formatEnd < 0) {
+                return;
+            }
+            String[] keys = split(unparsed, 0, formatEnd, ':');
+            int[] s = new int[sampleIndices.length];
+            int[] e = new int[sampleIndices.length];
+            int column = 0;
+            int start = formatEnd + 1;
+            for (int i = 0; i < sampleIndices.length; i++) {
+                while (column < sampleIndices[i]) {
+                    start = unparsed.indexOf('\t', start) + 1;
+                    if (start == 0) {
+                        return;
+                    }
+                    column++;
+                }
+                int end = unparsed.indexOf('\t', start);
+                s[i] = start;
+                e[i] = end < 0 ? unparsed.length() : end;
+            }
+            data = unparsed;
+            formatKeys = keys;
+            starts = s;
+            ends = e;
+        }
+    }
+
+    /**
+     * Parse sample data from the specified column of unparsed VCF genotype data.
+     */
+    private static SampleData sampleData(final String data, final String[] formatKeys, final int start, final int end) {
+        SampleData sampleData = new SampleData();
+        int fieldStart = start;
+        for (int k = 0; k < formatKeys.length && fieldStart <= end; k++) {
+            int fieldEnd = data.indexOf(':', fieldStart);
+            if (fieldEnd < 0 || fieldEnd > end) {
+                fieldEnd = end;
+            }
+            String key = formatKeys[k];
+            if ("GT".equals(key)) {
+                parseGenotype(data, fieldStart, fieldEnd, sampleData);
+            }
+            else if (!isMissing(data, fieldStart, fieldEnd)) {
+                switch (key) {
+                case "AD":
+                    sampleData.ad = parseIntegers(data, fieldStart, fieldEnd);
+                    break;
+                case "DP":
+                    sampleData.dp = parseInteger(data, fieldStart, fieldEnd);
+                    break;
+                case "MIN_DP":
+                    sampleData.minDp = parseInteger(data, fieldStart, fieldEnd);
+                    break;
+                case "GQ":
+                    sampleData.gq = parseInteger(data, fieldStart, fieldEnd);
+                    break;
+                case "PL":
+                    sampleData.pl = parseIntegers(data, fieldStart, fieldEnd);
+                    break;
+                case "SB":
+                    sampleData.sb = parseIntegers(data, fieldStart, fieldEnd);
+                    break;
+                case "PS":
+                    sampleData.ps = parseInteger(data, fieldStart, fieldEnd);
+                    break;
+                case "PQ":
+                    sampleData.pq = parseInteger(data, fieldStart, fieldEnd);
+                    break;
+                case "FT":
+                    sampleData.ft = data.substring(fieldStart, fieldEnd);
+                    break;
+                default:
+                    sampleData.attribute(key, data.substring(fieldStart, fieldEnd));
+                }
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        return sampleData;
+    }
+
+    /**
+     * Read sample data from the decoded htsjdk Genotype for the specified sample.
+     */
+    private static SampleData sampleData(final VariantContext variantContext, final String sampleId) {
+        SampleData sampleData = new SampleData();
+        htsjdk.variant.variantcontext.Genotype genotype = variantContext.getGenotype(sampleId);
+        if (genotype == null) {
+            throw new IllegalArgumentException("no genotype");
+        }
+        List<Allele> alleles = genotype.getAlleles();
+        sampleData.alleles = new int[alleles.size()];
+        for (int i = 0; i < sampleData.alleles.length; i++) {
+            Allele allele = alleles.get(i);
+            sampleData.alleles[i] = allele.isNoCall() ? -1 : variantContext.getAlleleIndex(allele);
+        }
+        sampleData.phased = genotype.isPhased();
+        sampleData.ad = box(genotype.getAD());
+        sampleData.dp = genotype.hasDP() ? Integer.valueOf(genotype.getDP()) : null;
+        sampleData.gq = genotype.hasGQ() ? Integer.valueOf(genotype.getGQ()) : null;
+        sampleData.pl = box(genotype.getPL());
+        sampleData.ft = genotype.getFilters();
+        for (Map.Entry<String, Object> entry : genotype.getExtendedAttributes().entrySet()) {
+            String value = format(entry.getValue());
+            if (".".equals(value)) {
+                continue;
+            }
+            switch (entry.getKey()) {
+            case "MIN_DP":
+                sampleData.minDp = Integer.valueOf(value);
+                break;
+            case "SB":
+                sampleData.sb = parseIntegers(value, 0, value.length());
+                break;
+            case "PS":
+                sampleData.ps = Integer.valueOf(value);
+                break;
+            case "PQ":
+                sampleData.pq = Integer.valueOf(value);
+                break;
+            default:
+                sampleData.attribute(entry.getKey(), value);
+            }
+        }
+        return sampleData;
+    }
+
+    /**
+     * Create a Genotype for the specified alternate allele from the specified sample data.
+     */
+    private Genotype genotype(final String sampleId, final SampleData sampleData, final Variant variant, final int alternate) {
+        int alt = alternate + 1;
+        List<GenotypeAllele> alleles = new ArrayList<GenotypeAllele>(sampleData.alleles.length);
+        for (int allele : sampleData.alleles) {
+            alleles.add(allele < 0 ? GenotypeAllele.NO_CALL : allele == 0 ? GenotypeAllele.REF : allele == alt ? GenotypeAllele.ALT : GenotypeAllele.OTHER_ALT);
+        }
+
+        VariantCallingAnnotations.Builder annotations = VariantCallingAnnotations.newBuilder()
+            .setAttributes(sampleData.attributes == null ? Collections.<String, String>emptyMap() : sampleData.attributes);
+        // htsjdk does not retain FT=PASS when decoding genotypes, so PASS is treated as no genotype filters
+        if (sampleData.ft == null || "PASS".equals(sampleData.ft)) {
+            annotations.setFiltersApplied(false);
+        }
+        else {
+            String[] filters = split(sampleData.ft, 0, sampleData.ft.length(), ';');
+            Arrays.sort(filters);
+            annotations
+                .setFiltersApplied(true)
+                .setFiltersPassed(false)
+                .setFiltersFailed(Arrays.asList(filters));
+        }
+
+        return Genotype.newBuilder()
+            .setVariant(variant)
+            .setReferenceName(variant.getReferenceName())
+            .setStart(variant.getStart())
+            .setEnd(variant.getEnd())
+            .setSampleId(sampleId)
+            .setAlleles(alleles)
+            .setPhased(sampleData.phased)
+            .setSplitFromMultiAllelic(variant.getSplitFromMultiAllelic())
+            .setReferenceReadDepth(sampleData.ad != null && sampleData.ad.length > 0 ? sampleData.ad[0] : null)
+            .setAlternateReadDepth(sampleData.ad != null && sampleData.ad.length > alt ? sampleData.ad[alt] : null)
+            .setReadDepth(sampleData.dp)
+            .setMinReadDepth(sampleData.minDp)
+            .setGenotypeQuality(sampleData.gq)
+            .setGenotypeLikelihoods(likelihoods(sampleData.pl, sampleData.alleles.length, alt))
+            .setStrandBiasComponents(sampleData.sb == null ? Collections.<Integer>emptyList() : Arrays.asList(sampleData.sb))
+            .setPhaseSetId(sampleData.ps)
+            .setPhaseQuality(sampleData.pq)
+            .setVariantCallingAnnotations(annotations.build())
+            .build();
+    }
+
+    /**
+     * Return log likelihoods of zero through ploidy copies of the specified alternate allele,
+     * from the specified phred-scaled likelihoods, for haploid and diploid genotypes.
+     */
+    private static List<Double> likelihoods(final Integer[] pl, final int ploidy, final int alt) {
+        if (pl == null || ploidy < 1 || ploidy > 2) {
+            return Collections.<Double>emptyList();
+        }
+        int[] indices = ploidy == 1 ? new int[] { 0, alt } : new int[] { 0, alt * (alt + 1) / 2, alt * (alt + 1) / 2 + alt };
+        List<Double> likelihoods = new ArrayList<Double>(indices.length);
+        for (int index : indices) {
+            if (index >= pl.length || pl[index] == null) {
+                return Collections.<Double>emptyList();
+            }
+            likelihoods.add(Double.valueOf(-pl[index] * LN10_10));
+        }
+        return likelihoods;
+    }
+
+    private static void parseGenotype(final String data, final int start, final int end, final SampleData sampleData) {
+        int ploidy = 1;
+        for (int i = start; i < end; i++) {
+            char c = data.charAt(i);
+            if (c == '/' || c == '|') {
+                ploidy++;
+                sampleData.phased = c == '|';
+            }
+        }
+        sampleData.alleles = new int[ploidy];
+        int alleleStart = start;
+        for (int p = 0; p < ploidy; p++) {
+            int alleleEnd = alleleStart;
+            while (alleleEnd < end && data.charAt(alleleEnd) != '/' && data.charAt(alleleEnd) != '|') {
+                alleleEnd++;
+            }
+            sampleData.alleles[p] = isMissing(data, alleleStart, alleleEnd) ? -1 : parseInteger(data, alleleStart, alleleEnd).intValue();
+            alleleStart = alleleEnd + 1;
+        }
+    }
+
+    private static boolean isMissing(final String data, final int start, final int end) {
+        return end == start || (end == start + 1 && data.charAt(start) == '.');
+    }
+
+    private static Integer parseInteger(final String data, final int start, final int end) {
+        return isMissing(data, start, end) ? null : Integer.valueOf(data.substring(start, end));
+    }
+
+    private static Integer[] parseIntegers(final String data, final int start, final int end) {
+        String[] tokens = split(data, start, end, ',');
+        Integer[] integers = new Integer[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            integers[i] = parseInteger(tokens[i], 0, tokens[i].length());
+        }
+        return integers;
+    }
+
+    private static String[] split(final String data, final int start, final int end, final char separator) {
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (data.charAt(i) == separator) {
+                count++;
+            }
+        }
+        String[] tokens = new String[count];
+        int tokenStart = start;
+        for (int t = 0; t < count; t++) {
+            int tokenEnd = data.indexOf(separator, tokenStart);
+            if (tokenEnd < 0 || tokenEnd > end) {
+                tokenEnd = end;
+            }
+            tokens[t] = data.substring(tokenStart, tokenEnd);
+            tokenStart = tokenEnd + 1;
+        }
+        return tokens;
+    }
+
+    private static Integer[] box(final int[] values) {
+        if (values == null) {
+            return null;
+        }
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = Integer.valueOf(values[i]);
+        }
+        return boxed;
+    }
+
+    private static String format(final Object value) {
+        if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0, size = values.size(); i < size; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(values.get(i));
+            }
+            return sb.toString();
+        }
+        return String.valueOf(value);
+    }
 
-        return null;
+
+    /**
+     * Values of one sample column.
+     */
+    private static final class SampleData {
+        int[] alleles = new int[0];
+        boolean phased;
+        Integer[] ad;
+        Integer dp;
+        Integer minDp;
+        Integer gq;
+        Integer[] pl;
+        Integer[] sb;
+        Integer ps;
+        Integer pq;
+        String ft;
+        Map<String, String> attributes;
+
+        void attribute(final String key, final String value) {
+            if (attributes == null) {
+                attributes = new HashMap<String, String>();
+            }
+            attributes.put(key, value);
+        }
     }
 }
@@ -17,35 +17,54 @@
  */
 package org.bdgenomics.convert.htsjdk;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com.google.inject.Inject;
 
 import com.google.inject.assistedinject.Assisted;
 
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 
 import htsjdk.variant.vcf.VCFHeader;
 
 import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
 
+import org.bdgenomics.formats.avro.TranscriptEffect;
 import org.bdgenomics.formats.avro.Variant;
 
 import org.slf4j.Logger;
 
 /**
  * Convert VariantContext to a list of Variants.
+ *
+ * <p>
+ * One Variant is created per alternate allele, or a single Variant with a null alternate allele
+ * for sites without alternate alleles.  INFO keys reserved by the VCF specification are converted
+ * to VariantAnnotation fields, splitting Number=A and Number=R values per alternate allele.  Other
+ * INFO keys are carried through as VariantAnnotation attributes, also split per alternate allele
+ * when their header line declares Number=A or Number=R.  Names, filters, and shared attributes are
+ * immutable and shared by the Variants created for one site.
+ * </p>
  */
 public final class VariantContextToVariants extends AbstractConverter<VariantContext, List<Variant>> {
 
-    /** Header. */
-    private final VCFHeader header;
+    /** INFO key mappings, by INFO key. */
+    private final Map<String, VariantAnnotationBuilder.InfoKey> infoKeys;
+
+    /** Convert String to TranscriptEffect, if any. */
+    private final Converter<String, TranscriptEffect> transcriptEffectConverter;
 
 
     /**
      * Create a new VariantContext to list of Variants converter with the specified header.
+     * ANN values are carried through as attributes.
      *
      * @param header header, must not be null
      */
@@ -54,7 +73,25 @@ public final class VariantContextToVariants extends AbstractConverter<VariantCon
         super(VariantContext.class, List.class);
 
         checkNotNull(header);
-        this.header = header;
+        this.infoKeys = VariantAnnotationBuilder.infoKeys(header, false);
+        this.transcriptEffectConverter = null;
+    }
+
+    /**
+     * Create a new VariantContext to list of Variants converter with the specified header
+     * and String to TranscriptEffect converter for ANN values.
+     *
+     * @param header header, must not be null
+     * @param transcriptEffectConverter convert String to TranscriptEffect, must not be null
+     */
+    public VariantContextToVariants(final VCFHeader header,
+                                    final Converter<String, TranscriptEffect> transcriptEffectConverter) {
+        super(VariantContext.class, List.class);
+
+        checkNotNull(header);
+        checkNotNull(transcriptEffectConverter);
+        this.infoKeys = VariantAnnotationBuilder.infoKeys(header, true);
+        this.transcriptEffectConverter = transcriptEffectConverter;
     }
 
 
@@ -68,6 +105,48 @@ public final class VariantContextToVariants extends AbstractConverter<VariantCon
             return null;
         }
 
-        return null;
+        List<Allele> alternateAlleles = variantContext.getAlternateAlleles();
+        int n = alternateAlleles.size();
+        String[] alternates = new String[Math.max(1, n)];
+        for (int i = 0; i < n; i++) {
+            alternates[i] = alternateAlleles.get(i).getDisplayString();
+        }
+
+        VariantAnnotationBuilder annotations = new VariantAnnotationBuilder(n, transcriptEffectConverter);
+        if (variantContext.getAttributes() != null) {
+            for (Map.Entry<String, Object> entry : variantContext.getAttributes().entrySet()) {
+                VariantAnnotationBuilder.InfoKey infoKey = infoKeys.get(entry.getKey());
+                if (infoKey == null) {
+                    infoKey = VariantAnnotationBuilder.InfoKey.attribute(entry.getKey());
+                }
+                try {
+                    annotations.add(infoKey, entry.getValue(), alternates, stringency, logger);
+                }
+                catch (IllegalArgumentException e) {
+                    warnOrThrow(variantContext, "could not convert INFO key " + infoKey.name + ", caught " + e.getMessage(), e, stringency, logger);
+                }
+            }
+        }
+
+        Variant.Builder builder = Variant.newBuilder()
+            .setReferenceName(variantContext.getContig())
+            .setStart(Long.valueOf(variantContext.getStart() - 1L))
+            .setEnd(Long.valueOf(variantContext.getEnd()))
+            .setNames(variantContext.hasID() ? Collections.unmodifiableList(VariantAnnotationBuilder.split(variantContext.getID(), ';')) : Collections.<String>emptyList())
+            .setSplitFromMultiAllelic(n > 1)
+            .setReferenceAllele(variantContext.getReference().getDisplayString())
+            .setQuality(variantContext.hasLog10PError() ? Double.valueOf(variantContext.getPhredScaledQual()) : null)
+            .setFiltersApplied(variantContext.filtersWereApplied())
+            .setFiltersPassed(variantContext.filtersWereApplied() ? Boolean.valueOf(!variantContext.isFiltered()) : null)
+            .setFiltersFailed(variantContext.isFiltered() ? Collections.unmodifiableList(new ArrayList<String>(variantContext.getFilters())) : Collections.<String>emptyList());
+
+        List<Variant> variants = new ArrayList<Variant>(alternates.length);
+        for (int i = 0; i < alternates.length; i++) {
+            variants.add(builder
+                         .setAlternateAllele(alternates[i])
+                         .setAnnotation(annotations.build(i))
+                         .build());
+        }
+        return variants;
     }
 }
@@ -29,21 +29,31 @@ import org.bdgenomics.convert.AbstractConverter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
 
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
 import org.bdgenomics.formats.avro.Variant;
 
 import org.slf4j.Logger;
 
 /**
- * Convert a Variant to a VariantContext.
+ * Convert Variant to VariantContext.
+ *
+ * <p>
+ * VariantAnnotation fields are converted to the INFO keys reserved by the VCF specification, and
+ * VariantAnnotation attributes are carried through as INFO attributes.  Use
+ * {@link VariantContextGrouper} to merge Variants split from a multi-allelic site back into one
+ * multi-allelic VariantContext.
+ * </p>
  */
 public final class VariantToVariantContext extends AbstractConverter<Variant, VariantContext> {
 
-    /** Header. */
-    private final VCFHeader header;
+    /** Header metadata. */
+    private final SiteBuilder.Metadata metadata;
 
 
     /**
      * Create a new Variant to VariantContext converter with the specified header.
+     * Transcript effects are not converted to ANN values.
      *
      * @param header header, must not be null
      */
@@ -52,7 +62,23 @@ public final class VariantToVariantContext extends AbstractConverter<Variant, Va
         super(Variant.class, VariantContext.class);
 
         checkNotNull(header);
-        this.header = header;
+        this.metadata = new SiteBuilder.Metadata(header, null);
+    }
+
+    /**
+     * Create a new Variant to VariantContext converter with the specified header
+     * and transcript effect appender for ANN values.
+     *
+     * @param header header, must not be null
+     * @param transcriptEffectAppender transcript effect appender for ANN values, must not be null
+     */
+    public VariantToVariantContext(final VCFHeader header,
+                                   final TranscriptEffectAppender transcriptEffectAppender) {
+        super(Variant.class, VariantContext.class);
+
+        checkNotNull(header);
+        checkNotNull(transcriptEffectAppender);
+        this.metadata = new SiteBuilder.Metadata(header, transcriptEffectAppender);
     }
 
 
@@ -66,6 +92,14 @@ public final class VariantToVariantContext extends AbstractConverter<Variant, Va
             return null;
         }
 
-        return null;
+        try {
+            SiteBuilder siteBuilder = new SiteBuilder(metadata);
+            siteBuilder.add(variant);
+            return siteBuilder.build(stringency, logger);
+        }
+        catch (IllegalArgumentException e) {
+            warnOrThrow(variant, "could not build variant context, caught " + e.getMessage(), e, stringency, logger);
+            return null;
+        }
     }
 }
@@ -0,0 +1,238 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.nio.file.Path;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+import htsjdk.variant.vcf.VCFEncoder;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+import org.bdgenomics.convert.FailureAggregator;
+
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
+import org.bdgenomics.formats.avro.Variant;
+
+import org.slf4j.Logger;
+
+/**
+ * Write Variants to a BGZF compressed sites-only VCF, without creating htsjdk VariantContexts.
+ *
+ * <p>
+ * Consecutive Variants at the same site, identified by reference name, start, and reference
+ * allele, are merged back into one multi-allelic VCF line, as {@link VariantContextGrouper}
+ * merges them into one VariantContext.  Each line is appended to a reused string builder,
+ * encoded into a reused byte buffer in the ISO-8859-1 charset htsjdk VCFEncoder uses, and
+ * written to a BGZF compressed output stream.  The CHROM
+ * through INFO columns are formatted as htsjdk VCFWriter formats them, and ANN values are
+ * appended directly by the transcript effect appender, if any.  The header is written without
+ * samples.  Variants that fail conversion when the conversion stringency is lenient or silent
+ * are skipped.
+ * </p>
+ *
+ * <p>
+ * This class is not thread safe; variants must be added from a single thread.
+ * </p>
+ */
+public final class VariantVcfWriter implements Closeable {
+    /** BGZF compressed output stream. */
+    private final BlockCompressedOutputStream outputStream;
+
+    /** Site builder, reused for every site. */
+    private final SiteBuilder siteBuilder;
+
+    /** Conversion stringency. */
+    private final ConversionStringency stringency;
+
+    /** Logger. */
+    private final Logger logger;
+
+    /** Reused line. */
+    private final StringBuilder line = new StringBuilder(1024);
+
+    /** Reused line buffer. */
+    private byte[] buffer = new byte[1024];
+
+    /** True if this writer has been closed. */
+    private boolean closed = false;
+
+
+    /**
+     * Create a new Variant VCF writer and write the specified header.
+     * Transcript effects are not converted to ANN values.
+     *
+     * @param outputStream output stream, must not be null
+     * @param header header, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    public VariantVcfWriter(final OutputStream outputStream,
+                            final VCFHeader header,
+                            final ConversionStringency stringency,
+                            final Logger logger) throws IOException {
+        this(outputStream, header, null, stringency, logger);
+    }
+
+    /**
+     * Create a new Variant VCF writer with the specified transcript effect appender for
+     * ANN values and write the specified header.
+     *
+     * @param outputStream output stream, must not be null
+     * @param header header, must not be null
+     * @param transcriptEffectAppender transcript effect appender for ANN values, may be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    public VariantVcfWriter(final OutputStream outputStream,
+                            final VCFHeader header,
+                            final TranscriptEffectAppender transcriptEffectAppender,
+                            final ConversionStringency stringency,
+                            final Logger logger) throws IOException {
+        if (outputStream == null) {
+            throw new NullPointerException("outputStream must not be null");
+        }
+        if (header == null) {
+            throw new NullPointerException("header must not be null");
+        }
+        if (stringency == null) {
+            throw new NullPointerException("stringency must not be null");
+        }
+        if (logger == null) {
+            throw new NullPointerException("logger must not be null");
+        }
+        this.siteBuilder = new SiteBuilder(new SiteBuilder.Metadata(header, transcriptEffectAppender));
+        this.stringency = stringency;
+        this.logger = logger;
+        this.outputStream = new BlockCompressedOutputStream(outputStream, (Path) null);
+
+        writeHeader(header);
+    }
+
+
+    /**
+     * Add the specified variant, writing the previous site if the specified variant
+     * is not at the same site.
+     *
+     * @param variant variant to add
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public void add(final Variant variant) throws IOException {
+        if (closed) {
+            throw new IOException("writer is closed");
+        }
+        if (variant == null) {
+            warnOrThrow(variant, "must not be null", null);
+            return;
+        }
+        if (!siteBuilder.isEmpty() && !siteBuilder.isSameSite(variant)) {
+            writeSite();
+        }
+        try {
+            siteBuilder.add(variant);
+        }
+        catch (IllegalArgumentException e) {
+            warnOrThrow(variant, "could not add to site, caught " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!siteBuilder.isEmpty()) {
+                writeSite();
+            }
+        }
+        finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Write the specified header without samples, as htsjdk VCFWriter writes a VCFv4.2 header.
+     */
+    private void writeHeader(final VCFHeader header) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, VCFEncoder.VCF_CHARSET);
+        writer.write("##" + VCFHeaderVersion.VCF4_2.getFormatString() + "=" + VCFHeaderVersion.VCF4_2.getVersionString() + "\n");
+        for (VCFHeaderLine headerLine : header.getMetaDataInSortedOrder()) {
+            if (!VCFHeaderVersion.isFormatString(headerLine.getKey())) {
+                writer.write("##" + headerLine.toString() + "\n");
+            }
+        }
+        writer.write("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        writer.flush();
+    }
+
+    /**
+     * Write the current site as one VCF line and reset the site builder.
+     */
+    private void writeSite() throws IOException {
+        line.setLength(0);
+        siteBuilder.appendTo(line, stringency, logger);
+        line.append('\n');
+
+        int length = line.length();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            buffer[i] = c < 0x100 ? (byte) c : (byte) '?';
+        }
+        outputStream.write(buffer, 0, length);
+    }
+
+    /**
+     * If the conversion stringency is lenient, log a warning with the specified message
+     * or record it to the failure aggregator open for the logger, if any,
+     * or if the conversion stringency is strict, throw a ConversionException with the specified
+     * message and cause.
+     */
+    private void warnOrThrow(final Variant variant, final String message, final Throwable cause) {
+        if (stringency.isLenient()) {
+            FailureAggregator aggregator = FailureAggregator.forLogger(logger);
+            if (aggregator != null) {
+                aggregator.record(VariantVcfWriter.class, Variant.class, String.class, message, variant, cause);
+            }
+            else {
+                logger.warn("could not convert {} to {}, {}", Variant.class.toString(), String.class.toString(), message, cause);
+            }
+        }
+        else if (stringency.isStrict()) {
+            throw new ConversionException(String.format("could not convert %s to %s, %s", Variant.class.toString(), String.class.toString(), message), cause, variant, Variant.class, String.class);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+import org.bdgenomics.formats.avro.Variant;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert a VCF text format data line to a list of Variants, without an intermediate htsjdk VariantContext.
+ *
+ * <p>
+ * The INFO key mappings for the header are precomputed once per converter.  Each line is
+ * tokenized once, and only the INFO keys requested at construction are parsed, all others are
+ * skipped without creating Strings.  The END key is always read, for the end position of the
+ * site.  Columns following INFO, such as FORMAT and sample genotypes, are ignored.
+ * </p>
+ *
+ * <p>
+ * Variants are created as by {@link VariantContextToVariants}, one per alternate allele, or a single
+ * Variant with a null alternate allele for sites without alternate alleles.  Alleles are copied
+ * verbatim, without the allele validation performed by htsjdk <code>VCFCodec</code>.
+ * </p>
+ */
+public final class VcfLineToVariants extends AbstractConverter<CharSequence, List<Variant>> {
+
+    /** Number of mandatory columns. */
+    private static final int MANDATORY_COLUMNS = 8;
+
+    /** END INFO key. */
+    private static final String END = "END";
+
+    /** INFO key mappings, by INFO key. */
+    private final Map<String, VariantAnnotationBuilder.InfoKey> infoKeys;
+
+    /** Requested INFO keys, or null if all INFO keys are requested. */
+    private final String[] requestedKeys;
+
+    /** INFO key mappings for requested INFO keys, by requested INFO key index, or null if all INFO keys are requested. */
+    private final VariantAnnotationBuilder.InfoKey[] requestedInfoKeys;
+
+    /** Convert String to TranscriptEffect, if any. */
+    private final Converter<String, TranscriptEffect> transcriptEffectConverter;
+
+
+    /**
+     * Create a new VCF line to list of Variants converter with the specified header, parsing
+     * all INFO keys.  ANN values are carried through as attributes.
+     *
+     * @param header header, must not be null
+     */
+    @Inject
+    public VcfLineToVariants(@Assisted final VCFHeader header) {
+        super(CharSequence.class, List.class);
+
+        checkNotNull(header);
+        this.infoKeys = VariantAnnotationBuilder.infoKeys(header, false);
+        this.requestedKeys = null;
+        this.requestedInfoKeys = null;
+        this.transcriptEffectConverter = null;
+    }
+
+    /**
+     * Create a new VCF line to list of Variants converter with the specified header, parsing
+     * only the specified INFO keys.  ANN values, if requested, are carried through as attributes.
+     *
+     * @param header header, must not be null
+     * @param infoKeys INFO keys to parse, must not be null
+     */
+    public VcfLineToVariants(final VCFHeader header, final Collection<String> infoKeys) {
+        super(CharSequence.class, List.class);
+
+        checkNotNull(header);
+        checkNotNull(infoKeys);
+        this.infoKeys = VariantAnnotationBuilder.infoKeys(header, false);
+        this.requestedKeys = new LinkedHashSet<String>(infoKeys).toArray(new String[0]);
+        this.requestedInfoKeys = requestedInfoKeys(this.infoKeys, requestedKeys);
+        this.transcriptEffectConverter = null;
+    }
+
+    /**
+     * Create a new VCF line to list of Variants converter with the specified header, parsing
+     * only the specified INFO keys, and String to TranscriptEffect converter for ANN values.
+     *
+     * @param header header, must not be null
+     * @param infoKeys INFO keys to parse, must not be null
+     * @param transcriptEffectConverter convert String to TranscriptEffect, must not be null
+     */
+    public VcfLineToVariants(final VCFHeader header,
+                             final Collection<String> infoKeys,
+                             final Converter<String, TranscriptEffect> transcriptEffectConverter) {
+        super(CharSequence.class, List.class);
+
+        checkNotNull(header);
+        checkNotNull(infoKeys);
+        checkNotNull(transcriptEffectConverter);
+        this.infoKeys = VariantAnnotationBuilder.infoKeys(header, true);
+        this.requestedKeys = new LinkedHashSet<String>(infoKeys).toArray(new String[0]);
+        this.requestedInfoKeys = requestedInfoKeys(this.infoKeys, requestedKeys);
+        this.transcriptEffectConverter = transcriptEffectConverter;
+    }
+
+
+    @Override
+    public List<Variant> convert(final CharSequence line,
+                                 final ConversionStringency stringency,
+                                 final Logger logger) throws ConversionException {
+
+        if (line == null) {
+            warnOrThrow(line, "must not be null", null, stringency, logger);
+            return null;
+        }
+        checkNotNull(stringency, logger);
+
+        // find the end offsets of the mandatory columns
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            length--;
+        }
+        int[] ends = new int[MANDATORY_COLUMNS];
+        int column = 0;
+        for (int i = 0; i < length && column < MANDATORY_COLUMNS; i++) {
+            if (line.charAt(i) == '\t') {
+                ends[column++] = i;
+            }
+        }
+        if (column == MANDATORY_COLUMNS - 1) {
+            ends[column++] = length;
+        }
+        if (column < MANDATORY_COLUMNS) {
+            warnOrThrow(line, "expected at least " + MANDATORY_COLUMNS + " tab-delimited columns", null, stringency, logger);
+            return null;
+        }
+
+        long start;
+        Double quality = null;
+        try {
+            start = SamLineToAlignment.parseLong(line, ends[0] + 1, ends[1]) - 1L;
+            if (!isMissing(line, ends[4] + 1, ends[5])) {
+                quality = Double.valueOf(line.subSequence(ends[4] + 1, ends[5]).toString());
+            }
+        }
+        catch (NumberFormatException e) {
+            warnOrThrow(line, "could not parse number", e, stringency, logger);
+            return null;
+        }
+        if (start < 0L) {
+            warnOrThrow(line, "position must be greater than zero", null, stringency, logger);
+            return null;
+        }
+
+        String referenceAllele = line.subSequence(ends[2] + 1, ends[3]).toString();
+        String[] alternates = isMissing(line, ends[3] + 1, ends[4]) ? new String[1] : split(line, ends[3] + 1, ends[4], ',').toArray(new String[0]);
+        int n = isMissing(line, ends[3] + 1, ends[4]) ? 0 : alternates.length;
+
+        // parse requested INFO keys, and END
+        long end = start + referenceAllele.length();
+        VariantAnnotationBuilder annotations = new VariantAnnotationBuilder(n, transcriptEffectConverter);
+        if (!isMissing(line, ends[6] + 1, ends[7])) {
+            int keyStart = ends[6] + 1;
+            while (keyStart < ends[7]) {
+                int keyEnd = keyStart;
+                while (keyEnd < ends[7] && line.charAt(keyEnd) != '=' && line.charAt(keyEnd) != ';') {
+                    keyEnd++;
+                }
+                int valueEnd = keyEnd;
+                while (valueEnd < ends[7] && line.charAt(valueEnd) != ';') {
+                    valueEnd++;
+                }
+                boolean flag = keyEnd == valueEnd;
+
+                if (!flag && regionEquals(line, keyStart, keyEnd, END)) {
+                    try {
+                        end = SamLineToAlignment.parseLong(line, keyEnd + 1, valueEnd);
+                    }
+                    catch (NumberFormatException e) {
+                        warnOrThrow(line, "could not parse END value", e, stringency, logger);
+                        return null;
+                    }
+                }
+
+                VariantAnnotationBuilder.InfoKey infoKey = infoKey(line, keyStart, keyEnd);
+                if (infoKey != null) {
+                    Object value = flag ? Boolean.TRUE : value(line, keyEnd + 1, valueEnd);
+                    try {
+                        annotations.add(infoKey, value, alternates, stringency, logger);
+                    }
+                    catch (IllegalArgumentException e) {
+                        warnOrThrow(line, "could not convert INFO key " + infoKey.name + ", caught " + e.getMessage(), e, stringency, logger);
+                    }
+                }
+                keyStart = valueEnd + 1;
+            }
+        }
+
+        List<String> names = isMissing(line, ends[1] + 1, ends[2]) ? Collections.<String>emptyList() : Collections.unmodifiableList(split(line, ends[1] + 1, ends[2], ';'));
+        boolean filtersApplied = !isMissing(line, ends[5] + 1, ends[6]);
+        boolean filtersPassed = filtersApplied && regionEquals(line, ends[5] + 1, ends[6], "PASS");
+        List<String> filtersFailed = filtersApplied && !filtersPassed ? Collections.unmodifiableList(split(line, ends[5] + 1, ends[6], ';')) : Collections.<String>emptyList();
+
+        Variant.Builder builder = Variant.newBuilder()
+            .setReferenceName(line.subSequence(0, ends[0]).toString())
+            .setStart(start)
+            .setEnd(end)
+            .setNames(names)
+            .setSplitFromMultiAllelic(n > 1)
+            .setReferenceAllele(referenceAllele)
+            .setQuality(quality)
+            .setFiltersApplied(filtersApplied)
+            .setFiltersPassed(filtersApplied ? Boolean.valueOf(filtersPassed) : null)
+            .setFiltersFailed(filtersFailed);
+
+        List<Variant> variants = new ArrayList<Variant>(alternates.length);
+        for (int i = 0; i < alternates.length; i++) {
+            variants.add(builder
+                         .setAlternateAllele(alternates[i])
+                         .setAnnotation(annotations.build(i))
+                         .build());
+        }
+        return variants;
+    }
+
+    /**
+     * Return the INFO key mapping for the INFO key between the specified offsets, or null
+     * if the INFO key was not requested.
+     *
+     * @param line VCF line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @return the INFO key mapping for the INFO key between the specified offsets, or null
+     *    if the INFO key was not requested
+     */
+    private VariantAnnotationBuilder.InfoKey infoKey(final CharSequence line, final int start, final int end) {
+        if (requestedKeys == null) {
+            String name = line.subSequence(start, end).toString();
+            VariantAnnotationBuilder.InfoKey infoKey = infoKeys.get(name);
+            return infoKey == null ? VariantAnnotationBuilder.InfoKey.attribute(name) : infoKey;
+        }
+        for (int i = 0; i < requestedKeys.length; i++) {
+            if (regionEquals(line, start, end, requestedKeys[i])) {
+                return requestedInfoKeys[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the INFO key mappings for the specified requested INFO keys.
+     *
+     * @param infoKeys INFO key mappings for the header, by INFO key
+     * @param requestedKeys requested INFO keys
+     * @return the INFO key mappings for the specified requested INFO keys
+     */
+    private static VariantAnnotationBuilder.InfoKey[] requestedInfoKeys(final Map<String, VariantAnnotationBuilder.InfoKey> infoKeys,
+                                                                        final String[] requestedKeys) {
+        VariantAnnotationBuilder.InfoKey[] requestedInfoKeys = new VariantAnnotationBuilder.InfoKey[requestedKeys.length];
+        for (int i = 0; i < requestedKeys.length; i++) {
+            if (requestedKeys[i] == null) {
+                throw new NullPointerException("infoKeys must not contain null");
+            }
+            VariantAnnotationBuilder.InfoKey infoKey = infoKeys.get(requestedKeys[i]);
+            requestedInfoKeys[i] = infoKey == null ? VariantAnnotationBuilder.InfoKey.attribute(requestedKeys[i]) : infoKey;
+        }
+        return requestedInfoKeys;
+    }
+
+    /**
+     * Return the INFO value between the specified offsets, a String for a single value or
+     * a List of Strings for comma-separated values, as decoded by htsjdk.
+     *
+     * @param line VCF line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @return the INFO value between the specified offsets
+     */
+    private static Object value(final CharSequence line, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == ',') {
+                return split(line, start, end, ',');
+            }
+        }
+        return line.subSequence(start, end).toString();
+    }
+
+    /**
+     * Split the region between the specified offsets on the specified separator.
+     *
+     * @param line VCF line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @param separator separator
+     * @return the region between the specified offsets split on the specified separator
+     */
+    private static List<String> split(final CharSequence line, final int start, final int end, final char separator) {
+        List<String> tokens = new ArrayList<String>(2);
+        int tokenStart = start;
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) == separator) {
+                tokens.add(line.subSequence(tokenStart, i).toString());
+                tokenStart = i + 1;
+            }
+        }
+        tokens.add(line.subSequence(tokenStart, end).toString());
+        return tokens;
+    }
+
+    /**
+     * Return true if the column between the specified offsets is missing, <code>.</code>.
+     *
+     * @param line VCF line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @return true if the column between the specified offsets is missing
+     */
+    private static boolean isMissing(final CharSequence line, final int start, final int end) {
+        return end - start == 1 && line.charAt(start) == '.';
+    }
+
+    /**
+     * Return true if the region between the specified offsets is equal to the specified value.
+     *
+     * @param line VCF line
+     * @param start start offset, inclusive
+     * @param end end offset, exclusive
+     * @param value value
+     * @return true if the region between the specified offsets is equal to the specified value
+     */
+    private static boolean regionEquals(final CharSequence line, final int start, final int end, final String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0, size = value.length(); i < size; i++) {
+            if (line.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
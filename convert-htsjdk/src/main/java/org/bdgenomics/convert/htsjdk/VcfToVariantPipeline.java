@@ -0,0 +1,465 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.inject.Inject;
+
+import com.google.inject.assistedinject.Assisted;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.IOUtil;
+
+import htsjdk.tribble.TribbleException;
+
+import htsjdk.tribble.readers.AsciiLineReader;
+import htsjdk.tribble.readers.AsciiLineReaderIterator;
+
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFFileReader;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.Variant;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert a VCF or BCF file to Avro container files of Variant and Genotype records.
+ *
+ * <p>
+ * VCF lines are read on the calling thread and decoded in parallel batches, each converter
+ * thread with its own VCFCodec, and converted with the VariantContext to list of Variants and
+ * VariantContext to list of Genotypes converters created by their factories.  BCF records are
+ * decoded on the calling thread and converted in parallel batches.  Variants and Genotypes are
+ * written in input order.  At most two batches per converter thread are in flight at once, and
+ * batches hold at most <code>MAX_GENOTYPES_PER_BATCH</code> sample genotypes, so the number of
+ * sites per batch is reduced for files with many samples to bound memory use.  Sites that fail conversion
+ * when the conversion stringency is lenient or silent are skipped; pipeline statistics count
+ * sites, not Variant or Genotype records.
+ * </p>
+ */
+public final class VcfToVariantPipeline {
+
+    /** Default number of sites per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** Maximum number of sample genotypes per batch, that is sites per batch times samples in the header. */
+    public static final int MAX_GENOTYPES_PER_BATCH = 100000;
+
+    /** Factory for VariantContext to list of Variants converters. */
+    private final VariantContextToVariantsFactory variantsFactory;
+
+    /** Factory for VariantContext to list of Genotypes converters. */
+    private final VariantContextToGenotypesFactory genotypesFactory;
+
+    /** Number of converter threads. */
+    private final int threads;
+
+    /** Number of sites per batch. */
+    private final int batchSize;
+
+
+    /**
+     * Create a new VCF to Variant pipeline with the specified number of converter threads and batch size.
+     *
+     * @param variantsFactory factory for VariantContext to list of Variants converters, must not be null
+     * @param genotypesFactory factory for VariantContext to list of Genotypes converters, must not be null
+     * @param threads number of converter threads, must be at least one
+     * @param batchSize number of sites per batch, must be at least one, reduced for files
+     *    with more than <code>MAX_GENOTYPES_PER_BATCH / batchSize</code> samples
+     */
+    @Inject
+    public VcfToVariantPipeline(final VariantContextToVariantsFactory variantsFactory,
+                                final VariantContextToGenotypesFactory genotypesFactory,
+                                @Assisted("threads") final int threads,
+                                @Assisted("batchSize") final int batchSize) {
+        if (variantsFactory == null) {
+            throw new NullPointerException("variantsFactory must not be null");
+        }
+        if (genotypesFactory == null) {
+            throw new NullPointerException("genotypesFactory must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least one, was " + threads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least one, was " + batchSize);
+        }
+        this.variantsFactory = variantsFactory;
+        this.genotypesFactory = genotypesFactory;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Convert the specified VCF or BCF file to the specified uncompressed Avro container files.
+     *
+     * @param input input file, must not be null
+     * @param variantsOutput Variant output file, must not be null
+     * @param genotypesOutput Genotype output file, if null Genotypes are not converted
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final File input,
+                                      final File variantsOutput,
+                                      final File genotypesOutput,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        return convert(input, variantsOutput, genotypesOutput, CodecFactory.nullCodec(), stringency, logger);
+    }
+
+    /**
+     * Convert the specified VCF or BCF file to the specified Avro container files.  Files
+     * with a <code>.bcf</code> extension are read as BCF, other files are read as VCF,
+     * optionally gzip or BGZF compressed.
+     *
+     * @param input input file, must not be null
+     * @param variantsOutput Variant output file, must not be null
+     * @param genotypesOutput Genotype output file, if null Genotypes are not converted
+     * @param codec Avro container file codec, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final File input,
+                                      final File variantsOutput,
+                                      final File genotypesOutput,
+                                      final CodecFactory codec,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        if (input == null) {
+            throw new NullPointerException("input must not be null");
+        }
+        if (variantsOutput == null) {
+            throw new NullPointerException("variantsOutput must not be null");
+        }
+        checkNotNull(codec, stringency, logger);
+
+        if (input.getName().endsWith(".bcf")) {
+            try (VCFFileReader reader = new VCFFileReader(input, false);
+                 CloseableIterator<VariantContext> iterator = reader.iterator();
+                 DataFileWriter<Variant> variantWriter = createVariantWriter(codec);
+                 DataFileWriter<Genotype> genotypeWriter = genotypesOutput == null ? null : createGenotypeWriter(codec)) {
+
+                variantWriter.create(Variant.getClassSchema(), variantsOutput);
+                if (genotypeWriter != null) {
+                    genotypeWriter.create(Genotype.getClassSchema(), genotypesOutput);
+                }
+                VCFHeader header = reader.getFileHeader();
+                return run("bcf-to-variant", header, new DecodedGenotypesIterator(iterator), new VariantContextToSite(header, genotypeWriter != null), variantWriter, genotypeWriter, stringency, logger);
+            }
+        }
+        try (InputStream inputStream = IOUtil.openFileForReading(input);
+             DataFileWriter<Variant> variantWriter = createVariantWriter(codec);
+             DataFileWriter<Genotype> genotypeWriter = genotypesOutput == null ? null : createGenotypeWriter(codec)) {
+
+            variantWriter.create(Variant.getClassSchema(), variantsOutput);
+            if (genotypeWriter != null) {
+                genotypeWriter.create(Genotype.getClassSchema(), genotypesOutput);
+            }
+            return run(inputStream, variantWriter, genotypeWriter, stringency, logger);
+        }
+    }
+
+    /**
+     * Convert the VCF text read from the specified input stream to Avro container files written to
+     * the specified output streams.  The input stream must already be decompressed.  The output streams
+     * are closed on return.
+     *
+     * @param inputStream VCF input stream, must not be null
+     * @param variantsOutputStream Variant output stream, must not be null
+     * @param genotypesOutputStream Genotype output stream, if null Genotypes are not converted
+     * @param codec Avro container file codec, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return statistics for this run
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    public PipelineStatistics convert(final InputStream inputStream,
+                                      final OutputStream variantsOutputStream,
+                                      final OutputStream genotypesOutputStream,
+                                      final CodecFactory codec,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) throws IOException {
+        if (inputStream == null) {
+            throw new NullPointerException("inputStream must not be null");
+        }
+        if (variantsOutputStream == null) {
+            throw new NullPointerException("variantsOutputStream must not be null");
+        }
+        checkNotNull(codec, stringency, logger);
+
+        try (DataFileWriter<Variant> variantWriter = createVariantWriter(codec);
+             DataFileWriter<Genotype> genotypeWriter = genotypesOutputStream == null ? null : createGenotypeWriter(codec)) {
+
+            variantWriter.create(Variant.getClassSchema(), variantsOutputStream);
+            if (genotypeWriter != null) {
+                genotypeWriter.create(Genotype.getClassSchema(), genotypesOutputStream);
+            }
+            return run(inputStream, variantWriter, genotypeWriter, stringency, logger);
+        }
+    }
+
+    private PipelineStatistics run(final InputStream inputStream,
+                                   final DataFileWriter<Variant> variantWriter,
+                                   final DataFileWriter<Genotype> genotypeWriter,
+                                   final ConversionStringency stringency,
+                                   final Logger logger) throws IOException {
+
+        AsciiLineReaderIterator lines = new AsciiLineReaderIterator(AsciiLineReader.from(inputStream));
+        VCFCodec codec = new VCFCodec();
+        VCFHeader header;
+        try {
+            header = (VCFHeader) codec.readActualHeader(lines);
+        }
+        catch (TribbleException e) {
+            throw new IOException("could not read VCF header, caught " + e.getMessage(), e);
+        }
+        VariantContextToSite siteConverter = new VariantContextToSite(header, genotypeWriter != null);
+        return run("vcf-to-variant", header, lines, new LineToSite(header, codec.getVersion(), siteConverter), variantWriter, genotypeWriter, stringency, logger);
+    }
+
+    private <S> PipelineStatistics run(final String name,
+                                       final VCFHeader header,
+                                       final Iterator<? extends S> source,
+                                       final Converter<S, Site> converter,
+                                       final DataFileWriter<Variant> variantWriter,
+                                       final DataFileWriter<Genotype> genotypeWriter,
+                                       final ConversionStringency stringency,
+                                       final Logger logger) throws IOException {
+
+        return new BatchPipeline<S, Site>(name, threads, batchSize(header))
+            .run(source, converter, site -> {
+                    for (int i = 0, size = site.variants.size(); i < size; i++) {
+                        variantWriter.append(site.variants.get(i));
+                    }
+                    if (genotypeWriter != null) {
+                        for (int i = 0, size = site.genotypes.size(); i < size; i++) {
+                            genotypeWriter.append(site.genotypes.get(i));
+                        }
+                    }
+                }, stringency, logger);
+    }
+
+    /**
+     * Return the number of sites per batch for the specified header.  VCF lines and BCF records
+     * hold every sample column whether or not Genotypes are converted, so the number of sites
+     * is limited by the number of samples in the header.
+     */
+    int batchSize(final VCFHeader header) {
+        int samples = header.getNGenotypeSamples();
+        return samples == 0 ? batchSize : Math.max(1, Math.min(batchSize, MAX_GENOTYPES_PER_BATCH / samples));
+    }
+
+    private static DataFileWriter<Variant> createVariantWriter(final CodecFactory codec) {
+        DataFileWriter<Variant> writer = new DataFileWriter<Variant>(new SpecificDatumWriter<Variant>(Variant.class));
+        writer.setCodec(codec);
+        return writer;
+    }
+
+    private static DataFileWriter<Genotype> createGenotypeWriter(final CodecFactory codec) {
+        DataFileWriter<Genotype> writer = new DataFileWriter<Genotype>(new SpecificDatumWriter<Genotype>(Genotype.class));
+        writer.setCodec(codec);
+        return writer;
+    }
+
+    private static void checkNotNull(final CodecFactory codec, final ConversionStringency stringency, final Logger logger) {
+        if (codec == null) {
+            throw new NullPointerException("codec must not be null");
+        }
+        if (stringency == null) {
+            throw new NullPointerException("stringency must not be null");
+        }
+        if (logger == null) {
+            throw new NullPointerException("logger must not be null");
+        }
+    }
+
+
+    /**
+     * Variants and Genotypes converted from one site.
+     */
+    static final class Site {
+        /** Variants, one per alternate allele. */
+        final List<Variant> variants;
+
+        /** Genotypes, without those that failed conversion. */
+        final List<Genotype> genotypes;
+
+
+        Site(final List<Variant> variants, final List<Genotype> genotypes) {
+            this.variants = variants;
+            this.genotypes = genotypes;
+        }
+    }
+
+    /**
+     * Convert VariantContext to Site, fully converting Genotypes on the calling converter thread.
+     */
+    final class VariantContextToSite extends AbstractConverter<VariantContext, Site> {
+        /** Convert VariantContext to a list of Variants. */
+        private final Converter<VariantContext, List<Variant>> variantsConverter;
+
+        /** Convert VariantContext to a list of Genotypes, if any. */
+        private final Converter<VariantContext, List<Genotype>> genotypesConverter;
+
+
+        VariantContextToSite(final VCFHeader header, final boolean genotypes) {
+            super(VariantContext.class, Site.class);
+            this.variantsConverter = variantsFactory.create(header);
+            this.genotypesConverter = genotypes ? genotypesFactory.create(header) : null;
+        }
+
+
+        @Override
+        public Site convert(final VariantContext variantContext,
+                            final ConversionStringency stringency,
+                            final Logger logger) throws ConversionException {
+
+            if (variantContext == null) {
+                warnOrThrow(variantContext, "must not be null", null, stringency, logger);
+                return null;
+            }
+            List<Variant> variants = variantsConverter.convert(variantContext, stringency, logger);
+            if (variants == null) {
+                return null;
+            }
+            if (genotypesConverter == null) {
+                return new Site(variants, Collections.<Genotype>emptyList());
+            }
+            List<Genotype> lazyGenotypes = genotypesConverter.convert(variantContext, stringency, logger);
+            if (lazyGenotypes == null) {
+                return null;
+            }
+            List<Genotype> genotypes = new ArrayList<Genotype>(lazyGenotypes.size());
+            for (int i = 0, size = lazyGenotypes.size(); i < size; i++) {
+                Genotype genotype = lazyGenotypes.get(i);
+                if (genotype != null) {
+                    genotypes.add(genotype);
+                }
+            }
+            return new Site(variants, genotypes);
+        }
+    }
+
+    /**
+     * Convert VCF line to Site, decoding with one VCFCodec per converter thread.
+     */
+    static final class LineToSite extends AbstractConverter<String, Site> {
+        /** VCF codec per converter thread. */
+        private final ThreadLocal<VCFCodec> codecs;
+
+        /** Convert VariantContext to Site. */
+        private final Converter<VariantContext, Site> siteConverter;
+
+
+        LineToSite(final VCFHeader header, final VCFHeaderVersion version, final Converter<VariantContext, Site> siteConverter) {
+            super(String.class, Site.class);
+            this.codecs = ThreadLocal.withInitial(() -> {
+                    VCFCodec codec = new VCFCodec();
+                    codec.setVCFHeader(header, version);
+                    return codec;
+                });
+            this.siteConverter = siteConverter;
+        }
+
+
+        @Override
+        public Site convert(final String line,
+                            final ConversionStringency stringency,
+                            final Logger logger) throws ConversionException {
+
+            if (line == null) {
+                warnOrThrow(line, "must not be null", null, stringency, logger);
+                return null;
+            }
+            if (line.isEmpty()) {
+                return null;
+            }
+            VariantContext variantContext;
+            try {
+                variantContext = codecs.get().decode(line);
+            }
+            catch (TribbleException | IllegalArgumentException e) {
+                warnOrThrow(line, "could not decode VCF line, caught " + e.getMessage(), e, stringency, logger);
+                return null;
+            }
+            return siteConverter.convert(variantContext, stringency, logger);
+        }
+    }
+
+    /**
+     * Iterator that decodes lazy genotypes on the reading thread, since BCF genotype decoding
+     * shares state with the codec that read the record.
+     */
+    private static final class DecodedGenotypesIterator implements Iterator<VariantContext> {
+        /** Source iterator. */
+        private final Iterator<VariantContext> source;
+
+
+        DecodedGenotypesIterator(final Iterator<VariantContext> source) {
+            this.source = source;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return source.hasNext();
+        }
+
+        @Override
+        public VariantContext next() {
+            VariantContext variantContext = source.next();
+            if (variantContext.getGenotypes() instanceof LazyGenotypesContext) {
+                ((LazyGenotypesContext) variantContext.getGenotypes()).decode();
+            }
+            return variantContext;
+        }
+    }
+}
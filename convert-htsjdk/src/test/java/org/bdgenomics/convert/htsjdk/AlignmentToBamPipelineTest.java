@@ -0,0 +1,285 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+
+import org.apache.avro.file.DataFileWriter;
+
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.junit.rules.TemporaryFolder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for AlignmentToBamPipeline.
+ */
+public final class AlignmentToBamPipelineTest {
+    private final Logger logger = LoggerFactory.getLogger(AlignmentToBamPipelineTest.class);
+    private AlignmentToSamRecordFactory factory;
+    private SAMFileHeader header;
+    private List<SAMRecord> records;
+    private List<Alignment> alignments;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        factory = header -> new AlignmentToSamRecord(header);
+
+        header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("2", 3000000));
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
+        // enough records to span many BGZF blocks
+        Random random = new Random(42L);
+        records = new ArrayList<SAMRecord>();
+        for (int i = 0; i < 5000; i++) {
+            SAMRecord record = new SAMRecord(header);
+            record.setReadName("read" + i);
+            if (i < 4900) {
+                record.setReferenceName(i < 2500 ? "1" : "2");
+                record.setAlignmentStart(1000 + (i % 2500) * 100);
+                record.setMappingQuality(60);
+                record.setCigarString("100M");
+            }
+            else {
+                record.setReadUnmappedFlag(true);
+            }
+            StringBuilder bases = new StringBuilder(100);
+            StringBuilder qualities = new StringBuilder(100);
+            for (int j = 0; j < 100; j++) {
+                bases.append("ACGT".charAt(random.nextInt(4)));
+                qualities.append((char) (33 + random.nextInt(40)));
+            }
+            record.setReadString(bases.toString());
+            record.setBaseQualityString(qualities.toString());
+            record.setAttribute("RG", "rg1");
+            record.setAttribute("NM", i % 3);
+            records.add(record);
+        }
+
+        Converter<SAMRecord, Alignment> samRecordToAlignment = new SamRecordToAlignment();
+        alignments = new ArrayList<Alignment>();
+        for (SAMRecord record : records) {
+            alignments.add(samRecordToAlignment.convert(record, ConversionStringency.STRICT, logger));
+        }
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(new AlignmentToBamPipeline(factory, 1, AlignmentToBamPipeline.DEFAULT_BATCH_SIZE));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullFactory() {
+        new AlignmentToBamPipeline(null, 1, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroThreads() {
+        new AlignmentToBamPipeline(factory, 0, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroBatchSize() {
+        new AlignmentToBamPipeline(factory, 1, 0);
+    }
+
+    @Test
+    public void testConvertFile() throws Exception {
+        File input = temporaryFolder.newFile("test.alignments.avro");
+        try (DataFileWriter<Alignment> writer = new DataFileWriter<Alignment>(new SpecificDatumWriter<Alignment>(Alignment.class))) {
+            writer.create(Alignment.getClassSchema(), input);
+            for (Alignment alignment : alignments) {
+                writer.append(alignment);
+            }
+        }
+        File output = temporaryFolder.newFile("test.bam");
+        File index = temporaryFolder.newFile("test.bai");
+
+        PipelineStatistics statistics = new AlignmentToBamPipeline(factory, 3, 97).convert(input, header, output, index, ConversionStringency.STRICT, logger);
+        assertEquals(5000L, statistics.getRead());
+        assertEquals(5000L, statistics.getWritten());
+
+        List<String> actual = new ArrayList<String>();
+        try (SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.STRICT).open(output)) {
+            for (SAMRecord record : reader) {
+                actual.add(record.getSAMString());
+            }
+        }
+        List<String> expected = new ArrayList<String>();
+        for (SAMRecord record : records) {
+            expected.add(record.getSAMString());
+        }
+        assertEquals(expected, actual);
+
+        // index written on the fly matches the index htsjdk builds from the written file
+        File expectedIndex = temporaryFolder.newFile("expected.bai");
+        try (SamReader reader = SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(output)) {
+            BAMIndexer.createIndex(reader, expectedIndex);
+        }
+        assertArrayEquals(Files.readAllBytes(expectedIndex.toPath()), Files.readAllBytes(index.toPath()));
+
+        try (SamReader reader = SamReaderFactory.makeDefault().open(SamInputResource.of(output).index(index))) {
+            assertTrue(reader.hasIndex());
+            int count = 0;
+            try (SAMRecordIterator iterator = reader.queryOverlapping("2", 1000 + 100 * 100, 1000 + 200 * 100 - 1)) {
+                while (iterator.hasNext()) {
+                    assertEquals("2", iterator.next().getReferenceName());
+                    count++;
+                }
+            }
+            assertEquals(100, count);
+        }
+    }
+
+    @Test
+    public void testConvertByteIdentical() throws Exception {
+        byte[] sequential = convert(1, 10000);
+        assertArrayEquals(sequential, convert(2, 7));
+        assertArrayEquals(sequential, convert(4, 500));
+        assertArrayEquals(sequential, convert(8, 1));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConvertIndexNotCoordinateSorted() throws Exception {
+        header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+        new AlignmentToBamPipeline(factory, 2, 7).convert(alignments.iterator(), header, new ByteArrayOutputStream(), new ByteArrayOutputStream(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIndexNotCoordinateSortedClosesStreams() throws Exception {
+        header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+        ClosingOutputStream outputStream = new ClosingOutputStream();
+        ClosingOutputStream indexStream = new ClosingOutputStream();
+        try {
+            new AlignmentToBamPipeline(factory, 2, 7).convert(alignments.iterator(), header, outputStream, indexStream, ConversionStringency.STRICT, logger);
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(outputStream.closed);
+            assertTrue(indexStream.closed);
+        }
+    }
+
+    @Test(expected=FileNotFoundException.class)
+    public void testConvertFileIndexNotWritable() throws Exception {
+        File input = temporaryFolder.newFile("test.alignments.avro");
+        try (DataFileWriter<Alignment> writer = new DataFileWriter<Alignment>(new SpecificDatumWriter<Alignment>(Alignment.class))) {
+            writer.create(Alignment.getClassSchema(), input);
+        }
+        new AlignmentToBamPipeline(factory, 2, 7).convert(input, header, temporaryFolder.newFile("test.bam"), temporaryFolder.newFolder("test.bai"), ConversionStringency.STRICT, logger);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() throws Exception {
+        alignments.set(42, null);
+        new AlignmentToBamPipeline(factory, 2, 7).convert(alignments.iterator(), header, new ByteArrayOutputStream(), null, ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullStrictAborts() throws Exception {
+        alignments.set(4990, null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexStream = new ByteArrayOutputStream();
+        try {
+            new AlignmentToBamPipeline(factory, 2, 7).convert(alignments.iterator(), header, outputStream, indexStream, ConversionStringency.STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            byte[] bytes = outputStream.toByteArray();
+            byte[] eof = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK;
+            assertFalse(Arrays.equals(eof, Arrays.copyOfRange(bytes, bytes.length - eof.length, bytes.length)));
+        }
+    }
+
+    @Test
+    public void testConvertNullLenient() throws Exception {
+        alignments.set(42, null);
+        PipelineStatistics statistics = new AlignmentToBamPipeline(factory, 2, 7).convert(alignments.iterator(), header, new ByteArrayOutputStream(), null, ConversionStringency.LENIENT, logger);
+        assertEquals(5000L, statistics.getRead());
+        assertEquals(4999L, statistics.getWritten());
+        assertEquals(1L, statistics.getSkipped());
+    }
+
+    private byte[] convert(final int threads, final int batchSize) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new AlignmentToBamPipeline(factory, threads, batchSize).convert(alignments.iterator(), header, outputStream, null, ConversionStringency.STRICT, logger);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Byte array output stream that records whether it has been closed.
+     */
+    private static final class ClosingOutputStream extends ByteArrayOutputStream {
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
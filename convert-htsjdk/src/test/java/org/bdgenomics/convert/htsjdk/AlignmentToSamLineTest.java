@@ -0,0 +1,285 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for AlignmentToSamLine.
+ */
+public final class AlignmentToSamLineTest {
+    private final Logger logger = LoggerFactory.getLogger(AlignmentToSamLineTest.class);
+    private static final String LINE = "read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC\tIIIIIIIIII\tRG:Z:rg1\tXS:i:42";
+    private SAMFileHeader header;
+    private Converter<CharSequence, Alignment> samLineConverter;
+    private Converter<Alignment, SAMRecord> samRecordConverter;
+    private AlignmentToSamLine converter;
+
+    @Before
+    public void setUp() {
+        header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("2", 2000000));
+
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        readGroup.setLibrary("library1");
+        readGroup.setPlatformUnit("unit1");
+        header.addReadGroup(readGroup);
+
+        samLineConverter = new SamLineToAlignment(header);
+        samRecordConverter = new AlignmentToSamRecord(header);
+        converter = new AlignmentToSamLine(header);
+    }
+
+    private Alignment alignment(final String line) {
+        return samLineConverter.convert(line, STRICT, logger);
+    }
+
+    /**
+     * Assert the specified line equals the SAM text line written by htsjdk for the specified
+     * alignment, ignoring the order of optional tags.
+     */
+    private void assertSamLine(final Alignment alignment, final String line) {
+        String expected = samRecordConverter.convert(alignment, STRICT, logger).getSAMString();
+        String[] expectedColumns = expected.substring(0, expected.length() - 1).split("\t");
+        String[] columns = line.split("\t");
+        assertEquals(Arrays.asList(expectedColumns).subList(0, 11), Arrays.asList(columns).subList(0, 11));
+
+        String[] expectedTags = Arrays.copyOfRange(expectedColumns, 11, expectedColumns.length);
+        String[] tags = Arrays.copyOfRange(columns, 11, columns.length);
+        Arrays.sort(expectedTags);
+        Arrays.sort(tags);
+        assertEquals(Arrays.asList(expectedTags), Arrays.asList(tags));
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(converter);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() {
+        new AlignmentToSamLine(null);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        converter.convert(null, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(converter.convert(null, LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(converter.convert(null, SILENT, logger));
+    }
+
+    @Test
+    public void testConvert() {
+        String line = converter.convert(alignment(LINE), STRICT, logger);
+        assertEquals("read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC\tIIIIIIIIII\tLB:Z:library1\tPU:Z:unit1\tRG:Z:rg1\tXS:i:42", line);
+        assertSamLine(alignment(LINE), line);
+    }
+
+    @Test
+    public void testConvertRoundTrip() {
+        String line = "read1\t1187\t1\t100\t60\t2H3S5M1I1D1M3H\t2\t400\t-310\tACTGACTGAC\tIIIIIIIIII\tXS:i:42\tMD:Z:5A1";
+        Alignment alignment = alignment(line);
+        assertEquals(alignment, alignment(converter.convert(alignment, STRICT, logger)));
+        assertSamLine(alignment, converter.convert(alignment, STRICT, logger));
+    }
+
+    @Test
+    public void testConvertMateSameReference() {
+        Alignment alignment = alignment("read1\t65\t2\t100\t60\t10M\t=\t300\t210\tACTGACTGAC\tIIIIIIIIII");
+        String line = converter.convert(alignment, STRICT, logger);
+        assertEquals("read1\t65\t2\t100\t60\t10M\t=\t300\t210\tACTGACTGAC\tIIIIIIIIII", line);
+        assertSamLine(alignment, line);
+    }
+
+    @Test
+    public void testConvertUnmapped() {
+        Alignment alignment = alignment("read1\t4\t*\t0\t0\t*\t*\t0\t0\tACTGACTGAC\t*");
+        String line = converter.convert(alignment, STRICT, logger);
+        assertEquals("read1\t4\t*\t0\t0\t*\t*\t0\t0\tACTGACTGAC\t*", line);
+        assertSamLine(alignment, line);
+    }
+
+    @Test
+    public void testConvertFlags() {
+        Alignment alignment = alignment("read1\t3955\t1\t100\t60\t10M\t2\t300\t0\tACTGACTGAC\tIIIIIIIIII");
+        String line = converter.convert(alignment, STRICT, logger);
+        assertEquals("3955", line.split("\t")[1]);
+        assertSamLine(alignment, line);
+    }
+
+    @Test
+    public void testConvertDedicatedFields() {
+        Alignment alignment = Alignment.newBuilder()
+            .setReadName("read1")
+            .setReadMapped(true)
+            .setPrimaryAlignment(true)
+            .setReferenceName("3")
+            .setStart(99L)
+            .setCigar("10M")
+            .setMappingQuality(30)
+            .setSequence("ACTGACTGAC")
+            .setReadGroupId("rg2")
+            .setMismatchingPositions("10")
+            .setOriginalQualityScores("##########")
+            .setOriginalCigar("5M5S")
+            .setOriginalStart(49L)
+            .setAttributes("XS:i:42\tZF:f:0.75")
+            .build();
+        String line = converter.convert(alignment, STRICT, logger);
+        assertEquals("read1\t0\t3\t100\t30\t10M\t*\t0\t0\tACTGACTGAC\t*\tRG:Z:rg2\tMD:Z:10\tOQ:Z:##########\tOC:Z:5M5S\tOP:i:50\tXS:i:42\tZF:f:0.75", line);
+        assertSamLine(alignment, line);
+    }
+
+    @Test
+    public void testConvertAttributesOverrideDedicatedFields() {
+        Alignment alignment = Alignment.newBuilder()
+            .setReadName("read1")
+            .setSequence("ACTGACTGAC")
+            .setReadGroupId("rg1")
+            .setMismatchingPositions("10")
+            .setAttributes("MD:Z:5A4\tLB:Z:library2")
+            .build();
+        String line = converter.convert(alignment, STRICT, logger);
+        assertEquals("read1\t4\t*\t0\t0\t*\t*\t0\t0\tACTGACTGAC\t*\tRG:Z:rg1\tPU:Z:unit1\tMD:Z:5A4\tLB:Z:library2", line);
+        assertSamLine(alignment, line);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertMappedNullReferenceNameStrict() {
+        converter.convert(Alignment.newBuilder().setReadName("read1").setReadMapped(true).build(), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertMappedNullReferenceNameLenient() {
+        String line = converter.convert(Alignment.newBuilder().setReadName("read1").setReadMapped(true).setStart(99L).build(), LENIENT, logger);
+        assertEquals("read1\t256\t*\t100\t0\t*\t*\t0\t0\t*\t*", line);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidAttributeStrict() {
+        converter.convert(Alignment.newBuilder().setReadName("read1").setAttributes("XS:i:42\tinvalid").build(), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidAttributeLenient() {
+        String line = converter.convert(Alignment.newBuilder().setReadName("read1").setAttributes("XS:i:42\tinvalid\tXT:A:U").build(), LENIENT, logger);
+        assertEquals("read1\t4\t*\t0\t0\t*\t*\t0\t0\t*\t*\tXS:i:42\tXT:A:U", line);
+    }
+
+    @Test
+    public void testConvertAll() {
+        List<String> lines = converter.convertAll(Arrays.asList(alignment(LINE), null, alignment(LINE)), new ArrayList<String>(), SILENT, logger);
+        assertEquals(3, lines.size());
+        assertEquals(converter.convert(alignment(LINE), STRICT, logger), lines.get(0));
+        assertNull(lines.get(1));
+        assertEquals(lines.get(0), lines.get(2));
+    }
+
+    @Test
+    public void testAppendTo() {
+        StringBuilder sb = new StringBuilder("prefix\n");
+        assertSame(sb, converter.appendTo(alignment(LINE), sb, STRICT, logger));
+        assertEquals("prefix\n" + converter.convert(alignment(LINE), STRICT, logger), sb.toString());
+    }
+
+    @Test
+    public void testAppendToInvalidLenient() {
+        StringBuilder sb = new StringBuilder();
+        converter.appendTo(Alignment.newBuilder().setReadMapped(true).build(), sb, SILENT, logger);
+        assertEquals("*\t256\t*\t0\t0\t*\t*\t0\t0\t*\t*", sb.toString());
+        sb.setLength(0);
+        converter.appendTo(null, sb, SILENT, logger);
+        assertEquals("", sb.toString());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testAppendToNullStringBuilder() {
+        converter.appendTo(alignment(LINE), (StringBuilder) null, STRICT, logger);
+    }
+
+    @Test
+    public void testAppendToAppendable() throws IOException {
+        StringWriter writer = new StringWriter();
+        assertSame(writer, converter.appendTo(alignment(LINE), writer, STRICT, logger));
+        assertEquals(converter.convert(alignment(LINE), STRICT, logger), writer.toString());
+    }
+
+    @Test
+    public void testAppendAllTo() {
+        StringBuilder sb = new StringBuilder();
+        converter.appendAllTo(Arrays.asList(alignment(LINE), null, alignment(LINE)), sb, SILENT, logger);
+        String line = converter.convert(alignment(LINE), STRICT, logger);
+        assertEquals(line + "\n" + line + "\n", sb.toString());
+    }
+
+    @Test
+    public void testAppendAllToAppendable() throws IOException {
+        StringWriter writer = new StringWriter();
+        converter.appendAllTo(Arrays.asList(alignment(LINE), null, alignment(LINE)), writer, SILENT, logger);
+        String line = converter.convert(alignment(LINE), STRICT, logger);
+        assertEquals(line + "\n" + line + "\n", writer.toString());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testAppendAllToStrict() {
+        converter.appendAllTo(Arrays.asList(alignment(LINE), null), new StringBuilder(), STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testAppendAllToNullAlignments() {
+        converter.appendAllTo(null, new StringBuilder(), STRICT, logger);
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for AlignmentToSamRecord on tag-heavy alignments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlignmentToSamRecordBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(AlignmentToSamRecordBenchmark.class);
+    private static final Pattern ATTRIBUTE = Pattern.compile("([^:]{2,4}):([AifZHB]):(.*)");
+    private static final Pattern ARRAY_ATTRIBUTE = Pattern.compile("([cCiIsSf]{1},)(.*)");
+    private static final String ATTRIBUTES = "MC:Z:100M\tMQ:i:60\tAS:i:95\tXS:i:42\tNM:i:1\tBC:Z:ACGTACGT\tQT:Z:IIIIIIII\tZF:f:0.75\tZB:B:C,1,2,3,4,5,6,7,8\tZI:B:i,100,-200,300,-400";
+    private AlignmentToSamRecord alignmentConverter;
+    private Alignment alignment;
+    private SAMRecord samRecord;
+
+
+    @Setup
+    public void setUp() {
+        SAMFileHeader header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        alignmentConverter = new AlignmentToSamRecord(header);
+        samRecord = new SAMRecord(header);
+        alignment = Alignment.newBuilder()
+            .setReadName("read/1")
+            .setReadMapped(true)
+            .setReferenceName("1")
+            .setStart(99L)
+            .setCigar("100M")
+            .setMappingQuality(60)
+            .setSequence("ACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTG")
+            .setQualityScores("IIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIII")
+            .setMismatchingPositions("50A49")
+            .setAttributes(ATTRIBUTES)
+            .build();
+    }
+
+    @Benchmark
+    public SAMRecord regexDecoder() {
+        samRecord.clearAttributes();
+        for (String token : ATTRIBUTES.split("\t")) {
+            Matcher m = ATTRIBUTE.matcher(token);
+            if (m.matches()) {
+                String tagName = m.group(1);
+                String tagType = m.group(2);
+                String value = m.group(3);
+                if ("B".equals(tagType)) {
+                    m = ARRAY_ATTRIBUTE.matcher(value);
+                    if (m.matches()) {
+                        tagType = tagType + ":" + m.group(1);
+                        value = m.group(2);
+                    }
+                }
+                switch (tagType) {
+                case "i":
+                    samRecord.setAttribute(tagName, Integer.valueOf(value));
+                    break;
+                case "f":
+                    samRecord.setAttribute(tagName, Float.valueOf(value));
+                    break;
+                case "Z":
+                    samRecord.setAttribute(tagName, value);
+                    break;
+                case "B:C,": {
+                    String[] tokens = value.split(",");
+                    byte[] bytes = new byte[tokens.length];
+                    for (int i = 0; i < tokens.length; i++) {
+                        bytes[i] = Byte.valueOf(tokens[i]);
+                    }
+                    samRecord.setAttribute(tagName, bytes);
+                    break;
+                }
+                case "B:i,": {
+                    String[] tokens = value.split(",");
+                    int[] ints = new int[tokens.length];
+                    for (int i = 0; i < tokens.length; i++) {
+                        ints[i] = Integer.valueOf(tokens[i]);
+                    }
+                    samRecord.setAttribute(tagName, ints);
+                    break;
+                }
+                default:
+                    break;
+                }
+            }
+        }
+        return samRecord;
+    }
+
+    @Benchmark
+    public SAMRecord attributeDecoder() {
+        samRecord.clearAttributes();
+        for (int start = 0, length = ATTRIBUTES.length(); start <= length; ) {
+            int end = SamAttributeDecoder.end(ATTRIBUTES, start);
+            SamAttributeDecoder.decode(ATTRIBUTES, start, end, samRecord);
+            start = end + 1;
+        }
+        return samRecord;
+    }
+
+    @Benchmark
+    public SAMRecord convert() {
+        return alignmentConverter.convert(alignment, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public SAMRecord convertInto() {
+        return alignmentConverter.convertInto(alignment, samRecord, ConversionStringency.STRICT, logger);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AlignmentToSamRecordBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import java.util.concurrent.TimeUnit;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for AlignmentToSamRecord with a header of thousands of read groups and references,
+ * comparing per-record header lookups with the converter's precomputed tables.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlignmentToSamRecordReadGroupsBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(AlignmentToSamRecordReadGroupsBenchmark.class);
+    private static final int ALIGNMENTS = 1000;
+
+    @Param({"100", "10000"})
+    public int readGroups;
+
+    private SAMFileHeader header;
+    private AlignmentToSamRecord alignmentConverter;
+    private List<Alignment> alignments;
+    private SAMRecord samRecord;
+
+
+    @Setup
+    public void setUp() {
+        header = new SAMFileHeader();
+        for (int i = 0; i < 3000; i++) {
+            header.getSequenceDictionary().addSequence(new SAMSequenceRecord("contig" + i, 1000000));
+        }
+        for (int i = 0; i < readGroups; i++) {
+            SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg" + i);
+            readGroup.setLibrary("library" + (i / 10));
+            readGroup.setPlatformUnit("flowcell.lane" + i);
+            readGroup.setSample("sample" + (i / 100));
+            header.addReadGroup(readGroup);
+        }
+        alignmentConverter = new AlignmentToSamRecord(header);
+        samRecord = new SAMRecord(header);
+
+        Random random = new Random(42L);
+        alignments = new ArrayList<Alignment>(ALIGNMENTS);
+        for (int i = 0; i < ALIGNMENTS; i++) {
+            // read group ids and reference names are new strings, as when deserialized
+            alignments.add(Alignment.newBuilder()
+                .setReadName("read" + i)
+                .setReadMapped(true)
+                .setReadPaired(true)
+                .setReferenceName(new String("contig" + random.nextInt(3000)))
+                .setMateReferenceName(new String("contig" + random.nextInt(3000)))
+                .setStart(99L)
+                .setMateAlignmentStart(399L)
+                .setCigar("10M")
+                .setMappingQuality(60)
+                .setSequence("ACTGACTGAC")
+                .setQualityScores("IIIIIIIIII")
+                .setReadGroupId(new String("rg" + random.nextInt(readGroups)))
+                .build());
+        }
+    }
+
+    @Benchmark
+    public SAMRecord headerLookups() {
+        for (int i = 0; i < ALIGNMENTS; i++) {
+            Alignment alignment = alignments.get(i);
+            samRecord.setAttribute("RG", alignment.getReadGroupId());
+            SAMReadGroupRecord readGroup = header.getReadGroup(alignment.getReadGroupId());
+            samRecord.setAttribute("LB", readGroup.getLibrary());
+            samRecord.setAttribute("PU", readGroup.getPlatformUnit());
+            samRecord.setReferenceName(alignment.getReferenceName());
+            samRecord.setMateReferenceName(alignment.getMateReferenceName());
+        }
+        return samRecord;
+    }
+
+    @Benchmark
+    public SAMRecord convertInto() {
+        for (int i = 0; i < ALIGNMENTS; i++) {
+            alignmentConverter.convertInto(alignments.get(i), samRecord, ConversionStringency.STRICT, logger);
+        }
+        return samRecord;
+    }
+
+    @Benchmark
+    public List<SAMRecord> convertAll() {
+        return alignmentConverter.convertAll(alignments, new ArrayList<SAMRecord>(ALIGNMENTS), ConversionStringency.STRICT, logger);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AlignmentToSamRecordReadGroupsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -19,16 +19,27 @@ package org.bdgenomics.convert.htsjdk;
 
 import static org.bdgenomics.convert.ConversionStringency.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceRecord;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.FailureAggregator;
 
 import org.bdgenomics.formats.avro.Alignment;
 
@@ -53,6 +64,11 @@ public final class AlignmentToSamRecordTest {
         SAMSequenceRecord sequenceRecord = new SAMSequenceRecord("1", 3000000);
         header.getSequenceDictionary().addSequence(sequenceRecord);
 
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setLibrary("library1");
+        readGroup.setPlatformUnit("unit1");
+        header.addReadGroup(readGroup);
+
         converter = new AlignmentToSamRecord(header);
     }
 
@@ -117,4 +133,201 @@ public final class AlignmentToSamRecordTest {
     public void testConvert() {
         // todo
     }
+
+    @Test
+    public void testConvertAttributes() {
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, null))
+            .setAttributes("XS:i:42\tXA:A:x\tXF:f:1.5\tXZ:Z:foo\tXB:B:C,255,0,1\tXI:B:i,-1,2")
+            .build();
+
+        SAMRecord samRecord = converter.convert(alignment, STRICT, logger);
+        assertEquals(Integer.valueOf(42), samRecord.getAttribute("XS"));
+        assertEquals(Character.valueOf('x'), samRecord.getAttribute("XA"));
+        assertEquals(Float.valueOf(1.5f), samRecord.getAttribute("XF"));
+        assertEquals("foo", samRecord.getAttribute("XZ"));
+        assertTrue(samRecord.isUnsignedArrayAttribute("XB"));
+        assertArrayEquals(new int[] { -1, 2 }, (int[]) samRecord.getAttribute("XI"));
+        assertEquals(6, samRecord.getAttributes().size());
+    }
+
+    @Test
+    public void testConvertAttributesRoundTrip() {
+        String attributes = "MC:Z:10M\tMQ:i:60\tAS:i:-12\tXF:f:0.5\tBC:Z:ACGT\tQT:Z:IIII\tXB:B:C,255,0,1\tXJ:B:f,-1.5,2.0";
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, null))
+            .setAttributes(attributes)
+            .build();
+
+        SAMRecord samRecord = converter.convert(alignment, STRICT, logger);
+        // htsjdk keeps attributes ordered by binary tag
+        assertEquals(sorted(attributes), sorted(new SamRecordToAlignment().convert(samRecord, STRICT, logger).getAttributes()));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidAttributeStrict() {
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, null))
+            .setAttributes("XS:i:42\tXS:i:not a number")
+            .build();
+
+        converter.convert(alignment, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidAttributeLenient() {
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, null))
+            .setAttributes("XS:i:42\tXT:X:invalid\tXZ:Z:foo")
+            .build();
+
+        SAMRecord samRecord = converter.convert(alignment, LENIENT, logger);
+        assertEquals(Integer.valueOf(42), samRecord.getAttribute("XS"));
+        assertEquals("foo", samRecord.getAttribute("XZ"));
+        assertNull(samRecord.getAttribute("XT"));
+    }
+
+    @Test
+    public void testConvertInvalidAttributeMessage() {
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, null))
+            .setAttributes("XS:i:42\tXT:X:invalid")
+            .build();
+
+        try {
+            converter.convert(alignment, STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            assertTrue(e.getMessage().endsWith("invalid attribute: XT:X:invalid"));
+        }
+    }
+
+    @Test
+    public void testConvertInvalidAttributeAggregated() {
+        try (FailureAggregator failures = FailureAggregator.aggregate(logger)) {
+            converter.convert(Alignment.newBuilder(createAlignment("read1", 99L, null)).setAttributes("XT:X:invalid").build(), LENIENT, logger);
+            converter.convert(Alignment.newBuilder(createAlignment("read2", 99L, null)).setAttributes("XU:Y:other").build(), LENIENT, logger);
+            converter.convert(Alignment.newBuilder(createAlignment("read3", 99L, null)).setAttributes("XV:B:q,1").build(), LENIENT, logger);
+            // invalid attributes are kept with the example sources, not in the message template
+            assertEquals(1, failures.getCounts().size());
+            assertTrue(failures.getSamples().values().iterator().next().get(0).startsWith("XT:X:invalid: "));
+        }
+    }
+
+    @Test
+    public void testConvertAll() {
+        Alignment first = createAlignment("read1", 99L, "rg1");
+        Alignment second = createAlignment("read2", 199L, null);
+        Alignment third = createAlignment("read3", 299L, "rg1");
+
+        List<SAMRecord> samRecords = converter.convertAll(Arrays.asList(first, null, second, third), new ArrayList<SAMRecord>(), LENIENT, logger);
+        assertEquals(4, samRecords.size());
+        assertEquals(converter.convert(first, STRICT, logger), samRecords.get(0));
+        assertNull(samRecords.get(1));
+        assertEquals(converter.convert(second, STRICT, logger), samRecords.get(2));
+        assertEquals(converter.convert(third, STRICT, logger), samRecords.get(3));
+
+        assertEquals(100, samRecords.get(0).getAlignmentStart());
+        assertEquals("rg1", samRecords.get(0).getStringAttribute("RG"));
+        assertEquals("library1", samRecords.get(0).getStringAttribute("LB"));
+        assertEquals("unit1", samRecords.get(0).getStringAttribute("PU"));
+        assertNull(samRecords.get(2).getStringAttribute("LB"));
+        assertEquals("unit1", samRecords.get(3).getStringAttribute("PU"));
+    }
+
+    @Test
+    public void testConvertReadGroupAttributesShared() {
+        SAMRecord first = converter.convert(createAlignment("read1", 99L, new String("rg1")), STRICT, logger);
+        SAMRecord second = converter.convert(createAlignment("read2", 199L, new String("rg1")), STRICT, logger);
+        assertSame(first.getStringAttribute("RG"), second.getStringAttribute("RG"));
+        assertSame(header.getReadGroup("rg1").getId(), first.getStringAttribute("RG"));
+        assertSame(first.getStringAttribute("LB"), second.getStringAttribute("LB"));
+    }
+
+    @Test
+    public void testConvertReadGroupNotInHeader() {
+        SAMRecord samRecord = converter.convert(createAlignment("read1", 99L, "rg2"), STRICT, logger);
+        assertEquals("rg2", samRecord.getStringAttribute("RG"));
+        assertNull(samRecord.getStringAttribute("LB"));
+        assertNull(samRecord.getStringAttribute("PU"));
+    }
+
+    @Test
+    public void testConvertReferenceIndex() {
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, "rg1"))
+            .setReadPaired(true)
+            .setMateReferenceName("1")
+            .build();
+        SAMRecord samRecord = converter.convert(alignment, STRICT, logger);
+        assertEquals(Integer.valueOf(0), samRecord.getReferenceIndex());
+        assertEquals("1", samRecord.getReferenceName());
+        assertEquals(Integer.valueOf(0), samRecord.getMateReferenceIndex());
+        assertEquals("1", samRecord.getMateReferenceName());
+    }
+
+    @Test
+    public void testConvertReferenceNotInHeader() {
+        Alignment alignment = Alignment.newBuilder(createAlignment("read1", 99L, "rg1"))
+            .setReferenceName("2")
+            .build();
+        SAMRecord samRecord = converter.convert(alignment, STRICT, logger);
+        assertEquals("2", samRecord.getReferenceName());
+        assertEquals(Integer.valueOf(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX), samRecord.getReferenceIndex());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertAllNullSourceStrict() {
+        converter.convertAll(Arrays.asList(createAlignment("read1", 99L, "rg1"), null), new ArrayList<SAMRecord>(), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInto() {
+        Alignment first = Alignment.newBuilder(createAlignment("read1", 99L, "rg1"))
+            .setReadPaired(true)
+            .setMateMapped(true)
+            .setMateReferenceName("1")
+            .setMateAlignmentStart(299L)
+            .setInsertSize(210L)
+            .setMismatchingPositions("10")
+            .setReadNegativeStrand(true)
+            .build();
+        Alignment second = Alignment.newBuilder()
+            .setReadName("read2")
+            .setSequence("ACTG")
+            .build();
+
+        SAMRecord reuse = converter.convertInto(first, null, STRICT, logger);
+        assertEquals(converter.convert(first, STRICT, logger), reuse);
+
+        // reference indices are resolved lazily on new records, so compare SAM text
+        assertSame(reuse, converter.convertInto(second, reuse, STRICT, logger));
+        assertEquals(converter.convert(second, STRICT, logger).getSAMString(), reuse.getSAMString());
+        assertEquals(4, reuse.getFlags());
+        assertEquals("*", reuse.getReferenceName());
+        assertEquals("*", reuse.getMateReferenceName());
+        assertEquals(0, reuse.getInferredInsertSize());
+        assertNull(reuse.getAttribute("MD"));
+        assertNull(reuse.getAttribute("RG"));
+    }
+
+    @Test
+    public void testConvertIntoNullSourceSilent() {
+        assertNull(converter.convertInto(null, new SAMRecord(header), SILENT, logger));
+    }
+
+    private static Alignment createAlignment(final String readName, final long start, final String readGroupId) {
+        return Alignment.newBuilder()
+            .setReadName(readName)
+            .setReadMapped(true)
+            .setReferenceName("1")
+            .setStart(start)
+            .setCigar("10M")
+            .setMappingQuality(60)
+            .setSequence("ACTGACTGAC")
+            .setQualityScores("IIIIIIIIII")
+            .setReadGroupId(readGroupId)
+            .build();
+    }
+
+    private static List<String> sorted(final String attributes) {
+        List<String> tokens = Arrays.asList(attributes.split("\t"));
+        Collections.sort(tokens);
+        return tokens;
+    }
 }
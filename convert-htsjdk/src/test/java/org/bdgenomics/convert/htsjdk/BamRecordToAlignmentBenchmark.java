@@ -0,0 +1,129 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.nio.ByteBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for BamRecordToAlignment, compared with decoding a SAMRecord and converting it
+ * with SamRecordToAlignment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BamRecordToAlignmentBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(BamRecordToAlignmentBenchmark.class);
+    private BAMRecordCodec codec;
+    private BamRecordToAlignment bamRecordConverter;
+    private SamRecordToAlignment samRecordConverter;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private Alignment alignment;
+
+
+    @Setup
+    public void setUp() {
+        SAMFileHeader header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
+        SAMRecord samRecord = new SAMRecord(header);
+        samRecord.setReadName("read/1");
+        samRecord.setReferenceIndex(0);
+        samRecord.setAlignmentStart(1000);
+        samRecord.setMappingQuality(60);
+        samRecord.setReadString("ACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTG");
+        samRecord.setBaseQualityString("IIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIII");
+        samRecord.setCigarString("100M");
+        samRecord.setAttribute("RG", "rg1");
+        samRecord.setAttribute("MC", "100M");
+        samRecord.setAttribute("MQ", 60);
+        samRecord.setAttribute("AS", 95);
+        samRecord.setAttribute("XS", 42);
+        samRecord.setAttribute("NM", 1);
+        samRecord.setAttribute("MD", "50A49");
+        samRecord.setAttribute("BC", "ACGTACGT");
+        samRecord.setAttribute("ZF", 0.75f);
+        samRecord.setUnsignedArrayAttribute("ZB", new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        codec = new BAMRecordCodec(header);
+        codec.setOutputStream(outputStream);
+        codec.encode(samRecord);
+        bytes = outputStream.toByteArray();
+        buffer = ByteBuffer.wrap(bytes);
+
+        bamRecordConverter = new BamRecordToAlignment(header);
+        samRecordConverter = new SamRecordToAlignment();
+        alignment = new Alignment();
+    }
+
+    @Benchmark
+    public Alignment samRecord() {
+        codec.setInputStream(new ByteArrayInputStream(bytes));
+        return samRecordConverter.convertInto(codec.decode(), alignment, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public Alignment bamRecord() {
+        buffer.rewind();
+        return bamRecordConverter.convertInto(buffer, alignment, ConversionStringency.STRICT, logger);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BamRecordToAlignmentBenchmark.class.getSimpleName()).build()).run();
+    }
+}
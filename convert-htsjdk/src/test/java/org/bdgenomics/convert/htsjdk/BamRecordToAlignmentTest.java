@@ -0,0 +1,316 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for BamRecordToAlignment.
+ */
+public final class BamRecordToAlignmentTest {
+    private final Logger logger = LoggerFactory.getLogger(BamRecordToAlignmentTest.class);
+    private SAMFileHeader header;
+    private Converter<ByteBuffer, Alignment> converter;
+    private Converter<SAMRecord, Alignment> samRecordConverter;
+
+    @Before
+    public void setUp() {
+        header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("2", 2000000));
+
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
+        converter = new BamRecordToAlignment(header);
+        samRecordConverter = new SamRecordToAlignment();
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(converter);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() {
+        new BamRecordToAlignment(null);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        converter.convert(null, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(converter.convert(null, LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(converter.convert(null, SILENT, logger));
+    }
+
+    @Test
+    public void testConvert() {
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        Alignment alignment = converter.convert(encode(samRecord), STRICT, logger);
+        assertEquals(samRecordConverter.convert(samRecord, STRICT, logger), alignment);
+        assertEquals("read1", alignment.getReadName());
+        assertEquals("1", alignment.getReferenceName());
+        assertEquals(Long.valueOf(99L), alignment.getStart());
+        assertEquals(Long.valueOf(109L), alignment.getEnd());
+        assertEquals("ACTGACTGAC", alignment.getSequence());
+        assertEquals("IIIIIIIIII", alignment.getQualityScores());
+        assertEquals("rg1", alignment.getReadGroupId());
+        assertEquals("sample1", alignment.getReadGroupSampleId());
+        assertEquals("RG:Z:rg1\tXS:i:42", alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertPairedHardClipped() {
+        SAMRecord samRecord = createSamRecord("read1", 100, null);
+        samRecord.setCigarString("2H3S5M1I1D1M3H");
+        samRecord.setReadPairedFlag(true);
+        samRecord.setProperPairFlag(true);
+        samRecord.setSecondOfPairFlag(true);
+        samRecord.setMateNegativeStrandFlag(true);
+        samRecord.setReadNegativeStrandFlag(true);
+        samRecord.setDuplicateReadFlag(true);
+        samRecord.setMateReferenceIndex(1);
+        samRecord.setMateAlignmentStart(400);
+        samRecord.setInferredInsertSize(-310);
+
+        Alignment alignment = converter.convert(encode(samRecord), STRICT, logger);
+        assertEquals(samRecordConverter.convert(samRecord, STRICT, logger), alignment);
+        assertEquals("2H3S5M1I1D1M3H", alignment.getCigar());
+        assertEquals(Integer.valueOf(2), alignment.getBasesTrimmedFromStart());
+        assertEquals(Integer.valueOf(3), alignment.getBasesTrimmedFromEnd());
+        assertEquals(Long.valueOf(106L), alignment.getEnd());
+        assertEquals("2", alignment.getMateReferenceName());
+        assertEquals(Long.valueOf(399L), alignment.getMateAlignmentStart());
+        assertEquals(Long.valueOf(-310L), alignment.getInsertSize());
+        assertEquals(Integer.valueOf(1), alignment.getReadInFragment());
+        assertTrue(alignment.getMateNegativeStrand());
+        assertTrue(alignment.getDuplicateRead());
+    }
+
+    @Test
+    public void testConvertUnmapped() {
+        SAMRecord samRecord = new SAMRecord(header);
+        samRecord.setReadName("unmapped");
+        samRecord.setReadUnmappedFlag(true);
+        samRecord.setReadString("ACTGA");
+        samRecord.setBaseQualities(SAMRecord.NULL_QUALS);
+
+        Alignment alignment = converter.convert(encode(samRecord), STRICT, logger);
+        assertEquals(samRecordConverter.convert(samRecord, STRICT, logger), alignment);
+        assertFalse(alignment.getReadMapped());
+        assertNull(alignment.getReferenceName());
+        assertNull(alignment.getStart());
+        assertNull(alignment.getCigar());
+        assertEquals("ACTGA", alignment.getSequence());
+        assertNull(alignment.getQualityScores());
+        assertNull(alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertNoSequence() {
+        SAMRecord samRecord = createSamRecord("read1", 100, null);
+        samRecord.setReadBases(SAMRecord.NULL_SEQUENCE);
+        samRecord.setBaseQualities(SAMRecord.NULL_QUALS);
+
+        Alignment alignment = converter.convert(encode(samRecord), STRICT, logger);
+        assertEquals(samRecordConverter.convert(samRecord, STRICT, logger), alignment);
+        assertEquals("*", alignment.getSequence());
+        assertNull(alignment.getQualityScores());
+    }
+
+    @Test
+    public void testConvertTags() {
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        samRecord.setAttribute("MD", "10");
+        samRecord.setAttribute("OC", "5M1I4M");
+        samRecord.setAttribute("OP", 90);
+        samRecord.setAttribute("OQ", "##########");
+        samRecord.setAttribute("XA", 'c');
+        samRecord.setAttribute("XB", (byte) -3);
+        samRecord.setAttribute("XC", 200);
+        samRecord.setAttribute("XD", -30000);
+        samRecord.setAttribute("XE", 60000);
+        samRecord.setAttribute("XF", 3000000000L);
+        samRecord.setAttribute("XG", 0.75f);
+        samRecord.setAttribute("XH", "some text");
+        samRecord.setAttribute("XI", new byte[] { -1, 2 });
+        samRecord.setUnsignedArrayAttribute("XJ", new byte[] { -1, 2 });
+        samRecord.setAttribute("XK", new short[] { -1, 2 });
+        samRecord.setUnsignedArrayAttribute("XL", new short[] { -1, 2 });
+        samRecord.setAttribute("XM", new int[] { -1, 2 });
+        samRecord.setUnsignedArrayAttribute("XN", new int[] { -1, 2 });
+        samRecord.setAttribute("XO", new float[] { 0.5f, -1.25f });
+
+        Alignment alignment = converter.convert(encode(samRecord), STRICT, logger);
+        assertEquals(samRecordConverter.convert(samRecord, STRICT, logger), alignment);
+        assertEquals("10", alignment.getMismatchingPositions());
+        assertEquals("5M1I4M", alignment.getOriginalCigar());
+        assertEquals(Long.valueOf(89L), alignment.getOriginalStart());
+        assertEquals("##########", alignment.getOriginalQualityScores());
+        assertEquals("XA:A:c\tXB:i:-3\tXC:i:200\tXD:i:-30000\tXE:i:60000\tXF:i:3000000000\tRG:Z:rg1\tXG:f:0.75\tXH:Z:some text"
+                     + "\tXI:B:c,-1,2\tXJ:B:C,255,2\tXK:B:s,-1,2\tXL:B:S,65535,2\tXM:B:i,-1,2\tXN:B:I,4294967295,2\tXO:B:f,0.5,-1.25\tXS:i:42",
+                     alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertLongCigar() {
+        StringBuilder cigar = new StringBuilder();
+        StringBuilder read = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            cigar.append("1M1D");
+            read.append('A');
+        }
+        SAMRecord samRecord = createSamRecord("long", 100, null);
+        samRecord.setCigarString(cigar.toString());
+        samRecord.setReadString(read.toString());
+        samRecord.setBaseQualities(SAMRecord.NULL_QUALS);
+
+        Alignment alignment = converter.convert(encode(samRecord), STRICT, logger);
+        assertEquals(cigar.toString(), alignment.getCigar());
+        assertEquals(Long.valueOf(99L + 140000L), alignment.getEnd());
+        assertEquals("XS:i:42", alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertConsecutive() {
+        SAMRecord first = createSamRecord("read1", 100, "rg1");
+        SAMRecord second = createSamRecord("read2", 200, null);
+        second.setReferenceIndex(1);
+        ByteBuffer buffer = encode(first, second);
+
+        Alignment reuse = converter.convertInto(buffer, null, STRICT, logger);
+        assertEquals(samRecordConverter.convert(first, STRICT, logger), reuse);
+        assertTrue(buffer.hasRemaining());
+
+        assertSame(reuse, converter.convertInto(buffer, reuse, STRICT, logger));
+        assertEquals(samRecordConverter.convert(second, STRICT, logger), reuse);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testConvertDirectBuffer() {
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        ByteBuffer heap = encode(samRecord);
+        ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining());
+        direct.put(heap).flip();
+        assertEquals(samRecordConverter.convert(samRecord, STRICT, logger), converter.convert(direct, STRICT, logger));
+    }
+
+    @Test
+    public void testConvertRestoresByteOrder() {
+        ByteBuffer buffer = encode(createSamRecord("read1", 100, "rg1")).order(ByteOrder.BIG_ENDIAN);
+        assertNotNull(converter.convert(buffer, STRICT, logger));
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertTruncatedStrict() {
+        ByteBuffer buffer = encode(createSamRecord("read1", 100, "rg1"));
+        buffer.limit(buffer.limit() - 1);
+        converter.convert(buffer, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertTruncatedLenient() {
+        ByteBuffer buffer = encode(createSamRecord("read1", 100, "rg1"));
+        buffer.limit(2);
+        assertNull(converter.convert(buffer, LENIENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidReferenceIndexStrict() {
+        SAMFileHeader other = new SAMFileHeader();
+        other.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        SAMRecord samRecord = createSamRecord("read1", 100, null);
+        samRecord.setReferenceIndex(1);
+        new BamRecordToAlignment(other).convert(encode(samRecord), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidTagTypeLenient() {
+        ByteBuffer buffer = encode(createSamRecord("read1", 100, null));
+        // XS:C:42 is the last four bytes, replace its type
+        buffer.put(buffer.limit() - 2, (byte) 'q');
+        assertNull(converter.convert(buffer, LENIENT, logger));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private ByteBuffer encode(final SAMRecord... samRecords) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BAMRecordCodec codec = new BAMRecordCodec(header);
+        codec.setOutputStream(outputStream);
+        for (SAMRecord samRecord : samRecords) {
+            codec.encode(samRecord);
+        }
+        return ByteBuffer.wrap(outputStream.toByteArray());
+    }
+
+    private SAMRecord createSamRecord(final String readName, final int start, final String readGroupId) {
+        SAMRecord samRecord = new SAMRecord(header);
+        samRecord.setReadName(readName);
+        samRecord.setReferenceIndex(0);
+        samRecord.setAlignmentStart(start);
+        samRecord.setCigarString("10M");
+        samRecord.setMappingQuality(60);
+        samRecord.setReadString("ACTGACTGAC");
+        samRecord.setBaseQualityString("IIIIIIIIII");
+        samRecord.setAttribute("XS", 42);
+        if (readGroupId != null) {
+            samRecord.setAttribute("RG", readGroupId);
+        }
+        return samRecord;
+    }
+}
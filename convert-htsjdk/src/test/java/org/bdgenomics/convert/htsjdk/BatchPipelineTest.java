@@ -0,0 +1,189 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.CountDownLatch;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for BatchPipeline.
+ */
+public final class BatchPipelineTest {
+    private final Logger logger = LoggerFactory.getLogger(BatchPipelineTest.class);
+    private Converter<String, Integer> converter;
+    private List<String> sources;
+    private List<Integer> expected;
+
+    @Before
+    public void setUp() {
+        converter = new StringToInteger();
+        sources = new ArrayList<String>();
+        expected = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 42) {
+                sources.add("not a number");
+            }
+            else {
+                sources.add(String.valueOf(i));
+                expected.add(i);
+            }
+        }
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullName() {
+        new BatchPipeline<String, Integer>(null, 1, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroThreads() {
+        new BatchPipeline<String, Integer>("test", 0, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroBatchSize() {
+        new BatchPipeline<String, Integer>("test", 1, 0);
+    }
+
+    @Test
+    public void testRunSequential() throws Exception {
+        List<Integer> targets = new ArrayList<Integer>();
+        PipelineStatistics statistics = new BatchPipeline<String, Integer>("test", 1, 7).run(sources.iterator(), converter, targets::add, ConversionStringency.SILENT, logger);
+        assertEquals(expected, targets);
+        assertEquals(1000L, statistics.getRead());
+        assertEquals(990L, statistics.getWritten());
+        assertEquals(10L, statistics.getSkipped());
+    }
+
+    @Test
+    public void testRunParallel() throws Exception {
+        List<Integer> targets = new ArrayList<Integer>();
+        PipelineStatistics statistics = new BatchPipeline<String, Integer>("test", 4, 7).run(sources.iterator(), converter, targets::add, ConversionStringency.SILENT, logger);
+        assertEquals(expected, targets);
+        assertEquals(1000L, statistics.getRead());
+        assertEquals(990L, statistics.getWritten());
+        assertEquals(10L, statistics.getSkipped());
+    }
+
+    @Test
+    public void testRunParallelEmpty() throws Exception {
+        List<Integer> targets = new ArrayList<Integer>();
+        PipelineStatistics statistics = new BatchPipeline<String, Integer>("test", 4, 7).run(new ArrayList<String>().iterator(), converter, targets::add, ConversionStringency.STRICT, logger);
+        assertEquals(0, targets.size());
+        assertEquals(0L, statistics.getRead());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testRunParallelStrict() throws Exception {
+        new BatchPipeline<String, Integer>("test", 4, 7).run(sources.iterator(), converter, record -> { }, ConversionStringency.STRICT, logger);
+    }
+
+    @Test(expected=IOException.class)
+    public void testRunParallelSinkFails() throws Exception {
+        new BatchPipeline<String, Integer>("test", 4, 7).run(sources.iterator(), converter, record -> { throw new IOException("sink failed"); }, ConversionStringency.SILENT, logger);
+    }
+
+    @Test
+    public void testRunParallelSourceFailsWaitsForWriter() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        AtomicBoolean inWrite = new AtomicBoolean();
+        Iterator<String> source = new Iterator<String>() {
+                private boolean first = true;
+
+                @Override
+                public boolean hasNext() {
+                    if (first) {
+                        return true;
+                    }
+                    try {
+                        writing.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("source failed");
+                }
+
+                @Override
+                public String next() {
+                    first = false;
+                    return "42";
+                }
+            };
+        BatchPipeline.Sink<Integer> sink = record -> {
+            inWrite.set(true);
+            writing.countDown();
+            // ignore interrupts, as a blocking write to a stream might
+            long end = System.nanoTime() + 200000000L;
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            inWrite.set(false);
+        };
+        try {
+            new BatchPipeline<String, Integer>("test", 4, 1).run(source, converter, sink, ConversionStringency.STRICT, logger);
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            assertFalse(inWrite.get());
+        }
+    }
+
+    /**
+     * Convert String to Integer.
+     */
+    static final class StringToInteger extends AbstractConverter<String, Integer> {
+
+        StringToInteger() {
+            super(String.class, Integer.class);
+        }
+
+        @Override
+        public Integer convert(final String value, final ConversionStringency stringency, final Logger logger) {
+            try {
+                return Integer.valueOf(value);
+            }
+            catch (NumberFormatException e) {
+                warnOrThrow(value, "could not parse integer", e, stringency, logger);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Reference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for CachingHeaderConverter.
+ */
+public final class CachingHeaderConverterTest {
+    private final Logger logger = LoggerFactory.getLogger(CachingHeaderConverterTest.class);
+
+    SAMFileHeader header;
+    CountingConverter countingConverter;
+    CachingHeaderConverter<SAMFileHeader, Reference> converter;
+
+    @Before
+    public void setUp() {
+        header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 249250621));
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("2", 243199373));
+        countingConverter = new CountingConverter();
+        converter = new CachingHeaderConverter<SAMFileHeader, Reference>(countingConverter);
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(converter);
+        assertEquals(SAMFileHeader.class, converter.getSourceClass());
+        assertEquals(List.class, converter.getTargetClass());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullConverter() {
+        new CachingHeaderConverter<SAMFileHeader, Reference>(null);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        converter.convert(null, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(converter.convert(null, LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(converter.convert(null, SILENT, logger));
+    }
+
+    @Test
+    public void testConvert() {
+        List<Reference> references = converter.convert(header, STRICT, logger);
+        assertEquals(2, references.size());
+        assertEquals("1", references.get(0).getName());
+        assertEquals(references, converter.convert(header, STRICT, logger));
+        assertEquals(1, countingConverter.count.get());
+        assertEquals(1L, converter.size());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testConvertUnmodifiable() {
+        converter.convert(header, STRICT, logger).clear();
+    }
+
+    @Test
+    public void testConvertCopies() {
+        List<Reference> references = converter.convert(header, STRICT, logger);
+        references.get(0).setName("modified");
+        List<Reference> copies = converter.convert(header, STRICT, logger);
+        assertNotSame(references.get(0), copies.get(0));
+        assertEquals("1", copies.get(0).getName());
+        assertEquals(1, countingConverter.count.get());
+    }
+
+    @Test
+    public void testConvertByIdentity() {
+        SAMFileHeader equalHeader = header.clone();
+        List<Reference> references = converter.convert(header, STRICT, logger);
+        assertNotSame(references, converter.convert(equalHeader, STRICT, logger));
+        assertEquals(references, converter.convert(equalHeader, STRICT, logger));
+        assertEquals(2, countingConverter.count.get());
+    }
+
+    @Test
+    public void testConvertPerStringency() {
+        List<Reference> references = converter.convert(header, LENIENT, logger);
+        assertEquals(references, converter.convert(header, STRICT, logger));
+        assertEquals(2, countingConverter.count.get());
+        assertEquals(references, converter.convert(header, LENIENT, logger));
+        assertEquals(2, countingConverter.count.get());
+        assertEquals(2L, converter.size());
+    }
+
+    @Test
+    public void testConvertFailedNotCached() {
+        countingConverter.fail = true;
+        assertNull(converter.convert(header, LENIENT, logger));
+        countingConverter.fail = false;
+        assertEquals(2, converter.convert(header, LENIENT, logger).size());
+        assertEquals(2, countingConverter.count.get());
+    }
+
+    @Test
+    public void testWeakKeys() throws Exception {
+        converter.convert(header, STRICT, logger);
+        assertEquals(1L, converter.size());
+        header = null;
+        for (int i = 0; i < 20 && converter.size() > 0L; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(0L, converter.size());
+    }
+
+    /**
+     * Count conversions, optionally failing.
+     */
+    static final class CountingConverter extends AbstractConverter<SAMFileHeader, List<Reference>> {
+        final AtomicInteger count = new AtomicInteger();
+        final Converter<SAMFileHeader, List<Reference>> converter = new SamHeaderToReferences();
+        boolean fail = false;
+
+        CountingConverter() {
+            super(SAMFileHeader.class, List.class);
+        }
+
+        @Override
+        public List<Reference> convert(final SAMFileHeader header, final ConversionStringency stringency, final Logger logger) {
+            count.incrementAndGet();
+            if (fail) {
+                warnOrThrow(header, "failed", null, stringency, logger);
+                return null;
+            }
+            return converter.convert(header, stringency, logger);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.function.Consumer;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionMetrics;
+import org.bdgenomics.convert.ConversionStringency;
+import org.bdgenomics.convert.InstrumentedConverter;
+import org.bdgenomics.convert.InstrumentingModule;
+
+import org.bdgenomics.formats.avro.Alignment;
+import org.bdgenomics.formats.avro.ProcessingStep;
+import org.bdgenomics.formats.avro.ReadGroup;
+import org.bdgenomics.formats.avro.Reference;
+import org.bdgenomics.formats.avro.Sample;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for CachingHtsjdkModule.
+ */
+public final class CachingHtsjdkModuleTest {
+    private final Logger logger = LoggerFactory.getLogger(CachingHtsjdkModuleTest.class);
+    private Injector injector;
+
+    @Before
+    public void setUp() {
+        injector = Guice.createInjector(new CachingHtsjdkModule());
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(new CachingHtsjdkModule());
+    }
+
+    @Test
+    public void testFactories() {
+        assertTrue(injector.getInstance(AlignmentToSamRecordFactory.class) instanceof CachingAlignmentToSamRecordFactory);
+        assertTrue(injector.getInstance(GenotypesToVariantContextFactory.class) instanceof CachingGenotypesToVariantContextFactory);
+        assertTrue(injector.getInstance(VariantToVariantContextFactory.class) instanceof CachingVariantToVariantContextFactory);
+        assertTrue(injector.getInstance(VariantContextToGenotypesFactory.class) instanceof CachingVariantContextToGenotypesFactory);
+        assertTrue(injector.getInstance(VariantContextToVariantsFactory.class) instanceof CachingVariantContextToVariantsFactory);
+        assertSame(injector.getInstance(AlignmentToSamRecordFactory.class), injector.getInstance(AlignmentToSamRecordFactory.class));
+
+        // bindings not overridden are unchanged
+        assertNotNull(injector.getInstance(VcfToVariantPipelineFactory.class).create(2, VcfToVariantPipeline.DEFAULT_BATCH_SIZE));
+    }
+
+    @Test
+    public void testHeaderConverters() {
+        assertTrue(injector.getInstance(Key.get(new TypeLiteral<Converter<SAMFileHeader, List<Reference>>>() {})) instanceof CachingHeaderConverter);
+        assertTrue(injector.getInstance(Key.get(new TypeLiteral<Converter<SAMFileHeader, List<ReadGroup>>>() {})) instanceof CachingHeaderConverter);
+        assertTrue(injector.getInstance(Key.get(new TypeLiteral<Converter<SAMFileHeader, List<ProcessingStep>>>() {})) instanceof CachingHeaderConverter);
+        assertTrue(injector.getInstance(Key.get(new TypeLiteral<Converter<VCFHeader, List<Reference>>>() {})) instanceof CachingHeaderConverter);
+        assertTrue(injector.getInstance(Key.get(new TypeLiteral<Converter<VCFHeader, List<Sample>>>() {})) instanceof CachingHeaderConverter);
+
+        // header converters are not cached by HtsjdkModule
+        Injector htsjdkInjector = Guice.createInjector(new HtsjdkModule());
+        assertTrue(htsjdkInjector.getInstance(Key.get(new TypeLiteral<Converter<SAMFileHeader, List<Reference>>>() {})) instanceof SamHeaderToReferences);
+        assertTrue(htsjdkInjector.getInstance(Key.get(new TypeLiteral<Converter<VCFHeader, List<Sample>>>() {})) instanceof VcfHeaderToSamples);
+    }
+
+    @Test
+    public void testCreatePerHeader() {
+        AlignmentToSamRecordFactory factory = injector.getInstance(AlignmentToSamRecordFactory.class);
+        SAMFileHeader header = new SAMFileHeader();
+        assertSame(factory.create(header), factory.create(header));
+        assertNotSame(factory.create(header), factory.create(header.clone()));
+
+        VCFHeader vcfHeader = new VCFHeader();
+        assertSame(injector.getInstance(GenotypesToVariantContextFactory.class).create(vcfHeader), injector.getInstance(GenotypesToVariantContextFactory.class).create(vcfHeader));
+        assertSame(injector.getInstance(VariantToVariantContextFactory.class).create(vcfHeader), injector.getInstance(VariantToVariantContextFactory.class).create(vcfHeader));
+        assertSame(injector.getInstance(VariantContextToGenotypesFactory.class).create(vcfHeader), injector.getInstance(VariantContextToGenotypesFactory.class).create(vcfHeader));
+        assertSame(injector.getInstance(VariantContextToVariantsFactory.class).create(vcfHeader), injector.getInstance(VariantContextToVariantsFactory.class).create(vcfHeader));
+    }
+
+    @Test
+    public void testCreateSamHeaderCopy() {
+        SAMFileHeader header = new SAMFileHeader();
+        header.addSequence(new SAMSequenceRecord("1", 100));
+        SAMRecord samRecord = injector.getInstance(AlignmentToSamRecordFactory.class).create(header)
+            .convert(Alignment.newBuilder().setReadName("read").setReferenceName("1").build(), ConversionStringency.STRICT, logger);
+        assertNotSame(header, samRecord.getHeader());
+        assertEquals(header, samRecord.getHeader());
+    }
+
+    @Test
+    public void testReleaseSamHeader() throws Exception {
+        assertTrue(released(create(samHeader(), injector.getInstance(AlignmentToSamRecordFactory.class)::create)));
+    }
+
+    @Test
+    public void testReleaseVcfHeaders() throws Exception {
+        assertTrue(released(create(new VCFHeader(), injector.getInstance(GenotypesToVariantContextFactory.class)::create)));
+        assertTrue(released(create(new VCFHeader(), injector.getInstance(VariantToVariantContextFactory.class)::create)));
+        assertTrue(released(create(new VCFHeader(), injector.getInstance(VariantContextToGenotypesFactory.class)::create)));
+        assertTrue(released(create(new VCFHeader(), injector.getInstance(VariantContextToVariantsFactory.class)::create)));
+    }
+
+    private static SAMFileHeader samHeader() {
+        SAMFileHeader header = new SAMFileHeader();
+        header.addSequence(new SAMSequenceRecord("1", 100));
+        return header;
+    }
+
+    /**
+     * Create a value for the specified header and return a weak reference to the header.
+     */
+    private static <H> WeakReference<H> create(final H header, final Consumer<H> create) {
+        create.accept(header);
+        return new WeakReference<H>(header);
+    }
+
+    /**
+     * Return true if the specified reference is cleared after garbage collection.
+     */
+    private static boolean released(final WeakReference<?> reference) throws Exception {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        return reference.get() == null;
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testCreateNullHeader() {
+        injector.getInstance(AlignmentToSamRecordFactory.class).create(null);
+    }
+
+    @Test
+    public void testInstrumentingModule() {
+        injector = Guice.createInjector(new InstrumentingModule(Collections.<ConversionMetrics>emptyList(), new CachingHtsjdkModule()));
+        AlignmentToSamRecordFactory factory = injector.getInstance(AlignmentToSamRecordFactory.class);
+        assertSame(factory, injector.getInstance(AlignmentToSamRecordFactory.class));
+
+        SAMFileHeader header = new SAMFileHeader();
+        Converter<Alignment, SAMRecord> converter = factory.create(header);
+        assertTrue(converter instanceof InstrumentedConverter);
+        assertSame(((InstrumentedConverter<Alignment, SAMRecord>) converter).getDelegate(), ((InstrumentedConverter<Alignment, SAMRecord>) factory.create(header)).getDelegate());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testInstrumentingModuleCreateNullHeader() {
+        injector = Guice.createInjector(new InstrumentingModule(Collections.<ConversionMetrics>emptyList(), new CachingHtsjdkModule()));
+        injector.getInstance(AlignmentToSamRecordFactory.class).create(null);
+    }
+
+    @Test
+    public void testCreateConcurrent() throws Exception {
+        AlignmentToSamRecordFactory factory = injector.getInstance(AlignmentToSamRecordFactory.class);
+        SAMFileHeader header = new SAMFileHeader();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Converter<?, ?>>> futures = new ArrayList<Future<Converter<?, ?>>>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> factory.create(header)));
+            }
+            Converter<?, ?> converter = futures.get(0).get();
+            for (Future<Converter<?, ?>> future : futures) {
+                assertSame(converter, future.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
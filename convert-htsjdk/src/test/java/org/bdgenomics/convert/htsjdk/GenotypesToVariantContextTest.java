@@ -20,14 +20,25 @@ package org.bdgenomics.convert.htsjdk;
 import static org.bdgenomics.convert.ConversionStringency.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
 import htsjdk.variant.variantcontext.VariantContext;
 
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFEncoder;
 import htsjdk.variant.vcf.VCFHeader;
 
 import org.bdgenomics.convert.Converter;
@@ -46,17 +57,49 @@ import org.slf4j.LoggerFactory;
  */
 public final class GenotypesToVariantContextTest {
     private final Logger logger = LoggerFactory.getLogger(GenotypesToVariantContextTest.class);
-
+    static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FILTER=<ID=q10,Description=\"Quality below 10\">\n"
+        + "##FILTER=<ID=s50,Description=\"Less than 50% of samples have data\">\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n"
+        + "##FORMAT=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##FORMAT=<ID=DP,Number=1,Type=Integer,Description=\"Read depth\">\n"
+        + "##FORMAT=<ID=GQ,Number=1,Type=Integer,Description=\"Genotype quality\">\n"
+        + "##FORMAT=<ID=PL,Number=G,Type=Integer,Description=\"Phred-scaled genotype likelihoods\">\n"
+        + "##FORMAT=<ID=PS,Number=1,Type=Integer,Description=\"Phase set\">\n"
+        + "##FORMAT=<ID=FT,Number=1,Type=String,Description=\"Genotype filter\">\n"
+        + "##FORMAT=<ID=XX,Number=1,Type=String,Description=\"Other\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\n";
+    static final String BIALLELIC = "1\t100\trs42\tA\tG\t30\tPASS\tAC=3;DP=24\tGT:AD:DP:GQ:PL:XX\t0/1:3,4:7:50:40,0,60:x\t1|1:0,8:8:30:90,30,0:y\t0/0:9,0:9:20:0,20,200:z";
+    static final String MULTIALLELIC = "1\t200\t.\tC\tG,T\t30\tq10\tAC=1,2\tGT:AD:FT:PS\t1/2:1,3,4:PASS:100\t0|2:5,0,5:q10;s50:100\t0:7,0,0:PASS:200";
+
+    VCFCodec codec;
     VCFHeader header;
+    VCFEncoder encoder;
     List<Genotype> empty = Collections.emptyList();
     Converter<List<Genotype>, VariantContext> converter;
 
     @Before
     public void setUp() {
-        header = new VCFHeader();
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        encoder = new VCFEncoder(header, true, false);
         converter = new GenotypesToVariantContext(header);
     }
 
+    private List<Genotype> genotypes(final String line) {
+        return new ArrayList<Genotype>(new VariantContextToGenotypes(header).convert(codec.decode(line), STRICT, logger));
+    }
+
+    private String encode(final String line) {
+        VariantContext variantContext = codec.decode(line);
+        // decode genotypes so that they are encoded field by field rather than copied from the line
+        variantContext.getGenotypes().size();
+        return encoder.encode(variantContext);
+    }
+
     @Test
     public void testConstructor() {
         assertNotNull(converter);
@@ -67,6 +110,11 @@ public final class GenotypesToVariantContextTest {
         new GenotypesToVariantContext(null);
     }
 
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectAppender() {
+        new GenotypesToVariantContext(header, null);
+    }
+
     @Test(expected=ConversionException.class)
     public void testConvertNullSourceStrict() {
         converter.convert(null, STRICT, logger);
@@ -97,8 +145,95 @@ public final class GenotypesToVariantContextTest {
         assertEquals(null, converter.convert(empty, SILENT, logger));
     }
 
+    @Test
+    public void testConvertUnsortedSamples() {
+        VCFCodec unsortedCodec = new VCFCodec();
+        VCFHeader unsortedHeader = (VCFHeader) unsortedCodec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER.replace("S1\tS2\tS3", "S3\tS1\tS2")))));
+        VariantContext decoded = unsortedCodec.decode(BIALLELIC);
+        List<Genotype> genotypes = new ArrayList<Genotype>(new VariantContextToGenotypes(unsortedHeader).convert(decoded, STRICT, logger));
+
+        VariantContext variantContext = new GenotypesToVariantContext(unsortedHeader).convert(genotypes, STRICT, logger);
+        assertEquals(Arrays.asList("S1", "S2", "S3"), variantContext.getSampleNamesOrderedByName());
+        assertEquals(decoded.getSampleNamesOrderedByName(), variantContext.getSampleNamesOrderedByName());
+        assertTrue(variantContext.getGenotype("S1").isHomVar());
+        assertTrue(variantContext.getGenotype("S3").isHet());
+    }
+
     @Test
     public void testConvert() {
-        // todo
+        VariantContext variantContext = converter.convert(genotypes(BIALLELIC), STRICT, logger);
+        assertEquals("rs42", variantContext.getID());
+        assertEquals(3, variantContext.getNSamples());
+        assertEquals(Arrays.asList("S1", "S2", "S3"), variantContext.getSampleNamesOrderedByName());
+
+        htsjdk.variant.variantcontext.Genotype s1 = variantContext.getGenotype("S1");
+        assertTrue(s1.isHet());
+        assertEquals(7, s1.getDP());
+        assertEquals(50, s1.getGQ());
+        assertEquals(3, s1.getAD()[0]);
+        assertEquals(4, s1.getAD()[1]);
+        assertEquals(40, s1.getPL()[0]);
+        assertEquals("x", s1.getExtendedAttribute("XX"));
+        assertTrue(variantContext.getGenotype("S2").isPhased());
+        assertTrue(variantContext.getGenotype("S2").isHomVar());
+    }
+
+    @Test
+    public void testConvertRoundTrip() {
+        assertEquals(encode(BIALLELIC), encoder.encode(converter.convert(genotypes(BIALLELIC), STRICT, logger)));
+    }
+
+    @Test
+    public void testConvertMultiAllelicRoundTrip() {
+        List<Genotype> genotypes = genotypes(MULTIALLELIC);
+        assertEquals(6, genotypes.size());
+        assertEquals(encode(MULTIALLELIC), encoder.encode(converter.convert(genotypes, STRICT, logger)));
+    }
+
+    @Test
+    public void testConvertMultiAllelicOutOfOrder() {
+        List<Genotype> genotypes = genotypes(MULTIALLELIC);
+        Collections.reverse(genotypes);
+
+        VariantContext variantContext = converter.convert(genotypes, STRICT, logger);
+        assertEquals("S1", variantContext.getGenotype(0).getSampleName());
+        assertEquals("S3", variantContext.getGenotype(2).getSampleName());
+        assertEquals("T", variantContext.getAlternateAllele(0).getDisplayString());
+        assertEquals("G", variantContext.getAlternateAllele(1).getDisplayString());
+        assertEquals("G/T", variantContext.getGenotype("S1").getGenotypeString());
+        assertFalse(variantContext.getGenotype("S1").hasPL());
+    }
+
+    @Test
+    public void testConvertSubsetOfSamples() {
+        VariantContext variantContext = converter.convert(genotypes(BIALLELIC).subList(1, 2), STRICT, logger);
+        assertEquals(1, variantContext.getNSamples());
+        assertTrue(variantContext.getGenotype("S2").isHomVar());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertSampleNotInHeaderStrict() {
+        List<Genotype> genotypes = genotypes(BIALLELIC);
+        genotypes.set(0, Genotype.newBuilder(genotypes.get(0)).setSampleId("S9").build());
+        converter.convert(genotypes, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertSampleNotInHeaderLenient() {
+        List<Genotype> genotypes = genotypes(BIALLELIC);
+        genotypes.set(0, Genotype.newBuilder(genotypes.get(0)).setSampleId("S9").build());
+        assertNull(converter.convert(genotypes, LENIENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertDifferentSitesStrict() {
+        List<Genotype> genotypes = genotypes(BIALLELIC);
+        genotypes.addAll(genotypes(MULTIALLELIC));
+        converter.convert(genotypes, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullGenotypeSilent() {
+        assertNull(converter.convert(Arrays.asList((Genotype) null), SILENT, logger));
     }
 }
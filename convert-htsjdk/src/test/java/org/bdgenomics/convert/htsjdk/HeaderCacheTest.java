@@ -0,0 +1,79 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import htsjdk.samtools.SAMFileHeader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for HeaderCache.
+ */
+public final class HeaderCacheTest {
+    private AtomicInteger count;
+    private HeaderCache<SAMFileHeader, Object> cache;
+
+    @Before
+    public void setUp() {
+        count = new AtomicInteger();
+        cache = new HeaderCache<SAMFileHeader, Object>(header -> {
+                count.incrementAndGet();
+                return new Object();
+            });
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullCreate() {
+        new HeaderCache<SAMFileHeader, Object>(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testGetNullHeader() {
+        cache.get(null);
+    }
+
+    @Test
+    public void testGet() {
+        SAMFileHeader header = new SAMFileHeader();
+        assertSame(cache.get(header), cache.get(header));
+        assertEquals(1, count.get());
+
+        // keyed by identity, not equality
+        SAMFileHeader equalHeader = header.clone();
+        assertEquals(header, equalHeader);
+        assertNotSame(cache.get(header), cache.get(equalHeader));
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void testWeakKeys() throws Exception {
+        cache.get(new SAMFileHeader());
+        for (int i = 0; i < 20 && cache.size() > 0L; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(0L, cache.size());
+    }
+}
@@ -17,8 +17,13 @@
  */
 package org.bdgenomics.convert.htsjdk;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.inject.AbstractModule;
@@ -42,7 +47,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionMetrics;
+import org.bdgenomics.convert.ConversionStatistics;
 import org.bdgenomics.convert.ConversionStringency;
+import org.bdgenomics.convert.InstrumentedConverter;
+import org.bdgenomics.convert.InstrumentingModule;
 
 import org.bdgenomics.formats.avro.Alignment;
 import org.bdgenomics.formats.avro.Genotype;
@@ -52,10 +61,14 @@ import org.bdgenomics.formats.avro.Reference;
 import org.bdgenomics.formats.avro.Sample;
 import org.bdgenomics.formats.avro.Variant;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Unit test for HtsjdkModule.
  */
 public final class HtsjdkModuleTest {
+    private final Logger logger = LoggerFactory.getLogger(HtsjdkModuleTest.class);
     private HtsjdkModule module;
 
     @Before
@@ -88,6 +101,12 @@ public final class HtsjdkModuleTest {
         SAMFileHeader samFileHeader = new SAMFileHeader();
         assertNotNull(target.getAlignmentToSamRecordFactory());
         assertNotNull(target.getAlignmentToSamRecordFactory().create(samFileHeader));
+        assertNotNull(target.getBamRecordToAlignmentFactory());
+        assertNotNull(target.getBamRecordToAlignmentFactory().create(samFileHeader));
+        assertNotNull(target.getSamLineToAlignmentFactory());
+        assertNotNull(target.getSamLineToAlignmentFactory().create(samFileHeader));
+        assertNotNull(target.getAlignmentToSamLineFactory());
+        assertNotNull(target.getAlignmentToSamLineFactory().create(samFileHeader));
 
         VCFHeader vcfHeader = new VCFHeader();
         assertNotNull(target.getGenotypesToVariantContextFactory());
@@ -98,6 +117,46 @@ public final class HtsjdkModuleTest {
         assertNotNull(target.getVariantContextToGenotypesFactory().create(vcfHeader));
         assertNotNull(target.getVariantContextToVariantsFactory());
         assertNotNull(target.getVariantContextToVariantsFactory().create(vcfHeader));
+        assertNotNull(target.getVcfLineToVariantsFactory());
+        assertNotNull(target.getVcfLineToVariantsFactory().create(vcfHeader));
+        assertNotNull(target.getVariantContextGrouperFactory());
+        assertNotNull(target.getVariantContextGrouperFactory().create(vcfHeader));
+
+        assertNotNull(target.getSamToAlignmentPipelineFactory());
+        assertNotNull(target.getSamToAlignmentPipelineFactory().create(4, SamToAlignmentPipeline.DEFAULT_BATCH_SIZE));
+        assertNotNull(target.getAlignmentToBamPipelineFactory());
+        assertNotNull(target.getAlignmentToBamPipelineFactory().create(4, AlignmentToBamPipeline.DEFAULT_BATCH_SIZE));
+        assertNotNull(target.getVcfToVariantPipelineFactory());
+        assertNotNull(target.getVcfToVariantPipelineFactory().create(4, VcfToVariantPipeline.DEFAULT_BATCH_SIZE));
+    }
+
+    @Test
+    public void testInstrumentingModule() {
+        final List<ConversionStatistics> statistics = new ArrayList<ConversionStatistics>();
+        Injector injector = Guice.createInjector(new InstrumentingModule(Collections.<ConversionMetrics>singletonList(statistics::add), module), new TestModule());
+        Target target = injector.getInstance(Target.class);
+        assertTrue(target.getSamRecordToAlignment() instanceof InstrumentedConverter);
+        assertTrue(target.getSamHeaderToReferences() instanceof InstrumentedConverter);
+
+        SAMFileHeader samFileHeader = new SAMFileHeader();
+        Converter<Alignment, SAMRecord> alignmentToSamRecord = target.getAlignmentToSamRecordFactory().create(samFileHeader);
+        assertTrue(alignmentToSamRecord instanceof InstrumentedConverter);
+        assertNotNull(alignmentToSamRecord.convert(Alignment.newBuilder().setReadName("read").build(), ConversionStringency.STRICT, logger));
+        assertNull(alignmentToSamRecord.convert(null, ConversionStringency.SILENT, logger));
+
+        // factories returning concrete types are not instrumented
+        assertNotNull(target.getAlignmentToSamLineFactory().create(samFileHeader));
+        assertNotNull(target.getVariantContextGrouperFactory().create(new VCFHeader()));
+
+        ConversionStatistics factoryStatistics = null;
+        for (ConversionStatistics s : statistics) {
+            if ("AlignmentToSamRecordFactory.create".equals(s.getName())) {
+                factoryStatistics = s;
+            }
+        }
+        assertNotNull(factoryStatistics);
+        assertEquals(2L, factoryStatistics.getInvocations());
+        assertEquals(1L, factoryStatistics.getSilentFailures());
     }
 
     /**
@@ -117,10 +176,18 @@ public final class HtsjdkModuleTest {
         final Converter<VCFHeader, List<Sample>> vcfHeaderToSamples;
         final Converter<VCFHeader, List<VCFHeaderLine>> vcfHeaderToVcfHeaderLines;
         final AlignmentToSamRecordFactory alignmentToSamRecordFactory;
+        final BamRecordToAlignmentFactory bamRecordToAlignmentFactory;
+        final SamLineToAlignmentFactory samLineToAlignmentFactory;
+        final AlignmentToSamLineFactory alignmentToSamLineFactory;
         final GenotypesToVariantContextFactory genotypesToVariantContextFactory;
         final VariantToVariantContextFactory variantToVariantContextFactory;
         final VariantContextToGenotypesFactory variantContextToGenotypesFactory;
         final VariantContextToVariantsFactory variantContextToVariantsFactory;
+        final VcfLineToVariantsFactory vcfLineToVariantsFactory;
+        final VariantContextGrouperFactory variantContextGrouperFactory;
+        final SamToAlignmentPipelineFactory samToAlignmentPipelineFactory;
+        final AlignmentToBamPipelineFactory alignmentToBamPipelineFactory;
+        final VcfToVariantPipelineFactory vcfToVariantPipelineFactory;
 
         @Inject
         Target(final Converter<ConversionStringency, ValidationStringency> conversionStringencyToValidationStringency,
@@ -136,10 +203,18 @@ public final class HtsjdkModuleTest {
                final Converter<VCFHeader, List<Sample>> vcfHeaderToSamples,
                final Converter<VCFHeader, List<VCFHeaderLine>> vcfHeaderToVcfHeaderLines,
                final AlignmentToSamRecordFactory alignmentToSamRecordFactory,
+               final BamRecordToAlignmentFactory bamRecordToAlignmentFactory,
+               final SamLineToAlignmentFactory samLineToAlignmentFactory,
+               final AlignmentToSamLineFactory alignmentToSamLineFactory,
                final GenotypesToVariantContextFactory genotypesToVariantContextFactory,
                final VariantToVariantContextFactory variantToVariantContextFactory,
                final VariantContextToGenotypesFactory variantContextToGenotypesFactory,
-               final VariantContextToVariantsFactory variantContextToVariantsFactory) {
+               final VariantContextToVariantsFactory variantContextToVariantsFactory,
+               final VcfLineToVariantsFactory vcfLineToVariantsFactory,
+               final VariantContextGrouperFactory variantContextGrouperFactory,
+               final SamToAlignmentPipelineFactory samToAlignmentPipelineFactory,
+               final AlignmentToBamPipelineFactory alignmentToBamPipelineFactory,
+               final VcfToVariantPipelineFactory vcfToVariantPipelineFactory) {
 
             this.conversionStringencyToValidationStringency = conversionStringencyToValidationStringency;
             this.validationStringencyToConversionStringency = validationStringencyToConversionStringency;
@@ -154,10 +229,18 @@ public final class HtsjdkModuleTest {
             this.vcfHeaderToSamples = vcfHeaderToSamples;
             this.vcfHeaderToVcfHeaderLines = vcfHeaderToVcfHeaderLines;
             this.alignmentToSamRecordFactory = alignmentToSamRecordFactory;
+            this.bamRecordToAlignmentFactory = bamRecordToAlignmentFactory;
+            this.samLineToAlignmentFactory = samLineToAlignmentFactory;
+            this.alignmentToSamLineFactory = alignmentToSamLineFactory;
             this.genotypesToVariantContextFactory = genotypesToVariantContextFactory;
             this.variantToVariantContextFactory = variantToVariantContextFactory;
             this.variantContextToGenotypesFactory = variantContextToGenotypesFactory;
             this.variantContextToVariantsFactory = variantContextToVariantsFactory;
+            this.vcfLineToVariantsFactory = vcfLineToVariantsFactory;
+            this.variantContextGrouperFactory = variantContextGrouperFactory;
+            this.samToAlignmentPipelineFactory = samToAlignmentPipelineFactory;
+            this.alignmentToBamPipelineFactory = alignmentToBamPipelineFactory;
+            this.vcfToVariantPipelineFactory = vcfToVariantPipelineFactory;
         }
 
         Converter<ConversionStringency, ValidationStringency> getConversionStringencyToValidationStringency() {
@@ -212,6 +295,18 @@ public final class HtsjdkModuleTest {
             return alignmentToSamRecordFactory;
         }
 
+        BamRecordToAlignmentFactory getBamRecordToAlignmentFactory() {
+            return bamRecordToAlignmentFactory;
+        }
+
+        SamLineToAlignmentFactory getSamLineToAlignmentFactory() {
+            return samLineToAlignmentFactory;
+        }
+
+        AlignmentToSamLineFactory getAlignmentToSamLineFactory() {
+            return alignmentToSamLineFactory;
+        }
+
         GenotypesToVariantContextFactory getGenotypesToVariantContextFactory() {
             return genotypesToVariantContextFactory;
         }
@@ -227,6 +322,26 @@ public final class HtsjdkModuleTest {
         VariantContextToVariantsFactory getVariantContextToVariantsFactory() {
             return variantContextToVariantsFactory;
         }
+
+        VcfLineToVariantsFactory getVcfLineToVariantsFactory() {
+            return vcfLineToVariantsFactory;
+        }
+
+        VariantContextGrouperFactory getVariantContextGrouperFactory() {
+            return variantContextGrouperFactory;
+        }
+
+        SamToAlignmentPipelineFactory getSamToAlignmentPipelineFactory() {
+            return samToAlignmentPipelineFactory;
+        }
+
+        AlignmentToBamPipelineFactory getAlignmentToBamPipelineFactory() {
+            return alignmentToBamPipelineFactory;
+        }
+
+        VcfToVariantPipelineFactory getVcfToVariantPipelineFactory() {
+            return vcfToVariantPipelineFactory;
+        }
     }
 
     /**
@@ -0,0 +1,141 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.util.Arrays;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for ParallelBamWriter.
+ */
+public final class ParallelBamWriterTest {
+    private SAMFileHeader header;
+
+    @Before
+    public void setUp() {
+        header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullOutputStream() throws Exception {
+        new ParallelBamWriter(null, null, header, 1, 5);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() throws Exception {
+        new ParallelBamWriter(new ByteArrayOutputStream(), null, null, 1, 5);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroThreads() throws Exception {
+        new ParallelBamWriter(new ByteArrayOutputStream(), null, header, 0, 5);
+    }
+
+    @Test
+    public void testHeaderOnly() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ParallelBamWriter(outputStream, null, header, 4, 5).close();
+
+        byte[] bytes = outputStream.toByteArray();
+        byte[] eof = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK;
+        assertEquals(Arrays.toString(eof), Arrays.toString(Arrays.copyOfRange(bytes, bytes.length - eof.length, bytes.length)));
+
+        try (SamReader reader = SamReaderFactory.makeDefault().open(SamInputResource.of(new ByteArrayInputStream(bytes)))) {
+            assertEquals(SAMFileHeader.SortOrder.coordinate, reader.getFileHeader().getSortOrder());
+            assertFalse(reader.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void testAddAlignment() throws Exception {
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName("read1");
+        record.setReferenceName("1");
+        record.setAlignmentStart(1000);
+        record.setCigarString("4M");
+        record.setReadString("ACGT");
+        record.setBaseQualityString("IIII");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexStream = new ByteArrayOutputStream();
+        try (ParallelBamWriter writer = new ParallelBamWriter(outputStream, indexStream, header, 2, 5)) {
+            writer.addAlignment(record);
+        }
+
+        try (SamReader reader = SamReaderFactory.makeDefault().open(SamInputResource.of(new ByteArrayInputStream(outputStream.toByteArray())))) {
+            assertEquals(record.getSAMString(), reader.iterator().next().getSAMString());
+        }
+        assertFalse(indexStream.size() == 0);
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName("read1");
+        record.setReferenceName("1");
+        record.setAlignmentStart(1000);
+        record.setCigarString("4M");
+        record.setReadString("ACGT");
+        record.setBaseQualityString("IIII");
+
+        ClosingOutputStream outputStream = new ClosingOutputStream();
+        ClosingOutputStream indexStream = new ClosingOutputStream();
+        ParallelBamWriter writer = new ParallelBamWriter(outputStream, indexStream, header, 2, 5);
+        writer.addAlignment(record);
+        int headerLength = outputStream.size();
+        writer.abort();
+        writer.close();
+
+        assertTrue(outputStream.closed);
+        assertTrue(indexStream.closed);
+        // neither the pending block nor the end-of-file marker is written
+        assertEquals(headerLength, outputStream.size());
+    }
+
+    /**
+     * Byte array output stream that records whether it has been closed.
+     */
+    private static final class ClosingOutputStream extends ByteArrayOutputStream {
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
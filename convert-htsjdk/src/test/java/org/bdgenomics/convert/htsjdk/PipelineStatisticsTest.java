@@ -0,0 +1,45 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test for PipelineStatistics.
+ */
+public final class PipelineStatisticsTest {
+
+    @Test
+    public void testPipelineStatistics() {
+        PipelineStatistics statistics = new PipelineStatistics(10L, 8L, 2L, 2000000000L);
+        assertEquals(10L, statistics.getRead());
+        assertEquals(8L, statistics.getWritten());
+        assertEquals(2L, statistics.getSkipped());
+        assertEquals(2000000000L, statistics.getElapsedNanos());
+        assertEquals(5.0d, statistics.getRecordsPerSecond(), 0.001d);
+        assertTrue(statistics.toString().startsWith("read 10, wrote 8, skipped 2 records in 2.000 s"));
+    }
+
+    @Test
+    public void testRecordsPerSecondZeroElapsed() {
+        assertEquals(0.0d, new PipelineStatistics(10L, 10L, 0L, 0L).getRecordsPerSecond(), 0.001d);
+    }
+}
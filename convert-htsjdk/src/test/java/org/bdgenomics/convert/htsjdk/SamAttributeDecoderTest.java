@@ -0,0 +1,228 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for SamAttributeDecoder.
+ */
+public final class SamAttributeDecoderTest {
+    private SAMRecord samRecord;
+
+    @Before
+    public void setUp() {
+        samRecord = new SAMRecord(new SAMFileHeader());
+    }
+
+    private void decode(final String attribute) {
+        SamAttributeDecoder.decode(attribute, 0, attribute.length(), samRecord);
+    }
+
+    private String roundTrip(final String attributes) {
+        for (int start = 0, length = attributes.length(); start <= length; ) {
+            int end = SamAttributeDecoder.end(attributes, start);
+            SamAttributeDecoder.decode(attributes, start, end, samRecord);
+            start = end + 1;
+        }
+        return SamAttributeEncoder.encode(samRecord, new StringBuilder()).toString();
+    }
+
+    @Test
+    public void testEnd() {
+        assertEquals(7, SamAttributeDecoder.end("XS:i:42\tXA:A:x", 0));
+        assertEquals(14, SamAttributeDecoder.end("XS:i:42\tXA:A:x", 8));
+        assertEquals(0, SamAttributeDecoder.end("", 0));
+    }
+
+    @Test
+    public void testDecodeEmpty() {
+        SamAttributeDecoder.decode("XS:i:42", 3, 3, samRecord);
+        assertTrue(samRecord.getAttributes().isEmpty());
+    }
+
+    @Test
+    public void testDecodeCharacter() {
+        decode("XA:A:x");
+        assertEquals(Character.valueOf('x'), samRecord.getAttribute("XA"));
+    }
+
+    @Test
+    public void testDecodeInteger() {
+        decode("XS:i:-42");
+        assertEquals(Integer.valueOf(-42), samRecord.getAttribute("XS"));
+    }
+
+    @Test
+    public void testDecodeUnsignedInteger() {
+        decode("XS:i:4294967295");
+        assertEquals(Long.valueOf(4294967295L), samRecord.getAttribute("XS"));
+    }
+
+    @Test
+    public void testDecodeFloat() {
+        decode("XF:f:1.5");
+        assertEquals(Float.valueOf(1.5f), samRecord.getAttribute("XF"));
+    }
+
+    @Test
+    public void testDecodeString() {
+        decode("XZ:Z:foo:bar baz");
+        assertEquals("foo:bar baz", samRecord.getAttribute("XZ"));
+    }
+
+    @Test
+    public void testDecodeEmptyString() {
+        decode("XZ:Z:");
+        assertEquals("", samRecord.getAttribute("XZ"));
+    }
+
+    @Test
+    public void testDecodeHex() {
+        decode("XH:H:1AE3");
+        assertArrayEquals(new byte[] { 0x1a, (byte) 0xe3 }, (byte[]) samRecord.getAttribute("XH"));
+    }
+
+    @Test
+    public void testDecodeByteArray() {
+        decode("XB:B:c,-128,0,127");
+        assertArrayEquals(new byte[] { -128, 0, 127 }, (byte[]) samRecord.getAttribute("XB"));
+        assertFalse(samRecord.isUnsignedArrayAttribute("XB"));
+    }
+
+    @Test
+    public void testDecodeUnsignedByteArray() {
+        decode("XB:B:C,255,0,1");
+        assertArrayEquals(new byte[] { -1, 0, 1 }, (byte[]) samRecord.getAttribute("XB"));
+        assertTrue(samRecord.isUnsignedArrayAttribute("XB"));
+    }
+
+    @Test
+    public void testDecodeShortArray() {
+        decode("XS:B:s,-32768,32767");
+        assertArrayEquals(new short[] { -32768, 32767 }, (short[]) samRecord.getAttribute("XS"));
+    }
+
+    @Test
+    public void testDecodeUnsignedShortArray() {
+        decode("XS:B:S,65535");
+        assertArrayEquals(new short[] { -1 }, (short[]) samRecord.getAttribute("XS"));
+        assertTrue(samRecord.isUnsignedArrayAttribute("XS"));
+    }
+
+    @Test
+    public void testDecodeIntegerArray() {
+        decode("XI:B:i,-2147483648,2147483647");
+        assertArrayEquals(new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE }, (int[]) samRecord.getAttribute("XI"));
+    }
+
+    @Test
+    public void testDecodeUnsignedIntegerArray() {
+        decode("XI:B:I,4294967295");
+        assertArrayEquals(new int[] { -1 }, (int[]) samRecord.getAttribute("XI"));
+        assertTrue(samRecord.isUnsignedArrayAttribute("XI"));
+    }
+
+    @Test
+    public void testDecodeFloatArray() {
+        decode("XF:B:f,-1.5,0.0,1.0E-9");
+        assertArrayEquals(new float[] { -1.5f, 0.0f, 1.0e-9f }, (float[]) samRecord.getAttribute("XF"), 0.0f);
+    }
+
+    @Test
+    public void testDecodeEmptyArray() {
+        decode("XI:B:i");
+        assertArrayEquals(new int[0], (int[]) samRecord.getAttribute("XI"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeInvalid() {
+        decode("XS:i");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeInvalidTag() {
+        decode("XSS:i:42");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeInvalidType() {
+        decode("XS:X:42");
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testDecodeInvalidInteger() {
+        decode("XS:i:4x");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeIntegerOutOfRange() {
+        decode("XS:i:4294967296");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeByteArrayOutOfRange() {
+        decode("XB:B:c,128");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeInvalidArrayType() {
+        decode("XB:B:x,1");
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testDecodeInvalidArrayValue() {
+        decode("XB:B:i,1,,2");
+    }
+
+    @Test
+    public void testDecodeSetsOnce() {
+        decode("XS:i:42");
+        assertEquals(1, samRecord.getAttributes().size());
+        assertNull(samRecord.getAttribute("XF"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String attributes = "MC:Z:100M\tMQ:i:60\tAS:i:-12\tXL:i:4294967295\tXA:A:x\tXF:f:1.5"
+            + "\tXB:B:c,-1,0,1\tXC:B:C,255,0,1\tXH:B:s,-1,0,1\tXS:B:S,65535,0,1"
+            + "\tXI:B:i,-2147483648,0,2147483647\tXU:B:I,4294967295,0,1\tXJ:B:f,-1.5,0.0,1.0E-9\tXE:B:i";
+        // htsjdk keeps attributes ordered by binary tag
+        assertEquals(sorted(attributes), sorted(roundTrip(attributes)));
+    }
+
+    private static List<String> sorted(final String attributes) {
+        List<String> tokens = Arrays.asList(attributes.split("\t"));
+        Collections.sort(tokens);
+        return tokens;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import htsjdk.samtools.BAMRecord;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMFormatException;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMTag;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.TextTagCodec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for SamAttributeEncoder.
+ */
+public final class SamAttributeEncoderTest {
+    private SAMFileHeader header;
+    private SAMRecord samRecord;
+
+    @Before
+    public void setUp() {
+        header = new SAMFileHeader();
+        samRecord = new SAMRecord(header);
+        samRecord.setReadName("read");
+        samRecord.setReadString("ACTG");
+        samRecord.setBaseQualityString("IIII");
+    }
+
+    @Test
+    public void testEncodeEmpty() {
+        assertEquals("", SamAttributeEncoder.encode(samRecord, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testEncodeAppends() {
+        samRecord.setAttribute("XS", 42);
+        assertEquals("NM:i:1\tXS:i:42", SamAttributeEncoder.encode(samRecord, new StringBuilder("NM:i:1")).toString());
+    }
+
+    @Test
+    public void testEncodeSkipsTags() {
+        samRecord.setAttribute("MD", "4");
+        samRecord.setAttribute("OC", "4M");
+        samRecord.setAttribute("OP", 1);
+        samRecord.setAttribute("OQ", "IIII");
+        samRecord.setAttribute("XS", 42);
+        assertEquals("XS:i:42", SamAttributeEncoder.encode(samRecord, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testEncodeMatchesTextTagCodec() {
+        samRecord.setAttribute("MC", "4M");
+        samRecord.setAttribute("MQ", 60);
+        samRecord.setAttribute("AS", -12);
+        samRecord.setAttribute("XL", 4294967295L);
+        samRecord.setAttribute("XA", 'x');
+        samRecord.setAttribute("XF", 1.5f);
+        samRecord.setAttribute("XB", new byte[] { -1, 0, 1 });
+        samRecord.setAttribute("XH", new short[] { -1, 0, 1 });
+        samRecord.setAttribute("XI", new int[] { Integer.MIN_VALUE, 0, Integer.MAX_VALUE });
+        samRecord.setAttribute("XJ", new float[] { -1.5f, 0.0f, 1.0e-9f });
+
+        TextTagCodec codec = new TextTagCodec();
+        StringBuilder expected = new StringBuilder();
+        for (SAMRecord.SAMTagAndValue attribute : samRecord.getAttributes()) {
+            if (expected.length() > 0) {
+                expected.append('\t');
+            }
+            expected.append(codec.encode(attribute.tag, attribute.value));
+        }
+        assertEquals(expected.toString(), SamAttributeEncoder.encode(samRecord, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testEncodeUnsignedArrays() {
+        samRecord.setUnsignedArrayAttribute("XB", new byte[] { -1, 0, 1 });
+        samRecord.setUnsignedArrayAttribute("XH", new short[] { -1, 0, 1 });
+        samRecord.setUnsignedArrayAttribute("XI", new int[] { -1, 0, 1 });
+        assertEquals("XB:B:C,255,0,1\tXH:B:S,65535,0,1\tXI:B:I,4294967295,0,1", SamAttributeEncoder.encode(samRecord, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testEncodeEmptyArray() {
+        samRecord.setAttribute("XI", new int[0]);
+        assertEquals("XI:B:i", SamAttributeEncoder.encode(samRecord, new StringBuilder()).toString());
+    }
+
+    @Test(expected=SAMFormatException.class)
+    public void testEncodeIntegerOutOfRange() {
+        SamAttributeEncoder.encode(SAMTag.makeBinaryTag("XL"), Long.valueOf(4294967296L), false, new StringBuilder());
+    }
+
+    @Test
+    public void testEncodeBamRecord() throws IOException {
+        samRecord.setAttribute("MC", "4M");
+        samRecord.setAttribute("MQ", 60);
+        samRecord.setAttribute("MD", "4");
+        samRecord.setUnsignedArrayAttribute("XB", new byte[] { -1, 0, 1 });
+        samRecord.setReadUnmappedFlag(true);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, outputStream)) {
+            writer.addAlignment(samRecord);
+        }
+        try (SamReader reader = SamReaderFactory.makeDefault().open(SamInputResource.of(new ByteArrayInputStream(outputStream.toByteArray())));
+             SAMRecordIterator iterator = reader.iterator()) {
+            SAMRecord bamRecord = iterator.next();
+            assertTrue(bamRecord instanceof BAMRecord);
+            assertEquals("XB:B:C,255,0,1\tMC:Z:4M\tMQ:i:60", SamAttributeEncoder.encode(bamRecord, new StringBuilder()).toString());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.concurrent.TimeUnit;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMLineParser;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for SamLineToAlignment, compared with parsing a SAMRecord and converting it
+ * with SamRecordToAlignment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamLineToAlignmentBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SamLineToAlignmentBenchmark.class);
+    private static final String LINE = "read/1\t99\t1\t1000\t60\t100M\t=\t1200\t300"
+        + "\tACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTG"
+        + "\tIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIII"
+        + "\tRG:Z:rg1\tMC:Z:100M\tMQ:i:60\tAS:i:95\tXS:i:42\tNM:i:1\tMD:Z:50A49\tBC:Z:ACGTACGT\tZF:f:0.75\tZB:B:C,1,2,3,4,5,6,7,8";
+    private SAMLineParser parser;
+    private SamRecordToAlignment samRecordConverter;
+    private SamLineToAlignment samLineConverter;
+    private Alignment alignment;
+
+
+    @Setup
+    public void setUp() {
+        SAMFileHeader header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
+        parser = new SAMLineParser(header);
+        samRecordConverter = new SamRecordToAlignment();
+        samLineConverter = new SamLineToAlignment(header);
+        alignment = new Alignment();
+    }
+
+    @Benchmark
+    public Alignment samRecord() {
+        return samRecordConverter.convertInto(parser.parseLine(LINE), alignment, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public Alignment samLine() {
+        return samLineConverter.convertInto(LINE, alignment, ConversionStringency.STRICT, logger);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SamLineToAlignmentBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMLineParser;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.FailureAggregator;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for SamLineToAlignment.
+ */
+public final class SamLineToAlignmentTest {
+    private final Logger logger = LoggerFactory.getLogger(SamLineToAlignmentTest.class);
+    private static final String LINE = "read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC\tIIIIIIIIII\tRG:Z:rg1\tXS:i:42";
+    private SAMFileHeader header;
+    private SAMLineParser parser;
+    private Converter<CharSequence, Alignment> converter;
+    private Converter<SAMRecord, Alignment> samRecordConverter;
+
+    @Before
+    public void setUp() {
+        header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("2", 2000000));
+
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
+        parser = new SAMLineParser(header);
+        converter = new SamLineToAlignment(header);
+        samRecordConverter = new SamRecordToAlignment();
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(converter);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() {
+        new SamLineToAlignment(null);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        converter.convert(null, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(converter.convert(null, LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(converter.convert(null, SILENT, logger));
+    }
+
+    @Test
+    public void testConvert() {
+        Alignment alignment = converter.convert(LINE, STRICT, logger);
+        assertEquals(expected(LINE), alignment);
+        assertEquals("read1", alignment.getReadName());
+        assertEquals("1", alignment.getReferenceName());
+        assertEquals(Long.valueOf(99L), alignment.getStart());
+        assertEquals(Long.valueOf(109L), alignment.getEnd());
+        assertEquals(Integer.valueOf(60), alignment.getMappingQuality());
+        assertEquals("ACTGACTGAC", alignment.getSequence());
+        assertEquals("IIIIIIIIII", alignment.getQualityScores());
+        assertEquals("rg1", alignment.getReadGroupId());
+        assertEquals("sample1", alignment.getReadGroupSampleId());
+        assertEquals("RG:Z:rg1\tXS:i:42", alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertStringBuilder() {
+        assertEquals(expected(LINE), converter.convert(new StringBuilder(LINE).append("\r"), STRICT, logger));
+    }
+
+    @Test
+    public void testConvertPairedHardClipped() {
+        String line = "read1\t1187\t1\t100\t60\t2H3S5M1I1D1M3H\t2\t400\t-310\tACTGACTGAC\tIIIIIIIIII\tXS:i:42";
+        Alignment alignment = converter.convert(line, STRICT, logger);
+        assertEquals(expected(line), alignment);
+        assertEquals("2H3S5M1I1D1M3H", alignment.getCigar());
+        assertEquals(Integer.valueOf(2), alignment.getBasesTrimmedFromStart());
+        assertEquals(Integer.valueOf(3), alignment.getBasesTrimmedFromEnd());
+        assertEquals(Long.valueOf(106L), alignment.getEnd());
+        assertEquals("2", alignment.getMateReferenceName());
+        assertEquals(Long.valueOf(399L), alignment.getMateAlignmentStart());
+        assertEquals(Long.valueOf(-310L), alignment.getInsertSize());
+        assertEquals(Integer.valueOf(1), alignment.getReadInFragment());
+        assertTrue(alignment.getProperPair());
+        assertTrue(alignment.getMateNegativeStrand());
+        assertTrue(alignment.getDuplicateRead());
+    }
+
+    @Test
+    public void testConvertMateSameReference() {
+        String line = "read1\t65\t2\t100\t60\t10M\t=\t300\t210\tACTGACTGAC\tIIIIIIIIII";
+        Alignment alignment = converter.convert(line, STRICT, logger);
+        assertEquals(expected(line), alignment);
+        assertEquals("2", alignment.getMateReferenceName());
+        assertNull(alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertUnmapped() {
+        String line = "unmapped\t4\t*\t0\t0\t*\t*\t0\t0\tACTGA\t*";
+        Alignment alignment = converter.convert(line, STRICT, logger);
+        assertEquals(expected(line), alignment);
+        assertFalse(alignment.getReadMapped());
+        assertNull(alignment.getReferenceName());
+        assertNull(alignment.getStart());
+        assertNull(alignment.getCigar());
+        assertNull(alignment.getQualityScores());
+    }
+
+    @Test
+    public void testConvertTags() {
+        String line = "read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC\tIIIIIIIIII\tMD:Z:10\tOC:Z:5M1I4M\tOP:i:90\tOQ:Z:##########\tZF:f:0.75\tZB:B:C,1,2";
+        Alignment alignment = converter.convert(line, STRICT, logger);
+        assertEquals("10", alignment.getMismatchingPositions());
+        assertEquals("5M1I4M", alignment.getOriginalCigar());
+        assertEquals(Long.valueOf(89L), alignment.getOriginalStart());
+        assertEquals("##########", alignment.getOriginalQualityScores());
+        assertEquals("ZF:f:0.75\tZB:B:C,1,2", alignment.getAttributes());
+        assertNull(alignment.getReadGroupId());
+    }
+
+    @Test
+    public void testConvertTagsVerbatim() {
+        String line = "read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC\tIIIIIIIIII\tXS:i:42\tRG:Z:rg1\tXH:H:1AE3";
+        assertEquals("XS:i:42\tRG:Z:rg1\tXH:H:1AE3", converter.convert(line, STRICT, logger).getAttributes());
+    }
+
+    @Test
+    public void testConvertInto() {
+        String second = "read2\t0\t2\t200\t255\t2H8M\t*\t0\t0\tACTGACTG\t*";
+        Alignment reuse = converter.convertInto(LINE, null, STRICT, logger);
+        assertEquals(expected(LINE), reuse);
+        assertSame(reuse, converter.convertInto(second, reuse, STRICT, logger));
+        assertEquals(expected(second), reuse);
+        assertNull(reuse.getMappingQuality());
+        assertNull(reuse.getReadGroupId());
+        assertNull(reuse.getAttributes());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertTooFewColumnsStrict() {
+        converter.convert("read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC", STRICT, logger);
+    }
+
+    @Test
+    public void testConvertTooFewColumnsLenient() {
+        assertNull(converter.convert("read1\t0\t1\t100\t60\t10M\t*\t0\t0\tACTGACTGAC", LENIENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidFlagStrict() {
+        converter.convert(LINE.replace("\t0\t1\t", "\tnot a number\t1\t"), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidFlagSilent() {
+        assertNull(converter.convert(LINE.replace("\t0\t1\t", "\tnot a number\t1\t"), SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidCigarStrict() {
+        converter.convert(LINE.replace("10M", "10Q"), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidCigarMessage() {
+        try {
+            converter.convert(LINE.replace("10M", "10Q"), STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            assertTrue(e.getMessage().endsWith("invalid cigar: 10Q"));
+        }
+    }
+
+    @Test
+    public void testConvertInvalidCigarAggregated() {
+        try (FailureAggregator failures = FailureAggregator.aggregate(logger)) {
+            converter.convert(LINE.replace("10M", "10Q"), LENIENT, logger);
+            converter.convert(LINE.replace("10M", "9Q"), LENIENT, logger);
+            // invalid cigar values are kept with the example sources, not in the message template
+            assertEquals(1, failures.getCounts().size());
+            assertTrue(failures.getSamples().values().iterator().next().get(0).startsWith("10Q: "));
+        }
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidTagStrict() {
+        converter.convert(LINE + "\tXS42", STRICT, logger);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertReferenceNotInHeaderStrict() {
+        converter.convert(LINE.replace("\t0\t1\t", "\t0\tchrX\t"), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertReferenceNotInHeaderLenient() {
+        Alignment alignment = converter.convert(LINE.replace("\t0\t1\t", "\t0\tchrX\t"), LENIENT, logger);
+        assertNull(alignment.getReferenceName());
+        assertNull(alignment.getStart());
+        assertEquals("read1", alignment.getReadName());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidStartStrict() {
+        converter.convert(LINE.replace("\t100\t", "\t0\t"), STRICT, logger);
+    }
+
+    @Test
+    public void testParseLong() {
+        assertEquals(42L, SamLineToAlignment.parseLong("x42x", 1, 3));
+        assertEquals(-310L, SamLineToAlignment.parseLong("-310", 0, 4));
+        assertEquals(3000000000L, SamLineToAlignment.parseLong("+3000000000", 0, 11));
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testParseLongEmpty() {
+        SamLineToAlignment.parseLong("x", 1, 1);
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testParseLongSignOnly() {
+        SamLineToAlignment.parseLong("-", 0, 1);
+    }
+
+    private Alignment expected(final String line) {
+        return samRecordConverter.convert(parser.parseLine(line), STRICT, logger);
+    }
+}
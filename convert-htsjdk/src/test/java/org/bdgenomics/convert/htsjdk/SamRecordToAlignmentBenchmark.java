@@ -0,0 +1,192 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.util.Arrays;
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import htsjdk.samtools.SAMBinaryTagAndValue;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTag;
+import htsjdk.samtools.TextTagCodec;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for SamRecordToAlignment on tag-heavy records and long reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamRecordToAlignmentBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SamRecordToAlignmentBenchmark.class);
+    private static final TextTagCodec TAG_CODEC = new TextTagCodec();
+    private SamRecordToAlignment samRecordConverter;
+    private SamRecordToAlignment coordinatesConverter;
+    private static final Pattern FIRST_CIGAR_OPERATION = Pattern.compile("^([0-9]*)([A-Z]).*$");
+    private static final Pattern LAST_CIGAR_OPERATION = Pattern.compile("^.*([0-9]*)([A-Z])$");
+    private SAMRecord samRecord;
+    private SAMRecord longRead;
+    private StringBuilder sb;
+    private Alignment alignment;
+
+
+    @Setup
+    public void setUp() {
+        samRecordConverter = new SamRecordToAlignment();
+        coordinatesConverter = new SamRecordToAlignment(Arrays.asList("referenceName", "start", "end", "mappingQuality", "readMapped", "readNegativeStrand", "duplicateRead", "primaryAlignment"));
+        sb = new StringBuilder(512);
+        alignment = new Alignment();
+
+        SAMFileHeader header = new SAMFileHeader();
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        samRecord = new SAMRecord(header);
+        samRecord.setReadName("read/1");
+        samRecord.setReadString("ACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTGACTG");
+        samRecord.setBaseQualityString("IIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIIII");
+        samRecord.setCigarString("100M");
+        samRecord.setAttribute("MC", "100M");
+        samRecord.setAttribute("MQ", 60);
+        samRecord.setAttribute("AS", 95);
+        samRecord.setAttribute("XS", 42);
+        samRecord.setAttribute("NM", 1);
+        samRecord.setAttribute("MD", "50A49");
+        samRecord.setAttribute("BC", "ACGTACGT");
+        samRecord.setAttribute("QT", "IIIIIIII");
+        samRecord.setAttribute("ZF", 0.75f);
+        samRecord.setUnsignedArrayAttribute("ZB", new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+        // long read with a cigar of several thousand operations, as from a BAM file
+        StringBuilder cigar = new StringBuilder("1200S");
+        StringBuilder read = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            read.append('A');
+        }
+        for (int i = 0; i < 2000; i++) {
+            cigar.append("9M1I3M2D");
+            read.append("ACTGACTGACTGA");
+        }
+        longRead = new SAMRecord(header);
+        longRead.setReadName("long");
+        longRead.setReferenceIndex(0);
+        longRead.setAlignmentStart(1000);
+        longRead.setCigarString(cigar.toString());
+        longRead.setReadString(read.toString());
+        longRead.setBaseQualities(SAMRecord.NULL_QUALS);
+        longRead.getCigar();
+    }
+
+    @Benchmark
+    public long regexTrims() {
+        String cigar = longRead.getCigarString();
+        long trims = 0L;
+        Matcher m = FIRST_CIGAR_OPERATION.matcher(cigar);
+        if (m.matches() && "H".equals(m.group(2))) {
+            trims += Integer.parseInt(m.group(1));
+        }
+        m = LAST_CIGAR_OPERATION.matcher(cigar);
+        if (m.matches() && "H".equals(m.group(2))) {
+            trims += Integer.parseInt(m.group(1));
+        }
+        return trims + longRead.getCigar().getReferenceLength();
+    }
+
+    @Benchmark
+    public Alignment convertLongRead() {
+        return samRecordConverter.convertInto(longRead, alignment, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public String reflectiveEncoder() {
+        StringBuilder sb = new StringBuilder();
+        SAMBinaryTagAndValue attribute = getBinaryAttributes(samRecord);
+        while (attribute != null) {
+            if (!SamAttributeEncoder.skipTag(attribute.tag)) {
+                sb.append(TAG_CODEC.encode(SAMTag.makeStringTag(attribute.tag), attribute.value));
+                sb.append("\t");
+            }
+            attribute = attribute.getNext();
+        }
+        return sb.toString().trim();
+    }
+
+    @Benchmark
+    public String attributeEncoder() {
+        sb.setLength(0);
+        return SamAttributeEncoder.encode(samRecord, sb).toString();
+    }
+
+    @Benchmark
+    public Alignment convert() {
+        return samRecordConverter.convert(samRecord, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public Alignment convertInto() {
+        return samRecordConverter.convertInto(samRecord, alignment, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public Alignment convertIntoCoordinates() {
+        return coordinatesConverter.convertInto(samRecord, alignment, ConversionStringency.STRICT, logger);
+    }
+
+    private static SAMBinaryTagAndValue getBinaryAttributes(final SAMRecord samRecord) {
+        try {
+            java.lang.reflect.Field f = samRecord.getClass().getDeclaredField("mAttributes");
+            f.setAccessible(true);
+            return (SAMBinaryTagAndValue) f.get(samRecord);
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SamRecordToAlignmentBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -22,11 +22,19 @@ import static org.bdgenomics.convert.ConversionStringency.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceRecord;
 
+import org.apache.avro.Schema;
+
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
@@ -54,6 +62,10 @@ public final class SamRecordToAlignmentTest {
         SAMSequenceRecord sequenceRecord = new SAMSequenceRecord("1", 3000000);
         header.getSequenceDictionary().addSequence(sequenceRecord);
 
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
         converter = new SamRecordToAlignment();
     }
 
@@ -62,6 +74,26 @@ public final class SamRecordToAlignmentTest {
         assertNotNull(converter);
     }
 
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullProjection() {
+        new SamRecordToAlignment((Schema) null);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorProjectionNotRecord() {
+        new SamRecordToAlignment(Schema.create(Schema.Type.STRING));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullFieldNames() {
+        new SamRecordToAlignment((List<String>) null);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorUnknownFieldName() {
+        new SamRecordToAlignment(Arrays.asList("readName", "notAField"));
+    }
+
     @Test(expected=ConversionException.class)
     public void testConvertNullSourceStrict() {
         converter.convert(null, STRICT, logger);
@@ -151,4 +183,233 @@ public final class SamRecordToAlignmentTest {
     public void testConvert() {
         // todo
     }
+
+    @Test
+    public void testConvertHardClips() {
+        SAMRecord samRecord = createSamRecord("read1", 100, null);
+        samRecord.setCigarString("12H4M2D4M1I1M25H");
+
+        Alignment alignment = converter.convert(samRecord, STRICT, logger);
+        assertEquals("12H4M2D4M1I1M25H", alignment.getCigar());
+        assertEquals(Integer.valueOf(12), alignment.getBasesTrimmedFromStart());
+        assertEquals(Integer.valueOf(25), alignment.getBasesTrimmedFromEnd());
+        assertEquals(Long.valueOf(99L), alignment.getStart());
+        assertEquals(Long.valueOf(110L), alignment.getEnd());
+    }
+
+    @Test
+    public void testConvertSoftClips() {
+        SAMRecord samRecord = createSamRecord("read1", 100, null);
+        samRecord.setCigarString("2S6M2S");
+
+        Alignment alignment = converter.convert(samRecord, STRICT, logger);
+        assertEquals(Integer.valueOf(0), alignment.getBasesTrimmedFromStart());
+        assertEquals(Integer.valueOf(0), alignment.getBasesTrimmedFromEnd());
+        assertEquals(Long.valueOf(105L), alignment.getEnd());
+    }
+
+    @Test
+    public void testConvertLongCigar() {
+        StringBuilder cigar = new StringBuilder("100H");
+        StringBuilder read = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            cigar.append("10M1I2D");
+            read.append("ACTGACTGACT");
+        }
+        cigar.append("5H");
+
+        SAMRecord samRecord = createSamRecord("read1", 100, null);
+        samRecord.setCigarString(cigar.toString());
+        samRecord.setReadString(read.toString());
+        samRecord.setBaseQualities(SAMRecord.NULL_QUALS);
+
+        Alignment alignment = converter.convert(samRecord, STRICT, logger);
+        assertEquals(Integer.valueOf(100), alignment.getBasesTrimmedFromStart());
+        assertEquals(Integer.valueOf(5), alignment.getBasesTrimmedFromEnd());
+        assertEquals(Long.valueOf(99L + 2000L * 12L), alignment.getEnd());
+    }
+
+    @Test
+    public void testConvertUnmappedNoCigar() {
+        SAMRecord samRecord = new SAMRecord(header);
+        samRecord.setReadName("read1");
+        samRecord.setReadUnmappedFlag(true);
+        samRecord.setReadString("ACTG");
+
+        Alignment alignment = converter.convert(samRecord, STRICT, logger);
+        assertNull(alignment.getCigar());
+        assertNull(alignment.getEnd());
+        assertEquals(Integer.valueOf(0), alignment.getBasesTrimmedFromStart());
+        assertEquals(Integer.valueOf(0), alignment.getBasesTrimmedFromEnd());
+    }
+
+    @Test
+    public void testConvertAll() {
+        SAMRecord first = createSamRecord("read1", 100, "rg1");
+        SAMRecord second = createSamRecord("read2", 200, null);
+        SAMRecord third = createSamRecord("read3", 300, "rg1");
+
+        List<Alignment> alignments = converter.convertAll(Arrays.asList(first, null, second, third), new ArrayList<Alignment>(), LENIENT, logger);
+        assertEquals(4, alignments.size());
+        assertEquals(converter.convert(first, STRICT, logger), alignments.get(0));
+        assertNull(alignments.get(1));
+        assertEquals(converter.convert(second, STRICT, logger), alignments.get(2));
+        assertEquals(converter.convert(third, STRICT, logger), alignments.get(3));
+
+        assertEquals("read1", alignments.get(0).getReadName());
+        assertEquals(Long.valueOf(99L), alignments.get(0).getStart());
+        assertEquals(Long.valueOf(109L), alignments.get(0).getEnd());
+        assertEquals("rg1", alignments.get(0).getReadGroupId());
+        assertEquals("sample1", alignments.get(0).getReadGroupSampleId());
+        assertEquals("RG:Z:rg1\tXS:i:42", alignments.get(0).getAttributes());
+        assertNull(alignments.get(2).getReadGroupId());
+        assertNull(alignments.get(2).getReadGroupSampleId());
+        assertEquals("sample1", alignments.get(3).getReadGroupSampleId());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertAllNullSourceStrict() {
+        converter.convertAll(Arrays.asList(createSamRecord("read1", 100, "rg1"), null), new ArrayList<Alignment>(), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInto() {
+        SAMRecord first = createSamRecord("read1", 100, "rg1");
+        first.setAttribute("MD", "10");
+        first.setReadPairedFlag(true);
+        first.setSecondOfPairFlag(true);
+        first.setMateReferenceIndex(0);
+        first.setMateAlignmentStart(300);
+        first.setInferredInsertSize(210);
+        SAMRecord second = createSamRecord("read2", 200, null);
+        second.setCigarString("2H8M");
+
+        Alignment reuse = converter.convertInto(first, null, STRICT, logger);
+        assertEquals(converter.convert(first, STRICT, logger), reuse);
+        assertEquals(Integer.valueOf(1), reuse.getReadInFragment());
+        assertEquals("10", reuse.getMismatchingPositions());
+
+        assertSame(reuse, converter.convertInto(second, reuse, STRICT, logger));
+        assertEquals(converter.convert(second, STRICT, logger), reuse);
+        assertNull(reuse.getMismatchingPositions());
+        assertNull(reuse.getMateReferenceName());
+        assertNull(reuse.getInsertSize());
+        assertNull(reuse.getReadGroupId());
+        assertEquals(Integer.valueOf(0), reuse.getReadInFragment());
+        assertEquals(Integer.valueOf(2), reuse.getBasesTrimmedFromStart());
+    }
+
+    @Test
+    public void testConvertIntoNullSourceSilent() {
+        assertNull(converter.convertInto(null, new Alignment(), SILENT, logger));
+    }
+
+    @Test
+    public void testConvertProjection() {
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        samRecord.setAttribute("MD", "10");
+        samRecord.setCigarString("2H10M");
+
+        Converter<SAMRecord, Alignment> projected = new SamRecordToAlignment(Arrays.asList("referenceName", "start", "end", "mappingQuality", "readMapped", "duplicateRead"));
+        Alignment alignment = projected.convert(samRecord, STRICT, logger);
+        assertEquals("1", alignment.getReferenceName());
+        assertEquals(Long.valueOf(99L), alignment.getStart());
+        assertEquals(Long.valueOf(109L), alignment.getEnd());
+        assertEquals(Integer.valueOf(60), alignment.getMappingQuality());
+        assertEquals(true, alignment.getReadMapped());
+        assertEquals(false, alignment.getDuplicateRead());
+
+        assertNull(alignment.getReadName());
+        assertNull(alignment.getSequence());
+        assertNull(alignment.getQualityScores());
+        assertNull(alignment.getCigar());
+        assertNull(alignment.getMismatchingPositions());
+        assertNull(alignment.getReadGroupId());
+        assertNull(alignment.getReadGroupSampleId());
+        assertNull(alignment.getAttributes());
+        assertEquals(Integer.valueOf(0), alignment.getBasesTrimmedFromStart());
+        assertEquals(false, alignment.getPrimaryAlignment());
+    }
+
+    @Test
+    public void testConvertProjectionSchema() {
+        List<Schema.Field> fields = new ArrayList<Schema.Field>();
+        for (String fieldName : Arrays.asList("readName", "sequence", "qualityScores", "readGroupSampleId")) {
+            Schema.Field field = Alignment.getClassSchema().getField(fieldName);
+            fields.add(new Schema.Field(field, field.schema()));
+        }
+        Schema projection = Schema.createRecord("Alignment", null, "org.bdgenomics.formats.avro", false, fields);
+
+        Alignment alignment = new SamRecordToAlignment(projection).convert(createSamRecord("read1", 100, "rg1"), STRICT, logger);
+        assertEquals("read1", alignment.getReadName());
+        assertEquals("ACTGACTGAC", alignment.getSequence());
+        assertEquals("IIIIIIIIII", alignment.getQualityScores());
+        assertEquals("sample1", alignment.getReadGroupSampleId());
+        assertNull(alignment.getReadGroupId());
+        assertNull(alignment.getReferenceName());
+        assertNull(alignment.getStart());
+        assertNull(alignment.getAttributes());
+    }
+
+    @Test
+    public void testConvertProjectionAll() {
+        Converter<SAMRecord, Alignment> projected = new SamRecordToAlignment(Alignment.getClassSchema());
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        assertEquals(converter.convert(samRecord, STRICT, logger), projected.convert(samRecord, STRICT, logger));
+    }
+
+    @Test
+    public void testConvertProjectionInvalidStartNotProjected() {
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        samRecord.setAlignmentStart(0);
+        Alignment alignment = new SamRecordToAlignment(Arrays.asList("readName")).convert(samRecord, STRICT, logger);
+        assertEquals("read1", alignment.getReadName());
+    }
+
+    @Test
+    public void testConvertIntoProjection() {
+        SAMRecord samRecord = createSamRecord("read1", 100, "rg1");
+        Alignment reuse = converter.convert(samRecord, STRICT, logger);
+
+        Converter<SAMRecord, Alignment> projected = new SamRecordToAlignment(Arrays.asList("readGroupId", "start"));
+        assertSame(reuse, projected.convertInto(samRecord, reuse, STRICT, logger));
+        assertEquals("rg1", reuse.getReadGroupId());
+        assertEquals(Long.valueOf(99L), reuse.getStart());
+        assertNull(reuse.getEnd());
+        assertNull(reuse.getReadName());
+        assertNull(reuse.getSequence());
+        assertNull(reuse.getAttributes());
+        assertNull(reuse.getReadGroupSampleId());
+    }
+
+    @Test
+    public void testConvertAllProjection() {
+        SAMRecord first = createSamRecord("read1", 100, "rg1");
+        SAMRecord second = createSamRecord("read2", 200, null);
+
+        Converter<SAMRecord, Alignment> projected = new SamRecordToAlignment(Arrays.asList("readName", "readGroupId"));
+        List<Alignment> alignments = projected.convertAll(Arrays.asList(first, second), new ArrayList<Alignment>(), STRICT, logger);
+        assertEquals(2, alignments.size());
+        assertEquals(projected.convert(first, STRICT, logger), alignments.get(0));
+        assertEquals("rg1", alignments.get(0).getReadGroupId());
+        assertNull(alignments.get(1).getReadGroupId());
+        assertNull(alignments.get(0).getStart());
+        assertNull(alignments.get(0).getAttributes());
+    }
+
+    private SAMRecord createSamRecord(final String readName, final int start, final String readGroupId) {
+        SAMRecord samRecord = new SAMRecord(header);
+        samRecord.setReadName(readName);
+        samRecord.setReferenceIndex(0);
+        samRecord.setAlignmentStart(start);
+        samRecord.setCigarString("10M");
+        samRecord.setMappingQuality(60);
+        samRecord.setReadString("ACTGACTGAC");
+        samRecord.setBaseQualityString("IIIIIIIIII");
+        samRecord.setAttribute("XS", 42);
+        if (readGroupId != null) {
+            samRecord.setAttribute("RG", readGroupId);
+        }
+        return samRecord;
+    }
 }
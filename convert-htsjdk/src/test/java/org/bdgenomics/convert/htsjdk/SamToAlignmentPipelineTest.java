@@ -0,0 +1,219 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+
+import org.apache.avro.specific.SpecificDatumReader;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.junit.rules.TemporaryFolder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for SamToAlignmentPipeline.
+ */
+public final class SamToAlignmentPipelineTest {
+    private final Logger logger = LoggerFactory.getLogger(SamToAlignmentPipelineTest.class);
+    private Converter<SAMRecord, Alignment> converter;
+    private SAMFileHeader header;
+    private List<SAMRecord> records;
+    private File bam;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws IOException {
+        converter = new SamRecordToAlignment();
+
+        header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.getSequenceDictionary().addSequence(new SAMSequenceRecord("1", 3000000));
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setSample("sample1");
+        header.addReadGroup(readGroup);
+
+        records = new ArrayList<SAMRecord>();
+        for (int i = 0; i < 100; i++) {
+            SAMRecord record = new SAMRecord(header);
+            record.setReadName("read" + i);
+            record.setReferenceName("1");
+            record.setAlignmentStart(1000 + i);
+            record.setMappingQuality(60);
+            record.setCigarString("10M");
+            record.setReadString("ACGTACGTAC");
+            record.setBaseQualityString("IIIIIIIIII");
+            record.setAttribute("RG", "rg1");
+            record.setAttribute("NM", i % 3);
+            records.add(record);
+        }
+
+        bam = temporaryFolder.newFile("test.bam");
+        try (SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, bam)) {
+            for (SAMRecord record : records) {
+                writer.addAlignment(record);
+            }
+        }
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(new SamToAlignmentPipeline(converter, 1, SamToAlignmentPipeline.DEFAULT_BATCH_SIZE));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullConverter() {
+        new SamToAlignmentPipeline(null, 1, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroThreads() {
+        new SamToAlignmentPipeline(converter, 0, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroBatchSize() {
+        new SamToAlignmentPipeline(converter, 1, 0);
+    }
+
+    @Test
+    public void testConvertFile() throws Exception {
+        File output = temporaryFolder.newFile("test.alignments.avro");
+        PipelineStatistics statistics = new SamToAlignmentPipeline(converter, 3, 7).convert(bam, output, CodecFactory.deflateCodec(1), ConversionStringency.STRICT, logger);
+        assertEquals(100L, statistics.getRead());
+        assertEquals(100L, statistics.getWritten());
+        assertEquals(0L, statistics.getSkipped());
+        assertEquals(expected(records), read(output));
+    }
+
+    @Test
+    public void testConvertFileSingleThread() throws Exception {
+        File output = temporaryFolder.newFile("test.alignments.avro");
+        new SamToAlignmentPipeline(converter, 1, 7).convert(bam, output, ConversionStringency.STRICT, logger);
+        assertEquals(expected(records), read(output));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertStrict() throws Exception {
+        new SamToAlignmentPipeline(new FailingConverter(), 3, 7).convert(open(), new ByteArrayOutputStream(), CodecFactory.nullCodec(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertLenient() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PipelineStatistics statistics = new SamToAlignmentPipeline(new FailingConverter(), 3, 7).convert(open(), outputStream, CodecFactory.nullCodec(), ConversionStringency.LENIENT, logger);
+        assertEquals(100L, statistics.getRead());
+        assertEquals(90L, statistics.getWritten());
+        assertEquals(10L, statistics.getSkipped());
+
+        List<Alignment> alignments = new ArrayList<Alignment>();
+        try (DataFileStream<Alignment> reader = new DataFileStream<Alignment>(new ByteArrayInputStream(outputStream.toByteArray()), new SpecificDatumReader<Alignment>(Alignment.class))) {
+            for (Alignment alignment : reader) {
+                alignments.add(alignment);
+            }
+        }
+        List<SAMRecord> valid = new ArrayList<SAMRecord>();
+        for (int i = 0; i < records.size(); i++) {
+            if (i % 10 != 0) {
+                valid.add(records.get(i));
+            }
+        }
+        assertEquals(expected(valid), alignments);
+    }
+
+    private SamReader open() {
+        return SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(bam);
+    }
+
+    private List<Alignment> expected(final List<SAMRecord> samRecords) throws IOException {
+        List<Alignment> alignments = new ArrayList<Alignment>();
+        try (SamReader reader = open()) {
+            for (SAMRecord record : reader) {
+                if (samRecords.stream().anyMatch(r -> r.getReadName().equals(record.getReadName()))) {
+                    alignments.add(converter.convert(record, ConversionStringency.STRICT, logger));
+                }
+            }
+        }
+        return alignments;
+    }
+
+    private static List<Alignment> read(final File file) throws IOException {
+        List<Alignment> alignments = new ArrayList<Alignment>();
+        try (DataFileReader<Alignment> reader = new DataFileReader<Alignment>(file, new SpecificDatumReader<Alignment>(Alignment.class))) {
+            for (Alignment alignment : reader) {
+                alignments.add(alignment);
+            }
+        }
+        return alignments;
+    }
+
+    /**
+     * Converter that fails on every tenth read.
+     */
+    final class FailingConverter extends AbstractConverter<SAMRecord, Alignment> {
+
+        FailingConverter() {
+            super(SAMRecord.class, Alignment.class);
+        }
+
+        @Override
+        public Alignment convert(final SAMRecord samRecord, final ConversionStringency stringency, final Logger logger) {
+            if (Integer.parseInt(samRecord.getReadName().substring(4)) % 10 == 0) {
+                warnOrThrow(samRecord, "every tenth read fails", null, stringency, logger);
+                return null;
+            }
+            return converter.convert(samRecord, stringency, logger);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.bdgenomics.convert.htsjdk.GenotypesToVariantContextTest.BIALLELIC;
+import static org.bdgenomics.convert.htsjdk.GenotypesToVariantContextTest.HEADER;
+import static org.bdgenomics.convert.htsjdk.GenotypesToVariantContextTest.MULTIALLELIC;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFEncoder;
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.FailureAggregator;
+
+import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.Variant;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for VariantContextGrouper.
+ */
+public final class VariantContextGrouperTest {
+    private final Logger logger = LoggerFactory.getLogger(VariantContextGrouperTest.class);
+    private static final String REFERENCE_ONLY = "1\t300\t.\tT\t.\t.\t.\t.\tGT\t0/0\t0/0\t0/0";
+
+    VCFCodec codec;
+    VCFHeader header;
+    VCFEncoder encoder;
+    VariantContextGrouper grouper;
+
+    @Before
+    public void setUp() {
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        encoder = new VCFEncoder(header, true, false);
+        grouper = new VariantContextGrouper(header);
+    }
+
+    private List<Variant> variants(final String... lines) {
+        List<Variant> variants = new ArrayList<Variant>();
+        for (String line : lines) {
+            variants.addAll(new VariantContextToVariants(header).convert(codec.decode(line), STRICT, logger));
+        }
+        return variants;
+    }
+
+    private List<Genotype> genotypes(final String... lines) {
+        List<Genotype> genotypes = new ArrayList<Genotype>();
+        for (String line : lines) {
+            genotypes.addAll(new VariantContextToGenotypes(header).convert(codec.decode(line), STRICT, logger));
+        }
+        return genotypes;
+    }
+
+    private List<String> encode(final Iterator<VariantContext> variantContexts) {
+        List<String> lines = new ArrayList<String>();
+        while (variantContexts.hasNext()) {
+            lines.add(encoder.encode(variantContexts.next()));
+        }
+        return lines;
+    }
+
+    private List<String> encode(final String... lines) {
+        List<String> encoded = new ArrayList<String>();
+        for (String line : lines) {
+            VariantContext variantContext = codec.decode(line);
+            variantContext.getGenotypes().size();
+            encoded.add(encoder.encode(variantContext));
+        }
+        return encoded;
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(grouper);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() {
+        new VariantContextGrouper(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectAppender() {
+        new VariantContextGrouper(header, null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testGroupVariantsNullVariants() {
+        grouper.groupVariants(null, STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testGroupGenotypesNullStringency() {
+        grouper.groupGenotypes(genotypes(BIALLELIC).iterator(), null, logger);
+    }
+
+    @Test
+    public void testGroupVariantsEmpty() {
+        Iterator<VariantContext> variantContexts = grouper.groupVariants(new ArrayList<Variant>().iterator(), STRICT, logger);
+        assertFalse(variantContexts.hasNext());
+    }
+
+    @Test(expected=NoSuchElementException.class)
+    public void testGroupVariantsNoSuchElement() {
+        grouper.groupVariants(new ArrayList<Variant>().iterator(), STRICT, logger).next();
+    }
+
+    @Test
+    public void testGroupVariants() {
+        List<Variant> variants = variants(BIALLELIC, MULTIALLELIC, REFERENCE_ONLY);
+        assertEquals(4, variants.size());
+
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        grouper.groupVariants(variants.iterator(), STRICT, logger).forEachRemaining(variantContexts::add);
+        assertEquals(3, variantContexts.size());
+
+        VariantContext multiAllelic = variantContexts.get(1);
+        assertEquals(200, multiAllelic.getStart());
+        assertEquals(2, multiAllelic.getAlternateAlleles().size());
+        assertEquals(Arrays.asList(1, 2), multiAllelic.getAttributeAsIntList("AC", 0));
+        assertTrue(multiAllelic.getFilters().contains("q10"));
+        assertFalse(multiAllelic.hasGenotypes());
+        assertEquals(0, variantContexts.get(2).getAlternateAlleles().size());
+    }
+
+    @Test
+    public void testGroupGenotypes() {
+        assertEquals(encode(BIALLELIC, MULTIALLELIC, REFERENCE_ONLY),
+                     encode(grouper.groupGenotypes(genotypes(BIALLELIC, MULTIALLELIC, REFERENCE_ONLY).iterator(), STRICT, logger)));
+    }
+
+    @Test
+    public void testGroupGenotypesSameSiteNotConsecutive() {
+        List<Genotype> genotypes = genotypes(MULTIALLELIC, BIALLELIC, MULTIALLELIC);
+        assertEquals(3, encode(grouper.groupGenotypes(genotypes.iterator(), STRICT, logger)).size());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testGroupGenotypesSampleNotInHeaderStrict() {
+        List<Genotype> genotypes = genotypes(BIALLELIC);
+        genotypes.set(1, Genotype.newBuilder(genotypes.get(1)).setSampleId("S9").build());
+        encode(grouper.groupGenotypes(genotypes.iterator(), STRICT, logger));
+    }
+
+    @Test
+    public void testGroupGenotypesSampleNotInHeaderLenient() {
+        List<Genotype> genotypes = genotypes(BIALLELIC, MULTIALLELIC);
+        genotypes.set(1, Genotype.newBuilder(genotypes.get(1)).setSampleId("S9").build());
+        genotypes.add(2, null);
+
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        grouper.groupGenotypes(genotypes.iterator(), LENIENT, logger).forEachRemaining(variantContexts::add);
+        assertEquals(2, variantContexts.size());
+        assertEquals(2, variantContexts.get(0).getNSamples());
+        assertFalse(variantContexts.get(0).hasGenotype("S2"));
+        assertEquals(3, variantContexts.get(1).getNSamples());
+    }
+
+    @Test
+    public void testGroupGenotypesLenientAggregated() {
+        List<Genotype> genotypes = genotypes(BIALLELIC, MULTIALLELIC);
+        genotypes.add(2, null);
+        genotypes.add(3, null);
+
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        try (FailureAggregator failures = FailureAggregator.aggregate(logger)) {
+            grouper.groupGenotypes(genotypes.iterator(), LENIENT, logger).forEachRemaining(variantContexts::add);
+            assertEquals(2, variantContexts.size());
+            assertEquals(2L, failures.getCount());
+            assertTrue(failures.getCounts().firstKey().startsWith("VariantContextGrouper could not convert class org.bdgenomics.formats.avro.Genotype"));
+        }
+    }
+
+    private List<Variant> invalidAlleleVariants() {
+        List<Variant> variants = variants(BIALLELIC, MULTIALLELIC);
+        variants.set(0, Variant.newBuilder(variants.get(0)).setAlternateAllele("Z!").build());
+        return variants;
+    }
+
+    @Test
+    public void testGroupVariantsInvalidAlleleLenient() {
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        grouper.groupVariants(invalidAlleleVariants().iterator(), LENIENT, logger).forEachRemaining(variantContexts::add);
+        assertEquals(1, variantContexts.size());
+        assertEquals(200, variantContexts.get(0).getStart());
+    }
+
+    @Test
+    public void testGroupVariantsInvalidAlleleLastSiteLenient() {
+        List<Variant> variants = variants(BIALLELIC, MULTIALLELIC);
+        variants.set(2, Variant.newBuilder(variants.get(2)).setAlternateAllele("Z!").build());
+
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        grouper.groupVariants(variants.iterator(), LENIENT, logger).forEachRemaining(variantContexts::add);
+        assertEquals(1, variantContexts.size());
+        assertEquals(100, variantContexts.get(0).getStart());
+    }
+
+    @Test
+    public void testGroupVariantsInvalidAlleleSilent() {
+        Iterator<VariantContext> variantContexts = grouper.groupVariants(invalidAlleleVariants().iterator(), SILENT, logger);
+        assertEquals(200, variantContexts.next().getStart());
+        assertFalse(variantContexts.hasNext());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testGroupVariantsInvalidAlleleStrict() {
+        grouper.groupVariants(invalidAlleleVariants().iterator(), STRICT, logger).forEachRemaining(variantContext -> { });
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testGroupVariantsNullVariantStrict() {
+        grouper.groupVariants(Arrays.asList((Variant) null).iterator(), STRICT, logger).hasNext();
+    }
+
+    @Test
+    public void testGroupVariantsNullVariantSilent() {
+        assertFalse(grouper.groupVariants(Arrays.asList((Variant) null).iterator(), SILENT, logger).hasNext());
+    }
+}
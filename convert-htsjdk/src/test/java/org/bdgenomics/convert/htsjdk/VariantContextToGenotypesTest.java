@@ -20,19 +20,33 @@ package org.bdgenomics.convert.htsjdk;
 import static org.bdgenomics.convert.ConversionStringency.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
 import htsjdk.variant.variantcontext.VariantContext;
 
+import htsjdk.variant.vcf.VCFCodec;
 import htsjdk.variant.vcf.VCFHeader;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.FailureAggregator;
 
 import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.GenotypeAllele;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -45,13 +59,28 @@ import org.slf4j.LoggerFactory;
  */
 public final class VariantContextToGenotypesTest {
     private final Logger logger = LoggerFactory.getLogger(VariantContextToGenotypesTest.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n"
+        + "##FORMAT=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##FORMAT=<ID=DP,Number=1,Type=Integer,Description=\"Read depth\">\n"
+        + "##FORMAT=<ID=GQ,Number=1,Type=Integer,Description=\"Genotype quality\">\n"
+        + "##FORMAT=<ID=PL,Number=G,Type=Integer,Description=\"Phred-scaled genotype likelihoods\">\n"
+        + "##FORMAT=<ID=PS,Number=1,Type=Integer,Description=\"Phase set\">\n"
+        + "##FORMAT=<ID=FT,Number=1,Type=String,Description=\"Genotype filter\">\n"
+        + "##FORMAT=<ID=XX,Number=1,Type=String,Description=\"Other\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\tS4\n";
+    private static final String BIALLELIC = "1\t100\trs42\tA\tG\t30\tPASS\t.\tGT:AD:DP:GQ:PL:XX\t0/1:3,4:7:50:40,0,60:x\t1|1:0,8:8:30:90,30,0:y\t./.\t0/0:9,0:9:.:.:.";
+    private static final String MULTIALLELIC = "1\t100\t.\tA\tG,T\t30\tPASS\t.\tGT:AD:PL:FT:PS\t1/2:1,3,4:70,50,60,30,0,40\t0|2:5,0,5:10,20,30,0,40,50:q10;s50:100\t0:7,0,0:0,20,30:PASS:.\t.";
 
+    VCFCodec codec;
     VCFHeader header;
     Converter<VariantContext, List<Genotype>> converter;
 
     @Before
     public void setUp() {
-        header = new VCFHeader();
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
         converter = new VariantContextToGenotypes(header);
     }
 
@@ -65,6 +94,21 @@ public final class VariantContextToGenotypesTest {
         new VariantContextToGenotypes(null);
     }
 
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullSamples() {
+        new VariantContextToGenotypes(header, null);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorSampleNotInHeader() {
+        new VariantContextToGenotypes(header, Arrays.asList("S1", "S9"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorInvalidRange() {
+        new VariantContextToGenotypes(header, 2, 5);
+    }
+
     @Test(expected=ConversionException.class)
     public void testConvertNullSourceStrict() {
         converter.convert(null, STRICT, logger);
@@ -82,6 +126,168 @@ public final class VariantContextToGenotypesTest {
 
     @Test
     public void testConvert() {
-        // todo
+        VariantContext variantContext = codec.decode(BIALLELIC);
+        List<Genotype> genotypes = converter.convert(variantContext, STRICT, logger);
+        assertEquals(4, genotypes.size());
+
+        Genotype genotype = genotypes.get(0);
+        assertEquals("S1", genotype.getSampleId());
+        assertEquals("1", genotype.getReferenceName());
+        assertEquals(Long.valueOf(99L), genotype.getStart());
+        assertEquals(Long.valueOf(100L), genotype.getEnd());
+        assertEquals("G", genotype.getVariant().getAlternateAllele());
+        assertEquals(Arrays.asList("rs42"), genotype.getVariant().getNames());
+        assertEquals(Arrays.asList(GenotypeAllele.REF, GenotypeAllele.ALT), genotype.getAlleles());
+        assertFalse(genotype.getPhased());
+        assertFalse(genotype.getSplitFromMultiAllelic());
+        assertEquals(Integer.valueOf(3), genotype.getReferenceReadDepth());
+        assertEquals(Integer.valueOf(4), genotype.getAlternateReadDepth());
+        assertEquals(Integer.valueOf(7), genotype.getReadDepth());
+        assertEquals(Integer.valueOf(50), genotype.getGenotypeQuality());
+        assertEquals(3, genotype.getGenotypeLikelihoods().size());
+        assertEquals(-4.0d * Math.log(10.0d), genotype.getGenotypeLikelihoods().get(0), 0.0001d);
+        assertEquals(0.0d, genotype.getGenotypeLikelihoods().get(1), 0.0001d);
+        assertEquals("x", genotype.getVariantCallingAnnotations().getAttributes().get("XX"));
+        assertFalse(genotype.getVariantCallingAnnotations().getFiltersApplied());
+
+        assertEquals(Arrays.asList(GenotypeAllele.ALT, GenotypeAllele.ALT), genotypes.get(1).getAlleles());
+        assertTrue(genotypes.get(1).getPhased());
+        assertEquals(Arrays.asList(GenotypeAllele.NO_CALL, GenotypeAllele.NO_CALL), genotypes.get(2).getAlleles());
+        assertNull(genotypes.get(2).getReadDepth());
+        assertNull(genotypes.get(3).getGenotypeQuality());
+        assertTrue(genotypes.get(3).getGenotypeLikelihoods().isEmpty());
+        assertTrue(genotypes.get(3).getVariantCallingAnnotations().getAttributes().isEmpty());
+
+        // genotypes share the Variant for their alternate allele
+        assertSame(genotypes.get(0).getVariant(), genotypes.get(3).getVariant());
+    }
+
+    @Test
+    public void testConvertDoesNotDecodeGenotypes() {
+        VariantContext variantContext = codec.decode(BIALLELIC);
+        List<Genotype> genotypes = converter.convert(variantContext, STRICT, logger);
+        assertEquals(4, genotypes.size());
+        assertNotNull(((LazyGenotypesContext) variantContext.getGenotypes()).getUnparsedGenotypeData());
+        assertEquals("S4", genotypes.get(3).getSampleId());
+        assertNotNull(((LazyGenotypesContext) variantContext.getGenotypes()).getUnparsedGenotypeData());
+    }
+
+    private void assertDecodedGenotypesEqual(final String line) {
+        VariantContext variantContext = codec.decode(line);
+        List<Genotype> expected = new ArrayList<Genotype>(converter.convert(variantContext, STRICT, logger));
+
+        VariantContext decoded = codec.decode(line);
+        ((LazyGenotypesContext) decoded.getGenotypes()).decode();
+        assertNull(((LazyGenotypesContext) decoded.getGenotypes()).getUnparsedGenotypeData());
+        assertEquals(expected, new ArrayList<Genotype>(converter.convert(decoded, STRICT, logger)));
+    }
+
+    @Test
+    public void testConvertDecodedGenotypes() {
+        assertDecodedGenotypesEqual(BIALLELIC);
+    }
+
+    @Test
+    public void testConvertDecodedGenotypesFiltered() {
+        assertDecodedGenotypesEqual(MULTIALLELIC);
+        assertDecodedGenotypesEqual(MULTIALLELIC.replace("q10;s50", "s50;q10"));
+    }
+
+    @Test
+    public void testConvertMultiAllelic() {
+        List<Genotype> genotypes = converter.convert(codec.decode(MULTIALLELIC), STRICT, logger);
+        assertEquals(8, genotypes.size());
+
+        // S1 1/2, split into G and T
+        Genotype g = genotypes.get(0);
+        Genotype t = genotypes.get(1);
+        assertEquals("G", g.getVariant().getAlternateAllele());
+        assertEquals("T", t.getVariant().getAlternateAllele());
+        assertTrue(g.getSplitFromMultiAllelic());
+        assertEquals(Arrays.asList(GenotypeAllele.ALT, GenotypeAllele.OTHER_ALT), g.getAlleles());
+        assertEquals(Arrays.asList(GenotypeAllele.OTHER_ALT, GenotypeAllele.ALT), t.getAlleles());
+        assertEquals(Integer.valueOf(1), g.getReferenceReadDepth());
+        assertEquals(Integer.valueOf(3), g.getAlternateReadDepth());
+        assertEquals(Integer.valueOf(4), t.getAlternateReadDepth());
+
+        // PL order 0/0, 0/1, 1/1, 0/2, 1/2, 2/2
+        assertEquals(-7.0d * Math.log(10.0d), g.getGenotypeLikelihoods().get(0), 0.0001d);
+        assertEquals(-5.0d * Math.log(10.0d), g.getGenotypeLikelihoods().get(1), 0.0001d);
+        assertEquals(-6.0d * Math.log(10.0d), g.getGenotypeLikelihoods().get(2), 0.0001d);
+        assertEquals(-3.0d * Math.log(10.0d), t.getGenotypeLikelihoods().get(1), 0.0001d);
+        assertEquals(-4.0d * Math.log(10.0d), t.getGenotypeLikelihoods().get(2), 0.0001d);
+
+        // S2 0|2 filtered in phase set 100
+        Genotype s2 = genotypes.get(3);
+        assertEquals("S2", s2.getSampleId());
+        assertTrue(s2.getPhased());
+        assertEquals(Integer.valueOf(100), s2.getPhaseSetId());
+        assertTrue(s2.getVariantCallingAnnotations().getFiltersApplied());
+        assertFalse(s2.getVariantCallingAnnotations().getFiltersPassed());
+        assertEquals(Arrays.asList("q10", "s50"), s2.getVariantCallingAnnotations().getFiltersFailed());
+
+        // S3 haploid, FT=PASS is not retained by htsjdk, so converted as no filters applied
+        Genotype s3 = genotypes.get(4);
+        assertEquals(Arrays.asList(GenotypeAllele.REF), s3.getAlleles());
+        assertEquals(2, s3.getGenotypeLikelihoods().size());
+        assertFalse(s3.getVariantCallingAnnotations().getFiltersApplied());
+        assertNull(s3.getPhaseSetId());
+
+        // S4 no call with trailing fields dropped
+        assertEquals(Arrays.asList(GenotypeAllele.NO_CALL), genotypes.get(6).getAlleles());
+    }
+
+    @Test
+    public void testConvertSamples() {
+        converter = new VariantContextToGenotypes(header, Arrays.asList("S4", "S2"));
+        List<Genotype> genotypes = converter.convert(codec.decode(BIALLELIC), STRICT, logger);
+        assertEquals(2, genotypes.size());
+        assertEquals("S2", genotypes.get(0).getSampleId());
+        assertEquals("S4", genotypes.get(1).getSampleId());
+        assertEquals(Integer.valueOf(9), genotypes.get(1).getReadDepth());
+    }
+
+    @Test
+    public void testConvertRange() {
+        List<Genotype> all = new VariantContextToGenotypes(header).convert(codec.decode(MULTIALLELIC), STRICT, logger);
+        List<Genotype> range = new VariantContextToGenotypes(header, 1, 3).convert(codec.decode(MULTIALLELIC), STRICT, logger);
+        assertEquals(4, range.size());
+        assertEquals(all.subList(2, 6), new ArrayList<Genotype>(range));
+    }
+
+    @Test
+    public void testConvertEmptyRange() {
+        assertTrue(new VariantContextToGenotypes(header, 2, 2).convert(codec.decode(BIALLELIC), STRICT, logger).isEmpty());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidStrict() {
+        converter.convert(codec.decode("1\t100\t.\tA\tG\t30\tPASS\t.\tGT:DP\t0/1:x\t0/0:1\t0/0:1\t0/0:1"), STRICT, logger).get(0);
+    }
+
+    @Test
+    public void testConvertInvalidLenient() {
+        List<Genotype> genotypes = converter.convert(codec.decode("1\t100\t.\tA\tG\t30\tPASS\t.\tGT:DP\t0/1:x\t0/0:1\t0/0:1\t0/0:1"), LENIENT, logger);
+        assertNull(genotypes.get(0));
+        assertEquals(Integer.valueOf(1), genotypes.get(1).getReadDepth());
+    }
+
+    @Test
+    public void testConvertInvalidAggregated() {
+        try (FailureAggregator failures = FailureAggregator.aggregate(logger)) {
+            List<Genotype> genotypes = converter.convert(codec.decode("1\t100\t.\tA\tG\t30\tPASS\t.\tGT:DP\t0/1:x\t0/0:y\t0/0:z\t0/0:1"), LENIENT, logger);
+            assertNull(genotypes.get(0));
+            assertNull(genotypes.get(1));
+            assertNull(genotypes.get(2));
+            // sample ids are kept with the example sources, not in the message template
+            assertEquals(1, failures.getCounts().size());
+            assertEquals(3, failures.getCounts().values().iterator().next().longValue());
+            assertTrue(failures.getSamples().values().iterator().next().get(0).startsWith("S1, caught "));
+        }
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testConvertUnmodifiable() {
+        converter.convert(codec.decode(BIALLELIC), STRICT, logger).remove(0);
     }
 }
@@ -20,19 +20,34 @@ package org.bdgenomics.convert.htsjdk;
 import static org.bdgenomics.convert.ConversionStringency.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
+
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
 import htsjdk.variant.variantcontext.VariantContext;
 
+import htsjdk.variant.vcf.VCFCodec;
 import htsjdk.variant.vcf.VCFHeader;
 
+import org.bdgenomics.convert.AbstractConverter;
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
 
+import org.bdgenomics.formats.avro.TranscriptEffect;
 import org.bdgenomics.formats.avro.Variant;
+import org.bdgenomics.formats.avro.VariantAnnotation;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -45,16 +60,37 @@ import org.slf4j.LoggerFactory;
  */
 public final class VariantContextToVariantsTest {
     private final Logger logger = LoggerFactory.getLogger(VariantContextToVariantsTest.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FILTER=<ID=q10,Description=\"Quality below 10\">\n"
+        + "##FILTER=<ID=s50,Description=\"Less than 50% of samples have data\">\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n"
+        + "##INFO=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n"
+        + "##INFO=<ID=AA,Number=1,Type=String,Description=\"Ancestral allele\">\n"
+        + "##INFO=<ID=XA,Number=A,Type=String,Description=\"Per alternate allele attribute\">\n"
+        + "##INFO=<ID=XR,Number=R,Type=Integer,Description=\"Per allele attribute\">\n"
+        + "##INFO=<ID=XU,Number=.,Type=String,Description=\"Unbounded attribute\">\n"
+        + "##INFO=<ID=ANN,Number=.,Type=String,Description=\"Functional annotations\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
 
+    VCFCodec codec;
     VCFHeader header;
     Converter<VariantContext, List<Variant>> converter;
 
     @Before
     public void setUp() {
-        header = new VCFHeader();
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
         converter = new VariantContextToVariants(header);
     }
 
+    private VariantContext decode(final String line) {
+        return codec.decode(line);
+    }
+
     @Test
     public void testConstructor() {
         assertNotNull(converter);
@@ -65,6 +101,11 @@ public final class VariantContextToVariantsTest {
         new VariantContextToVariants(null);
     }
 
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectConverter() {
+        new VariantContextToVariants(header, null);
+    }
+
     @Test(expected=ConversionException.class)
     public void testConvertNullSourceStrict() {
         converter.convert(null, STRICT, logger);
@@ -82,6 +123,154 @@ public final class VariantContextToVariantsTest {
 
     @Test
     public void testConvert() {
-        // todo
+        List<Variant> variants = converter.convert(decode("1\t100\trs42\tA\tG\t30.5\tPASS\tAC=2;AF=0.25;AD=10,4;DP=14;DB;AA=A"), STRICT, logger);
+        assertEquals(1, variants.size());
+
+        Variant variant = variants.get(0);
+        assertEquals("1", variant.getReferenceName());
+        assertEquals(Long.valueOf(99L), variant.getStart());
+        assertEquals(Long.valueOf(100L), variant.getEnd());
+        assertEquals(Arrays.asList("rs42"), variant.getNames());
+        assertFalse(variant.getSplitFromMultiAllelic());
+        assertEquals("A", variant.getReferenceAllele());
+        assertEquals("G", variant.getAlternateAllele());
+        assertEquals(30.5d, variant.getQuality(), 0.01d);
+        assertTrue(variant.getFiltersApplied());
+        assertTrue(variant.getFiltersPassed());
+        assertTrue(variant.getFiltersFailed().isEmpty());
+
+        VariantAnnotation annotation = variant.getAnnotation();
+        assertEquals(Integer.valueOf(2), annotation.getAlleleCount());
+        assertEquals(0.25f, annotation.getAlleleFrequency(), 0.001f);
+        assertEquals(Integer.valueOf(4), annotation.getReadDepth());
+        assertEquals(Integer.valueOf(10), annotation.getReferenceReadDepth());
+        assertTrue(annotation.getDbSnp());
+        assertEquals("A", annotation.getAncestralAllele());
+        assertEquals(Collections.singletonMap("DP", "14"), annotation.getAttributes());
+        assertTrue(annotation.getTranscriptEffects().isEmpty());
+    }
+
+    @Test
+    public void testConvertMissingValues() {
+        Variant variant = converter.convert(decode("1\t100\t.\tA\tG\t.\t.\t."), STRICT, logger).get(0);
+        assertTrue(variant.getNames().isEmpty());
+        assertNull(variant.getQuality());
+        assertFalse(variant.getFiltersApplied());
+        assertNull(variant.getFiltersPassed());
+        assertTrue(variant.getFiltersFailed().isEmpty());
+        assertNull(variant.getAnnotation().getAlleleCount());
+        assertNull(variant.getAnnotation().getDbSnp());
+        assertTrue(variant.getAnnotation().getAttributes().isEmpty());
+    }
+
+    @Test
+    public void testConvertFiltered() {
+        Variant variant = converter.convert(decode("1\t100\trs42;rs43\tA\tG\t5\tq10;s50\t."), STRICT, logger).get(0);
+        assertEquals(Arrays.asList("rs42", "rs43"), variant.getNames());
+        assertTrue(variant.getFiltersApplied());
+        assertFalse(variant.getFiltersPassed());
+        assertEquals(Arrays.asList("q10", "s50"), variant.getFiltersFailed());
+    }
+
+    @Test
+    public void testConvertMultiAllelic() {
+        List<Variant> variants = converter.convert(decode("1\t100\trs42\tA\tG,T,<DEL>\t30\tq10\tAC=2,1,.;AF=0.2,0.1,0.05;AD=10,4,2,1;DP=17;XA=x,y,z;XR=7,8,9,10;XU=u,v"), STRICT, logger);
+        assertEquals(3, variants.size());
+        assertEquals("G", variants.get(0).getAlternateAllele());
+        assertEquals("T", variants.get(1).getAlternateAllele());
+        assertEquals("<DEL>", variants.get(2).getAlternateAllele());
+
+        for (int i = 0; i < 3; i++) {
+            Variant variant = variants.get(i);
+            assertTrue(variant.getSplitFromMultiAllelic());
+            assertEquals(Long.valueOf(99L), variant.getStart());
+            assertEquals(Integer.valueOf(10), variant.getAnnotation().getReferenceReadDepth());
+            assertEquals("17", variant.getAnnotation().getAttributes().get("DP"));
+            assertEquals("u,v", variant.getAnnotation().getAttributes().get("XU"));
+        }
+        assertEquals(Integer.valueOf(2), variants.get(0).getAnnotation().getAlleleCount());
+        assertEquals(Integer.valueOf(1), variants.get(1).getAnnotation().getAlleleCount());
+        assertNull(variants.get(2).getAnnotation().getAlleleCount());
+        assertEquals(0.1f, variants.get(1).getAnnotation().getAlleleFrequency(), 0.001f);
+        assertEquals(Integer.valueOf(4), variants.get(0).getAnnotation().getReadDepth());
+        assertEquals(Integer.valueOf(1), variants.get(2).getAnnotation().getReadDepth());
+        assertEquals("y", variants.get(1).getAnnotation().getAttributes().get("XA"));
+        assertEquals("7,10", variants.get(2).getAnnotation().getAttributes().get("XR"));
+
+        // names and filters are shared across alleles
+        assertSame(variants.get(0).getNames(), variants.get(1).getNames());
+        assertSame(variants.get(0).getFiltersFailed(), variants.get(2).getFiltersFailed());
+    }
+
+    @Test
+    public void testConvertSharedAttributes() {
+        List<Variant> variants = converter.convert(decode("1\t100\t.\tA\tG,T\t30\tPASS\tDP=17"), STRICT, logger);
+        assertSame(variants.get(0).getAnnotation().getAttributes(), variants.get(1).getAnnotation().getAttributes());
+    }
+
+    @Test
+    public void testConvertReferenceOnly() {
+        List<Variant> variants = converter.convert(decode("1\t100\t.\tA\t.\t30\tPASS\tAD=10;DP=10"), STRICT, logger);
+        assertEquals(1, variants.size());
+        assertNull(variants.get(0).getAlternateAllele());
+        assertFalse(variants.get(0).getSplitFromMultiAllelic());
+        assertEquals(Integer.valueOf(10), variants.get(0).getAnnotation().getReferenceReadDepth());
+        assertNull(variants.get(0).getAnnotation().getReadDepth());
+    }
+
+    @Test
+    public void testConvertEnd() {
+        Variant variant = converter.convert(decode("1\t100\t.\tACGT\tA\t30\tPASS\t."), STRICT, logger).get(0);
+        assertEquals(Long.valueOf(99L), variant.getStart());
+        assertEquals(Long.valueOf(103L), variant.getEnd());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertWrongNumberOfValuesStrict() {
+        converter.convert(decode("1\t100\t.\tA\tG,T\t30\tPASS\tAC=2"), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertWrongNumberOfValuesLenient() {
+        List<Variant> variants = converter.convert(decode("1\t100\t.\tA\tG,T\t30\tPASS\tAC=2;DP=4"), LENIENT, logger);
+        assertEquals(2, variants.size());
+        assertNull(variants.get(0).getAnnotation().getAlleleCount());
+        assertEquals("4", variants.get(0).getAnnotation().getAttributes().get("DP"));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidNumberStrict() {
+        converter.convert(decode("1\t100\t.\tA\tG\t30\tPASS\tAC=x"), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertAnnAttribute() {
+        Variant variant = converter.convert(decode("1\t100\t.\tA\tG\t30\tPASS\tANN=G|a,G|b"), STRICT, logger).get(0);
+        assertEquals("G|a,G|b", variant.getAnnotation().getAttributes().get("ANN"));
+    }
+
+    @Test
+    public void testConvertTranscriptEffects() {
+        converter = new VariantContextToVariants(header, new StringToAlternateAllele());
+        List<Variant> variants = converter.convert(decode("1\t100\t.\tA\tG,T\t30\tPASS\tANN=G|a,T|b,G|c,C|d"), STRICT, logger);
+        assertEquals(2, variants.get(0).getAnnotation().getTranscriptEffects().size());
+        assertEquals("G", variants.get(0).getAnnotation().getTranscriptEffects().get(1).getAlternateAllele());
+        assertEquals(1, variants.get(1).getAnnotation().getTranscriptEffects().size());
+        assertNull(variants.get(1).getAnnotation().getAttributes().get("ANN"));
+    }
+
+    /**
+     * Convert the alternate allele of an ANN value to TranscriptEffect.
+     */
+    static final class StringToAlternateAllele extends AbstractConverter<String, TranscriptEffect> {
+
+        StringToAlternateAllele() {
+            super(String.class, TranscriptEffect.class);
+        }
+
+        @Override
+        public TranscriptEffect convert(final String value, final ConversionStringency stringency, final Logger logger) {
+            return TranscriptEffect.newBuilder().setAlternateAllele(value.substring(0, value.indexOf('|'))).build();
+        }
     }
 }
@@ -20,17 +20,37 @@ package org.bdgenomics.convert.htsjdk;
 import static org.bdgenomics.convert.ConversionStringency.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.inject.Guice;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
 
 import htsjdk.variant.variantcontext.VariantContext;
 
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFEncoder;
 import htsjdk.variant.vcf.VCFHeader;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
 
+import org.bdgenomics.convert.bdgenomics.BdgenomicsModule;
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
 import org.bdgenomics.formats.avro.Variant;
+import org.bdgenomics.formats.avro.VariantAnnotation;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -43,16 +63,39 @@ import org.slf4j.LoggerFactory;
  */
 public final class VariantToVariantContextTest {
     private final Logger logger = LoggerFactory.getLogger(VariantToVariantContextTest.class);
-
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FILTER=<ID=q10,Description=\"Quality below 10\">\n"
+        + "##FILTER=<ID=s50,Description=\"Less than 50% of samples have data\">\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n"
+        + "##INFO=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n"
+        + "##INFO=<ID=AA,Number=1,Type=String,Description=\"Ancestral allele\">\n"
+        + "##INFO=<ID=XA,Number=A,Type=String,Description=\"Per alternate allele attribute\">\n"
+        + "##INFO=<ID=XR,Number=R,Type=Integer,Description=\"Per allele attribute\">\n"
+        + "##INFO=<ID=ANN,Number=.,Type=String,Description=\"Functional annotations\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
+    private static final String SITE = "1\t100\trs42;rs43\tA\tG\t30\tPASS\tAA=A;AC=3;AD=4,5;AF=0.5;DB;DP=9;XA=x;XR=1,2";
+
+    VCFCodec codec;
     VCFHeader header;
+    VCFEncoder encoder;
     Converter<Variant, VariantContext> converter;
 
     @Before
     public void setUp() {
-        header = new VCFHeader();
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        encoder = new VCFEncoder(header, true, false);
         converter = new VariantToVariantContext(header);
     }
 
+    private List<Variant> variants(final String line) {
+        return new VariantContextToVariants(header).convert(codec.decode(line), STRICT, logger);
+    }
+
     @Test
     public void testConstructor() {
         assertNotNull(converter);
@@ -63,6 +106,11 @@ public final class VariantToVariantContextTest {
         new VariantToVariantContext(null);
     }
 
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectAppender() {
+        new VariantToVariantContext(header, null);
+    }
+
     @Test(expected=ConversionException.class)
     public void testConvertNullSourceStrict() {
         converter.convert(null, STRICT, logger);
@@ -80,6 +128,98 @@ public final class VariantToVariantContextTest {
 
     @Test
     public void testConvert() {
-        // todo
+        Variant variant = Variant.newBuilder()
+            .setReferenceName("1")
+            .setStart(99L)
+            .setEnd(100L)
+            .setReferenceAllele("A")
+            .setAlternateAllele("G")
+            .setNames(Arrays.asList("rs42"))
+            .setQuality(30.0d)
+            .setFiltersApplied(true)
+            .setFiltersPassed(false)
+            .setFiltersFailed(Arrays.asList("q10", "s50"))
+            .build();
+
+        VariantContext variantContext = converter.convert(variant, STRICT, logger);
+        assertEquals("1", variantContext.getContig());
+        assertEquals(100, variantContext.getStart());
+        assertEquals(100, variantContext.getEnd());
+        assertEquals("A", variantContext.getReference().getDisplayString());
+        assertEquals(1, variantContext.getAlternateAlleles().size());
+        assertEquals("G", variantContext.getAlternateAllele(0).getDisplayString());
+        assertEquals("rs42", variantContext.getID());
+        assertEquals(30.0d, variantContext.getPhredScaledQual(), 0.0001d);
+        assertTrue(variantContext.isFiltered());
+        assertTrue(variantContext.getFilters().containsAll(Arrays.asList("q10", "s50")));
+        assertFalse(variantContext.hasGenotypes());
+    }
+
+    @Test
+    public void testConvertReferenceOnly() {
+        Variant variant = Variant.newBuilder()
+            .setReferenceName("1")
+            .setStart(99L)
+            .setEnd(100L)
+            .setReferenceAllele("A")
+            .build();
+
+        VariantContext variantContext = converter.convert(variant, STRICT, logger);
+        assertEquals(0, variantContext.getAlternateAlleles().size());
+        assertFalse(variantContext.hasID());
+        assertFalse(variantContext.hasLog10PError());
+        assertFalse(variantContext.filtersWereApplied());
+    }
+
+    @Test
+    public void testConvertRoundTrip() {
+        List<Variant> variants = variants(SITE);
+        assertEquals(1, variants.size());
+        assertEquals(encoder.encode(codec.decode(SITE)), encoder.encode(converter.convert(variants.get(0), STRICT, logger)));
+    }
+
+    @Test
+    public void testConvertTranscriptEffects() {
+        TranscriptEffectAppender transcriptEffectAppender = Guice.createInjector(new BdgenomicsModule()).getInstance(TranscriptEffectAppender.class);
+        converter = new VariantToVariantContext(header, transcriptEffectAppender);
+
+        Variant variant = Variant.newBuilder()
+            .setReferenceName("1")
+            .setStart(99L)
+            .setEnd(100L)
+            .setReferenceAllele("A")
+            .setAlternateAllele("G")
+            .setAnnotation(VariantAnnotation.newBuilder()
+                .setTranscriptEffects(Arrays.asList(TranscriptEffect.newBuilder()
+                    .setAlternateAllele("G")
+                    .setEffects(Arrays.asList("upstream_gene_variant"))
+                    .setGeneName("TAS1R3")
+                    .build()))
+                .build())
+            .build();
+
+        VariantContext variantContext = converter.convert(variant, STRICT, logger);
+        assertTrue(variantContext.getAttributeAsString("ANN", "").startsWith("G|upstream_gene_variant||TAS1R3|"));
+
+        // transcript effects are dropped without a transcript effect appender
+        assertFalse(new VariantToVariantContext(header).convert(variant, STRICT, logger).hasAttribute("ANN"));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidStrict() {
+        converter.convert(Variant.newBuilder().setReferenceName("1").setStart(99L).build(), STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidLenient() {
+        assertNull(converter.convert(Variant.newBuilder().setReferenceName("1").setStart(99L).build(), LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertAll() {
+        List<VariantContext> variantContexts = converter.convertAll(variants("1\t100\t.\tA\tG,T\t30\tPASS\tAC=1,2"), new ArrayList<VariantContext>(), STRICT, logger);
+        assertEquals(2, variantContexts.size());
+        assertEquals("G", variantContexts.get(0).getAlternateAllele(0).getDisplayString());
+        assertEquals(2, variantContexts.get(1).getAttributeAsInt("AC", 0));
     }
 }
@@ -0,0 +1,164 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Variant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for VariantVcfWriter, compared with grouping Variants into VariantContexts with
+ * VariantContextGrouper and writing them with a BGZF compressed htsjdk VCF writer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantVcfWriterBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(VariantVcfWriterBenchmark.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n"
+        + "##INFO=<ID=AN,Number=1,Type=Integer,Description=\"Total number of alleles\">\n"
+        + "##INFO=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n"
+        + "##INFO=<ID=MQ,Number=1,Type=Float,Description=\"RMS mapping quality\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
+    private static final int SITES = 500;
+    private List<Variant> variants;
+    private VCFHeader header;
+    private VariantContextGrouper grouper;
+    private VariantContextWriter variantContextWriter;
+    private VariantVcfWriter variantVcfWriter;
+
+
+    /**
+     * Output stream that discards everything written to it.
+     */
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+            // empty
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            // empty
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        VCFCodec codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        VariantContextToVariants converter = new VariantContextToVariants(header);
+        grouper = new VariantContextGrouper(header);
+
+        variants = new ArrayList<Variant>();
+        for (int i = 0; i < SITES; i++) {
+            String line = (i % 2 == 0)
+                ? "1\t" + (1000 + i * 10) + "\trs" + i + "\tA\tG\t" + (30 + i % 50) + "\tPASS\tAC=3;AF=0.0625;AN=48;AD=40,8;DP=48;DB;MQ=59.87"
+                : "1\t" + (1000 + i * 10) + "\t.\tAC\tA,ACC\t" + (30 + i % 50) + ".5\tPASS\tAC=12,3;AF=0.25,0.0625;AN=48;AD=80,20,5;DP=105;MQ=60.0";
+            variants.addAll(converter.convert(codec.decode(line), ConversionStringency.STRICT, logger));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpWriters() throws IOException {
+        variantContextWriter = new VariantContextWriterBuilder()
+            .setOutputStream(new BlockCompressedOutputStream(new NullOutputStream(), (Path) null))
+            .unsetOption(Options.INDEX_ON_THE_FLY)
+            .build();
+        variantContextWriter.writeHeader(header);
+        variantVcfWriter = new VariantVcfWriter(new NullOutputStream(), header, ConversionStringency.STRICT, logger);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownWriters() throws IOException {
+        variantContextWriter.close();
+        variantVcfWriter.close();
+    }
+
+    @Benchmark
+    public void variantContextWriter() {
+        for (Iterator<VariantContext> sites = grouper.groupVariants(variants.iterator(), ConversionStringency.STRICT, logger); sites.hasNext(); ) {
+            variantContextWriter.add(sites.next());
+        }
+    }
+
+    @Benchmark
+    public void variantVcfWriter() throws IOException {
+        for (int i = 0, size = variants.size(); i < size; i++) {
+            variantVcfWriter.add(variants.get(i));
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VariantVcfWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
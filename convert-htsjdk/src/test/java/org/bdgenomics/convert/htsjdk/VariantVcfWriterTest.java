@@ -0,0 +1,265 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFEncoder;
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+
+import org.bdgenomics.convert.bdgenomics.BdgenomicsModule;
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+import org.bdgenomics.formats.avro.Variant;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for VariantVcfWriter.
+ */
+public final class VariantVcfWriterTest {
+    private final Logger logger = LoggerFactory.getLogger(VariantVcfWriterTest.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FILTER=<ID=q10,Description=\"Quality below 10\">\n"
+        + "##FILTER=<ID=s50,Description=\"Less than 50% of samples have data\">\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n"
+        + "##INFO=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n"
+        + "##INFO=<ID=XA,Number=A,Type=String,Description=\"Per alternate allele attribute\">\n"
+        + "##INFO=<ID=XR,Number=R,Type=Integer,Description=\"Per allele attribute\">\n"
+        + "##INFO=<ID=ANN,Number=.,Type=String,Description=\"Functional annotations\">\n"
+        + "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\n";
+    private static final String[] LINES = {
+        "1\t100\trs1;rs2\tA\tG\t30\tPASS\tAC=1;AF=0.5;AD=10,12;DP=22;DB;XA=x;XR=1,2;ZZ=a,b",
+        "1\t200\t.\tAC\tA,ACC,T\t45.5\tq10;s50\tAC=1,2,3;AF=0.25,0.5,0.125;AD=5,6,7,8;XA=x,y,z;XR=1,2,3,4",
+        "1\t300\t.\tT\t.\t.\t.\t.",
+        "1\t400\t.\tG\tC\t12.345\tq10\tDP=4",
+        "1\t400\t.\tGA\tG\t.\t.\tDP=4"
+    };
+    private static final String ANN = "1\t500\t.\tC\tT,G\t30\tPASS\tAC=1,2;ANN="
+        + "T|upstream_gene_variant|MODIFIER|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T|||||453|,"
+        + "G|missense_variant|MODERATE|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>G|||||453|";
+    private VCFCodec codec;
+    private VCFHeader header;
+    private Injector injector;
+
+    @Before
+    public void setUp() {
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        injector = Guice.createInjector(new BdgenomicsModule());
+    }
+
+    private List<Variant> variants(final VariantContextToVariants converter, final String... lines) {
+        List<Variant> variants = new ArrayList<Variant>();
+        for (String line : lines) {
+            variants.addAll(converter.convert(codec.decode(line + "\tGT\t0/1"), STRICT, logger));
+        }
+        return variants;
+    }
+
+    private List<Variant> variants(final String... lines) {
+        return variants(new VariantContextToVariants(header), lines);
+    }
+
+    private byte[] write(final List<Variant> variants, final TranscriptEffectAppender transcriptEffectAppender) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (VariantVcfWriter writer = new VariantVcfWriter(outputStream, header, transcriptEffectAppender, LENIENT, logger)) {
+            for (Variant variant : variants) {
+                writer.add(variant);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String decompress(final byte[] bytes) throws IOException {
+        try (BlockCompressedInputStream inputStream = new BlockCompressedInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = inputStream.read(buffer); n >= 0; n = inputStream.read(buffer)) {
+                outputStream.write(buffer, 0, n);
+            }
+            return new String(outputStream.toByteArray(), VCFEncoder.VCF_CHARSET);
+        }
+    }
+
+    /**
+     * Write the specified variants with VariantContextGrouper and htsjdk VCFWriter.
+     */
+    private String expected(final List<Variant> variants, final VariantContextGrouper grouper) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        VariantContextWriter writer = new VariantContextWriterBuilder()
+            .setOutputStream(outputStream)
+            .unsetOption(Options.INDEX_ON_THE_FLY)
+            .setOption(Options.ALLOW_MISSING_FIELDS_IN_HEADER)
+            .build();
+        writer.writeHeader(new VCFHeader(header.getMetaDataInInputOrder()));
+        for (Iterator<VariantContext> sites = grouper.groupVariants(variants.iterator(), STRICT, logger); sites.hasNext(); ) {
+            writer.add(sites.next());
+        }
+        writer.close();
+        return new String(outputStream.toByteArray(), VCFEncoder.VCF_CHARSET);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullOutputStream() throws IOException {
+        new VariantVcfWriter(null, header, STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() throws IOException {
+        new VariantVcfWriter(new ByteArrayOutputStream(), null, STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullStringency() throws IOException {
+        new VariantVcfWriter(new ByteArrayOutputStream(), header, null, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullLogger() throws IOException {
+        new VariantVcfWriter(new ByteArrayOutputStream(), header, STRICT, null);
+    }
+
+    @Test
+    public void testWriteEmpty() throws IOException {
+        byte[] bytes = write(new ArrayList<Variant>(), null);
+        assertEquals(expected(new ArrayList<Variant>(), new VariantContextGrouper(header)), decompress(bytes));
+        assertTrue(decompress(bytes).endsWith("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n"));
+    }
+
+    @Test
+    public void testWriteBgzf() throws IOException {
+        byte[] bytes = write(variants(LINES), null);
+        byte[] eof = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK;
+        assertArrayEquals(eof, Arrays.copyOfRange(bytes, bytes.length - eof.length, bytes.length));
+        assertTrue(BlockCompressedInputStream.isValidFile(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        List<Variant> variants = variants(LINES);
+        String vcf = decompress(write(variants, null));
+        assertEquals(expected(variants, new VariantContextGrouper(header)), vcf);
+
+        String[] lines = vcf.split("\n");
+        assertEquals("1\t200\t.\tAC\tA,ACC,T\t45.50\tq10;s50\tAC=1,2,3;AD=5,6,7,8;AF=0.25,0.5,0.125;XA=x,y,z;XR=1,2,3,4", lines[lines.length - 4]);
+        assertEquals("1\t400\t.\tG\tC\t12.35\tq10\tDP=4", lines[lines.length - 2]);
+        assertEquals("1\t400\t.\tGA\tG\t.\t.\tDP=4", lines[lines.length - 1]);
+    }
+
+    @Test
+    public void testWriteTranscriptEffects() throws IOException {
+        Converter<String, TranscriptEffect> transcriptEffectConverter = injector.getInstance(Key.get(new TypeLiteral<Converter<String, TranscriptEffect>>() {}));
+        TranscriptEffectAppender transcriptEffectAppender = injector.getInstance(TranscriptEffectAppender.class);
+        List<Variant> variants = variants(new VariantContextToVariants(header, transcriptEffectConverter), ANN);
+        assertEquals(2, variants.size());
+
+        String vcf = decompress(write(variants, transcriptEffectAppender));
+        assertEquals(expected(variants, new VariantContextGrouper(header, transcriptEffectAppender)), vcf);
+        assertTrue(vcf.endsWith("\tAC=1,2;ANN=T|upstream_gene_variant|MODIFIER|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T|||||453|,"
+                                + "G|missense_variant|MODERATE|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>G|||||453|\n"));
+
+        // transcript effects are dropped without a transcript effect appender
+        assertTrue(decompress(write(variants, null)).endsWith("\tAC=1,2\n"));
+    }
+
+    @Test
+    public void testWriteNonAscii() throws IOException {
+        List<Variant> variants = variants("1\t100\t.\tA\tG\t30\tPASS\tZZ=été;ZY=\u20ac");
+        String vcf = decompress(write(variants, null));
+        assertEquals(expected(variants, new VariantContextGrouper(header)), vcf);
+        assertTrue(vcf.endsWith("\tZY=?;ZZ=été\n"));
+    }
+
+    @Test
+    public void testWriteInvalidLenient() throws IOException {
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(null);
+        variants.addAll(variants(LINES[0]));
+        variants.add(Variant.newBuilder().setReferenceName("1").build());
+        variants.addAll(variants(LINES[2]));
+        assertEquals(expected(variants(LINES[0], LINES[2]), new VariantContextGrouper(header)), decompress(write(variants, null)));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testAddNullStrict() throws IOException {
+        try (VariantVcfWriter writer = new VariantVcfWriter(new ByteArrayOutputStream(), header, STRICT, logger)) {
+            writer.add(null);
+        }
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testAddInvalidStrict() throws IOException {
+        try (VariantVcfWriter writer = new VariantVcfWriter(new ByteArrayOutputStream(), header, STRICT, logger)) {
+            writer.add(Variant.newBuilder().setReferenceName("1").build());
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testAddAfterClose() throws IOException {
+        VariantVcfWriter writer = new VariantVcfWriter(new ByteArrayOutputStream(), header, STRICT, logger);
+        writer.close();
+        writer.close();
+        writer.add(variants(LINES[0]).get(0));
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import java.io.StringReader;
+
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Variant;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for VcfLineToVariants, compared with decoding a VariantContext with VCFCodec and
+ * converting it with VariantContextToVariants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VcfLineToVariantsBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(VcfLineToVariantsBenchmark.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n"
+        + "##INFO=<ID=AN,Number=1,Type=Integer,Description=\"Total number of alleles\">\n"
+        + "##INFO=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n"
+        + "##INFO=<ID=MQ,Number=1,Type=Float,Description=\"RMS mapping quality\">\n"
+        + "##INFO=<ID=FS,Number=1,Type=Float,Description=\"Fisher strand bias\">\n"
+        + "##INFO=<ID=QD,Number=1,Type=Float,Description=\"Quality by depth\">\n"
+        + "##INFO=<ID=XA,Number=A,Type=String,Description=\"Per alternate allele attribute\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
+    private static final String LINE = "1\t1000000\trs12345\tAC\tA,ACC\t1234.5\tPASS"
+        + "\tAC=12,3;AF=0.25,0.0625;AN=48;AD=80,20,5;DP=105;DB;MQ=59.87;FS=1.234;QD=11.76;XA=x,y";
+    private VCFCodec codec;
+    private VariantContextToVariants variantContextConverter;
+    private VcfLineToVariants vcfLineConverter;
+    private VcfLineToVariants requestedKeysConverter;
+
+
+    @Setup
+    public void setUp() {
+        codec = new VCFCodec();
+        VCFHeader header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        variantContextConverter = new VariantContextToVariants(header);
+        vcfLineConverter = new VcfLineToVariants(header);
+        requestedKeysConverter = new VcfLineToVariants(header, Arrays.asList("AF"));
+    }
+
+    @Benchmark
+    public List<Variant> variantContext() {
+        return variantContextConverter.convert(codec.decode(LINE), ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public List<Variant> vcfLine() {
+        return vcfLineConverter.convert(LINE, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public List<Variant> vcfLineRequestedKeys() {
+        return requestedKeysConverter.convert(LINE, ConversionStringency.STRICT, logger);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VcfLineToVariantsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
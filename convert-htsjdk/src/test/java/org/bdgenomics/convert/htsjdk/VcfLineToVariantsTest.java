@@ -0,0 +1,291 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+
+import org.bdgenomics.formats.avro.Variant;
+import org.bdgenomics.formats.avro.VariantAnnotation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for VcfLineToVariants.
+ */
+public final class VcfLineToVariantsTest {
+    private final Logger logger = LoggerFactory.getLogger(VcfLineToVariantsTest.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FILTER=<ID=q10,Description=\"Quality below 10\">\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n"
+        + "##INFO=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n"
+        + "##INFO=<ID=AA,Number=1,Type=String,Description=\"Ancestral allele\">\n"
+        + "##INFO=<ID=END,Number=1,Type=Integer,Description=\"End position\">\n"
+        + "##INFO=<ID=XA,Number=A,Type=String,Description=\"Per alternate allele attribute\">\n"
+        + "##INFO=<ID=XR,Number=R,Type=Integer,Description=\"Per allele attribute\">\n"
+        + "##INFO=<ID=XU,Number=.,Type=String,Description=\"Unbounded attribute\">\n"
+        + "##INFO=<ID=ANN,Number=.,Type=String,Description=\"Functional annotations\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
+    private static final String BIALLELIC = "1\t100\trs1\tA\tG\t30\tPASS\tAC=1;AF=0.5;AD=10,12;DP=22;DB;AA=A;XA=x;XR=1,2;XU=a,b,c";
+    private static final String MULTIALLELIC = "1\t200\trs2;rs3\tAC\tA,ACC\t45.5\tq10\tAC=1,2;AF=0.25,0.5;AD=5,6,7;XA=x,y;XR=1,2,3;DB";
+
+    private VCFCodec codec;
+    private VCFHeader header;
+    private Converter<VariantContext, List<Variant>> variantContextConverter;
+    private Converter<CharSequence, List<Variant>> converter;
+
+    @Before
+    public void setUp() {
+        codec = new VCFCodec();
+        header = (VCFHeader) codec.readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+        variantContextConverter = new VariantContextToVariants(header);
+        converter = new VcfLineToVariants(header);
+    }
+
+    private List<Variant> expected(final String line) {
+        return variantContextConverter.convert(codec.decode(line), STRICT, logger);
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(converter);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullHeader() {
+        new VcfLineToVariants(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullInfoKeys() {
+        new VcfLineToVariants(header, null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullInfoKey() {
+        new VcfLineToVariants(header, Arrays.asList("AF", null));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectConverter() {
+        new VcfLineToVariants(header, Arrays.asList("ANN"), null);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        converter.convert(null, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(converter.convert(null, LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(converter.convert(null, SILENT, logger));
+    }
+
+    @Test
+    public void testConvertBiallelic() {
+        List<Variant> variants = converter.convert(BIALLELIC, STRICT, logger);
+        assertEquals(expected(BIALLELIC), variants);
+        assertEquals(1, variants.size());
+
+        Variant variant = variants.get(0);
+        assertEquals("1", variant.getReferenceName());
+        assertEquals(Long.valueOf(99L), variant.getStart());
+        assertEquals(Long.valueOf(100L), variant.getEnd());
+        assertEquals(Arrays.asList("rs1"), variant.getNames());
+        assertEquals("A", variant.getReferenceAllele());
+        assertEquals("G", variant.getAlternateAllele());
+        assertEquals(Double.valueOf(30.0d), variant.getQuality());
+        assertTrue(variant.getFiltersApplied());
+        assertTrue(variant.getFiltersPassed());
+        assertFalse(variant.getSplitFromMultiAllelic());
+
+        VariantAnnotation annotation = variant.getAnnotation();
+        assertEquals(Integer.valueOf(1), annotation.getAlleleCount());
+        assertEquals(Float.valueOf(0.5f), annotation.getAlleleFrequency());
+        assertEquals(Integer.valueOf(10), annotation.getReferenceReadDepth());
+        assertEquals(Integer.valueOf(12), annotation.getReadDepth());
+        assertEquals(Boolean.TRUE, annotation.getDbSnp());
+        assertEquals("A", annotation.getAncestralAllele());
+        assertEquals("22", annotation.getAttributes().get("DP"));
+        assertEquals("a,b,c", annotation.getAttributes().get("XU"));
+    }
+
+    @Test
+    public void testConvertMultiallelic() {
+        List<Variant> variants = converter.convert(MULTIALLELIC, STRICT, logger);
+        assertEquals(expected(MULTIALLELIC), variants);
+        assertEquals(2, variants.size());
+        assertEquals(Arrays.asList("rs2", "rs3"), variants.get(0).getNames());
+        assertEquals(Long.valueOf(201L), variants.get(0).getEnd());
+        assertEquals(Arrays.asList("q10"), variants.get(1).getFiltersFailed());
+        assertFalse(variants.get(1).getFiltersPassed());
+        assertTrue(variants.get(1).getSplitFromMultiAllelic());
+        assertEquals("ACC", variants.get(1).getAlternateAllele());
+        assertEquals(Integer.valueOf(2), variants.get(1).getAnnotation().getAlleleCount());
+        assertEquals("y", variants.get(1).getAnnotation().getAttributes().get("XA"));
+        assertEquals("1,3", variants.get(1).getAnnotation().getAttributes().get("XR"));
+    }
+
+    @Test
+    public void testConvertMissingColumns() {
+        String line = "1\t100\t.\tA\t.\t.\t.\t.";
+        List<Variant> variants = converter.convert(line, STRICT, logger);
+        assertEquals(expected(line), variants);
+        assertEquals(1, variants.size());
+        assertNull(variants.get(0).getAlternateAllele());
+        assertNull(variants.get(0).getQuality());
+        assertTrue(variants.get(0).getNames().isEmpty());
+        assertFalse(variants.get(0).getFiltersApplied());
+        assertNull(variants.get(0).getFiltersPassed());
+        assertTrue(variants.get(0).getAnnotation().getAttributes().isEmpty());
+    }
+
+    @Test
+    public void testConvertEnd() {
+        String line = "1\t100\t.\tA\t<DEL>\t30\tPASS\tEND=300;DP=5";
+        List<Variant> variants = converter.convert(line, STRICT, logger);
+        assertEquals(expected(line), variants);
+        assertEquals(Long.valueOf(300L), variants.get(0).getEnd());
+    }
+
+    @Test
+    public void testConvertUndeclaredInfoKey() {
+        String line = "1\t100\t.\tA\tG\t30\tPASS\tZZ=1,2;YY";
+        List<Variant> variants = converter.convert(line, STRICT, logger);
+        assertEquals(expected(line), variants);
+        assertEquals("1,2", variants.get(0).getAnnotation().getAttributes().get("ZZ"));
+        assertEquals("true", variants.get(0).getAnnotation().getAttributes().get("YY"));
+    }
+
+    @Test
+    public void testConvertWithGenotypeColumns() {
+        String line = BIALLELIC + "\tGT\t0/1\r";
+        assertEquals(expected(BIALLELIC), converter.convert(line, STRICT, logger));
+    }
+
+    @Test
+    public void testConvertStringBuilder() {
+        assertEquals(expected(BIALLELIC), converter.convert(new StringBuilder(BIALLELIC), STRICT, logger));
+    }
+
+    @Test
+    public void testConvertRequestedInfoKeys() {
+        Converter<CharSequence, List<Variant>> projected = new VcfLineToVariants(header, Arrays.asList("AF", "XA"));
+        String line = "1\t100\t.\tA\t<DEL>,G\t30\tPASS\tAC=1,2;AF=0.25,0.5;END=300;XA=x,y;DB";
+        List<Variant> variants = projected.convert(line, STRICT, logger);
+        assertEquals(2, variants.size());
+        assertEquals(Long.valueOf(300L), variants.get(0).getEnd());
+
+        VariantAnnotation annotation = variants.get(1).getAnnotation();
+        assertEquals(Float.valueOf(0.5f), annotation.getAlleleFrequency());
+        assertNull(annotation.getAlleleCount());
+        assertNull(annotation.getDbSnp());
+        assertEquals(Collections.singletonMap("XA", "y"), annotation.getAttributes());
+    }
+
+    @Test
+    public void testConvertRequestedInfoKeysNone() {
+        Converter<CharSequence, List<Variant>> projected = new VcfLineToVariants(header, Collections.<String>emptyList());
+        Variant variant = projected.convert(BIALLELIC, STRICT, logger).get(0);
+        assertEquals(expected(BIALLELIC).get(0).getAlternateAllele(), variant.getAlternateAllele());
+        assertTrue(variant.getAnnotation().getAttributes().isEmpty());
+        assertNull(variant.getAnnotation().getAlleleFrequency());
+    }
+
+    @Test
+    public void testConvertTranscriptEffects() {
+        Converter<CharSequence, List<Variant>> projected = new VcfLineToVariants(header, Arrays.asList("ANN"), new VariantContextToVariantsTest.StringToAlternateAllele());
+        List<Variant> variants = projected.convert("1\t100\t.\tA\tG,T\t30\tPASS\tAC=1,2;ANN=G|a,T|b,G|c,C|d", STRICT, logger);
+        assertEquals(2, variants.get(0).getAnnotation().getTranscriptEffects().size());
+        assertEquals(1, variants.get(1).getAnnotation().getTranscriptEffects().size());
+        assertNull(variants.get(1).getAnnotation().getAttributes().get("ANN"));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertTooFewColumnsStrict() {
+        converter.convert("1\t100\t.\tA\tG\t30\tPASS", STRICT, logger);
+    }
+
+    @Test
+    public void testConvertTooFewColumnsLenient() {
+        assertNull(converter.convert("1\t100\t.\tA\tG\t30\tPASS", LENIENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidPositionStrict() {
+        converter.convert("1\tnot a number\t.\tA\tG\t30\tPASS\t.", STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidQualitySilent() {
+        assertNull(converter.convert("1\t100\t.\tA\tG\tnot a number\tPASS\t.", SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidEndStrict() {
+        converter.convert("1\t100\t.\tA\t<DEL>\t30\tPASS\tEND=x", STRICT, logger);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertWrongNumberOfValuesStrict() {
+        converter.convert("1\t100\t.\tA\tG,T\t30\tPASS\tAC=1", STRICT, logger);
+    }
+
+    @Test
+    public void testConvertWrongNumberOfValuesLenient() {
+        List<Variant> variants = converter.convert("1\t100\t.\tA\tG,T\t30\tPASS\tAC=1;DP=4", LENIENT, logger);
+        assertEquals(2, variants.size());
+        assertNull(variants.get(0).getAnnotation().getAlleleCount());
+        assertEquals("4", variants.get(0).getAnnotation().getAttributes().get("DP"));
+    }
+}
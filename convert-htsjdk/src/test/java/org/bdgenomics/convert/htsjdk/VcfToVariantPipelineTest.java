@@ -0,0 +1,297 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.htsjdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFFileReader;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+
+import org.apache.avro.specific.SpecificDatumReader;
+
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.Variant;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.junit.rules.TemporaryFolder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for VcfToVariantPipeline.
+ */
+public final class VcfToVariantPipelineTest {
+    private final Logger logger = LoggerFactory.getLogger(VcfToVariantPipelineTest.class);
+    private static final String HEADER = "##fileformat=VCFv4.2\n"
+        + "##contig=<ID=1,length=249250621>\n"
+        + "##FILTER=<ID=q10,Description=\"Quality below 10\">\n"
+        + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+        + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Total depth\">\n"
+        + "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n"
+        + "##FORMAT=<ID=AD,Number=R,Type=Integer,Description=\"Allele depth\">\n"
+        + "##FORMAT=<ID=DP,Number=1,Type=Integer,Description=\"Read depth\">\n"
+        + "##FORMAT=<ID=PL,Number=G,Type=Integer,Description=\"Phred-scaled genotype likelihoods\">\n"
+        + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\n";
+    private VariantContextToVariantsFactory variantsFactory;
+    private VariantContextToGenotypesFactory genotypesFactory;
+    private VCFHeader header;
+    private List<String> lines;
+    private File vcf;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws IOException {
+        variantsFactory = VariantContextToVariants::new;
+        genotypesFactory = VariantContextToGenotypes::new;
+        header = (VCFHeader) new VCFCodec().readActualHeader(new LineIteratorImpl(new SynchronousLineReader(new StringReader(HEADER))));
+
+        lines = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 5 == 0) {
+                lines.add("1\t" + (1000 + i) + "\trs" + i + "\tA\tG,T\t30\tq10\tAC=1,2;DP=" + i + "\tGT:AD:DP\t1/2:1,3,4:8\t0|2:5,0,5:10\t0/0:7,0,0:7");
+            }
+            else {
+                lines.add("1\t" + (1000 + i) + "\t.\tC\tA\t" + i + "\tPASS\tAC=1;DP=" + i + "\tGT:AD:DP:PL\t0/1:3,4:7:40,0,60\t1/1:0,8:8:90,30,0\t./.");
+            }
+        }
+        vcf = temporaryFolder.newFile("test.vcf");
+        try (OutputStream outputStream = new FileOutputStream(vcf)) {
+            outputStream.write(vcfText(lines).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(new VcfToVariantPipeline(variantsFactory, genotypesFactory, 1, VcfToVariantPipeline.DEFAULT_BATCH_SIZE));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullVariantsFactory() {
+        new VcfToVariantPipeline(null, genotypesFactory, 1, 1);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullGenotypesFactory() {
+        new VcfToVariantPipeline(variantsFactory, null, 1, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroThreads() {
+        new VcfToVariantPipeline(variantsFactory, genotypesFactory, 0, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testConstructorZeroBatchSize() {
+        new VcfToVariantPipeline(variantsFactory, genotypesFactory, 1, 0);
+    }
+
+    @Test
+    public void testBatchSize() {
+        VcfToVariantPipeline pipeline = new VcfToVariantPipeline(variantsFactory, genotypesFactory, 1, VcfToVariantPipeline.DEFAULT_BATCH_SIZE);
+        assertEquals(VcfToVariantPipeline.DEFAULT_BATCH_SIZE, pipeline.batchSize(header));
+        assertEquals(VcfToVariantPipeline.DEFAULT_BATCH_SIZE, pipeline.batchSize(new VCFHeader()));
+        assertEquals(VcfToVariantPipeline.MAX_GENOTYPES_PER_BATCH / 1000, pipeline.batchSize(header(1000)));
+        assertEquals(1, pipeline.batchSize(header(VcfToVariantPipeline.MAX_GENOTYPES_PER_BATCH + 1)));
+    }
+
+    @Test
+    public void testConvertFile() throws Exception {
+        File variantsOutput = temporaryFolder.newFile("test.variants.avro");
+        File genotypesOutput = temporaryFolder.newFile("test.genotypes.avro");
+        PipelineStatistics statistics = new VcfToVariantPipeline(variantsFactory, genotypesFactory, 3, 7).convert(vcf, variantsOutput, genotypesOutput, CodecFactory.deflateCodec(1), ConversionStringency.STRICT, logger);
+        assertEquals(100L, statistics.getRead());
+        assertEquals(100L, statistics.getWritten());
+        assertEquals(0L, statistics.getSkipped());
+        assertEquals(expectedVariants(decode(lines)), read(variantsOutput, Variant.class));
+        assertEquals(expectedGenotypes(decode(lines)), read(genotypesOutput, Genotype.class));
+    }
+
+    @Test
+    public void testConvertFileSingleThread() throws Exception {
+        File variantsOutput = temporaryFolder.newFile("test.variants.avro");
+        File genotypesOutput = temporaryFolder.newFile("test.genotypes.avro");
+        new VcfToVariantPipeline(variantsFactory, genotypesFactory, 1, 7).convert(vcf, variantsOutput, genotypesOutput, ConversionStringency.STRICT, logger);
+        assertEquals(120, read(variantsOutput, Variant.class).size());
+        assertEquals(expectedGenotypes(decode(lines)), read(genotypesOutput, Genotype.class));
+    }
+
+    @Test
+    public void testConvertBlockCompressedFile() throws Exception {
+        File vcfGz = temporaryFolder.newFile("test.vcf.gz");
+        try (OutputStream outputStream = new BlockCompressedOutputStream(vcfGz)) {
+            outputStream.write(vcfText(lines).getBytes(StandardCharsets.US_ASCII));
+        }
+        File variantsOutput = temporaryFolder.newFile("test.variants.avro");
+        new VcfToVariantPipeline(variantsFactory, genotypesFactory, 4, 10).convert(vcfGz, variantsOutput, null, ConversionStringency.STRICT, logger);
+        assertEquals(expectedVariants(decode(lines)), read(variantsOutput, Variant.class));
+    }
+
+    @Test
+    public void testConvertBcfFile() throws Exception {
+        File bcf = temporaryFolder.newFile("test.bcf");
+        try (VariantContextWriter writer = new VariantContextWriterBuilder().setOutputFile(bcf).unsetOption(Options.INDEX_ON_THE_FLY).build()) {
+            writer.writeHeader(header);
+            for (VariantContext variantContext : decode(lines)) {
+                writer.add(variantContext);
+            }
+        }
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        try (VCFFileReader reader = new VCFFileReader(bcf, false)) {
+            for (VariantContext variantContext : reader) {
+                variantContexts.add(variantContext);
+            }
+        }
+
+        File variantsOutput = temporaryFolder.newFile("test.variants.avro");
+        File genotypesOutput = temporaryFolder.newFile("test.genotypes.avro");
+        PipelineStatistics statistics = new VcfToVariantPipeline(variantsFactory, genotypesFactory, 3, 7).convert(bcf, variantsOutput, genotypesOutput, ConversionStringency.STRICT, logger);
+        assertEquals(100L, statistics.getWritten());
+        assertEquals(expectedVariants(variantContexts), read(variantsOutput, Variant.class));
+        assertEquals(expectedGenotypes(variantContexts), read(genotypesOutput, Genotype.class));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertStrict() throws Exception {
+        List<String> invalid = new ArrayList<String>(lines);
+        invalid.set(42, "1\t1042\t.\tC");
+        new VcfToVariantPipeline(variantsFactory, genotypesFactory, 3, 7).convert(new ByteArrayInputStream(vcfText(invalid).getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream(), null, CodecFactory.nullCodec(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertLenient() throws Exception {
+        List<String> invalid = new ArrayList<String>(lines);
+        invalid.set(42, "1\t1042\t.\tC");
+
+        ByteArrayOutputStream variantsOutputStream = new ByteArrayOutputStream();
+        ByteArrayOutputStream genotypesOutputStream = new ByteArrayOutputStream();
+        PipelineStatistics statistics = new VcfToVariantPipeline(variantsFactory, genotypesFactory, 3, 7).convert(new ByteArrayInputStream(vcfText(invalid).getBytes(StandardCharsets.US_ASCII)), variantsOutputStream, genotypesOutputStream, CodecFactory.nullCodec(), ConversionStringency.LENIENT, logger);
+        assertEquals(100L, statistics.getRead());
+        assertEquals(99L, statistics.getWritten());
+        assertEquals(1L, statistics.getSkipped());
+
+        List<String> valid = new ArrayList<String>(invalid);
+        valid.remove(42);
+        assertEquals(expectedGenotypes(decode(valid)), read(genotypesOutputStream, Genotype.class));
+        assertTrue(read(variantsOutputStream, Variant.class).size() > 100);
+    }
+
+    private static String vcfText(final List<String> lines) {
+        StringBuilder sb = new StringBuilder(HEADER);
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private List<VariantContext> decode(final List<String> lines) {
+        VCFCodec codec = new VCFCodec();
+        codec.setVCFHeader(header, VCFHeaderVersion.VCF4_2);
+        List<VariantContext> variantContexts = new ArrayList<VariantContext>();
+        for (String line : lines) {
+            variantContexts.add(codec.decode(line));
+        }
+        return variantContexts;
+    }
+
+    private List<Variant> expectedVariants(final List<VariantContext> variantContexts) {
+        List<Variant> variants = new ArrayList<Variant>();
+        for (VariantContext variantContext : variantContexts) {
+            variants.addAll(variantsFactory.create(header).convert(variantContext, ConversionStringency.LENIENT, logger));
+        }
+        return variants;
+    }
+
+    private List<Genotype> expectedGenotypes(final List<VariantContext> variantContexts) {
+        List<Genotype> genotypes = new ArrayList<Genotype>();
+        for (VariantContext variantContext : variantContexts) {
+            genotypes.addAll(genotypesFactory.create(header).convert(variantContext, ConversionStringency.LENIENT, logger));
+        }
+        return genotypes;
+    }
+
+    private static <T> List<T> read(final File file, final Class<T> type) throws IOException {
+        List<T> records = new ArrayList<T>();
+        try (DataFileReader<T> reader = new DataFileReader<T>(file, new SpecificDatumReader<T>(type))) {
+            for (T record : reader) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static <T> List<T> read(final ByteArrayOutputStream outputStream, final Class<T> type) throws IOException {
+        List<T> records = new ArrayList<T>();
+        try (DataFileStream<T> reader = new DataFileStream<T>(new ByteArrayInputStream(outputStream.toByteArray()), new SpecificDatumReader<T>(type))) {
+            for (T record : reader) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static VCFHeader header(final int samples) {
+        List<String> sampleNames = new ArrayList<String>(samples);
+        for (int i = 0; i < samples; i++) {
+            sampleNames.add("S" + i);
+        }
+        return new VCFHeader(Collections.<VCFHeaderLine>emptySet(), sampleNames);
+    }
+}
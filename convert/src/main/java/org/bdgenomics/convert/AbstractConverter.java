@@ -19,6 +19,9 @@ package org.bdgenomics.convert;
 
 import java.io.Serializable;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.slf4j.Logger;
 
 /**
@@ -103,10 +106,34 @@ public abstract class AbstractConverter<S, T> implements Converter<S, T>, Serial
         }
     }
 
+    /**
+     * Check the specified list of sources, collection of targets, conversion stringency,
+     * and logger are not null.
+     *
+     * @param sources list of sources, must not be null
+     * @param targets collection of targets, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @throws NullPointerException if any of sources, targets, conversion stringency, or logger are null
+     */
+    protected final void checkNotNull(final List<?> sources,
+                                      final Collection<?> targets,
+                                      final ConversionStringency stringency,
+                                      final Logger logger) {
+        if (sources == null) {
+            throw new NullPointerException("sources must not be null");
+        }
+        if (targets == null) {
+            throw new NullPointerException("targets must not be null");
+        }
+        checkNotNull(stringency, logger);
+    }
+
     /**
      * If the conversion stringency is lenient, log a warning with the specified message,
      * or if the conversion stringency is strict, throw a ConversionException with the specified
-     * message and cause.
+     * message and cause.  If a {@link FailureAggregator} is open for the specified logger,
+     * lenient failures are recorded to it instead of being logged one warning per failure.
      *
      * @param source source
      * @param message message
@@ -121,18 +148,55 @@ public abstract class AbstractConverter<S, T> implements Converter<S, T>, Serial
                                      final Throwable cause,
                                      final ConversionStringency stringency,
                                      final Logger logger) throws ConversionException {
+        warnOrThrow(source, message, null, cause, stringency, logger);
+    }
+
+    /**
+     * If the conversion stringency is lenient, log a warning with the specified message and detail,
+     * or if the conversion stringency is strict, throw a ConversionException with the specified
+     * message, detail, and cause.  The message should not vary per source; values that do, such
+     * as an invalid field value or an offset, belong in the detail, so that a {@link FailureAggregator}
+     * open for the specified logger counts failures per message and keeps the detail with its
+     * example sources.
+     *
+     * @param source source
+     * @param message message
+     * @param detail detail, appended to the message if not null
+     * @param cause cause
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @throws ConversionException if the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    protected final void warnOrThrow(final S source,
+                                     final String message,
+                                     final Object detail,
+                                     final Throwable cause,
+                                     final ConversionStringency stringency,
+                                     final Logger logger) throws ConversionException {
 
         checkNotNull(stringency, logger);
         if (stringency.isLenient()) {
-            if (cause != null) {
-                logger.warn(String.format("could not convert %s to %s, %s", sourceClass.toString(), targetClass.toString(), message), cause);
+            FailureAggregator aggregator = FailureAggregator.forLogger(logger);
+            if (aggregator != null) {
+                aggregator.record(getClass(), sourceClass, targetClass, message, detail, source, cause);
+            }
+            else if (cause != null) {
+                logger.warn("could not convert {} to {}, {}", sourceClass.toString(), targetClass.toString(), message(message, detail), cause);
             }
             else {
-                logger.warn("could not convert {} to {}, {}", sourceClass.toString(), targetClass.toString(), message);
+                logger.warn("could not convert {} to {}, {}", sourceClass.toString(), targetClass.toString(), message(message, detail));
             }
         }
         else if (stringency.isStrict()) {
-            throw new ConversionException(String.format("could not convert %s to %s, %s", sourceClass.toString(), targetClass.toString(), message), cause, source, sourceClass, targetClass);
+            throw new ConversionException(String.format("could not convert %s to %s, %s", sourceClass.toString(), targetClass.toString(), message(message, detail)), cause, source, sourceClass, targetClass);
         }
     }
+
+    /**
+     * Return the specified message with the specified detail appended, if not null.
+     */
+    private static String message(final String message, final Object detail) {
+        return detail == null ? message : message + ": " + detail;
+    }
 }
@@ -0,0 +1,42 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+/**
+ * Service provider interface for publishing conversion statistics to a metrics system.
+ *
+ * <p>
+ * Conversion statistics are registered once, when the first instrumented converter
+ * recording to them is created, and are read by the metrics system on demand, so
+ * implementations add no cost per conversion.  Implementations may be discovered with
+ * {@link java.util.ServiceLoader} by listing them in a
+ * <code>META-INF/services/org.bdgenomics.convert.ConversionMetrics</code> resource.
+ * </p>
+ *
+ * @see InstrumentingModule
+ * @see JmxConversionMetrics
+ */
+public interface ConversionMetrics {
+
+    /**
+     * Register the specified conversion statistics.
+     *
+     * @param statistics conversion statistics to register, must not be null
+     */
+    void register(ConversionStatistics statistics);
+}
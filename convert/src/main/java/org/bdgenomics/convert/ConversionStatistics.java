@@ -0,0 +1,182 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.io.Serializable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conversion statistics, invocation and failure counts and a latency histogram
+ * for one or more instrumented converters.
+ *
+ * <p>
+ * Failures are counted by stringency outcome: strict failures are conversions that threw
+ * a ConversionException, and lenient and silent failures are conversions that returned null
+ * when the conversion stringency was lenient or silent, respectively.  All counters are
+ * striped {@link LongAdder}s, so recording never blocks and reads are not atomic with
+ * respect to concurrent conversions.
+ * </p>
+ *
+ * @see InstrumentedConverter
+ * @see ConversionMetrics
+ */
+public final class ConversionStatistics implements ConversionStatisticsMXBean, Serializable {
+    /** Name. */
+    private final String name;
+
+    /** Number of conversions. */
+    private final LongAdder invocations = new LongAdder();
+
+    /** Number of failures, by conversion stringency ordinal. */
+    private final LongAdder[] failures;
+
+    /** Conversion latency in nanoseconds. */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+
+    /**
+     * Create new conversion statistics with the specified name.
+     *
+     * @param name name, must not be null
+     */
+    public ConversionStatistics(final String name) {
+        if (name == null) {
+            throw new NullPointerException("name must not be null");
+        }
+        this.name = name;
+
+        ConversionStringency[] stringencies = ConversionStringency.values();
+        failures = new LongAdder[stringencies.length];
+        for (int i = 0; i < stringencies.length; i++) {
+            failures[i] = new LongAdder();
+        }
+    }
+
+
+    /**
+     * Record one conversion.
+     *
+     * @param nanos conversion latency in nanoseconds
+     * @param failure conversion stringency outcome of a failed conversion, or null if the
+     *    conversion succeeded
+     */
+    void record(final long nanos, final ConversionStringency failure) {
+        invocations.increment();
+        if (failure != null) {
+            failures[failure.ordinal()].increment();
+        }
+        latency.record(nanos);
+    }
+
+    /**
+     * Record a batch of conversions, attributing the mean latency to each conversion.
+     *
+     * @param count number of conversions, must be at least zero
+     * @param nanos batch conversion latency in nanoseconds
+     * @param failure conversion stringency outcome of failed conversions, must not be null
+     *    if failureCount is greater than zero
+     * @param failureCount number of failed conversions
+     */
+    void record(final int count, final long nanos, final ConversionStringency failure, final int failureCount) {
+        if (count <= 0) {
+            return;
+        }
+        invocations.add(count);
+        if (failureCount > 0) {
+            failures[failure.ordinal()].add(failureCount);
+        }
+        latency.record(nanos / count, count);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    /**
+     * Return the number of failures with the specified conversion stringency outcome.
+     *
+     * @param stringency conversion stringency outcome, must not be null
+     * @return the number of failures with the specified conversion stringency outcome
+     */
+    public long getFailures(final ConversionStringency stringency) {
+        if (stringency == null) {
+            throw new NullPointerException("stringency must not be null");
+        }
+        return failures[stringency.ordinal()].sum();
+    }
+
+    @Override
+    public long getStrictFailures() {
+        return getFailures(ConversionStringency.STRICT);
+    }
+
+    @Override
+    public long getLenientFailures() {
+        return getFailures(ConversionStringency.LENIENT);
+    }
+
+    @Override
+    public long getSilentFailures() {
+        return getFailures(ConversionStringency.SILENT);
+    }
+
+    /**
+     * Return the conversion latency histogram, in nanoseconds.
+     *
+     * @return the conversion latency histogram, in nanoseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public double getMeanLatencyNanos() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getMedianLatencyNanos() {
+        return latency.getQuantile(0.5d);
+    }
+
+    @Override
+    public long getP99LatencyNanos() {
+        return latency.getQuantile(0.99d);
+    }
+
+    @Override
+    public long getMaxLatencyNanos() {
+        return latency.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return name + " invocations=" + getInvocations()
+            + " strictFailures=" + getStrictFailures()
+            + " lenientFailures=" + getLenientFailures()
+            + " silentFailures=" + getSilentFailures()
+            + " meanLatencyNanos=" + getMeanLatencyNanos();
+    }
+}
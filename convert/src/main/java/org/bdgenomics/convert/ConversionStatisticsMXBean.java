@@ -0,0 +1,87 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+/**
+ * JMX management interface for conversion statistics.
+ */
+public interface ConversionStatisticsMXBean {
+
+    /**
+     * Return the name of these conversion statistics.
+     *
+     * @return the name of these conversion statistics
+     */
+    String getName();
+
+    /**
+     * Return the number of conversions.
+     *
+     * @return the number of conversions
+     */
+    long getInvocations();
+
+    /**
+     * Return the number of conversions that threw a ConversionException.
+     *
+     * @return the number of conversions that threw a ConversionException
+     */
+    long getStrictFailures();
+
+    /**
+     * Return the number of conversions that returned null when the conversion stringency was lenient.
+     *
+     * @return the number of conversions that returned null when the conversion stringency was lenient
+     */
+    long getLenientFailures();
+
+    /**
+     * Return the number of conversions that returned null when the conversion stringency was silent.
+     *
+     * @return the number of conversions that returned null when the conversion stringency was silent
+     */
+    long getSilentFailures();
+
+    /**
+     * Return the mean conversion latency in nanoseconds.
+     *
+     * @return the mean conversion latency in nanoseconds
+     */
+    double getMeanLatencyNanos();
+
+    /**
+     * Return the median conversion latency in nanoseconds, accurate to within a factor of two.
+     *
+     * @return the median conversion latency in nanoseconds
+     */
+    long getMedianLatencyNanos();
+
+    /**
+     * Return the 99th percentile conversion latency in nanoseconds, accurate to within a factor of two.
+     *
+     * @return the 99th percentile conversion latency in nanoseconds
+     */
+    long getP99LatencyNanos();
+
+    /**
+     * Return the maximum conversion latency in nanoseconds.
+     *
+     * @return the maximum conversion latency in nanoseconds
+     */
+    long getMaxLatencyNanos();
+}
@@ -17,6 +17,9 @@
  */
 package org.bdgenomics.convert;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.slf4j.Logger;
 
 /**
@@ -52,4 +55,76 @@ public interface Converter<S, T> {
      * @throws NullPointerException if either conversion stringency or logger are null
      */
     T convert(S source, ConversionStringency stringency, Logger logger) throws ConversionException;
+
+    /**
+     * Convert the specified source into the target type <code>T</code>, reusing the specified
+     * target instance if this converter supports reuse.
+     *
+     * <p>
+     * Converters that support reuse overwrite every field of the specified target and return it,
+     * so that a streaming loop may convert many sources while allocating few new target instances.
+     * The default implementation ignores the specified target and returns
+     * {@link #convert(Object, ConversionStringency, Logger)}.  Callers must always use the returned
+     * value, and must not retain a reference to a previously returned value across calls with
+     * the same target.
+     * </p>
+     *
+     * @param source source to convert
+     * @param target target to convert into, if null a new target instance is returned
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified source converted into the target type <code>T</code>, either the specified
+     *    target or a new target instance
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    default T convertInto(final S source,
+                          final T target,
+                          final ConversionStringency stringency,
+                          final Logger logger) throws ConversionException {
+        return convert(source, stringency, logger);
+    }
+
+    /**
+     * Convert the specified list of sources into the target type <code>T</code>, adding each
+     * converted value to the specified collection of targets in source order.
+     *
+     * <p>
+     * Sources that fail conversion when the conversion stringency is lenient or silent are
+     * added to the collection of targets as null, just as they would be returned from
+     * {@link #convert(Object, ConversionStringency, Logger)}.  The default implementation
+     * converts each source in turn; implementations may override this method to perform
+     * per-batch setup only once.
+     * </p>
+     *
+     * @param <C> target collection type
+     * @param sources list of sources to convert, must not be null
+     * @param targets collection of targets to add converted values to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified collection of targets
+     * @throws ConversionException if conversion of any source fails and the specified conversion stringency is strict
+     * @throws NullPointerException if any of sources, targets, conversion stringency, or logger are null
+     */
+    default <C extends Collection<? super T>> C convertAll(final List<? extends S> sources,
+                                                           final C targets,
+                                                           final ConversionStringency stringency,
+                                                           final Logger logger) throws ConversionException {
+        if (sources == null) {
+            throw new NullPointerException("sources must not be null");
+        }
+        if (targets == null) {
+            throw new NullPointerException("targets must not be null");
+        }
+        if (stringency == null) {
+            throw new NullPointerException("stringency must not be null");
+        }
+        if (logger == null) {
+            throw new NullPointerException("logger must not be null");
+        }
+        for (int i = 0, size = sources.size(); i < size; i++) {
+            targets.add(convert(sources.get(i), stringency, logger));
+        }
+        return targets;
+    }
 }
@@ -0,0 +1,411 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.io.Closeable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+/**
+ * Aggregate conversion failures at lenient conversion stringency, in place of logging
+ * a warning per failure.
+ *
+ * <p>
+ * While an aggregator is open for a logger, conversion failures that would be logged to that
+ * logger as warnings at lenient conversion stringency are instead counted per converter class
+ * and message template, where the message template is the failure message up to any
+ * <code>", caught "</code> exception message.  Converters pass values that vary per failure as
+ * a detail separate from the message, so that the number of message templates stays small.
+ * A bounded sample of example sources, each with its detail, and the first cause are kept per
+ * message template.  Counts are logged as warnings at most once per interval,
+ * and as a summary when the aggregator is closed, so that logging cost does not grow with the
+ * number of failures.  At most one aggregator may be open per logger instance.
+ * </p>
+ *
+ * <pre>
+ * try (FailureAggregator failures = FailureAggregator.aggregate(logger)) {
+ *     converter.convertAll(sources, targets, ConversionStringency.LENIENT, logger);
+ * }
+ * </pre>
+ */
+public final class FailureAggregator implements Closeable {
+    /** Default interval between warnings, in seconds. */
+    public static final long DEFAULT_INTERVAL_SECONDS = 10L;
+
+    /** Default number of example sources kept per message template. */
+    public static final int DEFAULT_SAMPLE_SIZE = 3;
+
+    /** Maximum number of message templates, further failures are counted together. */
+    static final int MAX_TEMPLATES = 1024;
+
+    /** Maximum length of an example source. */
+    static final int MAX_SAMPLE_LENGTH = 256;
+
+    /** Message template for failures beyond the maximum number of message templates. */
+    static final String OTHER = "other conversion failures";
+
+    /** Open aggregators, by logger. */
+    private static final ConcurrentMap<Logger, FailureAggregator> AGGREGATORS = new ConcurrentHashMap<Logger, FailureAggregator>();
+
+    /** Logger. */
+    private final Logger logger;
+
+    /** Interval between warnings, in nanoseconds. */
+    private final long interval;
+
+    /** Number of example sources kept per message template. */
+    private final int sampleSize;
+
+    /** Failures, by converter class and message template. */
+    private final ConcurrentMap<String, Failure> failures = new ConcurrentHashMap<String, Failure>();
+
+    /** Time of the last warnings, in nanoseconds. */
+    private final AtomicLong lastReport;
+
+    /** True if this aggregator has been closed. */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+
+    /**
+     * Create a new failure aggregator.
+     *
+     * @param logger logger
+     * @param interval interval between warnings, in nanoseconds
+     * @param sampleSize number of example sources kept per message template
+     */
+    private FailureAggregator(final Logger logger, final long interval, final int sampleSize) {
+        this.logger = logger;
+        this.interval = interval;
+        this.sampleSize = sampleSize;
+
+        // warn on the first failure
+        this.lastReport = new AtomicLong(System.nanoTime() - interval);
+    }
+
+
+    /**
+     * Open a failure aggregator for the specified logger, with the default interval
+     * between warnings and number of example sources.
+     *
+     * @param logger logger, must not be null
+     * @return a new failure aggregator for the specified logger
+     * @throws IllegalStateException if a failure aggregator is already open for the specified logger
+     */
+    public static FailureAggregator aggregate(final Logger logger) {
+        return aggregate(logger, DEFAULT_INTERVAL_SECONDS, TimeUnit.SECONDS, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Open a failure aggregator for the specified logger.
+     *
+     * @param logger logger, must not be null
+     * @param interval interval between warnings, must be at least zero
+     * @param unit interval time unit, must not be null
+     * @param sampleSize number of example sources kept per message template, must be at least zero
+     * @return a new failure aggregator for the specified logger
+     * @throws IllegalStateException if a failure aggregator is already open for the specified logger
+     */
+    public static FailureAggregator aggregate(final Logger logger,
+                                              final long interval,
+                                              final TimeUnit unit,
+                                              final int sampleSize) {
+        if (logger == null) {
+            throw new NullPointerException("logger must not be null");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit must not be null");
+        }
+        if (interval < 0L) {
+            throw new IllegalArgumentException("interval must be at least zero");
+        }
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("sampleSize must be at least zero");
+        }
+        FailureAggregator aggregator = new FailureAggregator(logger, unit.toNanos(interval), sampleSize);
+        if (AGGREGATORS.putIfAbsent(logger, aggregator) != null) {
+            throw new IllegalStateException("failures logged to " + logger.getName() + " are already aggregated");
+        }
+        return aggregator;
+    }
+
+    /**
+     * Return the open failure aggregator for the specified logger, if any.
+     *
+     * @param logger logger
+     * @return the open failure aggregator for the specified logger, or null if none is open
+     */
+    public static FailureAggregator forLogger(final Logger logger) {
+        if (logger == null || AGGREGATORS.isEmpty()) {
+            return null;
+        }
+        return AGGREGATORS.get(logger);
+    }
+
+    /**
+     * Record a conversion failure, logging counts as warnings if the interval
+     * since the last warnings has elapsed.
+     *
+     * @param converterClass converter class, must not be null
+     * @param sourceClass source class, must not be null
+     * @param targetClass target class, must not be null
+     * @param message message
+     * @param source source
+     * @param cause cause
+     */
+    public void record(final Class<?> converterClass,
+                       final Class<?> sourceClass,
+                       final Class<?> targetClass,
+                       final String message,
+                       final Object source,
+                       final Throwable cause) {
+        record(converterClass, sourceClass, targetClass, message, null, source, cause);
+    }
+
+    /**
+     * Record a conversion failure with the specified detail, logging counts as warnings if the
+     * interval since the last warnings has elapsed.  The detail is kept with the example source,
+     * and is not part of the message template.
+     *
+     * @param converterClass converter class, must not be null
+     * @param sourceClass source class, must not be null
+     * @param targetClass target class, must not be null
+     * @param message message
+     * @param detail detail, may be null
+     * @param source source
+     * @param cause cause
+     */
+    public void record(final Class<?> converterClass,
+                       final Class<?> sourceClass,
+                       final Class<?> targetClass,
+                       final String message,
+                       final Object detail,
+                       final Object source,
+                       final Throwable cause) {
+
+        String template = template(message);
+        String key = converterClass.getName() + " " + sourceClass.getName() + " " + targetClass.getName() + " " + template;
+        Failure failure = failures.get(key);
+        if (failure == null) {
+            if (failures.size() >= MAX_TEMPLATES) {
+                key = OTHER;
+                failure = failures.computeIfAbsent(key, k -> new Failure(OTHER, cause, sampleSize));
+            }
+            else {
+                failure = failures.computeIfAbsent(key, k -> new Failure(converterClass.getSimpleName() + " could not convert " + sourceClass.toString() + " to " + targetClass.toString() + ", " + template, cause, sampleSize));
+            }
+        }
+        failure.add(detail, source);
+
+        long last = lastReport.get();
+        long now = System.nanoTime();
+        if (now - last >= interval && lastReport.compareAndSet(last, now)) {
+            report(false);
+        }
+    }
+
+    /**
+     * Return the total number of failures recorded.
+     *
+     * @return the total number of failures recorded
+     */
+    public long getCount() {
+        long count = 0L;
+        for (Failure failure : failures.values()) {
+            count += failure.count.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of failures recorded, by failure description.
+     *
+     * @return the number of failures recorded, by failure description
+     */
+    public SortedMap<String, Long> getCounts() {
+        SortedMap<String, Long> counts = new TreeMap<String, Long>();
+        for (Failure failure : failures.values()) {
+            counts.put(failure.description, failure.count.sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Return example sources, by failure description.
+     *
+     * @return example sources, by failure description
+     */
+    public SortedMap<String, List<String>> getSamples() {
+        SortedMap<String, List<String>> samples = new TreeMap<String, List<String>>();
+        for (Failure failure : failures.values()) {
+            samples.put(failure.description, failure.samples());
+        }
+        return samples;
+    }
+
+    /**
+     * Close this failure aggregator, logging a summary of all failures recorded as warnings.
+     * Failures are logged per failure again after this aggregator is closed.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            AGGREGATORS.remove(logger, this);
+            report(true);
+        }
+    }
+
+    /**
+     * Log failure counts as warnings.
+     *
+     * @param summary true to log counts of all failures recorded, false to log counts
+     *    of failure descriptions with failures since the last warnings
+     */
+    private synchronized void report(final boolean summary) {
+        long total = 0L;
+        List<Map.Entry<String, Failure>> entries = new ArrayList<Map.Entry<String, Failure>>(failures.entrySet());
+        Collections.sort(entries, Map.Entry.comparingByKey());
+        for (Map.Entry<String, Failure> entry : entries) {
+            Failure failure = entry.getValue();
+            long count = failure.count.sum();
+            long since = count - failure.reported;
+            total += count;
+            if (since > 0L || (summary && count > 0L)) {
+                if (failure.reported == 0L && failure.cause != null) {
+                    logger.warn("{}: {} failures, e.g. {}", failure.description, count, failure.samples(), failure.cause);
+                }
+                else if (summary) {
+                    logger.warn("{}: {} failures, e.g. {}", failure.description, count, failure.samples());
+                }
+                else {
+                    logger.warn("{}: {} failures, {} since last report, e.g. {}", failure.description, count, since, failure.samples());
+                }
+                failure.reported = count;
+            }
+        }
+        if (summary && total > 0L) {
+            logger.warn("{} conversion failures in total", total);
+        }
+    }
+
+    /**
+     * Return the message template for the specified message, the message up to any
+     * <code>", caught "</code> exception message.
+     *
+     * @param message message
+     * @return the message template for the specified message
+     */
+    static String template(final String message) {
+        if (message == null) {
+            return "null";
+        }
+        int caught = message.indexOf(", caught ");
+        return caught < 0 ? message : message.substring(0, caught);
+    }
+
+    /**
+     * Return the example for the specified source, truncated to the maximum sample length.
+     *
+     * @param source source
+     * @return the example for the specified source
+     */
+    static String sample(final Object source) {
+        String sample = String.valueOf(source);
+        return sample.length() > MAX_SAMPLE_LENGTH ? sample.substring(0, MAX_SAMPLE_LENGTH) + "..." : sample;
+    }
+
+
+    /**
+     * Failures for one converter class and message template.
+     */
+    private static final class Failure {
+        /** Failure description. */
+        final String description;
+
+        /** First cause, if any. */
+        final Throwable cause;
+
+        /** Number of failures. */
+        final LongAdder count = new LongAdder();
+
+        /** Example sources. */
+        final AtomicReferenceArray<String> samples;
+
+        /** Number of example sources claimed. */
+        final AtomicInteger sampled = new AtomicInteger();
+
+        /** Number of failures at the last warnings, guarded by the aggregator. */
+        long reported;
+
+
+        Failure(final String description, final Throwable cause, final int sampleSize) {
+            this.description = description;
+            this.cause = cause;
+            this.samples = new AtomicReferenceArray<String>(sampleSize);
+        }
+
+
+        /**
+         * Add a failure for the specified source.
+         *
+         * @param detail detail, may be null
+         * @param source source
+         */
+        void add(final Object detail, final Object source) {
+            count.increment();
+            if (sampled.get() < samples.length()) {
+                int i = sampled.getAndIncrement();
+                if (i < samples.length()) {
+                    samples.set(i, sample(detail == null ? source : detail + ": " + source));
+                }
+            }
+        }
+
+        /**
+         * Return the example sources.
+         *
+         * @return the example sources
+         */
+        List<String> samples() {
+            List<String> list = new ArrayList<String>(samples.length());
+            for (int i = 0; i < samples.length(); i++) {
+                String sample = samples.get(i);
+                if (sample != null) {
+                    list.add(sample);
+                }
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.io.Serializable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.slf4j.Logger;
+
+/**
+ * Converter that records invocation counts, failure counts, and latency of
+ * a delegate converter to conversion statistics.
+ *
+ * <p>
+ * A conversion that throws a ConversionException is counted as a strict failure, and a
+ * conversion that returns null when the conversion stringency is lenient or silent is
+ * counted as a lenient or silent failure, respectively.  Batch conversions with
+ * {@link #convertAll(List, Collection, ConversionStringency, Logger)} are delegated as one
+ * batch, counted once per source, and their mean latency attributed to each source; null
+ * targets are only counted as failures when the collection of targets is a list.
+ * Several instrumented converters may share one instance of conversion statistics.
+ * </p>
+ *
+ * @param S source type
+ * @param T target type
+ */
+public final class InstrumentedConverter<S, T> implements Converter<S, T>, Serializable {
+    /** Delegate converter. */
+    private final Converter<S, T> delegate;
+
+    /** Conversion statistics. */
+    private final ConversionStatistics statistics;
+
+
+    /**
+     * Create a new instrumented converter.
+     *
+     * @param delegate delegate converter, must not be null
+     * @param statistics conversion statistics to record to, must not be null
+     */
+    public InstrumentedConverter(final Converter<S, T> delegate, final ConversionStatistics statistics) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate must not be null");
+        }
+        if (statistics == null) {
+            throw new NullPointerException("statistics must not be null");
+        }
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+
+    /**
+     * Return the delegate converter for this instrumented converter.
+     *
+     * @return the delegate converter for this instrumented converter
+     */
+    public Converter<S, T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Return the conversion statistics for this instrumented converter.
+     *
+     * @return the conversion statistics for this instrumented converter
+     */
+    public ConversionStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public Class<?> getSourceClass() {
+        return delegate.getSourceClass();
+    }
+
+    @Override
+    public Class<?> getTargetClass() {
+        return delegate.getTargetClass();
+    }
+
+    @Override
+    public T convert(final S source,
+                     final ConversionStringency stringency,
+                     final Logger logger) throws ConversionException {
+
+        long start = System.nanoTime();
+        T converted;
+        try {
+            converted = delegate.convert(source, stringency, logger);
+        }
+        catch (ConversionException e) {
+            statistics.record(System.nanoTime() - start, ConversionStringency.STRICT);
+            throw e;
+        }
+        statistics.record(System.nanoTime() - start, failure(converted, stringency));
+        return converted;
+    }
+
+    @Override
+    public T convertInto(final S source,
+                         final T target,
+                         final ConversionStringency stringency,
+                         final Logger logger) throws ConversionException {
+
+        long start = System.nanoTime();
+        T converted;
+        try {
+            converted = delegate.convertInto(source, target, stringency, logger);
+        }
+        catch (ConversionException e) {
+            statistics.record(System.nanoTime() - start, ConversionStringency.STRICT);
+            throw e;
+        }
+        statistics.record(System.nanoTime() - start, failure(converted, stringency));
+        return converted;
+    }
+
+    @Override
+    public <C extends Collection<? super T>> C convertAll(final List<? extends S> sources,
+                                                          final C targets,
+                                                          final ConversionStringency stringency,
+                                                          final Logger logger) throws ConversionException {
+        if (sources == null) {
+            throw new NullPointerException("sources must not be null");
+        }
+        if (targets == null) {
+            throw new NullPointerException("targets must not be null");
+        }
+        int before = targets.size();
+        long start = System.nanoTime();
+        try {
+            delegate.convertAll(sources, targets, stringency, logger);
+        }
+        catch (ConversionException e) {
+            long nanos = System.nanoTime() - start;
+            int converted = Math.max(0, targets.size() - before);
+            statistics.record(converted + 1, nanos, ConversionStringency.STRICT, 1);
+            throw e;
+        }
+        long nanos = System.nanoTime() - start;
+        int failures = 0;
+        if (stringency != null && !stringency.isStrict() && targets instanceof List) {
+            for (ListIterator<?> targetsIterator = ((List<?>) targets).listIterator(before); targetsIterator.hasNext(); ) {
+                if (targetsIterator.next() == null) {
+                    failures++;
+                }
+            }
+        }
+        statistics.record(sources.size(), nanos, stringency, failures);
+        return targets;
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedConverter(" + delegate + ")";
+    }
+
+    /**
+     * Return the conversion stringency outcome for the specified converted value, or null
+     * if conversion succeeded.
+     *
+     * @param converted converted value
+     * @param stringency conversion stringency
+     * @return the conversion stringency outcome for the specified converted value, or null
+     *    if conversion succeeded
+     */
+    private static ConversionStringency failure(final Object converted, final ConversionStringency stringency) {
+        return (converted == null && stringency != null && !stringency.isStrict()) ? stringency : null;
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.lang.annotation.Annotation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import java.util.regex.Pattern;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Binder;
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+import com.google.inject.binder.ScopedBindingBuilder;
+
+import com.google.inject.name.Names;
+
+import com.google.inject.spi.BindingScopingVisitor;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.LinkedKeyBinding;
+import com.google.inject.spi.ProviderInstanceBinding;
+
+/**
+ * Guice module that installs the specified modules with their converters instrumented.
+ *
+ * <p>
+ * Every binding to {@link Converter} is replaced by a binding that wraps the original converter
+ * in an {@link InstrumentedConverter}, and every binding to a public factory interface with
+ * methods returning {@link Converter} is replaced by a binding that wraps the converters created
+ * by the original factory.  Conversion statistics are shared by all the converters provided for
+ * one binding or created by one factory method, are named after the binding type or factory
+ * method, e.g. <code>Converter&lt;String, Impact&gt;</code> or
+ * <code>AlignmentToSamRecordFactory.create</code>, and are registered with the conversion
+ * metrics when first provided.  Converters injected into other bound converters are
+ * instrumented too.  Only provider instance, linked key, and instance bindings, which include
+ * <code>@Provides</code> methods and assisted inject factories, are instrumented; other bindings
+ * are installed unchanged.
+ * </p>
+ *
+ * <pre>
+ * Injector injector = Guice.createInjector(new InstrumentingModule(new BdgenomicsModule(), new HtsjdkModule()));
+ * </pre>
+ */
+public final class InstrumentingModule extends AbstractModule {
+    /** Package name prefixes of type names. */
+    private static final Pattern PACKAGE = Pattern.compile("(?:[a-z_][a-zA-Z0-9_]*\\.)+(?=[A-Z])");
+
+    /** Conversion metrics. */
+    private final List<ConversionMetrics> metrics;
+
+    /** Modules to instrument. */
+    private final List<Module> modules;
+
+
+    /**
+     * Create a new instrumenting module for the specified modules, registering conversion
+     * statistics with JMX and with any conversion metrics discovered with {@link ServiceLoader}.
+     *
+     * @param modules modules to instrument, must not be null
+     */
+    public InstrumentingModule(final Module... modules) {
+        this(loadMetrics(), modules);
+    }
+
+    /**
+     * Create a new instrumenting module for the specified modules, registering conversion
+     * statistics with the specified conversion metrics.
+     *
+     * @param metrics conversion metrics, must not be null
+     * @param modules modules to instrument, must not be null
+     */
+    public InstrumentingModule(final Iterable<? extends ConversionMetrics> metrics, final Module... modules) {
+        if (metrics == null) {
+            throw new NullPointerException("metrics must not be null");
+        }
+        if (modules == null) {
+            throw new NullPointerException("modules must not be null");
+        }
+        List<ConversionMetrics> list = new ArrayList<ConversionMetrics>();
+        for (ConversionMetrics m : metrics) {
+            if (m == null) {
+                throw new NullPointerException("metrics must not contain null");
+            }
+            list.add(m);
+        }
+        this.metrics = Collections.unmodifiableList(list);
+        this.modules = Collections.unmodifiableList(new ArrayList<Module>(Arrays.asList(modules)));
+    }
+
+
+    @Override
+    protected void configure() {
+        List<Element> retained = new ArrayList<Element>();
+        for (Element element : Elements.getElements(modules)) {
+            if (!(element instanceof Binding) || !instrument((Binding<?>) element)) {
+                retained.add(element);
+            }
+        }
+        install(Elements.getModule(retained));
+    }
+
+    /**
+     * Bind an instrumented replacement for the specified binding, if supported.
+     *
+     * @param binding binding to instrument
+     * @return true if an instrumented replacement was bound
+     */
+    private <T> boolean instrument(final Binding<T> binding) {
+        if (!(binding instanceof ProviderInstanceBinding || binding instanceof LinkedKeyBinding || binding instanceof InstanceBinding)) {
+            return false;
+        }
+        Key<T> key = binding.getKey();
+        Class<?> rawType = key.getTypeLiteral().getRawType();
+
+        InstrumentingProvider<T> provider;
+        Key<T> delegateKey = Key.get(key.getTypeLiteral(), Names.named(InstrumentingModule.class.getName() + " " + key));
+        Binder binder = binder().withSource(binding.getSource());
+        if (Converter.class.equals(rawType)) {
+            provider = new ConverterProvider<T>(binder.getProvider(delegateKey), new ConversionStatistics(name(key)), metrics);
+        }
+        else if (rawType.isInterface() && Modifier.isPublic(rawType.getModifiers())) {
+            Map<Method, ConversionStatistics> statistics = new HashMap<Method, ConversionStatistics>();
+            for (Method method : rawType.getMethods()) {
+                if (Converter.class.equals(method.getReturnType())) {
+                    statistics.put(method, new ConversionStatistics(name(key) + "." + method.getName()));
+                }
+            }
+            if (statistics.isEmpty()) {
+                return false;
+            }
+            provider = new FactoryProvider<T>(binder.getProvider(delegateKey), rawType, statistics, metrics);
+        }
+        else {
+            return false;
+        }
+
+        if (binding instanceof ProviderInstanceBinding) {
+            binding.acceptScopingVisitor(new ApplyScoping(binder.bind(delegateKey).toProvider(((ProviderInstanceBinding<T>) binding).getUserSuppliedProvider())));
+        }
+        else if (binding instanceof LinkedKeyBinding) {
+            binding.acceptScopingVisitor(new ApplyScoping(binder.bind(delegateKey).to(((LinkedKeyBinding<T>) binding).getLinkedKey())));
+        }
+        else {
+            binder.bind(delegateKey).toInstance(((InstanceBinding<T>) binding).getInstance());
+        }
+        binding.acceptScopingVisitor(new ApplyScoping(binder.bind(key).toProvider(provider)));
+        return true;
+    }
+
+    /**
+     * Return a list of JMX conversion metrics and any conversion metrics discovered
+     * with {@link ServiceLoader}.
+     *
+     * @return a list of JMX conversion metrics and any conversion metrics discovered
+     *    with {@link ServiceLoader}
+     */
+    public static List<ConversionMetrics> loadMetrics() {
+        List<ConversionMetrics> metrics = new ArrayList<ConversionMetrics>();
+        metrics.add(new JmxConversionMetrics());
+        for (ConversionMetrics m : ServiceLoader.load(ConversionMetrics.class)) {
+            metrics.add(m);
+        }
+        return metrics;
+    }
+
+    /**
+     * Return the conversion statistics name for the specified key, its type
+     * and annotation if any, without package names.
+     *
+     * @param key key
+     * @return the conversion statistics name for the specified key
+     */
+    static String name(final Key<?> key) {
+        StringBuilder sb = new StringBuilder(key.getTypeLiteral().toString());
+        if (key.getAnnotation() != null) {
+            sb.append(" ");
+            sb.append(key.getAnnotation());
+        }
+        else if (key.getAnnotationType() != null) {
+            sb.append(" @");
+            sb.append(key.getAnnotationType().getName());
+        }
+        return PACKAGE.matcher(sb).replaceAll("");
+    }
+
+
+    /**
+     * Provider that instruments the instances provided by a delegate provider, registering
+     * conversion statistics with conversion metrics on first provision.
+     */
+    private abstract static class InstrumentingProvider<T> implements Provider<T> {
+        /** Delegate provider. */
+        private final Provider<T> delegate;
+
+        /** Conversion statistics. */
+        private final Collection<ConversionStatistics> statistics;
+
+        /** Conversion metrics. */
+        private final List<ConversionMetrics> metrics;
+
+        /** True if conversion statistics have been registered. */
+        private final AtomicBoolean registered = new AtomicBoolean();
+
+
+        InstrumentingProvider(final Provider<T> delegate,
+                              final Collection<ConversionStatistics> statistics,
+                              final List<ConversionMetrics> metrics) {
+            this.delegate = delegate;
+            this.statistics = statistics;
+            this.metrics = metrics;
+        }
+
+
+        /**
+         * Instrument the specified instance.
+         *
+         * @param instance instance to instrument, will not be null
+         * @return the specified instance instrumented
+         */
+        abstract T instrument(T instance);
+
+        @Override
+        public final T get() {
+            T instance = delegate.get();
+            if (registered.compareAndSet(false, true)) {
+                for (ConversionMetrics m : metrics) {
+                    for (ConversionStatistics s : statistics) {
+                        m.register(s);
+                    }
+                }
+            }
+            return instance == null ? null : instrument(instance);
+        }
+    }
+
+    /**
+     * Provider that wraps converters in instrumented converters.
+     */
+    private static final class ConverterProvider<T> extends InstrumentingProvider<T> {
+        /** Conversion statistics. */
+        private final ConversionStatistics statistics;
+
+
+        ConverterProvider(final Provider<T> delegate,
+                          final ConversionStatistics statistics,
+                          final List<ConversionMetrics> metrics) {
+            super(delegate, Collections.singletonList(statistics), metrics);
+            this.statistics = statistics;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T instrument(final T instance) {
+            return (T) new InstrumentedConverter<Object, Object>((Converter<Object, Object>) instance, statistics);
+        }
+    }
+
+    /**
+     * Provider that wraps factories in proxies that wrap the converters they create
+     * in instrumented converters.
+     */
+    private static final class FactoryProvider<T> extends InstrumentingProvider<T> {
+        /** Factory interface. */
+        private final Class<?> factoryClass;
+
+        /** Conversion statistics, by factory method. */
+        private final Map<Method, ConversionStatistics> statistics;
+
+
+        FactoryProvider(final Provider<T> delegate,
+                        final Class<?> factoryClass,
+                        final Map<Method, ConversionStatistics> statistics,
+                        final List<ConversionMetrics> metrics) {
+            super(delegate, statistics.values(), metrics);
+            this.factoryClass = factoryClass;
+            this.statistics = statistics;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T instrument(final T instance) {
+            return (T) Proxy.newProxyInstance(factoryClass.getClassLoader(), new Class<?>[] { factoryClass }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                        Object result;
+                        try {
+                            result = method.invoke(instance, args);
+                        }
+                        catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        ConversionStatistics s = statistics.get(method);
+                        return (s == null || result == null) ? result : new InstrumentedConverter<Object, Object>((Converter<Object, Object>) result, s);
+                    }
+                });
+        }
+    }
+
+    /**
+     * Apply a binding scoping to a scoped binding builder.
+     */
+    private static final class ApplyScoping implements BindingScopingVisitor<Void> {
+        /** Scoped binding builder. */
+        private final ScopedBindingBuilder builder;
+
+
+        ApplyScoping(final ScopedBindingBuilder builder) {
+            this.builder = builder;
+        }
+
+
+        @Override
+        public Void visitEagerSingleton() {
+            builder.asEagerSingleton();
+            return null;
+        }
+
+        @Override
+        public Void visitScope(final Scope scope) {
+            builder.in(scope);
+            return null;
+        }
+
+        @Override
+        public Void visitScopeAnnotation(final Class<? extends Annotation> scopeAnnotation) {
+            builder.in(scopeAnnotation);
+            return null;
+        }
+
+        @Override
+        public Void visitNoScoping() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Conversion metrics that register conversion statistics as JMX MXBeans, with object names
+ * <code>org.bdgenomics.convert:type=ConversionStatistics,name="&lt;name&gt;"</code>.
+ *
+ * <p>
+ * Conversion statistics registered with the same name as previously registered conversion
+ * statistics, for example by a second injector, replace them.
+ * </p>
+ */
+public final class JmxConversionMetrics implements ConversionMetrics {
+    /** Object name domain. */
+    static final String DOMAIN = "org.bdgenomics.convert";
+
+    /** MBean server. */
+    private final MBeanServer server;
+
+
+    /**
+     * Create new JMX conversion metrics with the platform MBean server.
+     */
+    public JmxConversionMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Create new JMX conversion metrics with the specified MBean server.
+     *
+     * @param server MBean server, must not be null
+     */
+    public JmxConversionMetrics(final MBeanServer server) {
+        if (server == null) {
+            throw new NullPointerException("server must not be null");
+        }
+        this.server = server;
+    }
+
+
+    @Override
+    public void register(final ConversionStatistics statistics) {
+        if (statistics == null) {
+            throw new NullPointerException("statistics must not be null");
+        }
+        ObjectName objectName = objectName(statistics.getName());
+        try {
+            try {
+                server.registerMBean(statistics, objectName);
+            }
+            catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(objectName);
+                server.registerMBean(statistics, objectName);
+            }
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("could not register conversion statistics " + statistics.getName() + ", caught " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Return the object name for conversion statistics with the specified name.
+     *
+     * @param name conversion statistics name, must not be null
+     * @return the object name for conversion statistics with the specified name
+     */
+    public static ObjectName objectName(final String name) {
+        if (name == null) {
+            throw new NullPointerException("name must not be null");
+        }
+        try {
+            return new ObjectName(DOMAIN + ":type=ConversionStatistics,name=" + ObjectName.quote(name));
+        }
+        catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("invalid conversion statistics name " + name, e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.io.Serializable;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power of two buckets.
+ *
+ * <p>
+ * Bucket <code>0</code> counts values less than one, and bucket <code>i</code> counts values
+ * in the range <code>[2<sup>i - 1</sup>, 2<sup>i</sup>)</code>, so quantiles are reported as
+ * bucket upper bounds, accurate to within a factor of two.  Each bucket is a striped
+ * {@link LongAdder}, so concurrent writers do not contend on a single counter and recording
+ * a value never blocks.  Reads are not atomic with respect to concurrent writes, and may
+ * observe a count, sum, and buckets that differ by the values recorded in the meantime.
+ * </p>
+ */
+public final class LatencyHistogram implements Serializable {
+    /** Number of buckets. */
+    static final int BUCKETS = 64;
+
+    /** Buckets, counts of recorded values by power of two. */
+    private final LongAdder[] buckets;
+
+    /** Sum of recorded values. */
+    private final LongAdder sum = new LongAdder();
+
+    /** Maximum recorded value. */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+
+    /**
+     * Create a new empty latency histogram.
+     */
+    public LatencyHistogram() {
+        buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+
+    /**
+     * Record the specified value.
+     *
+     * @param value value to record, negative values are recorded as zero
+     */
+    public void record(final long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * Record the specified value the specified number of times.
+     *
+     * @param value value to record, negative values are recorded as zero
+     * @param count number of times to record the specified value, must be at least zero
+     */
+    public void record(final long value, final long count) {
+        if (count < 0L) {
+            throw new IllegalArgumentException("count must be at least zero");
+        }
+        if (count == 0L) {
+            return;
+        }
+        long v = Math.max(0L, value);
+        buckets[bucket(v)].add(count);
+        sum.add(v * count);
+        max.accumulate(v);
+    }
+
+    /**
+     * Return the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets[i].sum();
+        }
+        return count;
+    }
+
+    /**
+     * Return the sum of recorded values.
+     *
+     * @return the sum of recorded values
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Return the maximum recorded value, or zero if no values have been recorded.
+     *
+     * @return the maximum recorded value, or zero if no values have been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return the mean of recorded values, or zero if no values have been recorded.
+     *
+     * @return the mean of recorded values, or zero if no values have been recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0L ? 0.0d : (double) getSum() / count;
+    }
+
+    /**
+     * Return the specified quantile of recorded values, as the upper bound of the bucket
+     * containing that quantile, capped at the maximum recorded value.  Returns zero if no
+     * values have been recorded.
+     *
+     * @param quantile quantile, must be between <code>0.0</code> and <code>1.0</code>, inclusive
+     * @return the specified quantile of recorded values
+     */
+    public long getQuantile(final double quantile) {
+        if (quantile < 0.0d || quantile > 1.0d) {
+            throw new IllegalArgumentException("quantile must be between 0.0 and 1.0, inclusive");
+        }
+        long[] counts = getBucketCounts();
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts[i];
+        }
+        if (count == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Return a snapshot of bucket counts, where the count at index <code>i</code> is the number
+     * of recorded values in the range <code>[2<sup>i - 1</sup>, 2<sup>i</sup>)</code>.
+     *
+     * @return a snapshot of bucket counts
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Return the bucket for the specified non-negative value.
+     *
+     * @param value non-negative value
+     * @return the bucket for the specified non-negative value
+     */
+    static int bucket(final long value) {
+        return BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Return the inclusive upper bound of the specified bucket.
+     *
+     * @param bucket bucket
+     * @return the inclusive upper bound of the specified bucket
+     */
+    static long upperBound(final int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1L;
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.bdgenomics.convert.bdgenomics;
 
+import java.util.List;
+
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
@@ -37,6 +39,29 @@ import org.bdgenomics.formats.avro.VariantAnnotationMessage;
  * Guice module for the org.bdgenomics.convert.bdgenomics package.
  */
 public final class BdgenomicsModule extends AbstractModule {
+    /** True to reuse repeated gene name, gene ID, and biotype values within an ANN value. */
+    private final boolean intern;
+
+
+    /**
+     * Create a new Guice module for the org.bdgenomics.convert.bdgenomics package, reusing
+     * repeated gene name, gene ID, and biotype values within an ANN value.
+     */
+    public BdgenomicsModule() {
+        this(true);
+    }
+
+    /**
+     * Create a new Guice module for the org.bdgenomics.convert.bdgenomics package.
+     *
+     * @param intern true to reuse repeated gene name, gene ID, and biotype values within
+     *    an ANN value
+     */
+    public BdgenomicsModule(final boolean intern) {
+        this.intern = intern;
+    }
+
+
     @Override
     protected void configure() {
         // empty
@@ -88,10 +113,30 @@ public final class BdgenomicsModule extends AbstractModule {
     }
 
     @Provides @Singleton
-    Converter<TranscriptEffect, String> createTranscriptEffectToString(final Converter<Impact, String> impactConverter, final Converter<VariantAnnotationMessage, String> variantAnnotationMessageConverter) {
+    Converter<String, List<TranscriptEffect>> createStringToTranscriptEffects(final Converter<String, Impact> impactConverter, final Converter<String, VariantAnnotationMessage> variantAnnotationMessageConverter) {
+        return new StringToTranscriptEffects(new StringToTranscriptEffect(impactConverter, variantAnnotationMessageConverter), intern);
+    }
+
+    @Provides @Singleton
+    TranscriptEffectToString createTranscriptEffectToStringInstance(final Converter<Impact, String> impactConverter, final Converter<VariantAnnotationMessage, String> variantAnnotationMessageConverter) {
         return new TranscriptEffectToString(impactConverter, variantAnnotationMessageConverter);
     }
 
+    @Provides @Singleton
+    Converter<TranscriptEffect, String> createTranscriptEffectToString(final TranscriptEffectToString transcriptEffectToString) {
+        return transcriptEffectToString;
+    }
+
+    @Provides @Singleton
+    TranscriptEffectAppender createTranscriptEffectAppender(final TranscriptEffectToString transcriptEffectToString) {
+        return transcriptEffectToString;
+    }
+
+    @Provides @Singleton
+    Converter<List<TranscriptEffect>, String> createTranscriptEffectsToString(final TranscriptEffectAppender transcriptEffectAppender) {
+        return new TranscriptEffectsToString(transcriptEffectAppender);
+    }
+
     @Provides @Singleton
     Converter<String, VariantAnnotationMessage> createStringToVariantAnnotationMessage() {
         return new StringToVariantAnnotationMessage();
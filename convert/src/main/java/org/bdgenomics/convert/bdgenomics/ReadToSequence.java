@@ -43,17 +43,30 @@ final class ReadToSequence extends AbstractConverter<Read, Sequence> {
     public Sequence convert(final Read read,
                             final ConversionStringency stringency,
                             final Logger logger) throws ConversionException {
+        return convertInto(read, null, stringency, logger);
+    }
+
+    @Override
+    public Sequence convertInto(final Read read,
+                                final Sequence sequence,
+                                final ConversionStringency stringency,
+                                final Logger logger) throws ConversionException {
         if (read == null) {
             warnOrThrow(read, "must not be null", null, stringency, logger);
             return null;
         }
-        return Sequence.newBuilder()
-            .setName(read.getName())
-            .setDescription(read.getDescription())
-            .setAlphabet(read.getAlphabet())
-            .setSequence(read.getSequence())
-            .setLength(read.getLength())
-            .setAttributes(read.getAttributes())
-            .build();
+        if (read.getAttributes() == null) {
+            warnOrThrow(read, "attributes must not be null", null, stringency, logger);
+            return null;
+        }
+        Sequence target = sequence == null ? new Sequence() : sequence;
+        target.setName(read.getName());
+        target.setDescription(read.getDescription());
+        target.setAlphabet(read.getAlphabet());
+        target.setSequence(read.getSequence());
+        target.setLength(read.getLength());
+        target.setSampleId(null);
+        target.setAttributes(read.getAttributes());
+        return target;
     }
 }
@@ -44,20 +44,36 @@ final class ReadToSlice extends AbstractConverter<Read, Slice> {
     public Slice convert(final Read read,
                          final ConversionStringency stringency,
                          final Logger logger) throws ConversionException {
+        return convertInto(read, null, stringency, logger);
+    }
+
+    @Override
+    public Slice convertInto(final Read read,
+                             final Slice slice,
+                             final ConversionStringency stringency,
+                             final Logger logger) throws ConversionException {
         if (read == null) {
             warnOrThrow(read, "must not be null", null, stringency, logger);
             return null;
         }
-        return Slice.newBuilder()
-            .setName(read.getName())
-            .setDescription(read.getDescription())
-            .setAlphabet(read.getAlphabet())
-            .setSequence(read.getSequence())
-            .setLength(read.getLength())
-            .setStart(0L)
-            .setEnd(read.getLength())
-            .setStrand(Strand.INDEPENDENT)
-            .setAttributes(read.getAttributes())
-            .build();
+        if (read.getAttributes() == null) {
+            warnOrThrow(read, "attributes must not be null", null, stringency, logger);
+            return null;
+        }
+        Slice target = slice == null ? new Slice() : slice;
+        target.setName(read.getName());
+        target.setDescription(read.getDescription());
+        target.setAlphabet(read.getAlphabet());
+        target.setSequence(read.getSequence());
+        target.setStart(0L);
+        target.setEnd(read.getLength());
+        target.setStrand(Strand.INDEPENDENT);
+        target.setLength(read.getLength());
+        target.setTotalLength(null);
+        target.setIndex(null);
+        target.setSlices(null);
+        target.setSampleId(null);
+        target.setAttributes(read.getAttributes());
+        return target;
     }
 }
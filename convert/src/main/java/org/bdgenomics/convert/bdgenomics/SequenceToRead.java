@@ -43,19 +43,32 @@ final class SequenceToRead extends AbstractConverter<Sequence, Read> {
     public Read convert(final Sequence sequence,
                         final ConversionStringency stringency,
                         final Logger logger) throws ConversionException {
+        return convertInto(sequence, null, stringency, logger);
+    }
+
+    @Override
+    public Read convertInto(final Sequence sequence,
+                            final Read read,
+                            final ConversionStringency stringency,
+                            final Logger logger) throws ConversionException {
         if (sequence == null) {
             warnOrThrow(sequence, "must not be null", null, stringency, logger);
             return null;
         }
-        return Read.newBuilder()
-            .setName(sequence.getName())
-            .setDescription(sequence.getDescription())
-            .setAlphabet(sequence.getAlphabet())
-            .setSequence(sequence.getSequence())
-            .setLength(sequence.getLength())
-            .setQualityScores(unknownQualityScores(sequence.getLength() == null ? 0 : sequence.getLength().intValue()))
-            .setAttributes(sequence.getAttributes())
-            .build();
+        if (sequence.getAttributes() == null) {
+            warnOrThrow(sequence, "attributes must not be null", null, stringency, logger);
+            return null;
+        }
+        Read target = read == null ? new Read() : read;
+        target.setName(sequence.getName());
+        target.setDescription(sequence.getDescription());
+        target.setAlphabet(sequence.getAlphabet());
+        target.setSequence(sequence.getSequence());
+        target.setLength(sequence.getLength());
+        target.setQualityScores(unknownQualityScores(sequence.getLength() == null ? 0 : sequence.getLength().intValue()));
+        target.setSampleId(null);
+        target.setAttributes(sequence.getAttributes());
+        return target;
     }
 
     /**
@@ -42,22 +42,38 @@ final class SequenceToSlice extends AbstractConverter<Sequence, Slice> {
 
     @Override
     public Slice convert(final Sequence sequence,
-                        final ConversionStringency stringency,
-                        final Logger logger) throws ConversionException {
+                         final ConversionStringency stringency,
+                         final Logger logger) throws ConversionException {
+        return convertInto(sequence, null, stringency, logger);
+    }
+
+    @Override
+    public Slice convertInto(final Sequence sequence,
+                             final Slice slice,
+                             final ConversionStringency stringency,
+                             final Logger logger) throws ConversionException {
         if (sequence == null) {
             warnOrThrow(sequence, "must not be null", null, stringency, logger);
             return null;
         }
-        return Slice.newBuilder()
-            .setName(sequence.getName())
-            .setDescription(sequence.getDescription())
-            .setAlphabet(sequence.getAlphabet())
-            .setSequence(sequence.getSequence())
-            .setLength(sequence.getLength())
-            .setStart(0L)
-            .setEnd(sequence.getLength())
-            .setStrand(Strand.INDEPENDENT)
-            .setAttributes(sequence.getAttributes())
-            .build();
+        if (sequence.getAttributes() == null) {
+            warnOrThrow(sequence, "attributes must not be null", null, stringency, logger);
+            return null;
+        }
+        Slice target = slice == null ? new Slice() : slice;
+        target.setName(sequence.getName());
+        target.setDescription(sequence.getDescription());
+        target.setAlphabet(sequence.getAlphabet());
+        target.setSequence(sequence.getSequence());
+        target.setStart(0L);
+        target.setEnd(sequence.getLength());
+        target.setStrand(Strand.INDEPENDENT);
+        target.setLength(sequence.getLength());
+        target.setTotalLength(null);
+        target.setIndex(null);
+        target.setSlices(null);
+        target.setSampleId(null);
+        target.setAttributes(sequence.getAttributes());
+        return target;
     }
 }
@@ -43,19 +43,32 @@ final class SliceToRead extends AbstractConverter<Slice, Read> {
     public Read convert(final Slice slice,
                         final ConversionStringency stringency,
                         final Logger logger) throws ConversionException {
+        return convertInto(slice, null, stringency, logger);
+    }
+
+    @Override
+    public Read convertInto(final Slice slice,
+                            final Read read,
+                            final ConversionStringency stringency,
+                            final Logger logger) throws ConversionException {
         if (slice == null) {
             warnOrThrow(slice, "must not be null", null, stringency, logger);
             return null;
         }
-        return Read.newBuilder()
-            .setName(slice.getName())
-            .setDescription(slice.getDescription())
-            .setAlphabet(slice.getAlphabet())
-            .setSequence(slice.getSequence())
-            .setLength(slice.getLength())
-            .setQualityScores(unknownQualityScores(slice.getLength() == null ? 0 : slice.getLength().intValue()))
-            .setAttributes(slice.getAttributes())
-            .build();
+        if (slice.getAttributes() == null) {
+            warnOrThrow(slice, "attributes must not be null", null, stringency, logger);
+            return null;
+        }
+        Read target = read == null ? new Read() : read;
+        target.setName(slice.getName());
+        target.setDescription(slice.getDescription());
+        target.setAlphabet(slice.getAlphabet());
+        target.setSequence(slice.getSequence());
+        target.setLength(slice.getLength());
+        target.setQualityScores(unknownQualityScores(slice.getLength() == null ? 0 : slice.getLength().intValue()));
+        target.setSampleId(null);
+        target.setAttributes(slice.getAttributes());
+        return target;
     }
 
     /**
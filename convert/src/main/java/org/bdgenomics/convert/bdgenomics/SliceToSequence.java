@@ -43,17 +43,30 @@ final class SliceToSequence extends AbstractConverter<Slice, Sequence> {
     public Sequence convert(final Slice slice,
                             final ConversionStringency stringency,
                             final Logger logger) throws ConversionException {
+        return convertInto(slice, null, stringency, logger);
+    }
+
+    @Override
+    public Sequence convertInto(final Slice slice,
+                                final Sequence sequence,
+                                final ConversionStringency stringency,
+                                final Logger logger) throws ConversionException {
         if (slice == null) {
             warnOrThrow(slice, "must not be null", null, stringency, logger);
             return null;
         }
-        return Sequence.newBuilder()
-            .setName(slice.getName())
-            .setDescription(slice.getDescription())
-            .setAlphabet(slice.getAlphabet())
-            .setSequence(slice.getSequence())
-            .setLength(slice.getLength())
-            .setAttributes(slice.getAttributes())
-            .build();
+        if (slice.getAttributes() == null) {
+            warnOrThrow(slice, "attributes must not be null", null, stringency, logger);
+            return null;
+        }
+        Sequence target = sequence == null ? new Sequence() : sequence;
+        target.setName(slice.getName());
+        target.setDescription(slice.getDescription());
+        target.setAlphabet(slice.getAlphabet());
+        target.setSequence(slice.getSequence());
+        target.setLength(slice.getLength());
+        target.setSampleId(null);
+        target.setAttributes(slice.getAttributes());
+        return target;
     }
 }
@@ -17,12 +17,11 @@
  */
 package org.bdgenomics.convert.bdgenomics;
 
-import static java.util.stream.Collectors.toList;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
-import com.google.common.base.Splitter;
-
 import org.bdgenomics.convert.AbstractConverter;
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -36,9 +35,30 @@ import org.slf4j.Logger;
 
 /**
  * Convert String to TranscriptEffect.
+ *
+ * <p>
+ * Values are parsed by a single-pass scanner that locates the sixteen field
+ * delimiters once, parses integer fields in place, and copies out only the
+ * substrings kept in the converted TranscriptEffect.
+ * </p>
  */
 final class StringToTranscriptEffect extends AbstractConverter<String, TranscriptEffect> {
 
+    /** Number of fields in a SnpEff ANN value. */
+    static final int FIELDS = 16;
+
+    /** Number of interned values, gene name, gene ID, and biotype. */
+    static final int INTERNED = 3;
+
+    /** Field delimiter. */
+    private static final char FIELD_DELIMITER = '|';
+
+    /** List delimiter. */
+    private static final char LIST_DELIMITER = '&';
+
+    /** Fraction delimiter. */
+    private static final char FRACTION_DELIMITER = '/';
+
     /** Convert String to Impact. */
     private final Converter<String, Impact> impactConverter;
 
@@ -69,10 +89,59 @@ final class StringToTranscriptEffect extends AbstractConverter<String, Transcrip
             warnOrThrow(value, "must not be null", null, stringency, logger);
             return null;
         }
+        return convert(value, 0, value.length(), new int[FIELDS + 1], null, TranscriptEffect.newBuilder(), stringency, logger);
+    }
+
+    @Override
+    public <C extends Collection<? super TranscriptEffect>> C convertAll(final List<? extends String> values,
+                                                                          final C transcriptEffects,
+                                                                          final ConversionStringency stringency,
+                                                                          final Logger logger) throws ConversionException {
+        checkNotNull(values, transcriptEffects, stringency, logger);
+
+        // every field parsed is set on each call, so one builder can be shared across the batch
+        int[] fields = new int[FIELDS + 1];
+        TranscriptEffect.Builder builder = TranscriptEffect.newBuilder();
+        for (int i = 0, size = values.size(); i < size; i++) {
+            String value = values.get(i);
+            if (value == null) {
+                warnOrThrow(value, "must not be null", null, stringency, logger);
+                transcriptEffects.add(null);
+            }
+            else {
+                transcriptEffects.add(convert(value, 0, value.length(), fields, null, builder, stringency, logger));
+            }
+        }
+        return transcriptEffects;
+    }
+
+    /**
+     * Convert the specified range of the specified value to a TranscriptEffect.
+     *
+     * @param value value to convert, must not be null
+     * @param start start of the range to convert, inclusive
+     * @param end end of the range to convert, exclusive
+     * @param fields scratch array of at least <code>FIELDS + 1</code> field offsets, must not be null
+     * @param interned array of <code>INTERNED</code> previously converted gene name, gene ID, and biotype
+     *    values to reuse if equal, or null to always copy these values
+     * @param builder transcript effect builder, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified range of the specified value converted to a TranscriptEffect
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    TranscriptEffect convert(final CharSequence value,
+                             final int start,
+                             final int end,
+                             final int[] fields,
+                             final String[] interned,
+                             final TranscriptEffect.Builder builder,
+                             final ConversionStringency stringency,
+                             final Logger logger) throws ConversionException {
 
-        List<String> tokens = Splitter.on("|").splitToList(value);
-        if (tokens.size() != 16) {
-            warnOrThrow(value,
+        if (scan(value, start, end, fields) != FIELDS) {
+            warnOrThrow(value.subSequence(start, end).toString(),
                         "value must have sixteen fields ( Allele | Annotation | Annotation_Impact | "
                         + "Gene_Name | Gene_ID | Feature_Type | Feature_ID | Transcript_BioType | Rank / Total | HGVS.c | HGVS.p | "
                         + "cDNA.pos / cDNA.length | CDS.pos / CDS.length | AA.pos / AA.length | Distance | MESSAGES / WARNINGS / INFO)",
@@ -84,134 +153,290 @@ final class StringToTranscriptEffect extends AbstractConverter<String, Transcrip
 
         TranscriptEffect transcriptEffect = null;
         try {
-            String alternateAllele = emptyToNull(tokens.get(0));
-            List<String> effects = splitEffects(tokens.get(1));
-            String impact = emptyToNull(tokens.get(2));
-            String geneName = emptyToNull(tokens.get(3));
-            String geneId = emptyToNull(tokens.get(4));
-            String featureType = emptyToNull(tokens.get(5));
-            String featureId = emptyToNull(tokens.get(6));
-            String biotype = emptyToNull(tokens.get(7));
-            Integer rank = numerator(tokens.get(8));
-            Integer total = denominator(tokens.get(8));
-            String transcriptHgvs = emptyToNull(tokens.get(9));
-            String proteinHgvs = emptyToNull(tokens.get(10));
-            Integer cdnaPosition = numerator(tokens.get(11));
-            Integer cdnaLength = denominator(tokens.get(11));
-            Integer cdsPosition = numerator(tokens.get(12));
-            Integer cdsLength = denominator(tokens.get(12));
-            Integer proteinPosition = numerator(tokens.get(13));
-            Integer proteinLength = denominator(tokens.get(13));
-            Integer distance = emptyToNullInteger(tokens.get(14));
-            List<VariantAnnotationMessage> messages = splitMessages(tokens.get(15), stringency, logger);
-
-            transcriptEffect = TranscriptEffect.newBuilder()
-                .setAlternateAllele(alternateAllele)
-                .setEffects(effects)
+            String impact = substring(value, fields, 2);
+
+            transcriptEffect = builder
+                .setAlternateAllele(substring(value, fields, 0))
+                .setEffects(split(value, fields[1], fields[2] - 1))
                 .setImpact(impact == null ? null : impactConverter.convert(impact, stringency, logger))
-                .setGeneName(geneName)
-                .setGeneId(geneId)
-                .setFeatureType(featureType)
-                .setFeatureId(featureId)
-                .setBiotype(biotype)
-                .setRank(rank)
-                .setTotal(total)
-                .setTranscriptHgvs(transcriptHgvs)
-                .setProteinHgvs(proteinHgvs)
-                .setCdnaPosition(cdnaPosition)
-                .setCdnaLength(cdnaLength)
-                .setCodingSequencePosition(cdsPosition)
-                .setCodingSequenceLength(cdsLength)
-                .setProteinPosition(proteinPosition)
-                .setProteinLength(proteinLength)
-                .setDistance(distance)
-                .setMessages(messages)
+                .setGeneName(intern(value, fields, 3, interned, 0))
+                .setGeneId(intern(value, fields, 4, interned, 1))
+                .setFeatureType(substring(value, fields, 5))
+                .setFeatureId(substring(value, fields, 6))
+                .setBiotype(intern(value, fields, 7, interned, 2))
+                .setRank(numerator(value, fields, 8))
+                .setTotal(denominator(value, fields, 8))
+                .setTranscriptHgvs(substring(value, fields, 9))
+                .setProteinHgvs(substring(value, fields, 10))
+                .setCdnaPosition(numerator(value, fields, 11))
+                .setCdnaLength(denominator(value, fields, 11))
+                .setCodingSequencePosition(numerator(value, fields, 12))
+                .setCodingSequenceLength(denominator(value, fields, 12))
+                .setProteinPosition(numerator(value, fields, 13))
+                .setProteinLength(denominator(value, fields, 13))
+                .setDistance(parseInteger(value, fields[14], fields[15] - 1))
+                .setMessages(splitMessages(value, fields[15], fields[16] - 1, stringency, logger))
                 .build();
         }
         catch (NumberFormatException e) {
-            warnOrThrow(value, "could not parse transcript effect", e, stringency, logger);
+            warnOrThrow(value.subSequence(start, end).toString(), "could not parse transcript effect", e, stringency, logger);
         }
         return transcriptEffect;
     }
 
     /**
-     * Split the specified string into a list of effects.
+     * Scan the specified range of the specified value for field delimiters, recording the
+     * start offset of each field, followed by the end of the range plus one, in the
+     * specified array of field offsets.
      *
-     * @param s string to split
-     * @return the specified string split into a list of effects
+     * @param value value to scan
+     * @param start start of the range to scan, inclusive
+     * @param end end of the range to scan, exclusive
+     * @param fields array of at least <code>FIELDS + 1</code> field offsets
+     * @return the number of fields found, or <code>FIELDS + 1</code> if more than <code>FIELDS</code> fields were found
      */
-    List<String> splitEffects(final String s) {
-        return Splitter.on("&").omitEmptyStrings().splitToList(s);
+    static int scan(final CharSequence value, final int start, final int end, final int[] fields) {
+        int count = 0;
+        fields[count++] = start;
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == FIELD_DELIMITER) {
+                if (count == FIELDS) {
+                    return FIELDS + 1;
+                }
+                fields[count++] = i + 1;
+            }
+        }
+        fields[count] = end + 1;
+        return count;
     }
 
     /**
-     * Split the specified string into a list of variant annotation messages.
+     * Return the specified field of the specified value, or null if the field is empty.
      *
-     * @param s string to split
+     * @param value value
+     * @param fields field offsets
+     * @param field field index
+     * @return the specified field of the specified value, or null if the field is empty
+     */
+    private static String substring(final CharSequence value, final int[] fields, final int field) {
+        return substring(value, fields[field], fields[field + 1] - 1);
+    }
+
+    /**
+     * Return the specified field of the specified value, or null if the field is empty,
+     * reusing the previously converted value in the specified slot if it is equal.
+     *
+     * @param value value
+     * @param fields field offsets
+     * @param field field index
+     * @param interned previously converted values, if any
+     * @param slot slot in previously converted values
+     * @return the specified field of the specified value, or null if the field is empty
+     */
+    private static String intern(final CharSequence value, final int[] fields, final int field, final String[] interned, final int slot) {
+        if (interned == null) {
+            return substring(value, fields, field);
+        }
+        int start = fields[field];
+        int end = fields[field + 1] - 1;
+        String previous = interned[slot];
+        if (previous != null && regionEquals(previous, value, start, end)) {
+            return previous;
+        }
+        String s = substring(value, start, end);
+        if (s != null) {
+            interned[slot] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Return true if the specified string is equal to the specified range of the specified value.
+     *
+     * @param s string
+     * @param value value
+     * @param start start of the range, inclusive
+     * @param end end of the range, exclusive
+     * @return true if the specified string is equal to the specified range of the specified value
+     */
+    private static boolean regionEquals(final String s, final CharSequence value, final int start, final int end) {
+        if (s.length() != end - start) {
+            return false;
+        }
+        for (int i = 0, length = s.length(); i < length; i++) {
+            if (s.charAt(i) != value.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the specified range of the specified value, or null if the range is empty.
+     *
+     * @param value value
+     * @param start start of the range, inclusive
+     * @param end end of the range, exclusive
+     * @return the specified range of the specified value, or null if the range is empty
+     */
+    static String substring(final CharSequence value, final int start, final int end) {
+        return start == end ? null : value.subSequence(start, end).toString();
+    }
+
+    /**
+     * Split the specified range of the specified value on <code>&amp;</code>, omitting empty strings.
+     *
+     * @param value value to split
+     * @param start start of the range to split, inclusive
+     * @param end end of the range to split, exclusive
+     * @return the specified range of the specified value split into a list of strings
+     */
+    static List<String> split(final CharSequence value, final int start, final int end) {
+        if (start == end) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<String>(2);
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || value.charAt(i) == LIST_DELIMITER) {
+                if (i > tokenStart) {
+                    tokens.add(value.subSequence(tokenStart, i).toString());
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Split the specified range of the specified value into a list of variant annotation messages.
+     *
+     * @param value value to split
+     * @param start start of the range to split, inclusive
+     * @param end end of the range to split, exclusive
      * @param stringency conversion stringency, must not be null
      * @param logger logger, must not be null
-     * @return the specified string split into a list of variant annotation messages
+     * @return the specified range of the specified value split into a list of variant annotation messages
      * @throws ConversionException if conversion fails and the specified conversion stringency is strict
      * @throws NullPointerException if either conversion stringency or logger are null
      */
-    List<VariantAnnotationMessage> splitMessages(final String s,
-                                                 final ConversionStringency stringency,
-                                                 final Logger logger) throws ConversionException {
-        return Splitter
-            .on("&")
-            .omitEmptyStrings()
-            .splitToList(s)
-            .stream()
-            .map(m -> variantAnnotationMessageConverter.convert(m, stringency, logger))
-            .collect(toList());
+    private List<VariantAnnotationMessage> splitMessages(final CharSequence value,
+                                                         final int start,
+                                                         final int end,
+                                                         final ConversionStringency stringency,
+                                                         final Logger logger) throws ConversionException {
+        if (start == end) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = split(value, start, end);
+        List<VariantAnnotationMessage> messages = new ArrayList<VariantAnnotationMessage>(tokens.size());
+        for (int i = 0, size = tokens.size(); i < size; i++) {
+            messages.add(variantAnnotationMessageConverter.convert(tokens.get(i), stringency, logger));
+        }
+        return messages;
     }
 
     /**
-     * Return null if the specified string is empty.
+     * Parse the specified field as a fraction and return the numerator, if any.
      *
-     * @param s string
-     * @return null if the specified string is empty
+     * @param value value
+     * @param fields field offsets
+     * @param field field index
+     * @return the numerator from the specified field parsed as a fraction, or null if the field
+     *    or numerator is empty
+     * @throws NumberFormatException if the numerator is not a valid integer
      */
-    static String emptyToNull(final String s) {
-        return "".equals(s) ? null : s;
+    private static Integer numerator(final CharSequence value, final int[] fields, final int field) {
+        int start = fields[field];
+        int end = fields[field + 1] - 1;
+        return parseInteger(value, start, indexOf(value, FRACTION_DELIMITER, start, end));
     }
 
     /**
-     * Parse the specified string into an integer, returning null if the string is empty.
+     * Parse the specified field as a fraction and return the denominator, if any.
      *
-     * @param s string to parse
-     * @return the specified string parsed into an integer, or null if the string is empty
+     * @param value value
+     * @param fields field offsets
+     * @param field field index
+     * @return the denominator from the specified field parsed as a fraction, or null if the field
+     *    is empty or if the fraction has no denominator
+     * @throws NumberFormatException if the denominator is not a valid integer
      */
-    static Integer emptyToNullInteger(final String s) {
-        return "".equals(s) ? null : Integer.parseInt(s);
+    private static Integer denominator(final CharSequence value, final int[] fields, final int field) {
+        int end = fields[field + 1] - 1;
+        int delimiter = indexOf(value, FRACTION_DELIMITER, fields[field], end);
+        if (delimiter == end) {
+            return null;
+        }
+        return parseInteger(value, delimiter + 1, indexOf(value, FRACTION_DELIMITER, delimiter + 1, end));
     }
 
     /**
-     * Parse the specified string as a fraction and return the numerator, if any.
+     * Return the index of the specified character in the specified range of the specified value,
+     * or the end of the range if not found.
      *
-     * @param s string to parse
-     * @return the numerator from the specified string parsed as a fraction, or null if the string is empty
+     * @param value value
+     * @param c character to find
+     * @param start start of the range, inclusive
+     * @param end end of the range, exclusive
+     * @return the index of the specified character in the specified range of the specified value,
+     *    or the end of the range if not found
      */
-    static Integer numerator(final String s) {
-        if ("".equals(s)) {
-            return null;
+    static int indexOf(final CharSequence value, final char c, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
         }
-        String[] tokens = s.split("/");
-        return emptyToNullInteger(tokens[0]);
+        return end;
     }
 
     /**
-     * Parse the specified string as a fraction and return the denominator, if any.
+     * Parse the specified range of the specified value as a signed decimal integer, without
+     * copying it into an intermediate string.
      *
-     * @param s string to parse
-     * @return the denominator from the specified string parsed as a fraction,
-     *    or null if the string is empty or if the fraction has no denominator
+     * @param value value
+     * @param start start of the range, inclusive
+     * @param end end of the range, exclusive
+     * @return the specified range of the specified value parsed as an integer, or null if the range is empty
+     * @throws NumberFormatException if the specified range is not a valid integer
      */
-    static Integer denominator(final String s) {
-        if ("".equals(s)) {
+    static Integer parseInteger(final CharSequence value, final int start, final int end) {
+        if (start == end) {
             return null;
         }
-        String[] tokens = s.split("/");
-        return (tokens.length < 2) ? null : emptyToNullInteger(tokens[1]);
+        int i = start;
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        char first = value.charAt(i);
+        if (first == '-' || first == '+') {
+            if (end - start == 1) {
+                throw numberFormatException(value, start, end);
+            }
+            if (first == '-') {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            }
+            i++;
+        }
+        // accumulate negatively to reach Integer.MIN_VALUE, as Integer.parseInt does
+        int multiplicationLimit = limit / 10;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+                throw numberFormatException(value, start, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(value, start, end);
+            }
+            result -= digit;
+        }
+        return Integer.valueOf(negative ? result : -result);
+    }
+
+    private static NumberFormatException numberFormatException(final CharSequence value, final int start, final int end) {
+        return new NumberFormatException("For input string: \"" + value.subSequence(start, end) + "\"");
     }
 }
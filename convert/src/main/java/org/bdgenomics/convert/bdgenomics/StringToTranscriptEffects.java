@@ -0,0 +1,144 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.bdgenomics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert String to a list of TranscriptEffects.
+ *
+ * <p>
+ * Values are comma-separated lists of transcript effects in SnpEff ANN format,
+ * as found in the ANN INFO field of a VCF record. Transcript effects that fail
+ * conversion when the conversion stringency is lenient or silent are omitted from
+ * the returned list.
+ * </p>
+ */
+final class StringToTranscriptEffects extends AbstractConverter<String, List<TranscriptEffect>> {
+
+    /** Effect delimiter. */
+    private static final char EFFECT_DELIMITER = ',';
+
+    /** Convert String to TranscriptEffect. */
+    private final StringToTranscriptEffect transcriptEffectConverter;
+
+    /** True to reuse repeated gene name, gene ID, and biotype values within a value. */
+    private final boolean intern;
+
+
+    /**
+     * Convert String to a list of TranscriptEffects.
+     *
+     * @param transcriptEffectConverter convert String to TranscriptEffect, must not be null
+     * @param intern true to reuse repeated gene name, gene ID, and biotype values within a value
+     */
+    StringToTranscriptEffects(final StringToTranscriptEffect transcriptEffectConverter, final boolean intern) {
+        super(String.class, List.class);
+        checkNotNull(transcriptEffectConverter);
+        this.transcriptEffectConverter = transcriptEffectConverter;
+        this.intern = intern;
+    }
+
+
+    @Override
+    public List<TranscriptEffect> convert(final String value,
+                                          final ConversionStringency stringency,
+                                          final Logger logger) throws ConversionException {
+        if (value == null) {
+            warnOrThrow(value, "must not be null", null, stringency, logger);
+            return null;
+        }
+        return convert(value, new int[StringToTranscriptEffect.FIELDS + 1], TranscriptEffect.newBuilder(), stringency, logger);
+    }
+
+    @Override
+    public <C extends Collection<? super List<TranscriptEffect>>> C convertAll(final List<? extends String> values,
+                                                                                final C transcriptEffects,
+                                                                                final ConversionStringency stringency,
+                                                                                final Logger logger) throws ConversionException {
+        checkNotNull(values, transcriptEffects, stringency, logger);
+
+        int[] fields = new int[StringToTranscriptEffect.FIELDS + 1];
+        TranscriptEffect.Builder builder = TranscriptEffect.newBuilder();
+        for (int i = 0, size = values.size(); i < size; i++) {
+            String value = values.get(i);
+            if (value == null) {
+                warnOrThrow(value, "must not be null", null, stringency, logger);
+                transcriptEffects.add(null);
+            }
+            else {
+                transcriptEffects.add(convert(value, fields, builder, stringency, logger));
+            }
+        }
+        return transcriptEffects;
+    }
+
+    /**
+     * Convert the specified value to a list of TranscriptEffects.
+     *
+     * @param value value to convert, must not be null
+     * @param fields scratch array of field offsets, must not be null
+     * @param builder transcript effect builder, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified value converted to a list of TranscriptEffects
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    private List<TranscriptEffect> convert(final String value,
+                                           final int[] fields,
+                                           final TranscriptEffect.Builder builder,
+                                           final ConversionStringency stringency,
+                                           final Logger logger) throws ConversionException {
+        int length = value.length();
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) == EFFECT_DELIMITER) {
+                count++;
+            }
+        }
+
+        List<TranscriptEffect> transcriptEffects = new ArrayList<TranscriptEffect>(count);
+        String[] interned = intern ? new String[StringToTranscriptEffect.INTERNED] : null;
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = StringToTranscriptEffect.indexOf(value, EFFECT_DELIMITER, start, length);
+            TranscriptEffect transcriptEffect = transcriptEffectConverter.convert(value, start, end, fields, interned, builder, stringency, logger);
+            if (transcriptEffect != null) {
+                transcriptEffects.add(transcriptEffect);
+            }
+            start = end + 1;
+        }
+        return transcriptEffects;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.bdgenomics;
+
+import java.io.IOException;
+
+import java.util.List;
+
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+
+import org.slf4j.Logger;
+
+/**
+ * Append transcript effects in SnpEff ANN format to a character sequence,
+ * without creating intermediate Strings.
+ *
+ * <p>
+ * Transcript effects that fail conversion when the conversion stringency is
+ * lenient or silent are not appended; nothing is written for them.
+ * </p>
+ */
+public interface TranscriptEffectAppender {
+
+    /**
+     * Append the specified transcript effect to the specified string builder.
+     *
+     * @param transcriptEffect transcript effect to append
+     * @param sb string builder to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified string builder
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if any of string builder, conversion stringency, or logger are null
+     */
+    StringBuilder appendTo(TranscriptEffect transcriptEffect,
+                           StringBuilder sb,
+                           ConversionStringency stringency,
+                           Logger logger) throws ConversionException;
+
+    /**
+     * Append the specified transcript effect to the specified appendable.
+     *
+     * @param <A> appendable type
+     * @param transcriptEffect transcript effect to append
+     * @param appendable appendable to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified appendable
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if any of appendable, conversion stringency, or logger are null
+     */
+    <A extends Appendable> A appendTo(TranscriptEffect transcriptEffect,
+                                      A appendable,
+                                      ConversionStringency stringency,
+                                      Logger logger) throws IOException, ConversionException;
+
+    /**
+     * Append the specified list of transcript effects to the specified string builder,
+     * separated by <code>,</code> as in an ANN INFO value.
+     *
+     * @param transcriptEffects list of transcript effects to append, must not be null
+     * @param sb string builder to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified string builder
+     * @throws ConversionException if conversion of any transcript effect fails and the specified
+     *    conversion stringency is strict
+     * @throws NullPointerException if any of transcript effects, string builder, conversion stringency,
+     *    or logger are null
+     */
+    StringBuilder appendAllTo(List<? extends TranscriptEffect> transcriptEffects,
+                              StringBuilder sb,
+                              ConversionStringency stringency,
+                              Logger logger) throws ConversionException;
+
+    /**
+     * Append the specified list of transcript effects to the specified appendable,
+     * separated by <code>,</code> as in an ANN INFO value.
+     *
+     * @param <A> appendable type
+     * @param transcriptEffects list of transcript effects to append, must not be null
+     * @param appendable appendable to append to, must not be null
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the specified appendable
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion of any transcript effect fails and the specified
+     *    conversion stringency is strict
+     * @throws NullPointerException if any of transcript effects, appendable, conversion stringency,
+     *    or logger are null
+     */
+    <A extends Appendable> A appendAllTo(List<? extends TranscriptEffect> transcriptEffects,
+                                         A appendable,
+                                         ConversionStringency stringency,
+                                         Logger logger) throws IOException, ConversionException;
+}
@@ -17,12 +17,11 @@
  */
 package org.bdgenomics.convert.bdgenomics;
 
-import static java.util.stream.Collectors.toList;
+import java.io.IOException;
 
+import java.util.Collection;
 import java.util.List;
 
-import com.google.common.base.Joiner;
-
 import org.bdgenomics.convert.AbstractConverter;
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -37,7 +36,10 @@ import org.slf4j.Logger;
 /**
  * Convert TranscriptEffect to String.
  */
-final class TranscriptEffectToString extends AbstractConverter<TranscriptEffect, String> {
+final class TranscriptEffectToString extends AbstractConverter<TranscriptEffect, String> implements TranscriptEffectAppender {
+
+    /** No converted messages. */
+    private static final String[] NO_MESSAGES = new String[0];
 
     /** Convert Impact to String. */
     private final Converter<Impact, String> impactConverter;
@@ -65,57 +67,246 @@ final class TranscriptEffectToString extends AbstractConverter<TranscriptEffect,
     public String convert(final TranscriptEffect transcriptEffect,
                           final ConversionStringency stringency,
                           final Logger logger) throws ConversionException {
+        StringBuilder sb = new StringBuilder();
+        return append(transcriptEffect, sb, false, stringency, logger) ? sb.toString() : null;
+    }
+
+    @Override
+    public <C extends Collection<? super String>> C convertAll(final List<? extends TranscriptEffect> transcriptEffects,
+                                                                final C values,
+                                                                final ConversionStringency stringency,
+                                                                final Logger logger) throws ConversionException {
+        checkNotNull(transcriptEffects, values, stringency, logger);
+
+        StringBuilder sb = new StringBuilder(256);
+        for (int i = 0, size = transcriptEffects.size(); i < size; i++) {
+            sb.setLength(0);
+            values.add(append(transcriptEffects.get(i), sb, false, stringency, logger) ? sb.toString() : null);
+        }
+        return values;
+    }
+
+    @Override
+    public StringBuilder appendTo(final TranscriptEffect transcriptEffect,
+                                  final StringBuilder sb,
+                                  final ConversionStringency stringency,
+                                  final Logger logger) throws ConversionException {
+        checkNotNull(sb);
+        checkNotNull(stringency, logger);
+        append(transcriptEffect, sb, false, stringency, logger);
+        return sb;
+    }
+
+    @Override
+    public <A extends Appendable> A appendTo(final TranscriptEffect transcriptEffect,
+                                             final A appendable,
+                                             final ConversionStringency stringency,
+                                             final Logger logger) throws IOException, ConversionException {
+        checkNotNull(appendable);
+        checkNotNull(stringency, logger);
+        write(transcriptEffect, appendable, false, stringency, logger);
+        return appendable;
+    }
+
+    @Override
+    public StringBuilder appendAllTo(final List<? extends TranscriptEffect> transcriptEffects,
+                                     final StringBuilder sb,
+                                     final ConversionStringency stringency,
+                                     final Logger logger) throws ConversionException {
+        checkNotNull(transcriptEffects);
+        checkNotNull(sb);
+        checkNotNull(stringency, logger);
+        boolean separator = false;
+        for (int i = 0, size = transcriptEffects.size(); i < size; i++) {
+            if (append(transcriptEffects.get(i), sb, separator, stringency, logger)) {
+                separator = true;
+            }
+        }
+        return sb;
+    }
+
+    @Override
+    public <A extends Appendable> A appendAllTo(final List<? extends TranscriptEffect> transcriptEffects,
+                                                final A appendable,
+                                                final ConversionStringency stringency,
+                                                final Logger logger) throws IOException, ConversionException {
+        checkNotNull(transcriptEffects);
+        checkNotNull(appendable);
+        checkNotNull(stringency, logger);
+        boolean separator = false;
+        for (int i = 0, size = transcriptEffects.size(); i < size; i++) {
+            if (write(transcriptEffects.get(i), appendable, separator, stringency, logger)) {
+                separator = true;
+            }
+        }
+        return appendable;
+    }
+
+    /**
+     * Append the specified transcript effect to the specified string builder.
+     *
+     * @param transcriptEffect transcript effect to append
+     * @param sb string builder to append to, must not be null
+     * @param separator true to append <code>,</code> before the transcript effect
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return true if the specified transcript effect was appended
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    private boolean append(final TranscriptEffect transcriptEffect,
+                           final StringBuilder sb,
+                           final boolean separator,
+                           final ConversionStringency stringency,
+                           final Logger logger) throws ConversionException {
+        try {
+            return write(transcriptEffect, sb, separator, stringency, logger);
+        }
+        catch (IOException e) {
+            // StringBuilder does not throw IOException
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write the specified transcript effect to the specified appendable.  All fields are
+     * validated and all messages converted before anything is written, so a transcript effect
+     * that fails conversion, including one with a message that fails conversion, leaves the
+     * appendable untouched.
+     *
+     * @param transcriptEffect transcript effect to write
+     * @param appendable appendable to write to, must not be null
+     * @param separator true to write <code>,</code> before the transcript effect
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return true if the specified transcript effect was written
+     * @throws IOException if an I/O error occurs
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     * @throws NullPointerException if either conversion stringency or logger are null
+     */
+    private boolean write(final TranscriptEffect transcriptEffect,
+                          final Appendable appendable,
+                          final boolean separator,
+                          final ConversionStringency stringency,
+                          final Logger logger) throws IOException, ConversionException {
 
         if (transcriptEffect == null) {
             warnOrThrow(transcriptEffect, "must not be null", null, stringency, logger);
-            return null;
+            return false;
         }
 
         String impact = transcriptEffect.getImpact() == null ? null : impactConverter.convert(transcriptEffect.getImpact(), stringency, logger);
-        List<String> messages = transcriptEffect.getMessages().stream().map(m -> variantAnnotationMessageConverter.convert(m, stringency, logger)).collect(toList());
 
         try {
-            return Joiner.on("|").join(nullToEmpty(transcriptEffect.getAlternateAllele()),
-                                       Joiner.on("&").join(transcriptEffect.getEffects()),
-                                       nullToEmpty(impact),
-                                       nullToEmpty(transcriptEffect.getGeneName()),
-                                       nullToEmpty(transcriptEffect.getGeneId()),
-                                       nullToEmpty(transcriptEffect.getFeatureType()),
-                                       nullToEmpty(transcriptEffect.getFeatureId()),
-                                       nullToEmpty(transcriptEffect.getBiotype()),
-                                       nullToEmpty(transcriptEffect.getRank(), transcriptEffect.getTotal()),
-                                       nullToEmpty(transcriptEffect.getTranscriptHgvs()),
-                                       nullToEmpty(transcriptEffect.getProteinHgvs()),
-                                       nullToEmpty(transcriptEffect.getCdnaPosition(), transcriptEffect.getCdnaLength()),
-                                       nullToEmpty(transcriptEffect.getCodingSequencePosition(), transcriptEffect.getCodingSequenceLength()),
-                                       nullToEmpty(transcriptEffect.getProteinPosition(), transcriptEffect.getProteinLength()),
-                                       nullToEmpty(transcriptEffect.getDistance()),
-                                       Joiner.on("&").join(messages));
+            checkFraction(transcriptEffect.getRank(), transcriptEffect.getTotal());
+            checkFraction(transcriptEffect.getCdnaPosition(), transcriptEffect.getCdnaLength());
+            checkFraction(transcriptEffect.getCodingSequencePosition(), transcriptEffect.getCodingSequenceLength());
+            checkFraction(transcriptEffect.getProteinPosition(), transcriptEffect.getProteinLength());
         }
         catch (NumberFormatException e) {
-            warnOrThrow(transcriptEffect, e.getMessage(), e, stringency, logger);
+            warnOrThrow(transcriptEffect, "invalid fraction, missing numerator", e.getMessage(), e, stringency, logger);
+            return false;
+        }
+
+        // the message converter has already warned or thrown per stringency for messages that fail conversion
+        String[] messages = convertMessages(transcriptEffect.getMessages(), stringency, logger);
+        if (messages == null) {
+            return false;
+        }
+
+        if (separator) {
+            appendable.append(',');
+        }
+        append(transcriptEffect.getAlternateAllele(), appendable).append('|');
+        join(transcriptEffect.getEffects(), appendable).append('|');
+        append(impact, appendable).append('|');
+        append(transcriptEffect.getGeneName(), appendable).append('|');
+        append(transcriptEffect.getGeneId(), appendable).append('|');
+        append(transcriptEffect.getFeatureType(), appendable).append('|');
+        append(transcriptEffect.getFeatureId(), appendable).append('|');
+        append(transcriptEffect.getBiotype(), appendable).append('|');
+        append(transcriptEffect.getRank(), transcriptEffect.getTotal(), appendable).append('|');
+        append(transcriptEffect.getTranscriptHgvs(), appendable).append('|');
+        append(transcriptEffect.getProteinHgvs(), appendable).append('|');
+        append(transcriptEffect.getCdnaPosition(), transcriptEffect.getCdnaLength(), appendable).append('|');
+        append(transcriptEffect.getCodingSequencePosition(), transcriptEffect.getCodingSequenceLength(), appendable).append('|');
+        append(transcriptEffect.getProteinPosition(), transcriptEffect.getProteinLength(), appendable).append('|');
+        append(transcriptEffect.getDistance(), appendable).append('|');
+        join(messages, appendable);
+        return true;
+    }
+
+    /**
+     * Convert the specified variant annotation messages.
+     *
+     * @param messages variant annotation messages to convert
+     * @param stringency conversion stringency, must not be null
+     * @param logger logger, must not be null
+     * @return the converted messages, or null if any message failed conversion
+     * @throws ConversionException if conversion fails and the specified conversion stringency is strict
+     */
+    private String[] convertMessages(final List<VariantAnnotationMessage> messages,
+                                     final ConversionStringency stringency,
+                                     final Logger logger) throws ConversionException {
+        if (messages.isEmpty()) {
+            return NO_MESSAGES;
+        }
+        String[] converted = new String[messages.size()];
+        for (int i = 0; i < converted.length; i++) {
+            converted[i] = variantAnnotationMessageConverter.convert(messages.get(i), stringency, logger);
+            if (converted[i] == null) {
+                return null;
+            }
+        }
+        return converted;
+    }
+
+    private static Appendable join(final String[] values, final Appendable appendable) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                appendable.append('&');
+            }
+            appendable.append(values[i]);
         }
-        return null;
+        return appendable;
     }
 
-    private static String nullToEmpty(final String s) {
-        return s == null ? "" : s;
+    private static Appendable join(final List<String> values, final Appendable appendable) throws IOException {
+        for (int i = 0, size = values.size(); i < size; i++) {
+            if (i > 0) {
+                appendable.append('&');
+            }
+            appendable.append(values.get(i));
+        }
+        return appendable;
     }
 
-    private static String nullToEmpty(final Integer i) {
-        return i == null ? "" : i.toString();
+    private static Appendable append(final String s, final Appendable appendable) throws IOException {
+        return s == null ? appendable : appendable.append(s);
     }
 
-    private static String nullToEmpty(final Integer a, final Integer b) {
-        if (a == null && b != null) {
-            throw new NumberFormatException(String.format("invalid fraction ?/%d, missing numerator", b));
+    private static Appendable append(final Integer i, final Appendable appendable) throws IOException {
+        if (i == null) {
+            return appendable;
         }
-        StringBuilder sb = new StringBuilder();
-        sb.append(nullToEmpty(a));
+        if (appendable instanceof StringBuilder) {
+            return ((StringBuilder) appendable).append(i.intValue());
+        }
+        return appendable.append(Integer.toString(i.intValue()));
+    }
+
+    private static Appendable append(final Integer a, final Integer b, final Appendable appendable) throws IOException {
+        append(a, appendable);
         if (b != null) {
-            sb.append("/");
-            sb.append(b.toString());
+            appendable.append('/');
+            append(b, appendable);
+        }
+        return appendable;
+    }
+
+    private static void checkFraction(final Integer a, final Integer b) {
+        if (a == null && b != null) {
+            throw new NumberFormatException("?/" + b);
         }
-        return sb.toString();
     }
 }
@@ -0,0 +1,94 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.bdgenomics;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.bdgenomics.convert.AbstractConverter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+
+import org.slf4j.Logger;
+
+/**
+ * Convert a list of TranscriptEffects to String.
+ *
+ * <p>
+ * Transcript effects are written comma-separated in SnpEff ANN format, as found
+ * in the ANN INFO field of a VCF record. Transcript effects that fail conversion
+ * when the conversion stringency is lenient or silent are omitted.
+ * </p>
+ */
+final class TranscriptEffectsToString extends AbstractConverter<List<TranscriptEffect>, String> {
+
+    /** Estimated length of a transcript effect in SnpEff ANN format. */
+    private static final int ESTIMATED_LENGTH = 128;
+
+    /** Append TranscriptEffects. */
+    private final TranscriptEffectAppender transcriptEffectAppender;
+
+
+    /**
+     * Convert a list of TranscriptEffects to String.
+     *
+     * @param transcriptEffectAppender append TranscriptEffects, must not be null
+     */
+    TranscriptEffectsToString(final TranscriptEffectAppender transcriptEffectAppender) {
+        super(List.class, String.class);
+        checkNotNull(transcriptEffectAppender);
+        this.transcriptEffectAppender = transcriptEffectAppender;
+    }
+
+
+    @Override
+    public String convert(final List<TranscriptEffect> transcriptEffects,
+                          final ConversionStringency stringency,
+                          final Logger logger) throws ConversionException {
+        if (transcriptEffects == null) {
+            warnOrThrow(transcriptEffects, "must not be null", null, stringency, logger);
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(ESTIMATED_LENGTH * transcriptEffects.size());
+        return transcriptEffectAppender.appendAllTo(transcriptEffects, sb, stringency, logger).toString();
+    }
+
+    @Override
+    public <C extends Collection<? super String>> C convertAll(final List<? extends List<TranscriptEffect>> sources,
+                                                                final C values,
+                                                                final ConversionStringency stringency,
+                                                                final Logger logger) throws ConversionException {
+        checkNotNull(sources, values, stringency, logger);
+
+        StringBuilder sb = new StringBuilder(ESTIMATED_LENGTH * 8);
+        for (int i = 0, size = sources.size(); i < size; i++) {
+            List<TranscriptEffect> transcriptEffects = sources.get(i);
+            if (transcriptEffects == null) {
+                warnOrThrow(transcriptEffects, "must not be null", null, stringency, logger);
+                values.add(null);
+            }
+            else {
+                sb.setLength(0);
+                values.add(transcriptEffectAppender.appendAllTo(transcriptEffects, sb, stringency, logger).toString());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for ConversionStatistics.
+ */
+public final class ConversionStatisticsTest {
+    private ConversionStatistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = new ConversionStatistics("test");
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(statistics);
+        assertEquals("test", statistics.getName());
+        assertEquals(0L, statistics.getInvocations());
+        assertEquals(0L, statistics.getStrictFailures());
+        assertEquals(0L, statistics.getLenientFailures());
+        assertEquals(0L, statistics.getSilentFailures());
+        assertEquals(0L, statistics.getLatency().getCount());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullName() {
+        new ConversionStatistics(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testGetFailuresNullStringency() {
+        statistics.getFailures(null);
+    }
+
+    @Test
+    public void testRecord() {
+        statistics.record(100L, null);
+        statistics.record(200L, ConversionStringency.STRICT);
+        statistics.record(300L, ConversionStringency.LENIENT);
+        statistics.record(400L, ConversionStringency.SILENT);
+        statistics.record(500L, ConversionStringency.SILENT);
+
+        assertEquals(5L, statistics.getInvocations());
+        assertEquals(1L, statistics.getStrictFailures());
+        assertEquals(1L, statistics.getLenientFailures());
+        assertEquals(2L, statistics.getSilentFailures());
+        assertEquals(2L, statistics.getFailures(ConversionStringency.SILENT));
+        assertEquals(5L, statistics.getLatency().getCount());
+        assertEquals(300.0d, statistics.getMeanLatencyNanos(), 0.0001d);
+        assertEquals(500L, statistics.getMaxLatencyNanos());
+        assertEquals(500L, statistics.getP99LatencyNanos());
+        assertEquals(500L, statistics.getMedianLatencyNanos());
+    }
+
+    @Test
+    public void testRecordBatch() {
+        statistics.record(4, 400L, ConversionStringency.LENIENT, 2);
+        statistics.record(0, 400L, null, 0);
+
+        assertEquals(4L, statistics.getInvocations());
+        assertEquals(2L, statistics.getLenientFailures());
+        assertEquals(4L, statistics.getLatency().getCount());
+        assertEquals(100.0d, statistics.getMeanLatencyNanos(), 0.0001d);
+    }
+
+    @Test
+    public void testToString() {
+        statistics.record(100L, ConversionStringency.LENIENT);
+        assertTrue(statistics.toString().startsWith("test invocations=1 strictFailures=0 lenientFailures=1"));
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import org.bdgenomics.convert.bdgenomics.BdgenomicsModule;
+
+import org.bdgenomics.formats.avro.Impact;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+
+/**
+ * Unit test for FailureAggregator.
+ */
+public final class FailureAggregatorTest {
+    private List<Object[]> warnings;
+    private Logger logger;
+    private Converter<String, Impact> converter;
+    private FailureAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        warnings = Collections.synchronizedList(new ArrayList<Object[]>());
+        logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    if ("warn".equals(method.getName())) {
+                        warnings.add(args);
+                    }
+                    if (boolean.class.equals(method.getReturnType())) {
+                        return "equals".equals(method.getName()) ? Boolean.valueOf(proxy == args[0]) : Boolean.TRUE;
+                    }
+                    if (int.class.equals(method.getReturnType())) {
+                        return Integer.valueOf(System.identityHashCode(proxy));
+                    }
+                    if (String.class.equals(method.getReturnType())) {
+                        return "test";
+                    }
+                    return null;
+                }
+            });
+        converter = Guice.createInjector(new BdgenomicsModule()).getInstance(Key.get(new TypeLiteral<Converter<String, Impact>>() {}));
+    }
+
+    @After
+    public void tearDown() {
+        if (aggregator != null) {
+            aggregator.close();
+        }
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testAggregateNullLogger() {
+        FailureAggregator.aggregate(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testAggregateNullUnit() {
+        FailureAggregator.aggregate(logger, 1L, null, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testAggregateNegativeInterval() {
+        FailureAggregator.aggregate(logger, -1L, TimeUnit.SECONDS, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testAggregateNegativeSampleSize() {
+        FailureAggregator.aggregate(logger, 1L, TimeUnit.SECONDS, -1);
+    }
+
+    @Test
+    public void testAggregate() {
+        assertNull(FailureAggregator.forLogger(logger));
+        assertNull(FailureAggregator.forLogger(null));
+
+        aggregator = FailureAggregator.aggregate(logger);
+        assertNotNull(aggregator);
+        assertSame(aggregator, FailureAggregator.forLogger(logger));
+        assertEquals(0L, aggregator.getCount());
+
+        aggregator.close();
+        assertNull(FailureAggregator.forLogger(logger));
+        assertTrue(warnings.isEmpty());
+
+        // may aggregate again once closed
+        aggregator = FailureAggregator.aggregate(logger);
+        assertSame(aggregator, FailureAggregator.forLogger(logger));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testAggregateAlreadyOpen() {
+        aggregator = FailureAggregator.aggregate(logger);
+        FailureAggregator.aggregate(logger);
+    }
+
+    @Test
+    public void testWithoutAggregator() {
+        for (int i = 0; i < 100; i++) {
+            converter.convert("invalid", LENIENT, logger);
+        }
+        assertEquals(100, warnings.size());
+    }
+
+    @Test
+    public void testLenient() {
+        aggregator = FailureAggregator.aggregate(logger, 1L, TimeUnit.HOURS, 3);
+        for (int i = 0; i < 10000; i++) {
+            assertNull(converter.convert("invalid" + i, LENIENT, logger));
+        }
+        // warning on the first failure only, within the interval
+        assertEquals(1, warnings.size());
+        Object[] arguments = (Object[]) warnings.get(0)[1];
+        assertTrue(arguments[arguments.length - 1] instanceof IllegalArgumentException);
+
+        assertEquals(10000L, aggregator.getCount());
+        Map<String, Long> counts = aggregator.getCounts();
+        assertEquals(1, counts.size());
+        String description = counts.keySet().iterator().next();
+        assertTrue(description.startsWith("StringToImpact could not convert class java.lang.String to class org.bdgenomics.formats.avro.Impact, incorrectly formatted Impact"));
+        assertEquals(Long.valueOf(10000L), counts.get(description));
+        assertEquals(Arrays.asList("invalid0", "invalid1", "invalid2"), aggregator.getSamples().get(description));
+
+        // one warning per message template and a total
+        aggregator.close();
+        assertEquals(3, warnings.size());
+        assertNull(FailureAggregator.forLogger(logger));
+
+        // closing again does not warn again
+        aggregator.close();
+        assertEquals(3, warnings.size());
+    }
+
+    @Test
+    public void testTemplates() {
+        aggregator = FailureAggregator.aggregate(logger, 1L, TimeUnit.HOURS, 3);
+        converter.convert("invalid", LENIENT, logger);
+        converter.convert(null, LENIENT, logger);
+        converter.convert(null, LENIENT, logger);
+
+        assertEquals(3L, aggregator.getCount());
+        assertEquals(2, aggregator.getCounts().size());
+        assertTrue(aggregator.getCounts().containsValue(Long.valueOf(2L)));
+
+        // failures with other message templates are warned at the next interval
+        assertEquals(1, warnings.size());
+        aggregator.close();
+        assertEquals(4, warnings.size());
+    }
+
+    @Test
+    public void testInterval() {
+        aggregator = FailureAggregator.aggregate(logger, 0L, TimeUnit.SECONDS, 3);
+        for (int i = 0; i < 10; i++) {
+            converter.convert("invalid", LENIENT, logger);
+        }
+        assertEquals(10, warnings.size());
+    }
+
+    @Test
+    public void testSilent() {
+        aggregator = FailureAggregator.aggregate(logger);
+        assertNull(converter.convert("invalid", SILENT, logger));
+        assertEquals(0L, aggregator.getCount());
+    }
+
+    @Test
+    public void testStrict() {
+        aggregator = FailureAggregator.aggregate(logger);
+        try {
+            converter.convert("invalid", STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            // expected
+        }
+        assertEquals(0L, aggregator.getCount());
+    }
+
+    @Test
+    public void testMaxTemplates() {
+        aggregator = FailureAggregator.aggregate(logger, 1L, TimeUnit.HOURS, 0);
+        for (int i = 0; i < FailureAggregator.MAX_TEMPLATES + 100; i++) {
+            aggregator.record(FailureAggregatorTest.class, String.class, Impact.class, "message " + i, null, null);
+        }
+        assertEquals(FailureAggregator.MAX_TEMPLATES + 100L, aggregator.getCount());
+        assertEquals(FailureAggregator.MAX_TEMPLATES + 1, aggregator.getCounts().size());
+        assertEquals(Long.valueOf(100L), aggregator.getCounts().get(FailureAggregator.OTHER));
+    }
+
+    @Test
+    public void testRecordDetail() {
+        aggregator = FailureAggregator.aggregate(logger, 1L, TimeUnit.HOURS, 2);
+        for (int i = 0; i < FailureAggregator.MAX_TEMPLATES + 100; i++) {
+            aggregator.record(FailureAggregatorTest.class, String.class, Impact.class, "message", "detail " + i, "source " + i, null);
+        }
+        assertEquals(FailureAggregator.MAX_TEMPLATES + 100L, aggregator.getCount());
+        assertEquals(1, aggregator.getCounts().size());
+        assertEquals(Arrays.asList("detail 0: source 0", "detail 1: source 1"), aggregator.getSamples().values().iterator().next());
+    }
+
+    @Test
+    public void testRecordConcurrent() throws Exception {
+        aggregator = FailureAggregator.aggregate(logger, 1L, TimeUnit.HOURS, 3);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 10000; i++) {
+                            converter.convert("invalid", LENIENT, logger);
+                        }
+                    }
+                });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(1L, TimeUnit.MINUTES);
+
+        assertEquals(40000L, aggregator.getCount());
+        assertEquals(3, aggregator.getSamples().values().iterator().next().size());
+        assertEquals(1, warnings.size());
+    }
+
+    @Test
+    public void testTemplate() {
+        assertEquals("null", FailureAggregator.template(null));
+        assertEquals("must not be null", FailureAggregator.template("must not be null"));
+        assertEquals("incorrectly formatted Impact", FailureAggregator.template("incorrectly formatted Impact, caught No enum constant"));
+    }
+
+    @Test
+    public void testSample() {
+        assertEquals("null", FailureAggregator.sample(null));
+        assertEquals("value", FailureAggregator.sample("value"));
+
+        char[] c = new char[FailureAggregator.MAX_SAMPLE_LENGTH + 10];
+        Arrays.fill(c, 'x');
+        assertEquals(FailureAggregator.MAX_SAMPLE_LENGTH + 3, FailureAggregator.sample(new String(c)).length());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import org.bdgenomics.convert.bdgenomics.BdgenomicsModule;
+
+import org.bdgenomics.formats.avro.Impact;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for InstrumentedConverter, compared against the uninstrumented converter,
+ * with threads sharing one instance of conversion statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class InstrumentedConverterBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentedConverterBenchmark.class);
+    private Converter<String, Impact> converter;
+    private Converter<String, Impact> instrumented;
+    private List<String> values;
+
+
+    @Setup
+    public void setUp() {
+        converter = Guice.createInjector(new BdgenomicsModule()).getInstance(Key.get(new TypeLiteral<Converter<String, Impact>>() {}));
+        instrumented = new InstrumentedConverter<String, Impact>(converter, new ConversionStatistics("benchmark"));
+        values = new ArrayList<String>(1000);
+        for (int i = 0; i < 1000; i++) {
+            values.add("MODIFIER");
+        }
+    }
+
+    @Benchmark
+    public Impact converter() {
+        return converter.convert("MODIFIER", ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public Impact instrumented() {
+        return instrumented.convert("MODIFIER", ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public List<Impact> instrumentedBatch() {
+        return instrumented.convertAll(values, new ArrayList<Impact>(values.size()), ConversionStringency.STRICT, logger);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InstrumentedConverterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
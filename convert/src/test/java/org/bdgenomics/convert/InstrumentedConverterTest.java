@@ -0,0 +1,196 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import org.bdgenomics.convert.bdgenomics.BdgenomicsModule;
+
+import org.bdgenomics.formats.avro.Impact;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for InstrumentedConverter.
+ */
+public final class InstrumentedConverterTest {
+    private final Logger logger = LoggerFactory.getLogger(InstrumentedConverterTest.class);
+    private Converter<String, Impact> delegate;
+    private ConversionStatistics statistics;
+    private InstrumentedConverter<String, Impact> converter;
+
+    @Before
+    public void setUp() {
+        delegate = Guice.createInjector(new BdgenomicsModule()).getInstance(Key.get(new TypeLiteral<Converter<String, Impact>>() {}));
+        statistics = new ConversionStatistics("test");
+        converter = new InstrumentedConverter<String, Impact>(delegate, statistics);
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(converter);
+        assertSame(delegate, converter.getDelegate());
+        assertSame(statistics, converter.getStatistics());
+        assertEquals(String.class, converter.getSourceClass());
+        assertEquals(Impact.class, converter.getTargetClass());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullDelegate() {
+        new InstrumentedConverter<String, Impact>(null, statistics);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullStatistics() {
+        new InstrumentedConverter<String, Impact>(delegate, null);
+    }
+
+    @Test
+    public void testConvert() {
+        assertEquals(Impact.MODIFIER, converter.convert("MODIFIER", STRICT, logger));
+        assertEquals(Impact.HIGH, converter.convert("HIGH", LENIENT, logger));
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(0L, statistics.getStrictFailures());
+        assertEquals(0L, statistics.getLenientFailures());
+        assertEquals(2L, statistics.getLatency().getCount());
+    }
+
+    @Test
+    public void testConvertStrictFailure() {
+        try {
+            converter.convert("invalid", STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            // expected
+        }
+        assertEquals(1L, statistics.getInvocations());
+        assertEquals(1L, statistics.getStrictFailures());
+        assertEquals(1L, statistics.getLatency().getCount());
+    }
+
+    @Test
+    public void testConvertLenientFailure() {
+        assertNull(converter.convert("invalid", LENIENT, logger));
+        assertNull(converter.convert(null, LENIENT, logger));
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(2L, statistics.getLenientFailures());
+        assertEquals(0L, statistics.getSilentFailures());
+    }
+
+    @Test
+    public void testConvertSilentFailure() {
+        assertNull(converter.convert("invalid", SILENT, logger));
+        assertEquals(1L, statistics.getInvocations());
+        assertEquals(0L, statistics.getLenientFailures());
+        assertEquals(1L, statistics.getSilentFailures());
+    }
+
+    @Test
+    public void testConvertInto() {
+        assertEquals(Impact.LOW, converter.convertInto("LOW", null, STRICT, logger));
+        assertNull(converter.convertInto("invalid", null, SILENT, logger));
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(1L, statistics.getSilentFailures());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoStrictFailure() {
+        converter.convertInto("invalid", null, STRICT, logger);
+    }
+
+    @Test
+    public void testConvertAll() {
+        List<Impact> impacts = converter.convertAll(Arrays.asList("LOW", "invalid", "HIGH", null), new ArrayList<Impact>(), LENIENT, logger);
+        assertEquals(Arrays.asList(Impact.LOW, null, Impact.HIGH, null), impacts);
+        assertEquals(4L, statistics.getInvocations());
+        assertEquals(2L, statistics.getLenientFailures());
+        assertEquals(4L, statistics.getLatency().getCount());
+    }
+
+    @Test
+    public void testConvertAllAppends() {
+        List<Impact> impacts = new ArrayList<Impact>(Arrays.asList((Impact) null));
+        converter.convertAll(Arrays.asList("LOW"), impacts, SILENT, logger);
+        assertEquals(2, impacts.size());
+        assertEquals(1L, statistics.getInvocations());
+        assertEquals(0L, statistics.getSilentFailures());
+    }
+
+    @Test
+    public void testConvertAllNotList() {
+        Set<Impact> impacts = converter.convertAll(Arrays.asList("LOW", "invalid"), new HashSet<Impact>(), SILENT, logger);
+        assertEquals(2, impacts.size());
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(0L, statistics.getSilentFailures());
+    }
+
+    @Test
+    public void testConvertAllStrictFailure() {
+        List<Impact> impacts = new ArrayList<Impact>();
+        try {
+            converter.convertAll(Arrays.asList("LOW", "invalid", "HIGH"), impacts, STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            // expected
+        }
+        assertEquals(1, impacts.size());
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(1L, statistics.getStrictFailures());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConvertAllNullSources() {
+        converter.convertAll(null, new ArrayList<Impact>(), STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConvertAllNullTargets() {
+        converter.convertAll(Arrays.asList("LOW"), null, STRICT, logger);
+    }
+
+    @Test
+    public void testSharedStatistics() {
+        InstrumentedConverter<String, Impact> other = new InstrumentedConverter<String, Impact>(delegate, statistics);
+        converter.convert("LOW", STRICT, logger);
+        other.convert("invalid", LENIENT, logger);
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(1L, statistics.getLenientFailures());
+    }
+}
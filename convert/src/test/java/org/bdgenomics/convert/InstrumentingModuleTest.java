@@ -0,0 +1,222 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import static org.bdgenomics.convert.ConversionStringency.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.TypeLiteral;
+
+import com.google.inject.name.Names;
+
+import org.bdgenomics.convert.bdgenomics.BdgenomicsModule;
+import org.bdgenomics.convert.bdgenomics.TranscriptEffectAppender;
+
+import org.bdgenomics.formats.avro.Impact;
+import org.bdgenomics.formats.avro.TranscriptEffect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for InstrumentingModule.
+ */
+public final class InstrumentingModuleTest {
+    private final Logger logger = LoggerFactory.getLogger(InstrumentingModuleTest.class);
+    private static final Key<Converter<String, Impact>> STRING_TO_IMPACT = Key.get(new TypeLiteral<Converter<String, Impact>>() {});
+    private static final Key<Converter<String, TranscriptEffect>> STRING_TO_TRANSCRIPT_EFFECT = Key.get(new TypeLiteral<Converter<String, TranscriptEffect>>() {});
+    private RecordingMetrics metrics;
+    private Converter<String, Impact> stringToImpact;
+
+    @Before
+    public void setUp() {
+        metrics = new RecordingMetrics();
+        stringToImpact = Guice.createInjector(new BdgenomicsModule()).getInstance(STRING_TO_IMPACT);
+    }
+
+    private ConversionStatistics statistics(final String name) {
+        for (ConversionStatistics s : metrics.statistics) {
+            if (name.equals(s.getName())) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(new InstrumentingModule(new BdgenomicsModule()));
+        assertNotNull(new InstrumentingModule(Collections.singletonList(metrics), new BdgenomicsModule()));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullMetrics() {
+        new InstrumentingModule((Iterable<ConversionMetrics>) null, new BdgenomicsModule());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullMetricsElement() {
+        new InstrumentingModule(Collections.<ConversionMetrics>singletonList(null), new BdgenomicsModule());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullModules() {
+        new InstrumentingModule(Collections.singletonList(metrics), (com.google.inject.Module[]) null);
+    }
+
+    @Test
+    public void testLoadMetrics() {
+        List<ConversionMetrics> loaded = InstrumentingModule.loadMetrics();
+        assertFalse(loaded.isEmpty());
+        assertTrue(loaded.get(0) instanceof JmxConversionMetrics);
+    }
+
+    @Test
+    public void testName() {
+        assertEquals("Converter<String, Impact>", InstrumentingModule.name(STRING_TO_IMPACT));
+        assertEquals("TranscriptEffectAppender", InstrumentingModule.name(Key.get(TranscriptEffectAppender.class)));
+        assertTrue(InstrumentingModule.name(Key.get(new TypeLiteral<Converter<String, Impact>>() {}, Names.named("x"))).startsWith("Converter<String, Impact> @Named("));
+    }
+
+    @Test
+    public void testInstrumentingModule() {
+        Injector injector = Guice.createInjector(new InstrumentingModule(Collections.singletonList(metrics), new BdgenomicsModule()));
+        assertTrue(metrics.statistics.isEmpty());
+
+        Converter<String, Impact> instrumented = injector.getInstance(STRING_TO_IMPACT);
+        assertTrue(instrumented instanceof InstrumentedConverter);
+        assertEquals("StringToImpact", ((InstrumentedConverter<String, Impact>) instrumented).getDelegate().getClass().getSimpleName());
+        assertSame(instrumented, injector.getInstance(STRING_TO_IMPACT));
+        assertEquals(1, metrics.statistics.size());
+
+        assertEquals(Impact.HIGH, instrumented.convert("HIGH", STRICT, logger));
+        instrumented.convert("invalid", LENIENT, logger);
+
+        ConversionStatistics statistics = statistics("Converter<String, Impact>");
+        assertNotNull(statistics);
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(1L, statistics.getLenientFailures());
+    }
+
+    @Test
+    public void testInstrumentingModuleDependencies() {
+        Injector injector = Guice.createInjector(new InstrumentingModule(Collections.singletonList(metrics), new BdgenomicsModule()));
+        Converter<String, TranscriptEffect> stringToTranscriptEffect = injector.getInstance(STRING_TO_TRANSCRIPT_EFFECT);
+        assertTrue(stringToTranscriptEffect instanceof InstrumentedConverter);
+
+        TranscriptEffect transcriptEffect = stringToTranscriptEffect.convert("T|upstream_gene_variant|MODIFIER|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T||||||", STRICT, logger);
+        assertEquals(Impact.MODIFIER, transcriptEffect.getImpact());
+        assertEquals(1L, statistics("Converter<String, TranscriptEffect>").getInvocations());
+        assertEquals(1L, statistics("Converter<String, Impact>").getInvocations());
+
+        // not a converter binding
+        assertNotNull(injector.getInstance(TranscriptEffectAppender.class));
+        assertNull(statistics("TranscriptEffectAppender"));
+    }
+
+    @Test
+    public void testInstrumentingModuleFactories() {
+        final TestFactory factory = new TestFactory() {
+                @Override
+                public Converter<String, Impact> create() {
+                    return stringToImpact;
+                }
+
+                @Override
+                public String name() {
+                    return "factory";
+                }
+            };
+
+        Injector injector = Guice.createInjector(new InstrumentingModule(Collections.singletonList(metrics), new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(TestFactory.class).toInstance(factory);
+                }
+            }));
+
+        TestFactory instrumented = injector.getInstance(TestFactory.class);
+        assertEquals("factory", instrumented.name());
+
+        Converter<String, Impact> first = instrumented.create();
+        Converter<String, Impact> second = instrumented.create();
+        assertTrue(first instanceof InstrumentedConverter);
+        first.convert("HIGH", STRICT, logger);
+        second.convert("invalid", SILENT, logger);
+
+        ConversionStatistics statistics = statistics("InstrumentingModuleTest$TestFactory.create");
+        assertNotNull(statistics);
+        assertEquals(2L, statistics.getInvocations());
+        assertEquals(1L, statistics.getSilentFailures());
+    }
+
+    @Test
+    public void testInstrumentingModuleUnscoped() {
+        Injector injector = Guice.createInjector(new InstrumentingModule(Collections.singletonList(metrics), new AbstractModule() {
+                @Provides
+                Converter<String, Impact> createStringToImpact() {
+                    return stringToImpact;
+                }
+            }));
+
+        Converter<String, Impact> first = injector.getInstance(STRING_TO_IMPACT);
+        Converter<String, Impact> second = injector.getInstance(STRING_TO_IMPACT);
+        first.convert("HIGH", STRICT, logger);
+        second.convert("LOW", STRICT, logger);
+        assertEquals(1, metrics.statistics.size());
+        assertEquals(2L, statistics("Converter<String, Impact>").getInvocations());
+    }
+
+    /**
+     * Factory interface.
+     */
+    public interface TestFactory {
+        Converter<String, Impact> create();
+        String name();
+    }
+
+    /**
+     * Conversion metrics that record registered conversion statistics.
+     */
+    static final class RecordingMetrics implements ConversionMetrics {
+        final List<ConversionStatistics> statistics = new ArrayList<ConversionStatistics>();
+
+        @Override
+        public void register(final ConversionStatistics statistics) {
+            this.statistics.add(statistics);
+        }
+    }
+}
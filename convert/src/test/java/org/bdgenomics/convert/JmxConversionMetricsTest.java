@@ -0,0 +1,99 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for JmxConversionMetrics.
+ */
+public final class JmxConversionMetricsTest {
+    private MBeanServer server;
+    private JmxConversionMetrics metrics;
+
+    @Before
+    public void setUp() {
+        server = MBeanServerFactory.newMBeanServer();
+        metrics = new JmxConversionMetrics(server);
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(metrics);
+        assertNotNull(new JmxConversionMetrics());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullServer() {
+        new JmxConversionMetrics(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testRegisterNullStatistics() {
+        metrics.register(null);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testObjectNameNullName() {
+        JmxConversionMetrics.objectName(null);
+    }
+
+    @Test
+    public void testObjectName() {
+        ObjectName objectName = JmxConversionMetrics.objectName("Converter<String, Impact>");
+        assertEquals("org.bdgenomics.convert", objectName.getDomain());
+        assertEquals("ConversionStatistics", objectName.getKeyProperty("type"));
+        assertEquals("Converter<String, Impact>", ObjectName.unquote(objectName.getKeyProperty("name")));
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        ConversionStatistics statistics = new ConversionStatistics("Converter<String, Impact>");
+        statistics.record(100L, null);
+        statistics.record(200L, ConversionStringency.LENIENT);
+        metrics.register(statistics);
+
+        ObjectName objectName = JmxConversionMetrics.objectName(statistics.getName());
+        assertTrue(server.isRegistered(objectName));
+        assertEquals("Converter<String, Impact>", server.getAttribute(objectName, "Name"));
+        assertEquals(2L, server.getAttribute(objectName, "Invocations"));
+        assertEquals(0L, server.getAttribute(objectName, "StrictFailures"));
+        assertEquals(1L, server.getAttribute(objectName, "LenientFailures"));
+        assertEquals(0L, server.getAttribute(objectName, "SilentFailures"));
+        assertEquals(150.0d, (Double) server.getAttribute(objectName, "MeanLatencyNanos"), 0.0001d);
+        assertEquals(200L, server.getAttribute(objectName, "MaxLatencyNanos"));
+    }
+
+    @Test
+    public void testRegisterReplaces() throws Exception {
+        metrics.register(new ConversionStatistics("test"));
+        ConversionStatistics statistics = new ConversionStatistics("test");
+        statistics.record(100L, null);
+        metrics.register(statistics);
+        assertEquals(1L, server.getAttribute(JmxConversionMetrics.objectName("test"), "Invocations"));
+    }
+}
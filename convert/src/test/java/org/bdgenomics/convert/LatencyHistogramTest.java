@@ -0,0 +1,154 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for LatencyHistogram.
+ */
+public final class LatencyHistogramTest {
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getSum());
+        assertEquals(0L, histogram.getMax());
+        assertEquals(0.0d, histogram.getMean(), 0.0d);
+        assertEquals(0L, histogram.getQuantile(0.5d));
+        assertArrayEquals(new long[LatencyHistogram.BUCKETS], histogram.getBucketCounts());
+    }
+
+    @Test
+    public void testBucket() {
+        assertEquals(0, LatencyHistogram.bucket(0L));
+        assertEquals(1, LatencyHistogram.bucket(1L));
+        assertEquals(2, LatencyHistogram.bucket(2L));
+        assertEquals(2, LatencyHistogram.bucket(3L));
+        assertEquals(3, LatencyHistogram.bucket(4L));
+        assertEquals(11, LatencyHistogram.bucket(1024L));
+        assertEquals(63, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testUpperBound() {
+        assertEquals(0L, LatencyHistogram.upperBound(0));
+        assertEquals(1L, LatencyHistogram.upperBound(1));
+        assertEquals(3L, LatencyHistogram.upperBound(2));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(63));
+    }
+
+    @Test
+    public void testRecord() {
+        histogram.record(1L);
+        histogram.record(3L);
+        histogram.record(100L);
+        histogram.record(-5L);
+
+        assertEquals(4L, histogram.getCount());
+        assertEquals(104L, histogram.getSum());
+        assertEquals(100L, histogram.getMax());
+        assertEquals(26.0d, histogram.getMean(), 0.0001d);
+
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(1L, counts[0]);
+        assertEquals(1L, counts[1]);
+        assertEquals(1L, counts[2]);
+        assertEquals(1L, counts[7]);
+    }
+
+    @Test
+    public void testRecordCount() {
+        histogram.record(10L, 3L);
+        histogram.record(10L, 0L);
+        assertEquals(3L, histogram.getCount());
+        assertEquals(30L, histogram.getSum());
+        assertEquals(3L, histogram.getBucketCounts()[4]);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testRecordNegativeCount() {
+        histogram.record(10L, -1L);
+    }
+
+    @Test
+    public void testQuantile() {
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100L);
+        }
+        histogram.record(5000L);
+
+        assertEquals(127L, histogram.getQuantile(0.0d));
+        assertEquals(127L, histogram.getQuantile(0.5d));
+        assertEquals(127L, histogram.getQuantile(0.99d));
+        assertEquals(5000L, histogram.getQuantile(1.0d));
+    }
+
+    @Test
+    public void testQuantileBucketUpperBound() {
+        histogram.record(100L);
+        histogram.record(200L);
+        assertEquals(127L, histogram.getQuantile(0.5d));
+        assertEquals(200L, histogram.getQuantile(1.0d));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testQuantileTooSmall() {
+        histogram.getQuantile(-0.1d);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testQuantileTooLarge() {
+        histogram.getQuantile(1.1d);
+    }
+
+    @Test
+    public void testRecordConcurrent() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 10000; i++) {
+                            histogram.record(i);
+                        }
+                    }
+                });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(1L, TimeUnit.MINUTES);
+
+        assertEquals(40000L, histogram.getCount());
+        assertEquals(4L * (9999L * 10000L / 2L), histogram.getSum());
+        assertEquals(9999L, histogram.getMax());
+    }
+}
@@ -17,7 +17,12 @@
  */
 package org.bdgenomics.convert.bdgenomics;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
@@ -40,10 +45,16 @@ import org.bdgenomics.formats.avro.VariantAnnotationMessage;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Unit test for BdgenomicsModule.
  */
 public final class BdgenomicsModuleTest {
+    private final Logger logger = LoggerFactory.getLogger(BdgenomicsModuleTest.class);
+    private static final String ANN = "T|upstream_gene_variant|HIGH|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T|||4|1/42|453|I3,"
+        + "T|missense_variant|MODERATE|TAS1R3|ENSG00000169962|transcript|ENST00000339381.6|protein_coding|2/6|c.12C>T|p.Leu4Phe|||||";
     private BdgenomicsModule module;
 
     @Before
@@ -56,6 +67,28 @@ public final class BdgenomicsModuleTest {
         assertNotNull(module);
     }
 
+    @Test
+    public void testTranscriptEffectAppenderShared() {
+        Injector injector = Guice.createInjector(module, new TestModule());
+        Target target = injector.getInstance(Target.class);
+        assertSame(target.getTranscriptEffectToString(), target.getTranscriptEffectAppender());
+    }
+
+    @Test
+    public void testInterned() {
+        Target target = Guice.createInjector(module, new TestModule()).getInstance(Target.class);
+        List<TranscriptEffect> transcriptEffects = target.getStringToTranscriptEffects().convert(ANN, ConversionStringency.STRICT, logger);
+        assertSame(transcriptEffects.get(0).getGeneName(), transcriptEffects.get(1).getGeneName());
+    }
+
+    @Test
+    public void testNotInterned() {
+        Target target = Guice.createInjector(new BdgenomicsModule(false), new TestModule()).getInstance(Target.class);
+        List<TranscriptEffect> transcriptEffects = target.getStringToTranscriptEffects().convert(ANN, ConversionStringency.STRICT, logger);
+        assertEquals(transcriptEffects.get(0).getGeneName(), transcriptEffects.get(1).getGeneName());
+        assertNotSame(transcriptEffects.get(0).getGeneName(), transcriptEffects.get(1).getGeneName());
+    }
+
     @Test
     public void testBdgenomicsModule() {
         Injector injector = Guice.createInjector(module, new TestModule());
@@ -70,6 +103,9 @@ public final class BdgenomicsModuleTest {
         assertNotNull(target.getStrandToString());
         assertNotNull(target.getStringToTranscriptEffect());
         assertNotNull(target.getTranscriptEffectToString());
+        assertNotNull(target.getTranscriptEffectAppender());
+        assertNotNull(target.getStringToTranscriptEffects());
+        assertNotNull(target.getTranscriptEffectsToString());
         assertNotNull(target.getStringToVariantAnnotationMessage());
         assertNotNull(target.getVariantAnnotationMessageToString());
         assertNotNull(target.getReadToSequence());
@@ -94,6 +130,9 @@ public final class BdgenomicsModuleTest {
         final Converter<Strand, String> strandToString;
         final Converter<String, TranscriptEffect> stringToTranscriptEffect;
         final Converter<TranscriptEffect, String> transcriptEffectToString;
+        final TranscriptEffectAppender transcriptEffectAppender;
+        final Converter<String, List<TranscriptEffect>> stringToTranscriptEffects;
+        final Converter<List<TranscriptEffect>, String> transcriptEffectsToString;
         final Converter<String, VariantAnnotationMessage> stringToVariantAnnotationMessage;
         final Converter<VariantAnnotationMessage, String> variantAnnotationMessageToString;
         final Converter<Read, Sequence> readToSequence;
@@ -114,6 +153,9 @@ public final class BdgenomicsModuleTest {
                final Converter<Strand, String> strandToString,
                final Converter<String, TranscriptEffect> stringToTranscriptEffect,
                final Converter<TranscriptEffect, String> transcriptEffectToString,
+               final TranscriptEffectAppender transcriptEffectAppender,
+               final Converter<String, List<TranscriptEffect>> stringToTranscriptEffects,
+               final Converter<List<TranscriptEffect>, String> transcriptEffectsToString,
                final Converter<String, VariantAnnotationMessage> stringToVariantAnnotationMessage,
                final Converter<VariantAnnotationMessage, String> variantAnnotationMessageToString,
                final Converter<Read, Sequence> readToSequence,
@@ -133,6 +175,9 @@ public final class BdgenomicsModuleTest {
             this.strandToString = strandToString;
             this.stringToTranscriptEffect = stringToTranscriptEffect;
             this.transcriptEffectToString = transcriptEffectToString;
+            this.transcriptEffectAppender = transcriptEffectAppender;
+            this.stringToTranscriptEffects = stringToTranscriptEffects;
+            this.transcriptEffectsToString = transcriptEffectsToString;
             this.stringToVariantAnnotationMessage = stringToVariantAnnotationMessage;
             this.variantAnnotationMessageToString = variantAnnotationMessageToString;
             this.readToSequence = readToSequence;
@@ -183,6 +228,18 @@ public final class BdgenomicsModuleTest {
             return transcriptEffectToString;
         }
 
+        TranscriptEffectAppender getTranscriptEffectAppender() {
+            return transcriptEffectAppender;
+        }
+
+        Converter<String, List<TranscriptEffect>> getStringToTranscriptEffects() {
+            return stringToTranscriptEffects;
+        }
+
+        Converter<List<TranscriptEffect>, String> getTranscriptEffectsToString() {
+            return transcriptEffectsToString;
+        }
+
         Converter<String, VariantAnnotationMessage> getStringToVariantAnnotationMessage() {
             return stringToVariantAnnotationMessage;
         }
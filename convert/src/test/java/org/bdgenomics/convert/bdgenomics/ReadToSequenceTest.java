@@ -20,6 +20,7 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -88,4 +89,53 @@ public final class ReadToSequenceTest {
 
         assertEquals(sequence, readToSequenceConverter.convert(read, ConversionStringency.STRICT, logger));
     }
+
+    @Test
+    public void testConvertIntoNull() {
+        assertNull(readToSequenceConverter.convertInto(null, new Sequence(), ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoNullAttributesStrict() {
+        Read read = Read.newBuilder().setName("name").build();
+        read.setAttributes(null);
+        readToSequenceConverter.convertInto(read, new Sequence(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIntoNullAttributesLenient() {
+        Read read = Read.newBuilder().setName("name").build();
+        read.setAttributes(null);
+        Sequence reuse = Sequence.newBuilder().setName("reused").build();
+        assertNull(readToSequenceConverter.convertInto(read, reuse, ConversionStringency.LENIENT, logger));
+        assertEquals("reused", reuse.getName());
+    }
+
+    @Test
+    public void testConvertInto() {
+        Sequence sequence = Sequence.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .build();
+
+        Read read = Read.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setQualityScores("BBBB")
+            .build();
+
+        Sequence reuse = Sequence.newBuilder()
+            .setName("reused")
+            .setSampleId("sample")
+            .build();
+
+        assertSame(reuse, readToSequenceConverter.convertInto(read, reuse, ConversionStringency.STRICT, logger));
+        assertEquals(sequence, reuse);
+    }
 }
@@ -20,6 +20,7 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -92,4 +93,56 @@ public final class ReadToSliceTest {
 
         assertEquals(slice, readToSliceConverter.convert(read, ConversionStringency.STRICT, logger));
     }
+
+    @Test
+    public void testConvertIntoNull() {
+        assertNull(readToSliceConverter.convertInto(null, new Slice(), ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoNullAttributesStrict() {
+        Read read = Read.newBuilder().setName("name").build();
+        read.setAttributes(null);
+        readToSliceConverter.convertInto(read, new Slice(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIntoNullAttributesLenient() {
+        Read read = Read.newBuilder().setName("name").build();
+        read.setAttributes(null);
+        Slice reuse = Slice.newBuilder().setName("reused").build();
+        assertNull(readToSliceConverter.convertInto(read, reuse, ConversionStringency.LENIENT, logger));
+        assertEquals("reused", reuse.getName());
+    }
+
+    @Test
+    public void testConvertInto() {
+        Slice slice = Slice.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setStart(0L)
+            .setEnd(4L)
+            .setStrand(Strand.INDEPENDENT)
+            .build();
+
+        Read read = Read.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setQualityScores("BBBB")
+            .build();
+
+        Slice reuse = Slice.newBuilder()
+            .setName("reused")
+            .setSampleId("sample")
+            .build();
+
+        assertSame(reuse, readToSliceConverter.convertInto(read, reuse, ConversionStringency.STRICT, logger));
+        assertEquals(slice, reuse);
+    }
 }
@@ -20,6 +20,7 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -88,4 +89,53 @@ public final class SequenceToReadTest {
 
         assertEquals(read, sequenceToReadConverter.convert(sequence, ConversionStringency.STRICT, logger));
     }
+
+    @Test
+    public void testConvertIntoNull() {
+        assertNull(sequenceToReadConverter.convertInto(null, new Read(), ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoNullAttributesStrict() {
+        Sequence sequence = Sequence.newBuilder().setName("name").build();
+        sequence.setAttributes(null);
+        sequenceToReadConverter.convertInto(sequence, new Read(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIntoNullAttributesLenient() {
+        Sequence sequence = Sequence.newBuilder().setName("name").build();
+        sequence.setAttributes(null);
+        Read reuse = Read.newBuilder().setName("reused").build();
+        assertNull(sequenceToReadConverter.convertInto(sequence, reuse, ConversionStringency.LENIENT, logger));
+        assertEquals("reused", reuse.getName());
+    }
+
+    @Test
+    public void testConvertInto() {
+        Sequence sequence = Sequence.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .build();
+
+        Read read = Read.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setQualityScores("BBBB")
+            .build();
+
+        Read reuse = Read.newBuilder()
+            .setName("reused")
+            .setSampleId("sample")
+            .build();
+
+        assertSame(reuse, sequenceToReadConverter.convertInto(sequence, reuse, ConversionStringency.STRICT, logger));
+        assertEquals(read, reuse);
+    }
 }
@@ -20,6 +20,7 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -91,4 +92,55 @@ public final class SequenceToSliceTest {
 
         assertEquals(slice, sequenceToSliceConverter.convert(sequence, ConversionStringency.STRICT, logger));
     }
+
+    @Test
+    public void testConvertIntoNull() {
+        assertNull(sequenceToSliceConverter.convertInto(null, new Slice(), ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoNullAttributesStrict() {
+        Sequence sequence = Sequence.newBuilder().setName("name").build();
+        sequence.setAttributes(null);
+        sequenceToSliceConverter.convertInto(sequence, new Slice(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIntoNullAttributesLenient() {
+        Sequence sequence = Sequence.newBuilder().setName("name").build();
+        sequence.setAttributes(null);
+        Slice reuse = Slice.newBuilder().setName("reused").build();
+        assertNull(sequenceToSliceConverter.convertInto(sequence, reuse, ConversionStringency.LENIENT, logger));
+        assertEquals("reused", reuse.getName());
+    }
+
+    @Test
+    public void testConvertInto() {
+        Sequence sequence = Sequence.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .build();
+
+        Slice slice = Slice.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setStart(0L)
+            .setEnd(4L)
+            .setStrand(Strand.INDEPENDENT)
+            .build();
+
+        Slice reuse = Slice.newBuilder()
+            .setName("reused")
+            .setSampleId("sample")
+            .build();
+
+        assertSame(reuse, sequenceToSliceConverter.convertInto(sequence, reuse, ConversionStringency.STRICT, logger));
+        assertEquals(slice, reuse);
+    }
 }
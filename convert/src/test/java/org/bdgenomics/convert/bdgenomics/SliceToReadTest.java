@@ -20,6 +20,7 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -92,4 +93,56 @@ public final class SliceToReadTest {
 
         assertEquals(read, sliceToReadConverter.convert(slice, ConversionStringency.STRICT, logger));
     }
+
+    @Test
+    public void testConvertIntoNull() {
+        assertNull(sliceToReadConverter.convertInto(null, new Read(), ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoNullAttributesStrict() {
+        Slice slice = Slice.newBuilder().setName("name").build();
+        slice.setAttributes(null);
+        sliceToReadConverter.convertInto(slice, new Read(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIntoNullAttributesLenient() {
+        Slice slice = Slice.newBuilder().setName("name").build();
+        slice.setAttributes(null);
+        Read reuse = Read.newBuilder().setName("reused").build();
+        assertNull(sliceToReadConverter.convertInto(slice, reuse, ConversionStringency.LENIENT, logger));
+        assertEquals("reused", reuse.getName());
+    }
+
+    @Test
+    public void testConvertInto() {
+        Slice slice = Slice.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setStart(0L)
+            .setEnd(4L)
+            .setStrand(Strand.INDEPENDENT)
+            .build();
+
+        Read read = Read.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setQualityScores("BBBB")
+            .build();
+
+        Read reuse = Read.newBuilder()
+            .setName("reused")
+            .setSampleId("sample")
+            .build();
+
+        assertSame(reuse, sliceToReadConverter.convertInto(slice, reuse, ConversionStringency.STRICT, logger));
+        assertEquals(read, reuse);
+    }
 }
@@ -20,6 +20,7 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
@@ -91,4 +92,55 @@ public final class SliceToSequenceTest {
 
         assertEquals(sequence, sliceToSequenceConverter.convert(slice, ConversionStringency.STRICT, logger));
     }
+
+    @Test
+    public void testConvertIntoNull() {
+        assertNull(sliceToSequenceConverter.convertInto(null, new Sequence(), ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertIntoNullAttributesStrict() {
+        Slice slice = Slice.newBuilder().setName("name").build();
+        slice.setAttributes(null);
+        sliceToSequenceConverter.convertInto(slice, new Sequence(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertIntoNullAttributesLenient() {
+        Slice slice = Slice.newBuilder().setName("name").build();
+        slice.setAttributes(null);
+        Sequence reuse = Sequence.newBuilder().setName("reused").build();
+        assertNull(sliceToSequenceConverter.convertInto(slice, reuse, ConversionStringency.LENIENT, logger));
+        assertEquals("reused", reuse.getName());
+    }
+
+    @Test
+    public void testConvertInto() {
+        Sequence sequence = Sequence.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .build();
+
+        Slice slice = Slice.newBuilder()
+            .setName("name")
+            .setDescription("description")
+            .setAlphabet(Alphabet.DNA)
+            .setSequence("actg")
+            .setLength(4L)
+            .setStart(0L)
+            .setEnd(4L)
+            .setStrand(Strand.INDEPENDENT)
+            .build();
+
+        Sequence reuse = Sequence.newBuilder()
+            .setName("reused")
+            .setSampleId("sample")
+            .build();
+
+        assertSame(reuse, sliceToSequenceConverter.convertInto(slice, reuse, ConversionStringency.STRICT, logger));
+        assertEquals(sequence, reuse);
+    }
 }
@@ -0,0 +1,141 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.bdgenomics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Splitter;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.Impact;
+import org.bdgenomics.formats.avro.TranscriptEffect;
+import org.bdgenomics.formats.avro.VariantAnnotationMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark for StringToTranscriptEffect, compared against the previous
+ * Splitter-based parser.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringToTranscriptEffectBenchmark {
+    private static final String VALUE = "T|upstream_gene_variant&5_prime_UTR_variant|MODIFIER|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/6|c.-485C>T|p.Leu12Phe|100/2000|80/1800|27/600|453|W1&I3";
+    private static final Logger logger = LoggerFactory.getLogger(StringToTranscriptEffectBenchmark.class);
+    private Converter<String, Impact> impactConverter;
+    private Converter<String, VariantAnnotationMessage> variantAnnotationMessageConverter;
+    private StringToTranscriptEffect transcriptEffectConverter;
+    private List<String> values;
+
+
+    @Setup
+    public void setUp() {
+        impactConverter = new StringToImpact();
+        variantAnnotationMessageConverter = new StringToVariantAnnotationMessage();
+        transcriptEffectConverter = new StringToTranscriptEffect(impactConverter, variantAnnotationMessageConverter);
+        values = new ArrayList<String>(1000);
+        for (int i = 0; i < 1000; i++) {
+            values.add(VALUE);
+        }
+    }
+
+    @Benchmark
+    public TranscriptEffect splitter() {
+        List<String> tokens = Splitter.on("|").splitToList(VALUE);
+        return TranscriptEffect.newBuilder()
+            .setAlternateAllele(emptyToNull(tokens.get(0)))
+            .setEffects(Splitter.on("&").omitEmptyStrings().splitToList(tokens.get(1)))
+            .setImpact(impactConverter.convert(tokens.get(2), ConversionStringency.STRICT, logger))
+            .setGeneName(emptyToNull(tokens.get(3)))
+            .setGeneId(emptyToNull(tokens.get(4)))
+            .setFeatureType(emptyToNull(tokens.get(5)))
+            .setFeatureId(emptyToNull(tokens.get(6)))
+            .setBiotype(emptyToNull(tokens.get(7)))
+            .setRank(numerator(tokens.get(8)))
+            .setTotal(denominator(tokens.get(8)))
+            .setTranscriptHgvs(emptyToNull(tokens.get(9)))
+            .setProteinHgvs(emptyToNull(tokens.get(10)))
+            .setCdnaPosition(numerator(tokens.get(11)))
+            .setCdnaLength(denominator(tokens.get(11)))
+            .setCodingSequencePosition(numerator(tokens.get(12)))
+            .setCodingSequenceLength(denominator(tokens.get(12)))
+            .setProteinPosition(numerator(tokens.get(13)))
+            .setProteinLength(denominator(tokens.get(13)))
+            .setDistance(Integer.parseInt(tokens.get(14)))
+            .setMessages(messages(tokens.get(15)))
+            .build();
+    }
+
+    @Benchmark
+    public TranscriptEffect scanner() {
+        return transcriptEffectConverter.convert(VALUE, ConversionStringency.STRICT, logger);
+    }
+
+    @Benchmark
+    public List<TranscriptEffect> scannerBatch() {
+        return transcriptEffectConverter.convertAll(values, new ArrayList<TranscriptEffect>(values.size()), ConversionStringency.STRICT, logger);
+    }
+
+    private static String emptyToNull(final String s) {
+        return "".equals(s) ? null : s;
+    }
+
+    private static Integer numerator(final String s) {
+        return "".equals(s) ? null : Integer.parseInt(s.split("/")[0]);
+    }
+
+    private static Integer denominator(final String s) {
+        return "".equals(s) ? null : Integer.parseInt(s.split("/")[1]);
+    }
+
+    private List<VariantAnnotationMessage> messages(final String s) {
+        List<VariantAnnotationMessage> messages = new ArrayList<VariantAnnotationMessage>();
+        for (String m : Splitter.on("&").omitEmptyStrings().split(s)) {
+            messages.add(variantAnnotationMessageConverter.convert(m, ConversionStringency.STRICT, logger));
+        }
+        return messages;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StringToTranscriptEffectBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -22,6 +22,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
@@ -171,4 +175,66 @@ public final class StringToTranscriptEffectTest {
         assertEquals(Integer.valueOf(453), te.getDistance());
         assertTrue(te.getMessages().contains(VariantAnnotationMessage.INFO_NON_REFERENCE_ANNOTATION));
     }
+
+    @Test
+    public void testConvertMultipleEffectsAndMessages() {
+        TranscriptEffect te = transcriptEffectConverter.convert("T|upstream_gene_variant&&5_prime_UTR_variant|||||||||||||-12|W1&I3", ConversionStringency.STRICT, logger);
+        assertEquals(Arrays.asList("upstream_gene_variant", "5_prime_UTR_variant"), te.getEffects());
+        assertNull(te.getImpact());
+        assertNull(te.getRank());
+        assertNull(te.getTotal());
+        assertEquals(Integer.valueOf(-12), te.getDistance());
+        assertEquals(Arrays.asList(VariantAnnotationMessage.WARNING_REF_DOES_NOT_MATCH_GENOME, VariantAnnotationMessage.INFO_NON_REFERENCE_ANNOTATION), te.getMessages());
+    }
+
+    @Test
+    public void testConvertRange() {
+        String value = "ANN=" + VALID + ",";
+        TranscriptEffect te = ((StringToTranscriptEffect) transcriptEffectConverter).convert(value, 4, value.length() - 1, new int[StringToTranscriptEffect.FIELDS + 1], null, TranscriptEffect.newBuilder(), ConversionStringency.STRICT, logger);
+        assertEquals(transcriptEffectConverter.convert(VALID, ConversionStringency.STRICT, logger), te);
+    }
+
+    @Test
+    public void testParseInteger() {
+        assertNull(StringToTranscriptEffect.parseInteger("x", 0, 0));
+        assertEquals(Integer.valueOf(42), StringToTranscriptEffect.parseInteger("x42x", 1, 3));
+        assertEquals(Integer.valueOf(-42), StringToTranscriptEffect.parseInteger("-42", 0, 3));
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), StringToTranscriptEffect.parseInteger(String.valueOf(Integer.MAX_VALUE), 0, 10));
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), StringToTranscriptEffect.parseInteger(String.valueOf(Integer.MIN_VALUE), 0, 11));
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testParseIntegerOverflow() {
+        StringToTranscriptEffect.parseInteger("2147483648", 0, 10);
+    }
+
+    @Test(expected=NumberFormatException.class)
+    public void testParseIntegerSignOnly() {
+        StringToTranscriptEffect.parseInteger("-", 0, 1);
+    }
+
+    @Test
+    public void testConvertAll() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectConverter.convertAll(Arrays.asList(VALID, INVALID_NUMBER, VALID), new ArrayList<TranscriptEffect>(), ConversionStringency.LENIENT, logger);
+        assertEquals(3, transcriptEffects.size());
+        assertEquals(transcriptEffectConverter.convert(VALID, ConversionStringency.STRICT, logger), transcriptEffects.get(0));
+        assertNull(transcriptEffects.get(1));
+        assertEquals(transcriptEffects.get(0), transcriptEffects.get(2));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertAllInvalidStrict() {
+        transcriptEffectConverter.convertAll(Arrays.asList(VALID, INVALID), new ArrayList<TranscriptEffect>(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertAllInvalidSilent() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectConverter.convertAll(Arrays.asList(null, INVALID, EMPTY), new ArrayList<TranscriptEffect>(), ConversionStringency.SILENT, logger);
+        assertEquals(Arrays.asList(null, null, null), transcriptEffects);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConvertAllNullSources() {
+        transcriptEffectConverter.convertAll(null, new ArrayList<TranscriptEffect>(), ConversionStringency.STRICT, logger);
+    }
 }
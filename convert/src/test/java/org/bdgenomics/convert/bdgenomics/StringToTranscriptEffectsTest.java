@@ -0,0 +1,147 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.bdgenomics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for StringToTranscriptEffects.
+ */
+public final class StringToTranscriptEffectsTest {
+    private final Logger logger = LoggerFactory.getLogger(StringToTranscriptEffectsTest.class);
+    private StringToTranscriptEffect transcriptEffectConverter;
+    private Converter<String, List<TranscriptEffect>> transcriptEffectsConverter;
+    private static final String VALID = "T|upstream_gene_variant|HIGH|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T|||4|1/42|453|I3";
+    private static final String VALID2 = "T|missense_variant|MODERATE|TAS1R3|ENSG00000169962|transcript|ENST00000339381.6|protein_coding|2/6|c.12C>T|p.Leu4Phe|||||";
+    private static final String INVALID = "T|upstream_gene_variant||TAS1R3";
+
+    @Before
+    public void setUp() {
+        transcriptEffectConverter = new StringToTranscriptEffect(new StringToImpact(), new StringToVariantAnnotationMessage());
+        transcriptEffectsConverter = new StringToTranscriptEffects(transcriptEffectConverter, true);
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(transcriptEffectsConverter);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectConverter() {
+        new StringToTranscriptEffects(null, true);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        transcriptEffectsConverter.convert(null, ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(transcriptEffectsConverter.convert(null, ConversionStringency.LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(transcriptEffectsConverter.convert(null, ConversionStringency.SILENT, logger));
+    }
+
+    @Test
+    public void testConvertEmpty() {
+        assertTrue(transcriptEffectsConverter.convert("", ConversionStringency.STRICT, logger).isEmpty());
+    }
+
+    @Test
+    public void testConvertSingle() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectsConverter.convert(VALID, ConversionStringency.STRICT, logger);
+        assertEquals(1, transcriptEffects.size());
+        assertEquals(transcriptEffectConverter.convert(VALID, ConversionStringency.STRICT, logger), transcriptEffects.get(0));
+    }
+
+    @Test
+    public void testConvert() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectsConverter.convert(VALID + "," + VALID2, ConversionStringency.STRICT, logger);
+        assertEquals(2, transcriptEffects.size());
+        assertEquals(transcriptEffectConverter.convert(VALID, ConversionStringency.STRICT, logger), transcriptEffects.get(0));
+        assertEquals(transcriptEffectConverter.convert(VALID2, ConversionStringency.STRICT, logger), transcriptEffects.get(1));
+    }
+
+    @Test
+    public void testConvertInterned() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectsConverter.convert(VALID + "," + VALID2, ConversionStringency.STRICT, logger);
+        assertSame(transcriptEffects.get(0).getGeneName(), transcriptEffects.get(1).getGeneName());
+        assertSame(transcriptEffects.get(0).getGeneId(), transcriptEffects.get(1).getGeneId());
+        assertSame(transcriptEffects.get(0).getBiotype(), transcriptEffects.get(1).getBiotype());
+    }
+
+    @Test
+    public void testConvertNotInterned() {
+        transcriptEffectsConverter = new StringToTranscriptEffects(transcriptEffectConverter, false);
+        List<TranscriptEffect> transcriptEffects = transcriptEffectsConverter.convert(VALID + "," + VALID2, ConversionStringency.STRICT, logger);
+        assertEquals(transcriptEffects.get(0).getGeneName(), transcriptEffects.get(1).getGeneName());
+        assertTrue(transcriptEffects.get(0).getGeneName() != transcriptEffects.get(1).getGeneName());
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidStrict() {
+        transcriptEffectsConverter.convert(VALID + "," + INVALID, ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertInvalidLenient() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectsConverter.convert(VALID + "," + INVALID + "," + VALID2, ConversionStringency.LENIENT, logger);
+        assertEquals(2, transcriptEffects.size());
+        assertEquals(transcriptEffectConverter.convert(VALID2, ConversionStringency.STRICT, logger), transcriptEffects.get(1));
+    }
+
+    @Test
+    public void testConvertInvalidSilent() {
+        List<TranscriptEffect> transcriptEffects = transcriptEffectsConverter.convert(INVALID + ",", ConversionStringency.SILENT, logger);
+        assertTrue(transcriptEffects.isEmpty());
+    }
+
+    @Test
+    public void testConvertAll() {
+        List<List<TranscriptEffect>> transcriptEffects = transcriptEffectsConverter.convertAll(Arrays.asList(VALID, null, VALID + "," + VALID2), new ArrayList<List<TranscriptEffect>>(), ConversionStringency.LENIENT, logger);
+        assertEquals(3, transcriptEffects.size());
+        assertEquals(1, transcriptEffects.get(0).size());
+        assertNull(transcriptEffects.get(1));
+        assertEquals(2, transcriptEffects.get(2).size());
+        assertEquals(transcriptEffects.get(0).get(0), transcriptEffects.get(2).get(0));
+    }
+}
@@ -20,13 +20,21 @@ package org.bdgenomics.convert.bdgenomics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.bdgenomics.convert.Converter;
 import org.bdgenomics.convert.ConversionException;
 import org.bdgenomics.convert.ConversionStringency;
+import org.bdgenomics.convert.FailureAggregator;
 
 import org.bdgenomics.formats.avro.Impact;
 import org.bdgenomics.formats.avro.TranscriptEffect;
@@ -45,6 +53,7 @@ public final class TranscriptEffectToStringTest {
     private Converter<Impact, String> impactConverter;
     private Converter<TranscriptEffect, String> transcriptEffectConverter;
     private Converter<VariantAnnotationMessage, String> variantAnnotationMessageConverter;
+    private TranscriptEffectAppender transcriptEffectAppender;
     private final Logger logger = LoggerFactory.getLogger(TranscriptEffectToStringTest.class);
     private static final String VALID = "T|upstream_gene_variant|HIGH|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T|||4|1/42|453|I3";
 
@@ -53,6 +62,7 @@ public final class TranscriptEffectToStringTest {
         impactConverter = new ImpactToString();
         variantAnnotationMessageConverter = new VariantAnnotationMessageToString();
         transcriptEffectConverter = new TranscriptEffectToString(impactConverter, variantAnnotationMessageConverter);
+        transcriptEffectAppender = new TranscriptEffectToString(impactConverter, variantAnnotationMessageConverter);
     }
 
     @Test
@@ -109,6 +119,31 @@ public final class TranscriptEffectToStringTest {
         assertNull(transcriptEffectConverter.convert(invalidFraction, ConversionStringency.SILENT, logger));
     }
 
+    @Test
+    public void testConvertInvalidFractionMessage() {
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+        try {
+            transcriptEffectConverter.convert(invalidFraction, ConversionStringency.STRICT, logger);
+            fail("expected ConversionException");
+        }
+        catch (ConversionException e) {
+            assertTrue(e.getMessage().endsWith("invalid fraction, missing numerator: ?/4"));
+        }
+    }
+
+    @Test
+    public void testConvertInvalidFractionAggregated() {
+        try (FailureAggregator failures = FailureAggregator.aggregate(logger)) {
+            transcriptEffectConverter.convert(TranscriptEffect.newBuilder().setTotal(4).build(), ConversionStringency.LENIENT, logger);
+            transcriptEffectConverter.convert(TranscriptEffect.newBuilder().setCdnaLength(1200).build(), ConversionStringency.LENIENT, logger);
+            // fractions are kept with the example sources, not in the message template
+            assertEquals(1, failures.getCounts().size());
+            assertTrue(failures.getSamples().values().iterator().next().get(0).startsWith("?/4: "));
+        }
+    }
+
     @Test
     public void testConvert() {
         TranscriptEffect te = TranscriptEffect.newBuilder()
@@ -133,6 +168,161 @@ public final class TranscriptEffectToStringTest {
         assertEquals(VALID, transcriptEffectConverter.convert(te, ConversionStringency.STRICT, logger));
     }
 
+    @Test
+    public void testConvertAll() {
+        TranscriptEffect te = TranscriptEffect.newBuilder()
+            .setAlternateAllele("T")
+            .setImpact(Impact.HIGH)
+            .setEffects(listOf("upstream_gene_variant"))
+            .setGeneName("TAS1R3")
+            .setGeneId("ENSG00000169962")
+            .setFeatureType("transcript")
+            .setFeatureId("ENST00000339381.5")
+            .setBiotype("protein_coding")
+            .setTranscriptHgvs("c.-485C>T")
+            .setRank(1)
+            .setTotal(2)
+            .setCodingSequencePosition(4)
+            .setProteinPosition(1)
+            .setProteinLength(42)
+            .setDistance(453)
+            .setMessages(listOf(VariantAnnotationMessage.INFO_NON_REFERENCE_ANNOTATION))
+            .build();
+
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+
+        List<TranscriptEffect> transcriptEffects = new ArrayList<TranscriptEffect>();
+        transcriptEffects.add(te);
+        transcriptEffects.add(invalidFraction);
+        transcriptEffects.add(te);
+
+        List<String> values = transcriptEffectConverter.convertAll(transcriptEffects, new ArrayList<String>(), ConversionStringency.LENIENT, logger);
+        assertEquals(3, values.size());
+        assertEquals(VALID, values.get(0));
+        assertNull(values.get(1));
+        assertEquals(VALID, values.get(2));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertAllInvalidFractionStrict() {
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+
+        transcriptEffectConverter.convertAll(listOf(invalidFraction), new ArrayList<String>(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConvertAllNullTargets() {
+        transcriptEffectConverter.convertAll(new ArrayList<TranscriptEffect>(), null, ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testAppendTo() {
+        StringBuilder sb = new StringBuilder("ANN=");
+        assertSame(sb, transcriptEffectAppender.appendTo(createTranscriptEffect(), sb, ConversionStringency.STRICT, logger));
+        assertEquals("ANN=" + VALID, sb.toString());
+    }
+
+    @Test
+    public void testAppendToInvalidFractionLenient() {
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+
+        StringBuilder sb = new StringBuilder("ANN=");
+        transcriptEffectAppender.appendTo(invalidFraction, sb, ConversionStringency.LENIENT, logger);
+        assertEquals("ANN=", sb.toString());
+    }
+
+    @Test
+    public void testAppendToNullMessageLenient() {
+        TranscriptEffect nullMessage = createTranscriptEffect();
+        nullMessage.setMessages(Arrays.asList(VariantAnnotationMessage.INFO_NON_REFERENCE_ANNOTATION, null));
+
+        StringBuilder sb = new StringBuilder("ANN=");
+        transcriptEffectAppender.appendTo(nullMessage, sb, ConversionStringency.LENIENT, logger);
+        assertEquals("ANN=", sb.toString());
+        assertNull(transcriptEffectConverter.convert(nullMessage, ConversionStringency.SILENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testAppendToNullMessageStrict() {
+        TranscriptEffect nullMessage = createTranscriptEffect();
+        nullMessage.setMessages(Arrays.asList(VariantAnnotationMessage.INFO_NON_REFERENCE_ANNOTATION, null));
+        transcriptEffectAppender.appendTo(nullMessage, new StringBuilder(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testAppendToNullStrict() {
+        transcriptEffectAppender.appendTo(null, new StringBuilder(), ConversionStringency.STRICT, logger);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testAppendToNullStringBuilder() {
+        transcriptEffectAppender.appendTo(createTranscriptEffect(), (StringBuilder) null, ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testAppendToAppendable() throws IOException {
+        StringWriter writer = new StringWriter();
+        assertSame(writer, transcriptEffectAppender.appendTo(createTranscriptEffect(), writer, ConversionStringency.STRICT, logger));
+        assertEquals(VALID, writer.toString());
+    }
+
+    @Test
+    public void testAppendAllTo() {
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+
+        StringBuilder sb = new StringBuilder();
+        transcriptEffectAppender.appendAllTo(Arrays.asList(invalidFraction, createTranscriptEffect(), null, createTranscriptEffect()), sb, ConversionStringency.SILENT, logger);
+        assertEquals(VALID + "," + VALID, sb.toString());
+    }
+
+    @Test
+    public void testAppendAllToEmpty() {
+        StringBuilder sb = new StringBuilder();
+        transcriptEffectAppender.appendAllTo(new ArrayList<TranscriptEffect>(), sb, ConversionStringency.STRICT, logger);
+        assertEquals("", sb.toString());
+    }
+
+    @Test
+    public void testAppendAllToAppendable() throws IOException {
+        StringWriter writer = new StringWriter();
+        transcriptEffectAppender.appendAllTo(Arrays.asList(createTranscriptEffect(), createTranscriptEffect()), writer, ConversionStringency.STRICT, logger);
+        assertEquals(VALID + "," + VALID, writer.toString());
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testAppendAllToNullTranscriptEffects() {
+        transcriptEffectAppender.appendAllTo(null, new StringBuilder(), ConversionStringency.STRICT, logger);
+    }
+
+    private static TranscriptEffect createTranscriptEffect() {
+        return TranscriptEffect.newBuilder()
+            .setAlternateAllele("T")
+            .setImpact(Impact.HIGH)
+            .setEffects(listOf("upstream_gene_variant"))
+            .setGeneName("TAS1R3")
+            .setGeneId("ENSG00000169962")
+            .setFeatureType("transcript")
+            .setFeatureId("ENST00000339381.5")
+            .setBiotype("protein_coding")
+            .setTranscriptHgvs("c.-485C>T")
+            .setRank(1)
+            .setTotal(2)
+            .setCodingSequencePosition(4)
+            .setProteinPosition(1)
+            .setProteinLength(42)
+            .setDistance(453)
+            .setMessages(listOf(VariantAnnotationMessage.INFO_NON_REFERENCE_ANNOTATION))
+            .build();
+    }
+
     private static <T> List<T> listOf(final T value) {
         List<T> list = new ArrayList<T>();
         list.add(value);
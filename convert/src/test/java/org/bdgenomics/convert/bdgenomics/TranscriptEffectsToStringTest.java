@@ -0,0 +1,118 @@
+/**
+ * Licensed to Big Data Genomics (BDG) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The BDG licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bdgenomics.convert.bdgenomics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bdgenomics.convert.Converter;
+import org.bdgenomics.convert.ConversionException;
+import org.bdgenomics.convert.ConversionStringency;
+
+import org.bdgenomics.formats.avro.TranscriptEffect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test for TranscriptEffectsToString.
+ */
+public final class TranscriptEffectsToStringTest {
+    private final Logger logger = LoggerFactory.getLogger(TranscriptEffectsToStringTest.class);
+    private Converter<String, List<TranscriptEffect>> stringToTranscriptEffects;
+    private Converter<List<TranscriptEffect>, String> transcriptEffectsConverter;
+    private static final String VALID = "T|upstream_gene_variant|HIGH|TAS1R3|ENSG00000169962|transcript|ENST00000339381.5|protein_coding|1/2|c.-485C>T|||4|1/42|453|I3";
+    private static final String VALID2 = "T|missense_variant|MODERATE|TAS1R3|ENSG00000169962|transcript|ENST00000339381.6|protein_coding|2/6|c.12C>T|p.Leu4Phe|||||";
+
+    @Before
+    public void setUp() {
+        stringToTranscriptEffects = new StringToTranscriptEffects(new StringToTranscriptEffect(new StringToImpact(), new StringToVariantAnnotationMessage()), false);
+        transcriptEffectsConverter = new TranscriptEffectsToString(new TranscriptEffectToString(new ImpactToString(), new VariantAnnotationMessageToString()));
+    }
+
+    @Test
+    public void testConstructor() {
+        assertNotNull(transcriptEffectsConverter);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testConstructorNullTranscriptEffectAppender() {
+        new TranscriptEffectsToString(null);
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertNullStrict() {
+        transcriptEffectsConverter.convert(null, ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertNullLenient() {
+        assertNull(transcriptEffectsConverter.convert(null, ConversionStringency.LENIENT, logger));
+    }
+
+    @Test
+    public void testConvertNullSilent() {
+        assertNull(transcriptEffectsConverter.convert(null, ConversionStringency.SILENT, logger));
+    }
+
+    @Test
+    public void testConvertEmpty() {
+        assertEquals("", transcriptEffectsConverter.convert(new ArrayList<TranscriptEffect>(), ConversionStringency.STRICT, logger));
+    }
+
+    @Test
+    public void testConvertRoundTrip() {
+        String value = VALID + "," + VALID2;
+        assertEquals(value, transcriptEffectsConverter.convert(stringToTranscriptEffects.convert(value, ConversionStringency.STRICT, logger), ConversionStringency.STRICT, logger));
+    }
+
+    @Test
+    public void testConvertInvalidFractionLenient() {
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+
+        List<TranscriptEffect> transcriptEffects = new ArrayList<TranscriptEffect>(stringToTranscriptEffects.convert(VALID, ConversionStringency.STRICT, logger));
+        transcriptEffects.add(invalidFraction);
+        assertEquals(VALID, transcriptEffectsConverter.convert(transcriptEffects, ConversionStringency.LENIENT, logger));
+    }
+
+    @Test(expected=ConversionException.class)
+    public void testConvertInvalidFractionStrict() {
+        TranscriptEffect invalidFraction = TranscriptEffect.newBuilder()
+            .setTotal(4)
+            .build();
+
+        transcriptEffectsConverter.convert(Arrays.asList(invalidFraction), ConversionStringency.STRICT, logger);
+    }
+
+    @Test
+    public void testConvertAll() {
+        List<TranscriptEffect> transcriptEffects = stringToTranscriptEffects.convert(VALID + "," + VALID2, ConversionStringency.STRICT, logger);
+        List<String> values = transcriptEffectsConverter.convertAll(Arrays.asList(transcriptEffects, null, transcriptEffects.subList(1, 2)), new ArrayList<String>(), ConversionStringency.LENIENT, logger);
+        assertEquals(Arrays.asList(VALID + "," + VALID2, null, VALID2), values);
+    }
+}